@@ -92,6 +92,17 @@ public abstract class UIMAFramework {
    */
   public static final String JCAS_CACHE_ENABLED = "jcas_cache_enabled";
 
+  /**
+   * Key to be used in the Properties object returned by
+   * {@link #getDefaultPerformanceTuningProperties()}. The value of this key indicates whether the
+   * JCas object cache should be kept in a paged array indexed by the CAS heap address, instead of
+   * in a hash map. This makes the lookup of JCas cover objects faster, at the cost of more memory
+   * for CASes where only a few of the Feature Structures have cover objects. A value of "true"
+   * (case insensitive) selects the paged array; the default is set by the JVM property
+   * <code>uima.jcas_cache_dense</code>, and is otherwise false.
+   */
+  public static final String JCAS_CACHE_DENSE = "jcas_cache_dense";
+
   /**
    * To be implemented by subclasses; this should return a Properties object representing the
    * default performance tuning settings for the framework. It must return a new Properties object
@@ -19,6 +19,7 @@
 
 package org.apache.uima.analysis_engine.asb.impl;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -30,6 +31,8 @@ import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import org.apache.uima.ResourceFactory;
 import org.apache.uima.UIMAFramework;
@@ -56,6 +59,7 @@ import org.apache.uima.flow.SimpleStep;
 import org.apache.uima.flow.SimpleStepWithResultSpec;
 import org.apache.uima.flow.Step;
 import org.apache.uima.flow.impl.FlowControllerContext_impl;
+import org.apache.uima.internal.util.ParallelInitializer;
 import org.apache.uima.resource.Resource;
 import org.apache.uima.resource.ResourceCreationSpecifier;
 import org.apache.uima.resource.ResourceInitializationException;
@@ -209,6 +213,35 @@ public class ASB_impl extends Resource_ImplBase implements ASB {
     mComponentAnalysisEngineMetaDataMap.clear();
     mAllComponentMetaDataMap.clear();
 
+    final int nbrInitThreads = ParallelInitializer.getNumInitThreads(mInitParams);
+    if (nbrInitThreads > 1 && aSpecifiers.size() > 1) {
+      setupDelegatesInParallel(aSpecifiers, aParentContext, nbrInitThreads);
+    } else {
+      setupDelegates(aSpecifiers, aParentContext);
+    }
+
+    // make Maps unmodifiable
+    mComponentAnalysisEngineMap = Collections.unmodifiableMap(mComponentAnalysisEngineMap);
+    mComponentAnalysisEngineMetaDataMap = Collections
+            .unmodifiableMap(mComponentAnalysisEngineMetaDataMap);
+
+    mOutputNewCASes = aAggregateMetadata.getOperationalProperties().getOutputsNewCASes();
+
+    // initialize the FlowController
+    initFlowController(aFlowControllerDeclaration, aParentContext, aAggregateMetadata);
+
+    // initialize the AllComponentMetaData map to include AEs plus the FlowController
+    mAllComponentMetaDataMap = new LinkedHashMap<String, ProcessingResourceMetaData>(mComponentAnalysisEngineMetaDataMap);
+    mAllComponentMetaDataMap.put(aFlowControllerDeclaration.getKey(), mFlowControllerContainer
+            .getProcessingResourceMetaData());
+    mAllComponentMetaDataMap = Collections.unmodifiableMap(mAllComponentMetaDataMap);
+  }
+
+  /*
+   * Creates the delegate AnalysisEngines one after the other, in declaration order.
+   */
+  private void setupDelegates(Map<String, ResourceSpecifier> aSpecifiers, UimaContextAdmin aParentContext)
+          throws ResourceInitializationException {
     // loop through all entries in the (key, specifier) map
     Iterator<Map.Entry<String,ResourceSpecifier>> i = aSpecifiers.entrySet().iterator();
     while (i.hasNext()) {
@@ -216,22 +249,7 @@ public class ASB_impl extends Resource_ImplBase implements ASB {
       String key =entry.getKey();
       ResourceSpecifier spec = entry.getValue();
 
-      Map<String, String> sofamap = new TreeMap<String, String>();
-
-      // retrieve the sofa mappings for input/output sofas of this analysis engine
-      if (mSofaMappings != null && mSofaMappings.length > 0) {
-        for (int s = 0; s < mSofaMappings.length; s++) {
-          // the mapping is for this analysis engine
-          if (mSofaMappings[s].getComponentKey().equals(key)) {
-            // if component sofa name is null, replace it with the default for CAS sofa name
-            // This is to support single-view annotators.
-            if (mSofaMappings[s].getComponentSofaName() == null)
-              mSofaMappings[s].setComponentSofaName(CAS.NAME_DEFAULT_SOFA);
-            sofamap.put(mSofaMappings[s].getComponentSofaName(), mSofaMappings[s]
-                    .getAggregateSofaName());
-          }
-        }
-      }
+      Map<String, String> sofamap = getDelegateSofaMappings(key);
 
       // create child UimaContext and insert into mInitParams map
       // mInitParams was previously set to the value of aAdditionalParams
@@ -243,18 +261,7 @@ public class ASB_impl extends Resource_ImplBase implements ASB {
       UimaContextAdmin childContext = aParentContext.createChild(key, sofamap);
       mInitParams.put(Resource.PARAM_UIMA_CONTEXT, childContext);
 
-      AnalysisEngine ae;
-
-      // if running in "validation mode", don't try to connect to any services
-      if (mInitParams.containsKey(AnalysisEngineImplBase.PARAM_VERIFICATION_MODE)
-              && !(spec instanceof ResourceCreationSpecifier)) {
-        // but we need placeholder entries in maps to satisfy later checking
-        ae = new DummyAnalysisEngine();
-      } else {
-        // construct an AnalysisEngine - initializing it with the parameters
-        // passed to this ASB's initialize method
-        ae = UIMAFramework.produceAnalysisEngine(spec, mInitParams);
-      }
+      AnalysisEngine ae = produceDelegate(spec, mInitParams);
 
       // add the Analysis Engine and its metadata to the appropriate lists
 
@@ -262,22 +269,99 @@ public class ASB_impl extends Resource_ImplBase implements ASB {
       mComponentAnalysisEngineMap.put(key, ae);
       mComponentAnalysisEngineMetaDataMap.put(key, ae.getAnalysisEngineMetaData());
     }
+  }
 
-    // make Maps unmodifiable
-    mComponentAnalysisEngineMap = Collections.unmodifiableMap(mComponentAnalysisEngineMap);
-    mComponentAnalysisEngineMetaDataMap = Collections
-            .unmodifiableMap(mComponentAnalysisEngineMetaDataMap);
+  /*
+   * Creates the delegate AnalysisEngines using up to aNbrThreads threads
+   * (see Resource.PARAM_NUM_INIT_THREADS).
+   * The child UimaContexts are made here, in declaration order, as they update the parent context;
+   * only the delegate creation runs concurrently.  Each delegate gets its own copy of the init params.
+   * All the delegates are waited for; those that were created are put in the maps (so destroy()
+   * cleans them up), and the error of the first failing delegate in declaration order is thrown.
+   */
+  private void setupDelegatesInParallel(Map<String, ResourceSpecifier> aSpecifiers,
+          UimaContextAdmin aParentContext, int aNbrThreads) throws ResourceInitializationException {
+    if (mInitParams == null)
+      mInitParams = new HashMap<String, Object>();
+    final List<String> keys = new ArrayList<String>(aSpecifiers.size());
+    final List<Callable<AnalysisEngine>> tasks = new ArrayList<Callable<AnalysisEngine>>(aSpecifiers.size());
+    for (Map.Entry<String, ResourceSpecifier> entry : aSpecifiers.entrySet()) {
+      final String key = entry.getKey();
+      final ResourceSpecifier spec = entry.getValue();
+      final Map<String, Object> params = new HashMap<String, Object>(mInitParams);
+      params.put(Resource.PARAM_UIMA_CONTEXT, aParentContext.createChild(key, getDelegateSofaMappings(key)));
+      keys.add(key);
+      tasks.add(new Callable<AnalysisEngine>() {
+        public AnalysisEngine call() throws ResourceInitializationException {
+          return produceDelegate(spec, params);
+        }
+      });
+    }
 
-    mOutputNewCASes = aAggregateMetadata.getOperationalProperties().getOutputsNewCASes();
+    final List<Future<AnalysisEngine>> results = ParallelInitializer.runAll(tasks, aNbrThreads,
+            "UIMA delegate init " + aParentContext.getQualifiedContextName());
+    ResourceInitializationException firstError = null;
+    RuntimeException firstRuntimeError = null;
+    for (int i = 0; i < keys.size(); i++) {
+      final AnalysisEngine ae;
+      try {
+        ae = ParallelInitializer.getResult(results.get(i));
+      } catch (ResourceInitializationException e) {
+        if (firstError == null && firstRuntimeError == null) {
+          firstError = e;
+        }
+        continue;
+      } catch (RuntimeException e) {
+        if (firstError == null && firstRuntimeError == null) {
+          firstRuntimeError = e;
+        }
+        continue;
+      }
+      mComponentAnalysisEngineMap.put(keys.get(i), ae);
+      mComponentAnalysisEngineMetaDataMap.put(keys.get(i), ae.getAnalysisEngineMetaData());
+    }
+    if (firstError != null) {
+      throw firstError;
+    }
+    if (firstRuntimeError != null) {
+      throw firstRuntimeError;
+    }
+  }
 
-    // initialize the FlowController
-    initFlowController(aFlowControllerDeclaration, aParentContext, aAggregateMetadata);
+  /*
+   * The sofa mappings for input/output sofas of a delegate
+   */
+  private Map<String, String> getDelegateSofaMappings(String key) {
+    Map<String, String> sofamap = new TreeMap<String, String>();
 
-    // initialize the AllComponentMetaData map to include AEs plus the FlowController
-    mAllComponentMetaDataMap = new LinkedHashMap<String, ProcessingResourceMetaData>(mComponentAnalysisEngineMetaDataMap);
-    mAllComponentMetaDataMap.put(aFlowControllerDeclaration.getKey(), mFlowControllerContainer
-            .getProcessingResourceMetaData());
-    mAllComponentMetaDataMap = Collections.unmodifiableMap(mAllComponentMetaDataMap);
+    // retrieve the sofa mappings for input/output sofas of this analysis engine
+    if (mSofaMappings != null && mSofaMappings.length > 0) {
+      for (int s = 0; s < mSofaMappings.length; s++) {
+        // the mapping is for this analysis engine
+        if (mSofaMappings[s].getComponentKey().equals(key)) {
+          // if component sofa name is null, replace it with the default for CAS sofa name
+          // This is to support single-view annotators.
+          if (mSofaMappings[s].getComponentSofaName() == null)
+            mSofaMappings[s].setComponentSofaName(CAS.NAME_DEFAULT_SOFA);
+          sofamap.put(mSofaMappings[s].getComponentSofaName(), mSofaMappings[s]
+                  .getAggregateSofaName());
+        }
+      }
+    }
+    return sofamap;
+  }
+
+  private AnalysisEngine produceDelegate(ResourceSpecifier spec, Map<String, Object> params)
+          throws ResourceInitializationException {
+    // if running in "validation mode", don't try to connect to any services
+    if (params.containsKey(AnalysisEngineImplBase.PARAM_VERIFICATION_MODE)
+            && !(spec instanceof ResourceCreationSpecifier)) {
+      // but we need placeholder entries in maps to satisfy later checking
+      return new DummyAnalysisEngine();
+    }
+    // construct an AnalysisEngine - initializing it with the parameters
+    // passed to this ASB's initialize method
+    return UIMAFramework.produceAnalysisEngine(spec, params);
   }
 
   /*
@@ -807,6 +807,17 @@ public interface CAS extends AbstractCas {
    */
   <T extends FeatureStructure> FSIterator<T> createFilteredIterator(FSIterator<T> it, FSMatchConstraint cons);
 
+  /**
+   * Start a selection of the indexed Feature Structures of a type (and its subtypes) in this view.
+   * The selection can be narrowed by position, constraints, skip and limit; see {@link SelectFSs}.
+   * 
+   * @param type
+   *          The type to select.
+   * @param <T> - the Java class for the selected Feature Structures
+   * @return A selection, to narrow and run.
+   */
+  <T extends FeatureStructure> SelectFSs<T> select(Type type);
+
   /**
    * Get a constraint factory. A constraint factory is a simple way of creating
    * {@link org.apache.uima.cas.FSMatchConstraint FSMatchConstraints}.
@@ -852,6 +863,32 @@ public interface CAS extends AbstractCas {
    */
   void reset() throws CASAdminException;
 
+  /**
+   * Make the CAS (all of its views) read-only, so that any number of threads can iterate over
+   * its indexes and read its Feature Structures at the same time, without synchronization.
+   * <p>
+   * Freezing finishes the structures which are otherwise set up lazily on first read (all the views,
+   * the index iterator caches, the JCas for each view if the JCas is in use, etc.).
+   * Call it on the thread that updated the CAS, before handing the CAS to the reading threads.
+   * While frozen, creating Feature Structures, setting feature values, and adding to or removing
+   * from the indexes throw a CASRuntimeException; {@link #getDocumentAnnotation()} returns null 
+   * if there is no document annotation, instead of creating one.
+   * <p>
+   * The CAS stays frozen until {@link #unfreeze()} or {@link #reset()} is called; 
+   * do this only after the reading threads are done.
+   */
+  void freeze();
+
+  /**
+   * Allow the CAS to be updated again, after {@link #freeze()}.
+   */
+  void unfreeze();
+
+  /**
+   * @return true if the CAS is frozen, see {@link #freeze()}
+   */
+  boolean isFrozen();
+
   /**
    * Get the view name. The view name is the same as the name of the view's Sofa, retrieved by
    * getSofa().getSofaID(), except for the initial View before its Sofa has been created.
@@ -222,6 +222,15 @@ public class CASRuntimeException extends UIMARuntimeException {
   /** Multiply nested classloaders not supported.  Original base loader: {0}, current nested loader: {1}, trying to switch to loader: {2}.*/
   public static final String SWITCH_CLASS_LOADER_NESTED = "SWITCH_CLASS_LOADER_NESTED";
   
+  /** The kind of JCas cover object cache cannot be changed after the JCas for this CAS has been created. */
+  public static final String JCAS_CACHE_ALREADY_CREATED = "JCAS_CACHE_ALREADY_CREATED";
+  
+  /** Positional selection (coveredBy, covering, following, preceding) needs an annotation type, but type "{0}" is not a subtype of uima.tcas.Annotation. */
+  public static final String SELECT_POSITION_NEEDS_ANNOTATION = "SELECT_POSITION_NEEDS_ANNOTATION";
+  
+  /** The CAS is frozen (read-only); it must be unfrozen before it can be updated. */
+  public static final String CAS_FROZEN = "CAS_FROZEN";
+  
 	public CASRuntimeException() {
 		super();
 	}
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.cas;
+
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.uima.cas.text.AnnotationFS;
+
+/**
+ * A selection of the Feature Structures of a type (including its subtypes) in the indexes of a CAS
+ * view, obtained from {@link CAS#select(Type)}.
+ * <p>
+ * The selection is specified by calling the methods returning a SelectFSs, and is run by one of the
+ * methods that return the results ({@link #iterator()}, {@link #asList()}, {@link #get()},
+ * {@link #count()}). For example:
+ * <pre>
+ *   for (AnnotationFS token : cas.&lt;AnnotationFS&gt;select(tokenType).coveredBy(sentence)) { ... }
+ * </pre>
+ * <p>
+ * The positional selections (coveredBy, covering, following, preceding) need a subtype of
+ * uima.tcas.Annotation, and use the annotation index; the bounds are used to position the index
+ * iterator and to end the iteration, so only the part of the index in or near the bounds is looked at.
+ * Only one positional selection is used; setting another replaces it.
+ * Without a positional selection, all the indexed Feature Structures of the type are selected.
+ * <p>
+ * When the bounds are given by an annotation, that annotation itself is not selected.
+ * Results are in the order of the index used (for annotations: begin ascending, end descending,
+ * then type priority).
+ *
+ * @param <T> the Java class for the selected Feature Structures
+ */
+public interface SelectFSs<T extends FeatureStructure> extends Iterable<T> {
+
+  /**
+   * Select annotations which are within the bounds of the given annotation:
+   * <code>annotation.getBegin() &lt;= begin</code> and <code>end &lt;= annotation.getEnd()</code>.
+   * @param annotation the bounding annotation
+   * @return this selection, for chaining
+   */
+  SelectFSs<T> coveredBy(AnnotationFS annotation);
+
+  /**
+   * Select annotations which are within the given bounds (inclusive).
+   * @param begin the bounding begin
+   * @param end the bounding end
+   * @return this selection, for chaining
+   */
+  SelectFSs<T> coveredBy(int begin, int end);
+
+  /**
+   * Select annotations which span the given annotation:
+   * <code>begin &lt;= annotation.getBegin()</code> and <code>annotation.getEnd() &lt;= end</code>.
+   * @param annotation the covered annotation
+   * @return this selection, for chaining
+   */
+  SelectFSs<T> covering(AnnotationFS annotation);
+
+  /**
+   * Select annotations which span the given bounds.
+   * @param begin the covered begin
+   * @param end the covered end
+   * @return this selection, for chaining
+   */
+  SelectFSs<T> covering(int begin, int end);
+
+  /**
+   * Select annotations which begin at or after the end of the given annotation.
+   * @param annotation the annotation to select after
+   * @return this selection, for chaining
+   */
+  SelectFSs<T> following(AnnotationFS annotation);
+
+  /**
+   * Select annotations which begin at or after the position.
+   * @param position the position to select after
+   * @return this selection, for chaining
+   */
+  SelectFSs<T> following(int position);
+
+  /**
+   * Select annotations which end at or before the begin of the given annotation.
+   * @param annotation the annotation to select before
+   * @return this selection, for chaining
+   */
+  SelectFSs<T> preceding(AnnotationFS annotation);
+
+  /**
+   * Select annotations which end at or before the position.
+   * @param position the position to select before
+   * @return this selection, for chaining
+   */
+  SelectFSs<T> preceding(int position);
+
+  /**
+   * Only select Feature Structures matching a constraint, for instance one made with
+   * {@link ConstraintFactory#embedConstraint(FeaturePath, FSConstraint)} to test a feature value.
+   * The constraint is evaluated after the positional selection. Several filters must all match.
+   * @param constraint the constraint to match
+   * @return this selection, for chaining
+   */
+  SelectFSs<T> filter(FSMatchConstraint constraint);
+
+  /**
+   * Skip the first n selected Feature Structures.
+   * @param n the number to skip
+   * @return this selection, for chaining
+   */
+  SelectFSs<T> skip(int n);
+
+  /**
+   * Select at most n Feature Structures.
+   * @param n the maximum number to select
+   * @return this selection, for chaining
+   */
+  SelectFSs<T> limit(int n);
+
+  /**
+   * @return an iterator over the selected Feature Structures.
+   *   The selection runs as the iterator is used; don't modify the indexes used while iterating.
+   */
+  Iterator<T> iterator();
+
+  /**
+   * @return a new list of the selected Feature Structures
+   */
+  List<T> asList();
+
+  /**
+   * @return the first selected Feature Structure, or null if none are selected
+   */
+  T get();
+
+  /**
+   * @return the number of selected Feature Structures
+   */
+  int count();
+}
@@ -281,6 +281,50 @@ public class BinaryCasSerDes6 {
   public ReuseInfo getReuseInfo() {
     return new ReuseInfo(foundFSs, foundFSsArray, fsStartIndexes);
   }
+
+  /**
+   * Computes the ReuseInfo of the CAS as it is now, without serializing it.
+   * <p>
+   * With a Marker created right after this call, the ReuseInfo can be used to serialize the changes
+   * made to the CAS from then on as a delta CAS. The ReuseInfo computed the same way for another
+   * CAS with the same {@link #getFsLayout() layout} can be used to deserialize that delta CAS into
+   * it.
+   * 
+   * @return the ReuseInfo of the CAS
+   * @throws IOException never thrown, nothing is written
+   */
+  public ReuseInfo computeReuseInfo() throws IOException {
+    if (isSerializingDelta) {
+      throw new UnsupportedOperationException("Can't compute ReuseInfo for a delta CAS");
+    }
+    processIndexedFeatureStructures(cas, false /* compute ref'd FSs, no write */);
+    initFsStartIndexes();
+    return getReuseInfo();
+  }
+
+  /**
+   * Returns the layout of the Feature Structures found by the last serialization or call to
+   * {@link #computeReuseInfo()}: the type code of each one, in sequence order, followed by the
+   * array length for arrays. A delta CAS refers to the Feature Structures below its mark by their
+   * sequence, so it only fits CASes with the same layout.
+   * 
+   * @return the layout, or null if the Feature Structures have not been found yet
+   */
+  public int[] getFsLayout() {
+    if (foundFSsArray == null) {
+      return null;
+    }
+    IntVector layout = new IntVector(foundFSsArray.length + 16);
+    for (int i = 0; i < foundFSsArray.length; i++) {
+      final int iHeap = foundFSsArray[i];
+      final int tCode = heap[iHeap];
+      layout.add(tCode);
+      if (ts.getTypeInfo(tCode).isArray) {
+        layout.add(heap[iHeap + 1]);
+      }
+    }
+    return layout.toArray();
+  }
     
   // speedups - ints for SlotKind ordinals
   final private static int arrayLength_i = Slot_ArrayLength.ordinal();
@@ -47,6 +47,18 @@ public class BooleanConstraint extends PathConstraint implements FSMatchConstrai
       // constraint is not satisfied.
       return false;
     }
+    // compiled form
+    final FeatureStructureImpl fsi = (FeatureStructureImpl) fs;
+    final CASImpl cas = fsi.getCASImpl();
+    final int addr = ll_followPath(cas, fsi.getAddress(), max);
+    final int featOffset = (addr < 0) ? addr : ll_getFeatOffset(cas, addr, max, LowLevelCAS.TYPE_CLASS_BOOLEAN);
+    if (featOffset == NO_MATCH) {
+      return false;
+    }
+    if (featOffset != NOT_COMPILED) {
+      return this.cons.match(CASImpl.TRUE == cas.ll_getIntValueFeatOffset(addr, featOffset));
+    }
+
     Feature feat;
     for (int i = 0; i < max; i++) {
       feat = fs.getType().getFeatureByBaseName(this.featNames.get(i));
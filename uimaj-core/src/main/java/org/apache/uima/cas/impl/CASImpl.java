@@ -29,6 +29,7 @@ import java.io.ObjectInputStream;
 import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.lang.reflect.Array;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.ByteBuffer;
@@ -77,6 +78,7 @@ import org.apache.uima.cas.Marker;
 import org.apache.uima.cas.SerialFormat;
 import org.apache.uima.cas.ShortArrayFS;
 import org.apache.uima.cas.SofaFS;
+import org.apache.uima.cas.SelectFSs;
 import org.apache.uima.cas.SofaID;
 import org.apache.uima.cas.StringArrayFS;
 import org.apache.uima.cas.Type;
@@ -206,6 +208,17 @@ public class CASImpl extends AbstractCas_ImplBase implements CAS, CASMgr, LowLev
       !IS_REPORT_FS_UPDATE_CORRUPTS_INDEX &&
       !IS_THROW_EXCEPTION_CORRUPT_INDEX;
   
+  /**
+   * Define this JVM property to have the JCas cover object cache kept in a paged array
+   * indexed by heap address, instead of in a hash map.  Lookups are O(1) and don't lock,
+   * at the cost of one reference per heap cell in the pages that have cover objects.
+   * This sets the default; it can be set per CAS via {@link #setJcasCacheDense(boolean)}, or by
+   * the performance tuning setting {@link org.apache.uima.UIMAFramework#JCAS_CACHE_DENSE}.
+   */
+  public static final String JCAS_CACHE_DENSE = "uima.jcas_cache_dense";
+  
+  private static final boolean IS_JCAS_CACHE_DENSE = Misc.getNoValueSystemProperty(JCAS_CACHE_DENSE);
+  
   // The offset for the array length cell. An array consists of length+2
   // number
   // of cells, where the first cell contains the type, the second one the
@@ -291,6 +304,11 @@ public class CASImpl extends AbstractCas_ImplBase implements CAS, CASMgr, LowLev
     // often, the framework disables this before calling users code
     private boolean flushEnabled = true;
 
+    // If this CAS is frozen (read-only), see freeze().
+    // Not volatile: the thread that freezes the CAS hands it off to the reading threads,
+    // and updates are only checked for on the updating thread
+    private boolean isFrozen = false;
+
     // controls whether Java cover objects for CAS objects,
     // including JCas objects,
     // are cached and reused.
@@ -359,6 +377,12 @@ public class CASImpl extends AbstractCas_ImplBase implements CAS, CASMgr, LowLev
      */
     private boolean fsTobeAddedbackSingleInUse = false;
     
+    /**
+     * true to keep the JCas cover object cache in a paged array indexed by heap addr.
+     * Only used when the JCas is created.
+     */
+    private boolean isJcasCacheDense = IS_JCAS_CACHE_DENSE;
+    
     private final AtomicInteger casResets = new AtomicInteger(0);
     
     private final int casId;
@@ -1031,6 +1055,11 @@ public StringArrayFS createStringArrayFS(int length) {
     return new FilteredIterator<T>(it, cons);
   }
 
+  @Override
+  public <T extends FeatureStructure> SelectFSs<T> select(Type type) {
+    return new SelectFSs_impl<T>(this, type);
+  }
+
   public void commitTypeSystem() {
     final TypeSystemImpl ts = this.svd.casMetadata.ts;
     // For CAS pools, the type system could have already been committed
@@ -1105,6 +1134,50 @@ public TypeSystemMgr getTypeSystemMgr() {
     return this.svd.casMetadata.ts;
   }
 
+  @Override
+  public void freeze() {
+    if (this.svd.isFrozen) {
+      return;
+    }
+    final CASImpl baseCas = this.svd.baseCAS;
+    // finish, on this thread, the structures which would otherwise be built lazily on first read
+    final boolean isJCasInUse = (null != baseCas.jcas);
+    baseCas.indexRepository.finishLazyStructures();
+    for (Iterator<CAS> it = baseCas.getViewIterator(); it.hasNext();) {  // makes the views
+      final CASImpl view = (CASImpl) it.next();
+      view.indexRepository.finishLazyStructures();
+      if (isJCasInUse) {
+        try {
+          view.getJCas();
+        } catch (CASException e) {
+          throw new CASRuntimeException(e);
+        }
+      }
+    }
+    this.svd.casMetadata.ts.setupAllTypeInfos();
+    this.svd.isFrozen = true;
+  }
+
+  @Override
+  public void unfreeze() {
+    this.svd.isFrozen = false;
+  }
+
+  @Override
+  public boolean isFrozen() {
+    return this.svd.isFrozen;
+  }
+
+  /**
+   * Called by the methods which update the CAS
+   * @throws CASRuntimeException if the CAS is frozen
+   */
+  final void checkNotFrozen() {
+    if (this.svd.isFrozen) {
+      throw new CASRuntimeException(CASRuntimeException.CAS_FROZEN);
+    }
+  }
+
   @Override
 public void reset() {
     if (!this.svd.flushEnabled) {
@@ -1144,6 +1217,7 @@ public void reset() {
 
   public void resetNoQuestions() {
     svd.casResets.incrementAndGet();
+    svd.isFrozen = false;
     if (trace) {
       System.out.println("CAS Reset in thread " + Thread.currentThread().getName() +
           " for CasId = " + getCasId() + ", new reset count = " + svd.casResets.get());
@@ -1173,7 +1247,7 @@ public void reset() {
     this.getLongHeap().reset();
 
     this.indexRepository.flush();  // for base view, other views flushed above
-    this.svd.sofaNameSet = new HashSet<String>();
+    this.svd.sofaNameSet.clear();
     this.svd.initialSofaCreated = false;
     // always an Initial View now!!!
     this.svd.viewCount = 1;
@@ -1188,8 +1262,10 @@ public void reset() {
     }
     clearTrackingMarks();
     this.svd.cache_not_in_index = 0;
-    this.svd.fssTobeAddedback.clear();
-    this.svd.fssTobeAddedback.trimToSize();
+    if (!this.svd.fssTobeAddedback.isEmpty()) {
+      this.svd.fssTobeAddedback.clear();
+      this.svd.fssTobeAddedback.trimToSize();
+    }
     
     this.svd.traceFSid = 0;
     if (traceFSs) { 
@@ -2247,6 +2323,7 @@ public int ll_getArraySize(int arrayFsRef) {
   void setArrayValue(final int addr, final int index, final int value)
       throws ArrayIndexOutOfBoundsException {
     // Get the length of this array.
+    checkNotFrozen();
     final int arraySize = this.getHeap().heap[addr + arrayLengthFeatOffset];
     // Check for boundary violation.
     if ((index < 0) || (index >= arraySize)) {
@@ -2403,6 +2480,7 @@ public int ll_getArraySize(int arrayFsRef) {
    *                    appropriate for the type at the address.
    */
   public void setFeatureValue(int addr, int feat, int val) {
+    checkNotFrozen();
     boolean wasRemoved = checkForInvalidFeatureSetting(addr, feat);
     setFeatureValueNotJournaled(addr, feat, val);
     if (wasRemoved) {
@@ -2427,6 +2505,7 @@ public int ll_getArraySize(int arrayFsRef) {
    *                    appropriate for the type at the address.
    */
   void setFeatureValueNoIndexCorruptionCheck(int addr, int feat, int val) {
+    checkNotFrozen();
     setFeatureValueNotJournaled(addr, feat, val);
     if (this.svd.trackingMark != null) {
       this.logFSUpdate(addr, addr+this.svd.casMetadata.featureOffset[feat], 
@@ -3506,6 +3585,7 @@ public final int ll_getTypeClass(int typeCode) {
 
   @Override
 public final int ll_createFS(int typeCode) {
+    checkNotFrozen();
     final int fsAddr = this.getHeap().add(this.svd.casMetadata.fsSpaceReq[typeCode], typeCode);
     svd.cache_not_in_index = fsAddr;
     if (traceFSs) {
@@ -3526,6 +3606,192 @@ public final int ll_createFS(int typeCode, boolean doCheck) {
     return ll_createFS(typeCode);
   }
 
+  @Override
+  public int[] ll_createFSs(int typeCode, int count) {
+    if (count < 0) {
+      throw new IllegalArgumentException("Negative count: " + count);
+    }
+    checkNotFrozen();
+    final TypeSystemImpl ts = this.svd.casMetadata.ts;
+    if (!ts.isType(typeCode) || !isCreatableType(typeCode)) {
+      LowLevelException e = new LowLevelException(LowLevelException.CREATE_FS_OF_TYPE_ERROR);
+      e.addArgument(Integer.toString(typeCode));
+      throw e;
+    }
+    final boolean isAnnotBase = ts.subsumes(TypeSystemImpl.annotBaseTypeCode, typeCode);
+    if (isAnnotBase && (this == this.getBaseCAS())) {
+      throw new CASRuntimeException(
+          CASRuntimeException.DISALLOW_CREATE_ANNOTATION_IN_BASE_CAS,
+          new String[] { ts.ll_getTypeForCode(typeCode).getName() });
+    }
+    final int fsSize = this.svd.casMetadata.fsSpaceReq[typeCode];
+    int fsAddr = this.getHeap().add(count, fsSize, typeCode);
+    final int[] heap = this.getHeap().heap;
+    final int sofaOffset = this.svd.casMetadata.featureOffset[TypeSystemImpl.annotSofaFeatCode];
+    final int sofaRef = isAnnotBase ? this.getSofaRef() : 0;
+    final int[] fsRefs = new int[count];
+    for (int i = 0; i < count; i++, fsAddr += fsSize) {
+      fsRefs[i] = fsAddr;
+      if (isAnnotBase) {
+        heap[fsAddr + sofaOffset] = sofaRef;
+      }
+    }
+    if (count > 0) {
+      svd.cache_not_in_index = fsRefs[count - 1];
+    }
+    if (traceFSs) {
+      for (int fsRef : fsRefs) {
+        traceFSCreate((FeatureStructureImpl) ll_getFSForRef(fsRef));
+      }
+    }
+    return fsRefs;
+  }
+
+  @Override
+  public int[] ll_createAnnotations(int typeCode, int count, int[] begins, int[] ends,
+      int[] featureCodes, Object[] columns, boolean addToIndexes) {
+    final TypeSystemImpl ts = this.svd.casMetadata.ts;
+    if (!ts.isType(typeCode) || !ts.isAnnotationOrSubtype(typeCode)) {
+      throw new CASRuntimeException(CASRuntimeException.INAPPROP_TYPE, new String[] {
+          CAS.TYPE_NAME_ANNOTATION,
+          ts.isType(typeCode) ? ts.ll_getTypeForCode(typeCode).getName() : Integer.toString(typeCode) });
+    }
+    if (count < 0) {
+      throw new IllegalArgumentException("Negative count: " + count);
+    }
+    checkColumnLength("begins", begins, count);
+    checkColumnLength("ends", ends, count);
+    final int nbrFeats = (featureCodes == null) ? 0 : featureCodes.length;
+    final int nbrColumns = (columns == null) ? 0 : columns.length;
+    if (nbrFeats != nbrColumns) {
+      throw new IllegalArgumentException("The number of feature codes (" + nbrFeats
+          + ") does not match the number of columns (" + nbrColumns + ")");
+    }
+    for (int f = 0; f < nbrFeats; f++) {
+      checkColumn(typeCode, featureCodes[f], columns[f]);
+      checkColumnLength(ts.ll_getFeatureForCode(featureCodes[f]).getShortName(), columns[f], count);
+    }
+
+    final int[] fsRefs = ll_createFSs(typeCode, count);
+    final int[] heap = this.getHeap().heap;
+    final int[] featureOffset = this.svd.casMetadata.featureOffset;
+    final int beginOffset = featureOffset[TypeSystemImpl.startFeatCode];
+    final int endOffset = featureOffset[TypeSystemImpl.endFeatCode];
+    for (int i = 0; i < count; i++) {
+      heap[fsRefs[i] + beginOffset] = begins[i];
+      heap[fsRefs[i] + endOffset] = ends[i];
+    }
+    for (int f = 0; f < nbrFeats; f++) {
+      setColumn(fsRefs, count, featureCodes[f], columns[f]);
+    }
+
+    if (addToIndexes) {
+      this.indexRepository.ll_addFSs(fsRefs, count);
+    }
+    return fsRefs;
+  }
+
+  private static void checkColumnLength(String name, Object column, int count) {
+    final int length = (column == null) ? 0 : Array.getLength(column);
+    if (length < count) {
+      throw new IllegalArgumentException("The " + name + " column has " + length
+          + " values, fewer than the count " + count);
+    }
+  }
+
+  private void checkColumn(int typeCode, int featCode, Object column) {
+    final TypeSystemImpl ts = this.svd.casMetadata.ts;
+    if (!ts.isApprop(typeCode, featCode)) {
+      throw new CASRuntimeException(CASRuntimeException.INAPPROP_FEAT, new String[] {
+          ts.ll_getFeatureForCode(featCode).getName(), ts.ll_getTypeForCode(typeCode).getName() });
+    }
+    final int rangeCode = ts.ll_getRangeType(featCode);
+    final boolean ok;
+    if (rangeCode == TypeSystemImpl.floatTypeCode) {
+      ok = column instanceof float[];
+    } else if (rangeCode == TypeSystemImpl.stringTypeCode || ts.ll_isStringSubtype(rangeCode)) {
+      ok = column instanceof String[];
+    } else if (rangeCode == TypeSystemImpl.booleanTypeCode) {
+      ok = column instanceof boolean[];
+    } else if (rangeCode == TypeSystemImpl.byteTypeCode) {
+      ok = column instanceof byte[];
+    } else if (rangeCode == TypeSystemImpl.shortTypeCode) {
+      ok = column instanceof short[];
+    } else if (rangeCode == TypeSystemImpl.longTypeCode) {
+      ok = column instanceof long[];
+    } else if (rangeCode == TypeSystemImpl.doubleTypeCode) {
+      ok = column instanceof double[];
+    } else {
+      ok = column instanceof int[];  // int, and refs
+    }
+    if (!ok) {
+      throw new CASRuntimeException(CASRuntimeException.INAPPROP_RANGE, new String[] {
+          ts.ll_getFeatureForCode(featCode).getName(),
+          (column == null) ? "null" : column.getClass().getSimpleName(),
+          ts.ll_getTypeForCode(rangeCode).getName() });
+    }
+  }
+
+  /**
+   * Set one feature of newly created (not indexed) FSs from a column checked by checkColumn
+   */
+  private void setColumn(int[] fsRefs, int count, int featCode, Object column) {
+    final TypeSystemImpl ts = this.svd.casMetadata.ts;
+    final int offset = this.svd.casMetadata.featureOffset[featCode];
+    final int rangeCode = ts.ll_getRangeType(featCode);
+    final int[] heap = this.getHeap().heap;
+    if (column instanceof int[]) {
+      final int[] values = (int[]) column;
+      for (int i = 0; i < count; i++) {
+        heap[fsRefs[i] + offset] = values[i];
+      }
+    } else if (column instanceof float[]) {
+      final float[] values = (float[]) column;
+      for (int i = 0; i < count; i++) {
+        heap[fsRefs[i] + offset] = float2int(values[i]);
+      }
+    } else if (column instanceof String[]) {
+      final String[] values = (String[]) column;
+      final String[] stringSet = ts.ll_getStringSet(rangeCode);
+      final StringHeap stringHeap = this.getStringHeap();
+      for (int i = 0; i < count; i++) {
+        final String value = values[i];
+        if (value != null && stringSet != null && Arrays.binarySearch(stringSet, value) < 0) {
+          throw new CASRuntimeException(CASRuntimeException.ILLEGAL_STRING_VALUE,
+              new String[] { value, ts.ll_getTypeForCode(rangeCode).getName() });
+        }
+        heap[fsRefs[i] + offset] = (value == null) ? NULL : stringHeap.addString(value);
+      }
+    } else if (column instanceof boolean[]) {
+      final boolean[] values = (boolean[]) column;
+      for (int i = 0; i < count; i++) {
+        heap[fsRefs[i] + offset] = values[i] ? CASImpl.TRUE : CASImpl.FALSE;
+      }
+    } else if (column instanceof byte[]) {
+      final byte[] values = (byte[]) column;
+      for (int i = 0; i < count; i++) {
+        heap[fsRefs[i] + offset] = values[i];
+      }
+    } else if (column instanceof short[]) {
+      final short[] values = (short[]) column;
+      for (int i = 0; i < count; i++) {
+        heap[fsRefs[i] + offset] = values[i];
+      }
+    } else if (column instanceof long[]) {
+      final long[] values = (long[]) column;
+      final LongHeap longHeap = this.getLongHeap();
+      for (int i = 0; i < count; i++) {
+        heap[fsRefs[i] + offset] = longHeap.addLong(values[i]);
+      }
+    } else {
+      final double[] values = (double[]) column;
+      final LongHeap longHeap = this.getLongHeap();
+      for (int i = 0; i < count; i++) {
+        heap[fsRefs[i] + offset] = longHeap.addLong(Double.doubleToLongBits(values[i]));
+      }
+    }
+  }
+
   // never called, not used May 2007
   // /**
   // * Create an instance of a subtype of AnnotationBase.
@@ -3576,6 +3842,7 @@ public final int ll_createFS(int typeCode, boolean doCheck) {
    */
   @Override
 public int ll_createArray(int typeCode, int arrayLength) {
+    checkNotFrozen();
     final int addr = this.getHeap().add(arrayContentOffset + arrayLength, typeCode);
     this.getHeap().heap[(addr + arrayLengthFeatOffset)] = arrayLength;
     svd.cache_not_in_index = addr;
@@ -3586,6 +3853,7 @@ public int ll_createArray(int typeCode, int arrayLength) {
   }
 
   public int ll_createAuxArray(int typeCode, int arrayLength) {
+    checkNotFrozen();
     final int addr = this.getHeap().add(arrayContentOffset + 1, typeCode);
     this.getHeap().heap[(addr + arrayLengthFeatOffset)] = arrayLength;
     svd.cache_not_in_index = addr;
@@ -4043,6 +4311,7 @@ public final void ll_setFloatValue(int fsRef, int featureCode, float value) {
 
   @Override
 public final void ll_setStringValue(int fsRef, int featureCode, String value) {
+    checkNotFrozen();
     if (null != value) {
       final TypeSystemImpl ts = this.svd.casMetadata.ts;
       String[] stringSet = ts.ll_getStringSet(ts.ll_getRangeType(featureCode));
@@ -4103,6 +4372,7 @@ public final void ll_setCharBufferValue(int fsRef, int featureCode, char[] buffe
 public final void ll_setCharBufferValue(int fsRef, int featureCode, char[] buffer, int start,
       int length) {
     // don't do any index check here, done by inner call
+    checkNotFrozen();
     final int stringCode = this.getStringHeap().addCharBuffer(buffer, start, length);
     ll_setIntValue(fsRef, featureCode, stringCode);
   }
@@ -4307,6 +4577,7 @@ public void ll_setRefArrayValue(int fsRef, int position, int value, boolean doTy
 
   @Override
 public void ll_setIntArrayValue(int fsRef, int position, int value) {
+    checkNotFrozen();
     final int pos = getArrayStartAddress(fsRef) + position;
     this.getHeap().heap[pos] = value;
     if (this.svd.trackingMark != null) {
@@ -4316,6 +4587,7 @@ public void ll_setIntArrayValue(int fsRef, int position, int value) {
 
   @Override
 public void ll_setFloatArrayValue(int fsRef, int position, float value) {
+    checkNotFrozen();
     final int pos = getArrayStartAddress(fsRef) + position;
     this.getHeap().heap[pos] = float2int(value);
     if (this.svd.trackingMark != null) {
@@ -4325,6 +4597,7 @@ public void ll_setFloatArrayValue(int fsRef, int position, float value) {
 
   @Override
 public void ll_setStringArrayValue(int fsRef, int position, String value) {
+    checkNotFrozen();
     final int pos = getArrayStartAddress(fsRef) + position;
     final int stringCode = (value == null) ? NULL : addString(value);
     this.getHeap().heap[pos] = stringCode;
@@ -4335,6 +4608,7 @@ public void ll_setStringArrayValue(int fsRef, int position, String value) {
 
   @Override
 public void ll_setRefArrayValue(int fsRef, int position, int value) {
+    checkNotFrozen();
     final int pos = getArrayStartAddress(fsRef) + position;
     this.getHeap().heap[pos] = value;
     if (this.svd.trackingMark != null) {
@@ -4640,6 +4914,7 @@ public void ll_setShortValue(int fsRef, int featureCode, short value, boolean do
 
   @Override
 public void ll_setLongValue(int fsRef, int featureCode, long value) {
+    checkNotFrozen();
     final int offset = this.getLongHeap().addLong(value);
     setFeatureValue(fsRef, featureCode, offset);
   }
@@ -4654,6 +4929,7 @@ public void ll_setLongValue(int fsRef, int featureCode, long value, boolean doTy
 
   @Override
 public void ll_setDoubleValue(int fsRef, int featureCode, double value) {
+    checkNotFrozen();
     long val = Double.doubleToLongBits(value);
     final int offset = this.getLongHeap().addLong(val);
     setFeatureValue(fsRef, featureCode, offset);
@@ -4740,6 +5016,7 @@ public double ll_getDoubleArrayValue(int fsRef, int position, boolean doTypeChec
 
   @Override
 public void ll_setByteArrayValue(int fsRef, int position, byte value) {
+    checkNotFrozen();
     final int offset = this.getHeap().heap[getArrayStartAddress(fsRef)];
     this.getByteHeap().setHeapValue(value, offset + position);
     if (this.svd.trackingMark != null) {
@@ -4758,6 +5035,7 @@ public void ll_setByteArrayValue(int fsRef, int position, byte value, boolean do
 
   @Override
 public void ll_setBooleanArrayValue(int fsRef, int position, boolean b) {
+    checkNotFrozen();
     byte value = (byte) (b ? CASImpl.TRUE : CASImpl.FALSE);
     final int offset = this.getHeap().heap[getArrayStartAddress(fsRef)];
     this.getByteHeap().setHeapValue(value, offset + position);
@@ -4776,6 +5054,7 @@ public void ll_setBooleanArrayValue(int fsRef, int position, boolean value, bool
 
   @Override
 public void ll_setShortArrayValue(int fsRef, int position, short value) {
+    checkNotFrozen();
     final int offset = this.getHeap().heap[getArrayStartAddress(fsRef)];
     this.getShortHeap().setHeapValue(value, offset + position);
     if (this.svd.trackingMark != null) {
@@ -4793,6 +5072,7 @@ public void ll_setShortArrayValue(int fsRef, int position, short value, boolean
 
   @Override
 public void ll_setLongArrayValue(int fsRef, int position, long value) {
+    checkNotFrozen();
     final int offset = this.getHeap().heap[getArrayStartAddress(fsRef)];
     this.getLongHeap().setHeapValue(value, offset + position);
     if (this.svd.trackingMark != null) {
@@ -4810,6 +5090,7 @@ public void ll_setLongArrayValue(int fsRef, int position, long value, boolean do
 
   @Override
 public void ll_setDoubleArrayValue(int fsRef, int position, double d) {
+    checkNotFrozen();
     final int offset = this.getHeap().heap[getArrayStartAddress(fsRef)];
     long value = Double.doubleToLongBits(d);
     this.getLongHeap().setHeapValue(value, offset + position);
@@ -4979,6 +5260,9 @@ public <T extends AnnotationFS> T getDocumentAnnotation() {
     if (it.isValid()) {
       return it.get();
     }
+    if (this.svd.isFrozen) {
+      return null;  // can't create one
+    }
     return createDocumentAnnotation(0);
   }
   
@@ -5344,6 +5628,26 @@ public Iterator<CAS> getViewIterator(String localViewNamePrefix) {
     return this.isUsedJcasCache;
   }
   
+  /**
+   * @return true if the JCas cover object cache is (to be) kept in a paged array indexed by heap addr
+   */
+  public final boolean isJcasCacheDense() {
+    return this.svd.isJcasCacheDense;
+  }
+  
+  /**
+   * Selects the kind of JCas cover object cache for this CAS (all of its views).
+   * Must be called before the JCas is first created.
+   * 
+   * @param isDense true to use a paged array indexed by heap addr, false to use a hash map
+   */
+  public void setJcasCacheDense(boolean isDense) {
+    if (this.svd.baseCAS.jcas != null) {
+      throw new CASRuntimeException(CASRuntimeException.JCAS_CACHE_ALREADY_CREATED);
+    }
+    this.svd.isJcasCacheDense = isDense;
+  }
+  
   /**
    * protectIndexes
    * 
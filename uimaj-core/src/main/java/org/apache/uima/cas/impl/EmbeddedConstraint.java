@@ -44,8 +44,20 @@ class EmbeddedConstraint extends PathConstraint implements FSMatchConstraint {
   }
 
   public boolean match(FeatureStructure fs) {
-    // compile(((FeatureStructureImpl) fs).getCAS().getTypeSystem());
     final int max = this.featNames.size();
+    if (max > 0) {
+      // compiled form
+      final FeatureStructureImpl fsi = (FeatureStructureImpl) fs;
+      final CASImpl cas = fsi.getCASImpl();
+      final int addr = ll_followPath(cas, fsi.getAddress(), max);
+      if (addr == NO_MATCH) {
+        return false;
+      }
+      if (addr != NOT_COMPILED) {
+        return this.cons.match((addr == CASImpl.NULL) ? null : cas.ll_getFSForRef(addr));
+      }
+    }
+
     for (int i = 0; i < max; i++) {
       Feature feat = fs.getType().getFeatureByBaseName(this.featNames.get(i));
       if (feat == null) {
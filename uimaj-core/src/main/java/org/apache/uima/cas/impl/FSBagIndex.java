@@ -25,6 +25,8 @@ import org.apache.uima.cas.admin.FSIndexComparator;
 import org.apache.uima.internal.util.ComparableIntPointerIterator;
 import org.apache.uima.internal.util.IntComparator;
 import org.apache.uima.internal.util.IntPointerIterator;
+import org.apache.uima.internal.util.IntSplitIterator;
+import org.apache.uima.internal.util.IntSplitIterators;
 import org.apache.uima.internal.util.IntVector;
 import org.apache.uima.internal.util.PositiveIntSet;
 import org.apache.uima.internal.util.PositiveIntSet_impl;
@@ -70,12 +72,12 @@ public class FSBagIndex<T extends FeatureStructure> extends FSLeafIndexImpl<T> {
   }
 
   public void flush() {
-    // done this way to reset to initial size if it grows
+    // done this way to shrink storage that is much bigger than what was used
     if (USE_POSITIVE_INT_SET) {
       indexP.clear();      
     } else {
-      if (this.index.size() > this.initialSize) {
-        this.index.resetSize(this.initialSize);
+      if (FSIntArrayIndex.isOversized(this.index, this.initialSize)) {
+        this.index.resetSize(Math.max(this.initialSize, this.index.getArray().length >> 1));
 //        this.index = new IntVector(this.initialSize);
       } else {
         this.index.removeAllElements();
@@ -275,6 +277,11 @@ public class FSBagIndex<T extends FeatureStructure> extends FSLeafIndexImpl<T> {
       v.addBulk(index);
     }    
   }
+
+  @Override
+  public IntSplitIterator ll_splitIterator() {
+    return USE_POSITIVE_INT_SET ? IntSplitIterators.of(indexP) : IntSplitIterators.of(index);
+  }
   
   /*
    * Iterator support 
@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.cas.impl;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A reusable, mutable cursor over an index, for hot loops in code which uses the plain CAS API
+ * rather than JCas.
+ * <p>
+ * The cursor is a flyweight: it stands for the Feature Structure it is currently at, and its getters
+ * and setters read and write the features of that Feature Structure by feature code (see
+ * {@link LowLevelTypeSystem#ll_getCodeForFeature(org.apache.uima.cas.Feature)}).
+ * No cover object (FeatureStructureImpl) is made for the elements, and moving the cursor
+ * allocates nothing, so iterating creates no garbage per element.  The only allocation is the
+ * underlying low level iterator, made when the cursor is created or set to another index.
+ * <p>
+ * Typical use:
+ * <pre>
+ *   FSCursor c = new FSCursor(cas, cas.ll_getIndexRepository().ll_getIndex(CAS.STD_ANNOTATION_INDEX, tokenTypeCode));
+ *   for (c.moveToFirst(); c.isValid(); c.moveToNext()) {
+ *     if (c.getStringValue(posFeatCode) == null) { ... c.getBegin() ... }
+ *   }
+ * </pre>
+ * <p>
+ * Feature codes are not type checked; as with the other LowLevelCAS methods without the
+ * doTypeChecks argument, using a feature which is not defined for the current element's type
+ * gives undefined results.  Use {@link #getTypeCode()} to check the type when iterating over
+ * an index which includes subtypes with different features.
+ * <p>
+ * The setters go through the normal LowLevelCAS setters, so index corruption checking applies:
+ * updating a key of an index the cursor is iterating over moves the element in that index,
+ * and the cursor's iteration order is undefined after that.
+ * <p>
+ * The cursor is not thread safe; use one cursor per thread.
+ */
+public final class FSCursor {
+
+  private final CASImpl cas;
+
+  private LowLevelIterator it;
+
+  /**
+   * @param cas the CAS view of the index
+   * @param index the index to move over; the cursor starts at the first element
+   */
+  public FSCursor(LowLevelCAS cas, LowLevelIndex index) {
+    this.cas = (CASImpl) cas;
+    this.it = index.ll_iterator();
+  }
+
+  /**
+   * Reuse this cursor for another index of the same CAS (for instance, the same index after the CAS was reset).
+   * The cursor is positioned at the first element.
+   * @param index the index to move over
+   */
+  public void setIndex(LowLevelIndex index) {
+    this.it = index.ll_iterator();
+  }
+
+  /*
+   * Movement
+   */
+
+  public boolean isValid() {
+    return it.isValid();
+  }
+
+  public void moveToFirst() {
+    it.moveToFirst();
+  }
+
+  public void moveToLast() {
+    it.moveToLast();
+  }
+
+  public void moveToNext() {
+    it.moveToNext();
+  }
+
+  public void moveToPrevious() {
+    it.moveToPrevious();
+  }
+
+  /**
+   * Position the cursor as {@link LowLevelIterator#moveTo(int)} does.
+   * @param fsRef the Feature Structure to move to
+   */
+  public void moveTo(int fsRef) {
+    it.moveTo(fsRef);
+  }
+
+  /**
+   * @return the number of elements in the underlying index
+   */
+  public int size() {
+    return it.ll_indexSize();
+  }
+
+  /*
+   * Current element
+   */
+
+  /**
+   * @return the reference (heap address) of the current Feature Structure, for use with the other
+   *   LowLevelCAS methods
+   * @exception NoSuchElementException if the cursor is not valid
+   */
+  public int getRef() {
+    return it.ll_get();
+  }
+
+  /**
+   * @return the type code of the current Feature Structure
+   */
+  public int getTypeCode() {
+    return cas.ll_getFSRefType(it.ll_get());
+  }
+
+  /**
+   * @return the begin of the current Feature Structure, which must be an annotation
+   */
+  public int getBegin() {
+    return cas.ll_getAnnotBegin(it.ll_get());
+  }
+
+  /**
+   * @return the end of the current Feature Structure, which must be an annotation
+   */
+  public int getEnd() {
+    return cas.ll_getAnnotEnd(it.ll_get());
+  }
+
+  /**
+   * @return the covered text of the current Feature Structure, which must be an annotation in a view
+   *   with a local document text. This is a new substring (the only getter which allocates).
+   */
+  public String getCoveredText() {
+    final String text = cas.getDocumentText();
+    return (text == null) ? null : text.substring(getBegin(), getEnd());
+  }
+
+  /*
+   * Getters, by feature code
+   */
+
+  public int getIntValue(int featureCode) {
+    return cas.ll_getIntValue(it.ll_get(), featureCode);
+  }
+
+  public float getFloatValue(int featureCode) {
+    return cas.ll_getFloatValue(it.ll_get(), featureCode);
+  }
+
+  public String getStringValue(int featureCode) {
+    return cas.ll_getStringValue(it.ll_get(), featureCode);
+  }
+
+  /**
+   * @param featureCode the feature
+   * @return the reference of the Feature Structure value, or 0 for null
+   */
+  public int getRefValue(int featureCode) {
+    return cas.ll_getRefValue(it.ll_get(), featureCode);
+  }
+
+  public boolean getBooleanValue(int featureCode) {
+    return cas.ll_getBooleanValue(it.ll_get(), featureCode);
+  }
+
+  public byte getByteValue(int featureCode) {
+    return cas.ll_getByteValue(it.ll_get(), featureCode);
+  }
+
+  public short getShortValue(int featureCode) {
+    return cas.ll_getShortValue(it.ll_get(), featureCode);
+  }
+
+  public long getLongValue(int featureCode) {
+    return cas.ll_getLongValue(it.ll_get(), featureCode);
+  }
+
+  public double getDoubleValue(int featureCode) {
+    return cas.ll_getDoubleValue(it.ll_get(), featureCode);
+  }
+
+  /*
+   * Setters, by feature code
+   */
+
+  public void setIntValue(int featureCode, int value) {
+    cas.ll_setIntValue(it.ll_get(), featureCode, value);
+  }
+
+  public void setFloatValue(int featureCode, float value) {
+    cas.ll_setFloatValue(it.ll_get(), featureCode, value);
+  }
+
+  public void setStringValue(int featureCode, String value) {
+    cas.ll_setStringValue(it.ll_get(), featureCode, value);
+  }
+
+  public void setRefValue(int featureCode, int value) {
+    cas.ll_setRefValue(it.ll_get(), featureCode, value);
+  }
+
+  public void setBooleanValue(int featureCode, boolean value) {
+    cas.ll_setBooleanValue(it.ll_get(), featureCode, value);
+  }
+
+  public void setByteValue(int featureCode, byte value) {
+    cas.ll_setByteValue(it.ll_get(), featureCode, value);
+  }
+
+  public void setShortValue(int featureCode, short value) {
+    cas.ll_setShortValue(it.ll_get(), featureCode, value);
+  }
+
+  public void setLongValue(int featureCode, long value) {
+    cas.ll_setLongValue(it.ll_get(), featureCode, value);
+  }
+
+  public void setDoubleValue(int featureCode, double value) {
+    cas.ll_setDoubleValue(it.ll_get(), featureCode, value);
+  }
+}
@@ -220,6 +220,11 @@ public class FSIndexFlat<T extends FeatureStructure> {
      * (non-Javadoc)
      * @see org.apache.uima.cas.impl.FSIteratorImplBase#moveTo(java.util.Comparator)
      */
+    @Override
+    boolean isMoveToBeginEndSupported() {
+      return true;
+    }
+
     @Override
     void moveTo(int begin, int end) {
       moveToCommon((Comparator<TI>) (Subiterator.getAnnotationBeginEndComparator(begin, end)), null); 
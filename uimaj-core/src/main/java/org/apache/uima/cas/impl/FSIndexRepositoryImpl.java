@@ -53,6 +53,8 @@ import org.apache.uima.internal.util.ComparableIntPointerIterator;
 import org.apache.uima.internal.util.Int2IntArrayMapFixedSize;
 import org.apache.uima.internal.util.IntComparator;
 import org.apache.uima.internal.util.IntPointerIterator;
+import org.apache.uima.internal.util.IntSplitIterator;
+import org.apache.uima.internal.util.IntSplitIterators;
 import org.apache.uima.internal.util.IntVector;
 import org.apache.uima.internal.util.PositiveIntSet;
 import org.apache.uima.internal.util.PositiveIntSet_impl;
@@ -550,6 +552,26 @@ public class FSIndexRepositoryImpl implements FSIndexRepositoryMgr, LowLevelInde
     return leafIndex.pointerIterator(leafIndex, this.detectIllegalIndexUpdates, leafIndex.getTypeCode());
   }
 
+  /**
+   * Implemented by the iterators which can be positioned in an annotation index by a begin and end,
+   * without a key Feature Structure on the heap.
+   */
+  interface AnnotationPositionable {
+    /**
+     * @return true if this iterator supports {@link #moveToBeginEnd(int, int)}
+     */
+    boolean isMoveToBeginEndSupported();
+
+    /**
+     * Move to the first annotation which does not sort before the given begin and end
+     * (begin ascending, then end descending).
+     * @param begin the begin to move to
+     * @param end the end to move to
+     * @throws UnsupportedOperationException if not supported, see {@link #isMoveToBeginEndSupported()}
+     */
+    void moveToBeginEnd(int begin, int end);
+  }
+
   /**
    * The next 3 classes (PointerIterator, PointerIteratorUnordered and LeafPointerIterator) 
    * implement iterators for particular indexes.
@@ -567,7 +589,7 @@ public class FSIndexRepositoryImpl implements FSIndexRepositoryMgr, LowLevelInde
    * The iterator implementation for indexes. Tricky because the iterator needs to be able to move
    * backwards as well as forwards.
    */
-  private class PointerIterator implements IntPointerIterator, LowLevelIterator {
+  private class PointerIterator implements IntPointerIterator, LowLevelIterator, AnnotationPositionable {
 
     /**
      * The number of elements to keep in order before the binary heap starts. This section helps the
@@ -1044,6 +1066,42 @@ public class FSIndexRepositoryImpl implements FSIndexRepositoryMgr, LowLevelInde
 //      }
     }
 
+    /**
+     * Supported if supported by all the leaf index iterators
+     * @see org.apache.uima.cas.impl.FSIndexRepositoryImpl.AnnotationPositionable#isMoveToBeginEndSupported()
+     */
+    public boolean isMoveToBeginEndSupported() {
+      for (ComparableIntPointerIterator<?> it : this.iterators) {
+        if (!((FSIntIteratorImplBase<?>) it).isMoveToBeginEndSupported()) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Like moveTo(fs, false), with the begin and end of an annotation instead of an FS
+     * @see org.apache.uima.cas.impl.FSIndexRepositoryImpl.AnnotationPositionable#moveToBeginEnd(int, int)
+     */
+    public void moveToBeginEnd(int begin, int end) {
+      int lvi = this.iterators.length - 1;
+      int i = 0;
+      while (i <= lvi) {
+        final FSIntIteratorImplBase<?> it = (FSIntIteratorImplBase<?>) this.iterators[i];
+        it.moveToBeginEnd(begin, end);
+        if (it.isValid()) {
+          heapify_up(it, i, 1);
+          ++i;
+        } else {
+          this.iterators[i] = this.iterators[lvi];
+          this.iterators[lvi] = it;
+          --lvi;
+        }
+      }
+      this.wentForward = true;
+      this.lastValidIndex = lvi;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -1246,6 +1304,19 @@ public class FSIndexRepositoryImpl implements FSIndexRepositoryMgr, LowLevelInde
     public void moveTo(int fs) {
       moveTo(fs, false);
     }
+
+    /**
+     * The subtypes are not kept in order, so there is no position for a begin and end
+     */
+    @Override
+    public boolean isMoveToBeginEndSupported() {
+      return false;
+    }
+
+    @Override
+    public void moveToBeginEnd(int begin, int end) {
+      throw new UnsupportedOperationException();
+    }
     
     void moveTo(int fs, boolean isExact) {
       IndexIteratorCachePair<? extends FeatureStructure> iicp = getIicp();
@@ -1416,7 +1487,8 @@ public class FSIndexRepositoryImpl implements FSIndexRepositoryMgr, LowLevelInde
    * returns an iterator over that 
    * 
    */
-  private class SnapshotPointerIterator<T extends FeatureStructure> implements IntPointerIterator, LowLevelIterator {
+  private class SnapshotPointerIterator<T extends FeatureStructure> implements IntPointerIterator, LowLevelIterator,
+      AnnotationPositionable {
 
     final private FSIntArrayIndex<T> sortedLeafIndex;
     final private int[] snapshot;
@@ -1502,6 +1574,17 @@ public class FSIndexRepositoryImpl implements FSIndexRepositoryMgr, LowLevelInde
       return snapshot[pos];  // no concurrent mod test
     }
 
+    public boolean isMoveToBeginEndSupported() {
+      return sortedLeafIndex.getComparator().getNumberOfKeys() != 0;
+    }
+
+    public void moveToBeginEnd(int begin, int end) {
+      if (!isMoveToBeginEndSupported()) {
+        throw new UnsupportedOperationException();
+      }
+      pos = sortedLeafIndex.findLeftmost(begin, end);
+    }
+
     /**
      * @see org.apache.uima.internal.util.IntPointerIterator#moveTo(int)
      */
@@ -1757,6 +1840,27 @@ public class FSIndexRepositoryImpl implements FSIndexRepositoryMgr, LowLevelInde
       return new LLUnambiguousIteratorImpl(this.ll_iterator(), this.iicp.fsLeafIndex.lowLevelCAS);
     }
 
+    public IntSplitIterator ll_splitIterator() {
+      this.iicp.createIndexIteratorCache();
+      final ArrayList<FSLeafIndexImpl<? extends T>> leafIndexes = this.iicp.cachedSubFsLeafIndexes;
+      final List<IntSplitIterator> parts = new ArrayList<IntSplitIterator>(leafIndexes.size());
+      for (FSLeafIndexImpl<? extends T> leafIndex : leafIndexes) {
+        if (leafIndex.size() > 0) {
+          parts.add(leafIndex.ll_splitIterator());
+        }
+      }
+      final IntSplitIterator it = IntSplitIterators.concat(parts);
+      if (!is_with_snapshot_iterators) {
+        return it;
+      }
+      // snapshot: copy the FS references, and split the copy
+      final IntVector snapshot = new IntVector(this.iicp.size());
+      while (it.hasNext()) {
+        snapshot.add(it.next());
+      }
+      return IntSplitIterators.of(snapshot);
+    }
+
     /**
      * @see org.apache.uima.cas.FSIndex#withSnapshotIterators()
      */
@@ -1809,6 +1913,10 @@ public class FSIndexRepositoryImpl implements FSIndexRepositoryMgr, LowLevelInde
     final private PositiveIntSet fsDeletedFromIndex = new PositiveIntSet_impl(); // only used when processing updates in batch mode
 
     final private PositiveIntSet fsReindexed = new PositiveIntSet_impl(); // only used when processing updates in batch mode
+    
+    boolean isEmpty() {
+      return fsAddedToIndex.size() == 0 && fsDeletedFromIndex.size() == 0 && fsReindexed.size() == 0;
+    }
   }
   
   /*****  I N S T A N C E   V A R I A B L E S  *****/
@@ -2011,6 +2119,28 @@ public class FSIndexRepositoryImpl implements FSIndexRepositoryMgr, LowLevelInde
     }
   }
 
+  /**
+   * For freezing the CAS: set up, on this thread, the structures which are otherwise
+   * built lazily when the indexes are first read, so that reading doesn't update anything.
+   */
+  void finishLazyStructures() {
+    getDefaultTypeOrder();
+    getAnnotationFsComparator();
+    getAnnotationIntComparator();
+    for (int i = 1; i < this.indexArray.length; i++) {
+      final ArrayList<IndexIteratorCachePair<? extends FeatureStructure>> iicps = this.indexArray[i];
+      if (null == iicps) {
+        continue;
+      }
+      for (IndexIteratorCachePair<? extends FeatureStructure> iicp : iicps) {
+        iicp.createIndexIteratorCache();
+        if (iicp.fsLeafIndex instanceof FSIntArrayIndex) {
+          ((FSIntArrayIndex<?>) iicp.fsLeafIndex).setupAnnotationIntComparator();
+        }
+      }
+    }
+  }
+
   /**
    * Reset all indexes, in one view.
    */
@@ -2045,7 +2175,10 @@ public class FSIndexRepositoryImpl implements FSIndexRepositoryMgr, LowLevelInde
     
     this.indexUpdates.removeAllElements();
     this.indexUpdateOperation.clear();
-    mPii = new ProcessedIndexInfo();
+    // only replace the processed info if delta processing actually filled it in
+    if (!mPii.isEmpty()) {
+      mPii = new ProcessedIndexInfo();
+    }
 //    this.fsAddedToIndex = new IntSet();
 //    this.fsDeletedFromIndex = new IntSet();
 //    this.fsReindexed = new PositiveIntSet_impl();
@@ -2547,6 +2680,7 @@ public class FSIndexRepositoryImpl implements FSIndexRepositoryMgr, LowLevelInde
    * @param type -
    */
   public void removeAllExcludingSubtypes(Type type) {
+    this.cas.checkNotFrozen();
     final int typeCode = ((TypeImpl) type).getCode();
     incrementIllegalIndexUpdateDetector(typeCode);
     // get a list of all indexes defined over this type
@@ -2773,32 +2907,66 @@ public class FSIndexRepositoryImpl implements FSIndexRepositoryMgr, LowLevelInde
     ll_addFS_common(fsRef, true, count);
   }
   
+  public void ll_addFSs(int[] fsRefs, int count) {
+    cas.checkNotFrozen();
+    int start = 0;
+    while (start < count) {
+      final int typeCode = this.cas.getTypeCode(fsRefs[start]);
+      int end = start + 1;
+      while (end < count && this.cas.getTypeCode(fsRefs[end]) == typeCode) {
+        end++;
+      }
+      addFSsOfType(typeCode, fsRefs, start, end);
+      start = end;
+    }
+  }
+
+  /**
+   * The bulk version of ll_addFS_common (not addback), for FSs all of one type
+   */
+  private void addFSsOfType(int typeCode, int[] fsRefs, int start, int end) {
+    for (int i = start; i < end; i++) {
+      cas.maybeClearCacheNotInIndex(fsRefs[i]);
+      checkAddToRightView(fsRefs[i], typeCode);
+    }
+    incrementIllegalIndexUpdateDetector(typeCode);
+    final ArrayList<IndexIteratorCachePair<? extends FeatureStructure>> indexes = this.indexArray[typeCode];
+    boolean noIndexOrOnlySetindexes = true;
+    for (IndexIteratorCachePair<? extends FeatureStructure> iicp : indexes) {
+      iicp.fsLeafIndex.bulkInsert(fsRefs, start, end);
+      if (noIndexOrOnlySetindexes) {
+        noIndexOrOnlySetindexes = iicp.fsLeafIndex.getIndexingStrategy() == FSIndex.SET_INDEX;
+      }
+    }
+    if (this.cas.getCurrentMark() != null) {
+      for (int i = start; i < end; i++) {
+        logIndexOperation(fsRefs[i], true);
+      }
+    }
+    if (noIndexOrOnlySetindexes) {
+      // lazily create a default bag index for this type, as ll_addFS_common does
+      final Type type = this.sii.tsi.ll_getTypeForCode(typeCode);
+      final FSIndexComparator comparator = createComparator();
+      comparator.setType(type);
+      createIndexNoQuestionsAsked(comparator, getAutoIndexNameForType(type), FSIndex.DEFAULT_BAG_INDEX);
+      indexes.get(indexes.size() - 1).fsLeafIndex.bulkInsert(fsRefs, start, end);
+    }
+    if (!this.isUsed[typeCode]) {
+      this.isUsed[typeCode] = true;
+      this.usedIndexes.add(typeCode);
+    }
+  }
+
   private void ll_addFS_common(int fsRef, boolean isAddback, int count) {
+    cas.checkNotFrozen();
     cas.maybeClearCacheNotInIndex(fsRef);
     // Determine type of FS.
     final int typeCode = this.cas.getTypeCode(fsRef);
 
     // https://issues.apache.org/jira/browse/UIMA-4099
     // skip test for wrong view if addback, etc.
-    if (!isAddback && (!IS_DISABLE_ENHANCED_WRONG_INDEX_CHECK) && sii.tsi.isAnnotationBaseOrSubtype(typeCode)) {
-      final int sofaAddr = cas.getSofaFeat(fsRef);
-      if (sofaAddr == 0) {
-        throw new CASRuntimeException(
-            CASRuntimeException.SOFAREF_NOT_SET, new String[] {
-                ((FeatureStructureImpl)(cas.ll_getFSForRef(fsRef))).toString()});            
-      }
-      if (!cas.isSofaView(sofaAddr)) {
-        AnnotationBaseImpl fs_abi = new AnnotationBaseImpl(fsRef, cas);
-        SofaFS annotSofaFS = cas.getSofa(sofaAddr);
-        SofaFS viewSofaFS  = cas.getSofa(cas.getSofaRef());
-        
-        CASRuntimeException e = new CASRuntimeException(
-            CASRuntimeException.ANNOTATION_IN_WRONG_INDEX, new String[] { 
-                fs_abi.toString(),
-                annotSofaFS.getSofaID(), 
-                viewSofaFS.getSofaID()});
-        throw e;
-      }
+    if (!isAddback) {
+      checkAddToRightView(fsRef, typeCode);
     }
    
     // indicate this type's indexes are being modified
@@ -2850,11 +3018,38 @@ public class FSIndexRepositoryImpl implements FSIndexRepositoryMgr, LowLevelInde
     }
   }
 
+  /**
+   * An annotation (or AnnotationBase) may only be added to the indexes of the view of its sofa
+   */
+  private void checkAddToRightView(int fsRef, int typeCode) {
+    if ((!IS_DISABLE_ENHANCED_WRONG_INDEX_CHECK) && sii.tsi.isAnnotationBaseOrSubtype(typeCode)) {
+      final int sofaAddr = cas.getSofaFeat(fsRef);
+      if (sofaAddr == 0) {
+        throw new CASRuntimeException(
+            CASRuntimeException.SOFAREF_NOT_SET, new String[] {
+                ((FeatureStructureImpl)(cas.ll_getFSForRef(fsRef))).toString()});            
+      }
+      if (!cas.isSofaView(sofaAddr)) {
+        AnnotationBaseImpl fs_abi = new AnnotationBaseImpl(fsRef, cas);
+        SofaFS annotSofaFS = cas.getSofa(sofaAddr);
+        SofaFS viewSofaFS  = cas.getSofa(cas.getSofaRef());
+        
+        CASRuntimeException e = new CASRuntimeException(
+            CASRuntimeException.ANNOTATION_IN_WRONG_INDEX, new String[] { 
+                fs_abi.toString(),
+                annotSofaFS.getSofaID(), 
+                viewSofaFS.getSofaID()});
+        throw e;
+      }
+    }
+  }
+
   private static final String getAutoIndexNameForType(Type type) {
     return "_" + type.getName() + "_GeneratedIndex";
   }
 
   boolean ll_removeFS_ret(int fsRef) {
+    this.cas.checkNotFrozen();
     final int typeCode = this.cas.ll_getFSRefType(fsRef);
     incrementIllegalIndexUpdateDetector(typeCode);
     final ArrayList<IndexIteratorCachePair<? extends FeatureStructure>> idxList = this.indexArray[typeCode];
@@ -19,12 +19,16 @@
 
 package org.apache.uima.cas.impl;
 
+import java.util.Arrays;
+
 import org.apache.uima.cas.FeatureStructure;
 import org.apache.uima.cas.Type;
 import org.apache.uima.cas.admin.FSIndexComparator;
 import org.apache.uima.internal.util.ComparableIntPointerIterator;
 import org.apache.uima.internal.util.IntComparator;
 import org.apache.uima.internal.util.IntPointerIterator;
+import org.apache.uima.internal.util.IntSplitIterator;
+import org.apache.uima.internal.util.IntSplitIterators;
 import org.apache.uima.internal.util.IntVector;
 
 /**
@@ -63,13 +67,24 @@ public class FSIntArrayIndex<T extends FeatureStructure> extends FSLeafIndexImpl
   }
 
   public void flush() {
-    // do this way to reset size if it grew
-    if (this.indexIntVector.size() > this.initialSize) {
-      this.indexIntVector.resetSize(initialSize);
+    // Keep the storage across resets unless it is much bigger than what was used;
+    //   reallocating it on every reset just regrows it (with copying) for the next document
+    if (isOversized(this.indexIntVector, this.initialSize)) {
+      this.indexIntVector.resetSize(Math.max(this.initialSize, this.indexIntVector.getArray().length >> 1));
     } else {
       this.indexIntVector.removeAllElements();
     }
   }
+  
+  /**
+   * @param v an index vector, about to be flushed
+   * @param initialSize the initial size of the index
+   * @return true if less than 1/4 of the capacity above the initial size was used, so the storage should shrink
+   */
+  static boolean isOversized(IntVector v, int initialSize) {
+    final int capacity = v.getArray().length;
+    return capacity > initialSize && capacity > (v.size() << 2);
+  }
 
   // public final boolean insert(int fs) {
   // this.index.add(fs);
@@ -160,6 +175,109 @@ public class FSIntArrayIndex<T extends FeatureStructure> extends FSLeafIndexImpl
     }
   }
 
+  /**
+   * Insert a batch with one sort of the batch and one merge with the index, instead of
+   * a binary search and an array shift per element.
+   * The batch is put in index order (keys, then address, as findExact uses); batches made by
+   * bulk creation are usually in order already.  If the whole batch sorts after the last element,
+   * it is just appended.
+   */
+  @Override
+  void bulkInsert(int[] fss, int start, int end) {
+    if (end - start < 2) {
+      super.bulkInsert(fss, start, end);
+      return;
+    }
+    int[] batch = Arrays.copyOfRange(fss, start, end);
+    if (!isInOrder(batch)) {
+      mergeSort(batch, new int[batch.length], 0, batch.length);
+    }
+    final int batchLength = FSIndexRepositoryImpl.IS_ALLOW_DUP_ADD_2_INDEXES ? batch.length : dedup(batch);
+
+    final int[] indexArray = this.indexIntVector.getArray();
+    final int length = this.indexIntVector.size();
+    if (length == 0 || compareWithAddr(indexArray[length - 1], batch[0]) < 0) {
+      this.indexIntVector.add(batch, 0, batchLength);
+      return;
+    }
+
+    final int[] merged = new int[length + batchLength];
+    int i = 0, j = 0, k = 0;
+    while (i < length && j < batchLength) {
+      final int c = compareWithAddr(indexArray[i], batch[j]);
+      if (c < 0) {
+        merged[k++] = indexArray[i++];
+      } else if (c > 0) {
+        merged[k++] = batch[j++];
+      } else {
+        // the same FS, already in the index
+        merged[k++] = indexArray[i++];
+        if (!FSIndexRepositoryImpl.IS_ALLOW_DUP_ADD_2_INDEXES) {
+          j++;
+        }
+      }
+    }
+    while (i < length) {
+      merged[k++] = indexArray[i++];
+    }
+    while (j < batchLength) {
+      merged[k++] = batch[j++];
+    }
+    this.indexIntVector.removeAllElements();
+    this.indexIntVector.add(merged, 0, k);
+  }
+
+  private int compareWithAddr(int fs1, int fs2) {
+    final int c = compare(fs1, fs2);
+    return (c != 0) ? c : Integer.compare(fs1, fs2);
+  }
+
+  private boolean isInOrder(int[] a) {
+    for (int i = 1; i < a.length; i++) {
+      if (compareWithAddr(a[i - 1], a[i]) > 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void mergeSort(int[] a, int[] tmp, int from, int to) {
+    if (to - from < 2) {
+      return;
+    }
+    final int mid = (from + to) >>> 1;
+    mergeSort(a, tmp, from, mid);
+    mergeSort(a, tmp, mid, to);
+    if (compareWithAddr(a[mid - 1], a[mid]) <= 0) {
+      return;  // already in order
+    }
+    System.arraycopy(a, from, tmp, from, to - from);
+    int i = from, j = mid, k = from;
+    while (i < mid && j < to) {
+      a[k++] = (compareWithAddr(tmp[i], tmp[j]) <= 0) ? tmp[i++] : tmp[j++];
+    }
+    while (i < mid) {
+      a[k++] = tmp[i++];
+    }
+    while (j < to) {
+      a[k++] = tmp[j++];
+    }
+  }
+
+  /**
+   * @param a a sorted batch
+   * @return the length of the batch after removing repeats of the same FS
+   */
+  private static int dedup(int[] a) {
+    int k = 1;
+    for (int i = 1; i < a.length; i++) {
+      if (a[i] != a[k - 1]) {
+        a[k++] = a[i];
+      }
+    }
+    return k;
+  }
+
   // public IntIteratorStl iterator() {
   // return new IntVectorIterator();
   // }
@@ -212,6 +330,34 @@ public class FSIntArrayIndex<T extends FeatureStructure> extends FSLeafIndexImpl
     return pos;
   }
   
+  /**
+   * For an annotation index (sorted by begin ascending, then by end descending), find the position
+   * of the first annotation which does not sort before the given begin and end. Unlike findLeftmost,
+   * the key is not an FS, so nothing needs to be created on the heap.
+   * @param begin the begin of the key
+   * @param end the end of the key
+   * @return the position of the first annotation at or after the key, or size() if there is none
+   */
+  final int findLeftmost(int begin, int end) {
+    final int[] array = this.indexIntVector.getArray();
+    final int beginOffset = lowLevelCAS.getFeatureOffset(TypeSystemImpl.startFeatCode);
+    final int endOffset = lowLevelCAS.getFeatureOffset(TypeSystemImpl.endFeatCode);
+    int start = 0;
+    int stop = this.indexIntVector.size();
+    while (start < stop) {
+      final int i = (start + stop) >>> 1;
+      final int fsBegin = lowLevelCAS.getHeapValue(array[i] + beginOffset);
+      final boolean isBefore = (fsBegin < begin) ||
+          (fsBegin == begin && lowLevelCAS.getHeapValue(array[i] + endOffset) > end);
+      if (isBefore) {
+        start = i + 1;
+      } else {
+        stop = i;
+      }
+    }
+    return start;
+  }
+
   /**
    * Like find, but if found, returns position of Exact FS spot or neg of an insert spot (if no == match)
    * @param fsRef
@@ -425,7 +571,18 @@ public class FSIntArrayIndex<T extends FeatureStructure> extends FSLeafIndexImpl
   protected void bulkAddTo(IntVector v) {
     v.addBulk(indexIntVector);
   }
+
+  @Override
+  public IntSplitIterator ll_splitIterator() {
+    return IntSplitIterators.of(indexIntVector);
+  }
   
+  void setupAnnotationIntComparator() {
+    if (isAnnotationIndex && annotationIntComparator == null) {
+      annotationIntComparator = lowLevelCAS.indexRepository.getAnnotationIntComparator();
+    }
+  }
+
   @Override
   public int compare(int fs1, int fs2) {
     if (isAnnotationIndex) {
@@ -46,7 +46,8 @@ import org.apache.uima.internal.util.ComparableIntPointerIterator;
  *   
  */
 public abstract class FSIntIteratorImplBase<T extends FeatureStructure> 
-           implements ComparableIntPointerIterator<T>, LowLevelIterator {
+           implements ComparableIntPointerIterator<T>, LowLevelIterator,
+           FSIndexRepositoryImpl.AnnotationPositionable {
 
   final private FSLeafIndexImpl<T> fsLeafIndexImpl;
   
@@ -134,4 +135,20 @@ public abstract class FSIntIteratorImplBase<T extends FeatureStructure>
     //default impl: ignore isExact for bag and set
     moveTo(fs);
   }
+
+  /**
+   * Only sorted indexes support this
+   * @see org.apache.uima.cas.impl.FSIndexRepositoryImpl.AnnotationPositionable#isMoveToBeginEndSupported()
+   */
+  public boolean isMoveToBeginEndSupported() {
+    return false;
+  }
+
+  /**
+   * Only sorted indexes support this
+   * @see org.apache.uima.cas.impl.FSIndexRepositoryImpl.AnnotationPositionable#moveToBeginEnd(int, int)
+   */
+  public void moveToBeginEnd(int begin, int end) {
+    throw new UnsupportedOperationException();
+  }
 }
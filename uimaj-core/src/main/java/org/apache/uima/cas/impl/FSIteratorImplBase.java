@@ -86,6 +86,13 @@ public abstract class FSIteratorImplBase<T extends FeatureStructure> implements
     return ((AnnotationFS)get()).getEnd();
   }
   
+  /**
+   * @return true if {@link #moveTo(int, int)} is supported by this iterator
+   */
+  boolean isMoveToBeginEndSupported() {
+    return false;
+  }
+
   /**
    * A special version of moveTo for subtypes of AnnotationFS, which moves to a particular begin/end
    * (no type priority). 
@@ -115,9 +115,21 @@ public class FSIteratorWrapper<T extends FeatureStructure> extends FSIteratorImp
     return casImpl.getHeapValue(it.get() + endOffset);
   }
 
+  @Override
+  boolean isMoveToBeginEndSupported() {
+    if (it instanceof FSIndexRepositoryImpl.AnnotationPositionable) {
+      return ((FSIndexRepositoryImpl.AnnotationPositionable) it).isMoveToBeginEndSupported();
+    }
+    return (it instanceof FSIteratorImplBase) && ((FSIteratorImplBase<?>) it).isMoveToBeginEndSupported();
+  }
+
   @Override
   <TT extends AnnotationFS> void moveTo(int begin, int end) {
-    ((FSIteratorImplBase<TT>)it).moveTo(begin, end);
+    if (it instanceof FSIndexRepositoryImpl.AnnotationPositionable) {
+      ((FSIndexRepositoryImpl.AnnotationPositionable) it).moveToBeginEnd(begin, end);
+    } else {
+      ((FSIteratorImplBase<TT>)it).moveTo(begin, end);
+    }
   }
   
   
@@ -142,6 +142,11 @@ public class FSIteratorWrapperDoubleCheck<T extends FeatureStructure> extends FS
   /* (non-Javadoc)
    * @see org.apache.uima.cas.impl.FSIteratorImplBase#moveTo(java.util.Comparator)
    */
+  @Override
+  boolean isMoveToBeginEndSupported() {
+    return ((FSIteratorImplBase<?>) this.nonFlatIterator).isMoveToBeginEndSupported();
+  }
+
   @Override
   <TT extends AnnotationFS> void moveTo(int begin, int end) {
     ((FSIteratorImplBase<TT>)(this.nonFlatIterator)).moveTo(begin, end);
@@ -31,6 +31,7 @@ import org.apache.uima.cas.admin.LinearTypeOrder;
 import org.apache.uima.internal.util.ComparableIntPointerIterator;
 import org.apache.uima.internal.util.IntComparator;
 import org.apache.uima.internal.util.IntPointerIterator;
+import org.apache.uima.internal.util.IntSplitIterator;
 import org.apache.uima.internal.util.IntVector;
 
 /**
@@ -144,6 +145,19 @@ public abstract class FSLeafIndexImpl<T extends FeatureStructure> implements Com
   
   abstract boolean insert(int fs, int count);  // for bulk addback
 
+  /**
+   * Insert a batch of FSs of this index's type; used by bulk index adds.
+   * This version inserts them one at a time; indexes which can do better override it.
+   * @param fss the FSs
+   * @param start the first one to insert
+   * @param end one past the last one to insert
+   */
+  void bulkInsert(int[] fss, int start, int end) {
+    for (int i = start; i < end; i++) {
+      insert(fss[i]);
+    }
+  }
+
   /**
    * @param fs - the Feature Structure to be removed.
    * Only this exact Feature Structure is removed (this is a stronger test than, for example,
@@ -483,6 +497,8 @@ public abstract class FSLeafIndexImpl<T extends FeatureStructure> implements Com
   
   protected abstract IntPointerIterator refIterator(int fsCode);
 
+  public abstract IntSplitIterator ll_splitIterator();
+
   // these next two are never called (maybe)
   // because the object this method is called on is
   // never this object, but instead the FSIndexRepositoryImpl.IndexImpl object
@@ -26,6 +26,7 @@ import org.apache.uima.internal.util.ComparableIntIterator;
 import org.apache.uima.internal.util.ComparableIntPointerIterator;
 import org.apache.uima.internal.util.IntComparator;
 import org.apache.uima.internal.util.IntPointerIterator;
+import org.apache.uima.internal.util.IntSplitIterator;
 import org.apache.uima.internal.util.IntVector;
 import org.apache.uima.internal.util.rb_trees.CompIntArrayRBT;
 
@@ -163,6 +164,11 @@ public class FSRBTSetIndex<T extends FeatureStructure> extends FSLeafIndexImpl<T
   protected void bulkAddTo(IntVector v) {
     throw new UnsupportedOperationException();
   }
+
+  @Override
+  public IntSplitIterator ll_splitIterator() {
+    return this.tree.splitIterator();
+  }
   
   // For testing only
   public void setTree(CompIntArrayRBT compIntArrayRBT) {
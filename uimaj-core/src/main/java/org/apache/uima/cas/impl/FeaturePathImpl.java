@@ -40,6 +40,7 @@ import org.apache.uima.cas.Type;
 import org.apache.uima.cas.TypeClass;
 import org.apache.uima.cas.impl.TypeSystemUtils.PathValid;
 import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.internal.util.IntVector;
 
 /**
  * Implementation of the feature path interface.
@@ -78,7 +79,7 @@ class FeaturePathImpl implements FeaturePath {
    private ArrayList<Feature> featurePathElements;
 
    // featurePath low level element features
-   private ArrayList<Integer> ll_featurePathElements;
+   private IntVector ll_featurePathElements;
 
    private Type featurePathBaseType;
 
@@ -253,7 +254,7 @@ class FeaturePathImpl implements FeaturePath {
          } else if (PathValid.ALWAYS == pathValid) {
             // the featurePath is always valid, so we can resolve and cache the
             // path elements
-            this.ll_featurePathElements = new ArrayList<Integer>();
+            this.ll_featurePathElements = new IntVector();
             this.featurePathElements = new ArrayList<Feature>(); // reset
             // object
             Type currentType = featurePathType;
@@ -864,6 +865,16 @@ class FeaturePathImpl implements FeaturePath {
          int currentFeatureCode = 0;
          int currentRangeTypeCode = 0;
 
+         // check FS type for FeaturePath base type
+         //   done once, the FS the path starts from doesn't change
+         boolean isInitSubType = false;
+         if (this.featurePathBaseTypeCode > 0) {
+            isInitSubType = llCas.ll_getTypeSystem()
+                  .ll_subsumes(this.featurePathBaseTypeCode,
+                        llCas.ll_getFSRefType(fsRef, true));
+         }
+         final IntVector cachedFeatureCodes = isInitSubType ? this.ll_featurePathElements : null;
+
          // resolve feature path value
          for (int i = 0; i < this.featurePathElementNames.size(); i++) {
             // if we had in the last iteration a primitive feature or a FS that
@@ -883,20 +894,12 @@ class FeaturePathImpl implements FeaturePath {
                               this.featurePathElementNames.get(i - 1) });
                }
             }
-            boolean isInitSubType = false;
-
-            // check current FS type for FeaturePath base type
-            if (this.featurePathBaseTypeCode > 0) {
-               isInitSubType = llCas.ll_getTypeSystem()
-                     .ll_subsumes(this.featurePathBaseTypeCode,
-                           llCas.ll_getFSRefType(fsRef, true));
-            }
             // get the Feature for the current featurePath element. If the
             // featurePath is always valid the featurePath Feature elements are
             // cached, otherwise the feature names must be resolved by name
-            if (isInitSubType && (this.ll_featurePathElements != null)) {
+            if (cachedFeatureCodes != null) {
                // use cached Feature element
-               currentFeatureCode = this.ll_featurePathElements.get(i);
+               currentFeatureCode = cachedFeatureCodes.get(i);
             } else {
                // get current Type from feature type code
                int fsRefTypeCode = llCas.ll_getFSRefType(fsRef, true);
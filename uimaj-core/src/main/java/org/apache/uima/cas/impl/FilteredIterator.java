@@ -119,6 +119,11 @@ class FilteredIterator<T extends FeatureStructure> extends FSIteratorImplBase<T>
   /* (non-Javadoc)
    * @see org.apache.uima.cas.impl.FSIteratorImplBase#moveTo(java.util.Comparator)
    */
+  @Override
+  boolean isMoveToBeginEndSupported() {
+    return (this.it instanceof FSIteratorImplBase) && ((FSIteratorImplBase<T>) this.it).isMoveToBeginEndSupported();
+  }
+
   @Override
   <TT extends AnnotationFS> void moveTo(int begin, int end) {
     ((FSIteratorImplBase<T>)(this.it)).moveTo(begin, end);
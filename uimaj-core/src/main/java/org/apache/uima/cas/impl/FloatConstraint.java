@@ -44,7 +44,6 @@ class FloatConstraint extends PathConstraint implements FSMatchConstraint {
   }
 
   public boolean match(FeatureStructure fs) {
-    // compile(((FeatureStructureImpl) fs).getCAS().getTypeSystem());
     final int max = this.featNames.size() - 1; // The last position in the
     // path!
     if (max < 0) {
@@ -52,6 +51,18 @@ class FloatConstraint extends PathConstraint implements FSMatchConstraint {
       // constraint is not satisfied.
       return false;
     }
+    // compiled form
+    final FeatureStructureImpl fsi = (FeatureStructureImpl) fs;
+    final CASImpl cas = fsi.getCASImpl();
+    final int addr = ll_followPath(cas, fsi.getAddress(), max);
+    final int featOffset = (addr < 0) ? addr : ll_getFeatOffset(cas, addr, max, LowLevelCAS.TYPE_CLASS_FLOAT);
+    if (featOffset == NO_MATCH) {
+      return false;
+    }
+    if (featOffset != NOT_COMPILED) {
+      return this.floatConstraint.match(CASImpl.int2float(cas.ll_getIntValueFeatOffset(addr, featOffset)));
+    }
+
     Feature feat;
     for (int i = 0; i < max; i++) {
       feat = fs.getType().getFeatureByBaseName(this.featNames.get(i));
@@ -286,6 +286,31 @@ public final class Heap {
     return pos1;
   }
   
+  /**
+   * Reserve space for <code>count</code> structures of length <code>len</code>, one after the
+   * other, and set the first item of each to <code>val</code>. The other items are set to <code>0</code>.
+   * 
+   * @param count
+   *                The number of structures.
+   * @param len
+   *                The length of each structure.
+   * @param val
+   *                The value of the first cell in each structure.
+   * @return The position of the first structure; the others follow at intervals of <code>len</code>.
+   */
+  public int add(int count, int len, int val) {
+    final int total = count * len;
+    while ((this.pos + total) >= this.max) {
+      grow();
+    }
+    final int pos1 = this.pos;
+    this.pos += total;
+    for (int p = pos1; p < this.pos; p += len) {
+      this.heap[p] = val;
+    }
+    return pos1;
+  }
+
   public int getNextId() {
 	  return pos;
   }
@@ -122,6 +122,17 @@ class IntIterator4sorted<T extends FeatureStructure> extends FSIntIteratorImplBa
     moveTo(i, false);
   }
   
+  @Override
+  public boolean isMoveToBeginEndSupported() {
+    return true;
+  }
+
+  @Override
+  public void moveToBeginEnd(int begin, int end) {
+    resetConcurrentModification();
+    itPos = fsIntArrayIndex.findLeftmost(begin, end);
+  }
+
   void moveTo(int i, boolean isExact) {
     resetConcurrentModification();
     final int pos = isExact ? fsIntArrayIndex.findEq(i) : fsIntArrayIndex.findLeftmost(i);
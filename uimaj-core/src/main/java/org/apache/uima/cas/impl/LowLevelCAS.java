@@ -186,6 +186,59 @@ public interface LowLevelCAS {
    */
   int ll_createFS(int typeCode, boolean doTypeCheck);
 
+  /**
+   * Create a batch of new FSs of one type, in one step. The FSs are laid out one after the other
+   * on the heap. Annotation base types get the sofa reference of this view, as with the other
+   * create methods. The FSs are not added to any index.
+   * 
+   * @param typeCode
+   *          The type code of the FSs to create; this is checked.
+   * @param count
+   *          The number of FSs to create.
+   * @return The references of the new FSs, in address order.
+   * @exception LowLevelException
+   *              If the type code argument is not a valid type code for creating an FS.
+   * @exception IllegalArgumentException
+   *              If the count is negative.
+   */
+  int[] ll_createFSs(int typeCode, int count);
+
+  /**
+   * Create a batch of annotations of one type, from values given column-wise, for instance the
+   * output of a tokenizer or tagger. The annotations are created in one step, their features set
+   * directly, and (optionally) indexed with {@link LowLevelIndexRepository#ll_addFSs(int[], int)}.
+   * <p>
+   * Each column gives the values of one feature for all the annotations; the column must be an
+   * array matching the range of the feature: <code>int[]</code> for integers and for references to
+   * other FSs, <code>float[]</code>, <code>String[]</code> (also for string subtypes),
+   * <code>boolean[]</code>, <code>byte[]</code>, <code>short[]</code>, <code>long[]</code> or
+   * <code>double[]</code>.
+   * 
+   * @param typeCode
+   *          The type code; uima.tcas.Annotation or a subtype.
+   * @param count
+   *          The number of annotations to create.
+   * @param begins
+   *          The begin values, at least <code>count</code> long.
+   * @param ends
+   *          The end values, at least <code>count</code> long.
+   * @param featureCodes
+   *          The features to set, other than begin and end; may be <code>null</code>.
+   * @param columns
+   *          The values of the features, one column per feature code, each at least <code>count</code> long.
+   * @param addToIndexes
+   *          if true, the new annotations are added to the indexes of this view.
+   * @return The references of the new annotations, in the order of the column values.
+   * @exception org.apache.uima.cas.CASRuntimeException
+   *              If the type is not an annotation type, a feature is not defined for the type, or a
+   *              column does not match the range of its feature.
+   * @exception IllegalArgumentException
+   *              If the count is negative, an array has fewer than <code>count</code> values, or
+   *              there is not one column per feature code. Nothing is created in that case.
+   */
+  int[] ll_createAnnotations(int typeCode, int count, int[] begins, int[] ends, int[] featureCodes,
+      Object[] columns, boolean addToIndexes);
+
   /**
    * Create a new array.
    * 
@@ -19,6 +19,8 @@
 
 package org.apache.uima.cas.impl;
 
+import org.apache.uima.internal.util.IntSplitIterator;
+
 /**
  * Low-level FS index object. Use to obtain low-level iterators.
  * 
@@ -51,6 +53,19 @@ public interface LowLevelIndex {
    */
   LowLevelIterator ll_rootIterator();
 
+  /**
+   * Get a low-level, FS reference iterator which can be split into parts, for traversing
+   * this index on several threads in parallel (for instance, to count or extract features
+   * over a large CAS).  The iterator is split first by the indexes for the type of this
+   * index and its subtypes, and then within those, so the FS references are not returned
+   * in the order of this index.
+   * <p>
+   * The index must not be updated while the iterator or any of its parts is in use.
+   * 
+   * @return A split iterator for this index.
+   */
+  IntSplitIterator ll_splitIterator();
+
   /**
    * Get the number of FSs in this index.
    * 
@@ -72,6 +72,20 @@ public interface LowLevelIndexRepository {
    */
   void ll_addFS(int fsRef, boolean doChecks);
 
+  /**
+   * Add a batch of FS references to all appropriate indexes in the repository. This has the same
+   * effect as calling {@link #ll_addFS(int)} for each, but runs of references of the same type are
+   * added to each index in one step (for sorted indexes, with one sort and merge), which is much
+   * faster for large batches.
+   * 
+   * @param fsRefs
+   *          The FS references to be added to the repository. If any is not a valid
+   *          FS reference, the subsequent behavior of the system is undefined.
+   * @param count
+   *          The number of references in <code>fsRefs</code> to add, starting from the first.
+   */
+  void ll_addFSs(int[] fsRefs, int count);
+
   /**
    * Remove a FS reference from all indexes in the repository. Note that this only removes the
    * reference from the index repository, it does not free memory on the heap.
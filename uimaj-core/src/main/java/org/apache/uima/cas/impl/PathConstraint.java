@@ -20,16 +20,58 @@
 package org.apache.uima.cas.impl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import org.apache.uima.cas.FSMatchConstraint;
+import org.apache.uima.cas.Feature;
 
 /**
- * Implements a constraint embedded under a path. Optimize later.
+ * Implements a constraint embedded under a path.
+ * 
+ * The path is compiled on first use, for the type system of the FS being matched:
+ * for each step of the path and each type of FS found at that step, the feature name
+ * is resolved once, to the offset of the feature in the FS. Matching then follows the
+ * path using the low level CAS, without name lookups and without making 
+ * Java cover objects for the FSs along the path.
  */
 abstract class PathConstraint implements FSMatchConstraint {
 
+  /** returned when a type along the path doesn't have the feature; the constraint doesn't match */
+  static final int NO_MATCH = -1;
+  
+  /** 
+   * returned when the compiled form can't be used (a feature's range isn't what the step needs, 
+   * or a value along the path is null); the caller uses the uncompiled code, which reports these cases
+   */
+  static final int NOT_COMPILED = -2;
+  
   protected ArrayList<String> featNames;
 
+  /**
+   * The compiled path for one type system.
+   */
+  private static class CompiledPath {
+    final TypeSystemImpl tsi;
+    
+    /**
+     * [step][type code] - the offset of the feature in an FS of that type, 
+     *   0 if not yet resolved, or NO_MATCH or NOT_COMPILED.
+     * Entries are only ever set to the same value, and the per step arrays
+     * only replaced by larger copies, so racing updates from several threads are harmless.
+     */
+    final int[][] featOffsets;
+    
+    CompiledPath(TypeSystemImpl tsi, int nbrSteps) {
+      this.tsi = tsi;
+      this.featOffsets = new int[nbrSteps][];
+      for (int i = 0; i < nbrSteps; i++) {
+        featOffsets[i] = new int[tsi.getLargestTypeCode() + 1];
+      }
+    }
+  }
+  
+  private transient volatile CompiledPath compiled = null;
+  
   protected PathConstraint() {
     super();
   }
@@ -39,6 +81,69 @@ abstract class PathConstraint implements FSMatchConstraint {
     this.featNames = featNames;
   }
 
+  /**
+   * Follow the first nbrSteps steps of the path.
+   * 
+   * @param cas the CAS of the FS
+   * @param addr the FS the path starts at
+   * @param nbrSteps the number of steps to follow
+   * @return the addr of the FS reached (which is 0 if the value of the last step followed is null), 
+   *         or NO_MATCH or NOT_COMPILED
+   */
+  protected final int ll_followPath(CASImpl cas, int addr, int nbrSteps) {
+    for (int i = 0; i < nbrSteps; i++) {
+      final int featOffset = ll_getFeatOffset(cas, addr, i, LowLevelCAS.TYPE_CLASS_FS);
+      if (featOffset < 0) {
+        return featOffset;
+      }
+      addr = cas.ll_getRefValueFeatOffset(addr, featOffset);
+    }
+    return addr;
+  }
+  
+  /**
+   * @param cas the CAS of the FS
+   * @param addr the FS at this step of the path
+   * @param step the step in the path
+   * @param rangeTypeClass the LowLevelCAS.TYPE_CLASS_xxx the feature's range must have;
+   *          TYPE_CLASS_FS for any FS reference (including arrays)
+   * @return the offset of the step's feature in the FS, or NO_MATCH or NOT_COMPILED
+   */
+  protected final int ll_getFeatOffset(CASImpl cas, int addr, int step, int rangeTypeClass) {
+    if (addr == CASImpl.NULL) {
+      return NOT_COMPILED;
+    }
+    final TypeSystemImpl tsi = cas.getTypeSystemImpl();
+    CompiledPath c = this.compiled;
+    if (null == c || c.tsi != tsi) {
+      this.compiled = c = new CompiledPath(tsi, this.featNames.size());
+    }
+    final int typeCode = cas.getHeapValue(addr);
+    int[] offsets = c.featOffsets[step];
+    if (typeCode >= offsets.length) {
+      // an array type added after the compile
+      c.featOffsets[step] = offsets = Arrays.copyOf(offsets, tsi.getLargestTypeCode() + 1);
+    }
+    int featOffset = offsets[typeCode];
+    if (0 == featOffset) {
+      offsets[typeCode] = featOffset = resolveFeatOffset(tsi, step, typeCode, rangeTypeClass);
+    }
+    return featOffset;
+  }
+  
+  private int resolveFeatOffset(TypeSystemImpl tsi, int step, int typeCode, int rangeTypeClass) {
+    final Feature feat = tsi.ll_getTypeForCode(typeCode).getFeatureByBaseName(this.featNames.get(step));
+    if (null == feat) {
+      return NO_MATCH;
+    }
+    final int featCode = ((FeatureImpl) feat).getCode();
+    final int rangeTypeCode = tsi.ll_getRangeType(featCode);
+    final boolean isRangeOk = (LowLevelCAS.TYPE_CLASS_FS == rangeTypeClass) 
+        ? tsi.ll_isRefType(rangeTypeCode)
+        : (tsi.ll_getTypeClass(rangeTypeCode) == rangeTypeClass);
+    return isRangeOk ? tsi.casMetadata.featureOffset[featCode] : NOT_COMPILED;
+  }
+
   public String toString() {
     if (this.featNames == null) {
       return "";
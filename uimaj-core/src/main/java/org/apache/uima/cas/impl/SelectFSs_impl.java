@@ -0,0 +1,308 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.cas.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.CASRuntimeException;
+import org.apache.uima.cas.FSIterator;
+import org.apache.uima.cas.FSMatchConstraint;
+import org.apache.uima.cas.FeatureStructure;
+import org.apache.uima.cas.SelectFSs;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.text.AnnotationFS;
+
+/**
+ * Implementation of {@link SelectFSs}.
+ *
+ * Planning:
+ *   - with no positional selection, iterate over all the indexed FSs of the type (getAllIndexedFS).
+ *   - with a positional selection, use the annotation index for the type (which includes the subtypes),
+ *       and push the bounds down into the iteration:
+ *       - coveredBy and following start with a moveTo to the first annotation whose begin is &gt;= the bound
+ *           (a binary search of the sorted index for begin = the bound, end = Integer.MAX_VALUE, which
+ *            sorts before all annotations with that begin; no key FS is created in the CAS)
+ *       - coveredBy, covering and preceding stop at the first annotation whose begin is past the bound;
+ *           annotations before that point that fail the end test are skipped
+ *   - constraints (filter), skip and limit are applied to what the positional selection yields.
+ *
+ * Checks of begin and end are done with the low level accessors of the index iterators,
+ * so no Java cover objects are made for annotations skipped by position.
+ *
+ * @param <T> the Java class for the selected Feature Structures
+ */
+public class SelectFSs_impl<T extends FeatureStructure> implements SelectFSs<T> {
+
+  private static final int NO_POSITION = 0;
+  private static final int COVERED_BY = 1;
+  private static final int COVERING = 2;
+  private static final int FOLLOWING = 3;
+  private static final int PRECEDING = 4;
+
+  private final CASImpl view;
+
+  private final Type type;
+
+  private int positionKind = NO_POSITION;
+
+  private int boundBegin;
+
+  private int boundEnd;
+
+  private AnnotationFS boundingAnnotation = null;  // excluded from the results
+
+  private final List<FSMatchConstraint> constraints = new ArrayList<FSMatchConstraint>(2);
+
+  private int skip = 0;
+
+  private int limit = Integer.MAX_VALUE;
+
+  public SelectFSs_impl(CASImpl view, Type type) {
+    this.view = view;
+    this.type = type;
+  }
+
+  public SelectFSs<T> coveredBy(AnnotationFS annotation) {
+    return setPosition(COVERED_BY, annotation.getBegin(), annotation.getEnd(), annotation);
+  }
+
+  public SelectFSs<T> coveredBy(int begin, int end) {
+    return setPosition(COVERED_BY, begin, end, null);
+  }
+
+  public SelectFSs<T> covering(AnnotationFS annotation) {
+    return setPosition(COVERING, annotation.getBegin(), annotation.getEnd(), annotation);
+  }
+
+  public SelectFSs<T> covering(int begin, int end) {
+    return setPosition(COVERING, begin, end, null);
+  }
+
+  public SelectFSs<T> following(AnnotationFS annotation) {
+    return setPosition(FOLLOWING, annotation.getEnd(), annotation.getEnd(), annotation);
+  }
+
+  public SelectFSs<T> following(int position) {
+    return setPosition(FOLLOWING, position, position, null);
+  }
+
+  public SelectFSs<T> preceding(AnnotationFS annotation) {
+    return setPosition(PRECEDING, annotation.getBegin(), annotation.getBegin(), annotation);
+  }
+
+  public SelectFSs<T> preceding(int position) {
+    return setPosition(PRECEDING, position, position, null);
+  }
+
+  public SelectFSs<T> filter(FSMatchConstraint constraint) {
+    this.constraints.add(constraint);
+    return this;
+  }
+
+  public SelectFSs<T> skip(int n) {
+    this.skip = n;
+    return this;
+  }
+
+  public SelectFSs<T> limit(int n) {
+    this.limit = n;
+    return this;
+  }
+
+  private SelectFSs<T> setPosition(int kind, int begin, int end, AnnotationFS annotation) {
+    final TypeSystemImpl tsi = view.getTypeSystemImpl();
+    if (!tsi.isAnnotationOrSubtype(((TypeImpl) type).getCode())) {
+      throw new CASRuntimeException(CASRuntimeException.SELECT_POSITION_NEEDS_ANNOTATION,
+          new String[] { type.getName() });
+    }
+    this.positionKind = kind;
+    this.boundBegin = begin;
+    this.boundEnd = end;
+    this.boundingAnnotation = annotation;
+    return this;
+  }
+
+  public Iterator<T> iterator() {
+    return new SelectIterator();
+  }
+
+  public List<T> asList() {
+    final List<T> result = new ArrayList<T>();
+    for (Iterator<T> it = iterator(); it.hasNext();) {
+      result.add(it.next());
+    }
+    return result;
+  }
+
+  public T get() {
+    final Iterator<T> it = iterator();
+    return it.hasNext() ? it.next() : null;
+  }
+
+  public int count() {
+    int n = 0;
+    for (Iterator<T> it = iterator(); it.hasNext(); it.next()) {
+      n++;
+    }
+    return n;
+  }
+
+  /**
+   * Runs the selection; one item of look ahead
+   */
+  private class SelectIterator implements Iterator<T> {
+
+    private final FSIterator<T> it;
+
+    private final FSIteratorImplBase<T> itBase;  // null if the iterator is not one of ours
+
+    private final int boundingAnnotationAddr;
+
+    private int nbrToSkip = skip;
+
+    private int nbrLeft = limit;
+
+    private T nextFs;
+
+    SelectIterator() {
+      if (NO_POSITION == positionKind) {
+        it = view.getIndexRepository().<T>getAllIndexedFS(type);
+      } else {
+        it = view.getIndexRepository().<T>getIndex(CAS.STD_ANNOTATION_INDEX, type).iterator();
+      }
+      itBase = (it instanceof FSIteratorImplBase) ? (FSIteratorImplBase<T>) it : null;
+      boundingAnnotationAddr = (null == boundingAnnotation) ? 0 : ((FeatureStructureImpl) boundingAnnotation).getAddress();
+
+      if (COVERED_BY == positionKind || FOLLOWING == positionKind) {
+        moveToBound();
+      }
+      nextFs = computeNext();
+    }
+
+    /**
+     * Position the iterator at the first annotation whose begin is &gt;= the bound. The key is a
+     * begin and end, not an FS, so nothing is created in the CAS.
+     * Iterators which can't be positioned this way stay at the first annotation; computeNext skips
+     * the annotations before the bound.
+     */
+    private void moveToBound() {
+      if (null != itBase && itBase.isMoveToBeginEndSupported()) {
+        itBase.moveTo(boundBegin, Integer.MAX_VALUE);
+      } else {
+        it.moveToFirst();
+      }
+    }
+
+    public boolean hasNext() {
+      return null != nextFs;
+    }
+
+    public T next() {
+      final T r = nextFs;
+      if (null == r) {
+        throw new NoSuchElementException();
+      }
+      nextFs = computeNext();
+      return r;
+    }
+
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    private T computeNext() {
+      if (nbrLeft <= 0) {
+        return null;
+      }
+      for (; it.isValid(); it.moveToNext()) {
+        if (NO_POSITION != positionKind) {
+          final int begin = getBegin();
+          final int end = getEnd();
+          switch (positionKind) {
+          case COVERED_BY:
+            if (begin > boundEnd) {
+              return null;  // past the bounds, done
+            }
+            if (begin < boundBegin || end > boundEnd) {
+              continue;
+            }
+            break;
+          case COVERING:
+            if (begin > boundBegin) {
+              return null;
+            }
+            if (end < boundEnd) {
+              continue;
+            }
+            break;
+          case PRECEDING:
+            if (begin > boundBegin) {
+              return null;
+            }
+            if (end > boundBegin) {
+              continue;
+            }
+            break;
+          default: // FOLLOWING
+            if (begin < boundBegin) {
+              continue;
+            }
+          }
+        }
+        final T fs = it.get();
+        if (0 != boundingAnnotationAddr && boundingAnnotationAddr == ((FeatureStructureImpl) fs).getAddress()) {
+          continue;
+        }
+        if (!matches(fs)) {
+          continue;
+        }
+        if (nbrToSkip > 0) {
+          nbrToSkip --;
+          continue;
+        }
+        nbrLeft --;
+        it.moveToNext();
+        return fs;
+      }
+      return null;
+    }
+
+    private boolean matches(T fs) {
+      for (FSMatchConstraint cons : constraints) {
+        if (!cons.match(fs)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private int getBegin() {
+      return (null != itBase) ? itBase.getBegin() : ((AnnotationFS) it.get()).getBegin();
+    }
+
+    private int getEnd() {
+      return (null != itBase) ? itBase.getEnd() : ((AnnotationFS) it.get()).getEnd();
+    }
+  }
+}
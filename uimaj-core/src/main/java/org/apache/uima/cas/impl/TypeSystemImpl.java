@@ -174,6 +174,18 @@ public class TypeSystemImpl implements TypeSystemMgr, LowLevelTypeSystem {
    * Value is bits set of subtypes of that code, including the type itself
    */
   private final List<BitSet> subsumes; // Collection of BitSets for subsumption relation
+
+  /**
+   * Computed at commit time, indexed by type code: 
+   *   the number of the type in a depth first pre-order walk of the type tree, and 
+   *   the largest such number in the subtree rooted at the type.
+   * A type subsumes another if the other's number is within its range.
+   * Array types are not numbered (0), and are handled by the general subsumes code; 
+   * types added after commit (only array types) are beyond the end of these.
+   */
+  private int[] subsumesRangeStart = null;
+  
+  private int[] subsumesRangeEnd = null;
   
   private final IntVector intro;
 
@@ -1175,6 +1187,16 @@ public class TypeSystemImpl implements TypeSystemMgr, LowLevelTypeSystem {
     if (superType == type)
       return true;
 
+    // range check, for the non-array types of a committed type system
+    final int[] rangeStart = this.subsumesRangeStart;
+    if (rangeStart != null && superType < rangeStart.length && type < rangeStart.length) {
+      final int superStart = rangeStart[superType];
+      final int typeStart = rangeStart[type];
+      if (superStart != 0 && typeStart != 0) {
+        return superStart <= typeStart && typeStart <= this.subsumesRangeEnd[superType];
+      }
+    }
+
     // Yes, the code below is intentional. Until we actually support real
     // arrays of some
     // particular fs,
@@ -1212,6 +1234,44 @@ public class TypeSystemImpl implements TypeSystemMgr, LowLevelTypeSystem {
     return this.subsumes.get(superType).get(type);
   }
 
+  /**
+   * Number the types in a depth first pre-order walk of the type tree, recording for 
+   * each type the range of numbers of its subtree.
+   * Called at commit time, after which the (non-array part of the) tree can't change.
+   */
+  private void computeSubsumesRanges() {
+    final int size = this.types.size();
+    final int[] rangeStart = new int[size];
+    final int[] rangeEnd = new int[size];
+    numberSubtree(top, 1, rangeStart, rangeEnd);
+    this.subsumesRangeEnd = rangeEnd;
+    this.subsumesRangeStart = rangeStart;  // set last, is the test for using these
+  }
+
+  /**
+   * @param type the root of the subtree to number
+   * @param nextNumber the number to give the type
+   * @param rangeStart updated by side effect
+   * @param rangeEnd updated by side effect
+   * @return the next unused number
+   */
+  private int numberSubtree(int type, int nextNumber, int[] rangeStart, int[] rangeEnd) {
+    final boolean isArray = ll_isArrayType(type);
+    if (!isArray) {
+      rangeStart[type] = nextNumber;
+    }
+    nextNumber ++;
+    final IntVector subtypes = this.tree.get(type);
+    final int max = subtypes.size();
+    for (int i = 0; i < max; i++) {
+      nextNumber = numberSubtree(subtypes.get(i), nextNumber, rangeStart, rangeEnd);
+    }
+    if (!isArray) {
+      rangeEnd[type] = nextNumber - 1;
+    }
+    return nextNumber;
+  }
+
   private void updateSubsumption(int type, int superType) {
     final int max = this.typeNameST.size();
     for (int i = 1; i <= max; i++) {
@@ -1289,6 +1349,7 @@ public class TypeSystemImpl implements TypeSystemMgr, LowLevelTypeSystem {
     this.numTypeNames = this.typeNameST.size();
     this.numFeatureNames = this.featureNameST.size();
     this.typeInfoArray = new TypeInfo[getTypeArraySize()];
+    computeSubsumesRanges();
     // cas.commitTypeSystem -
     // because it will call the type system iterator
     this.casMetadata.setupFeaturesAndCreatableTypes();
@@ -1781,6 +1842,15 @@ public class TypeSystemImpl implements TypeSystemMgr, LowLevelTypeSystem {
     }
   }
   
+  /**
+   * Make all the TypeInfo instances, so that later getTypeInfo calls only read
+   */
+  void setupAllTypeInfos() {
+    for (int i = 1; i <= getLargestTypeCode(); i++) {
+      getTypeInfo(i);
+    }
+  }
+
   TypeInfo getTypeInfo(int typeCode) {
     if (null == typeInfoArray[typeCode]) {
       TypeImpl type = (TypeImpl) ll_getTypeForCode(typeCode);
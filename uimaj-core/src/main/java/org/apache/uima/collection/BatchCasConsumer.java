@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.collection;
+
+import java.util.List;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.resource.ResourceProcessException;
+
+/**
+ * A {@link CasConsumer} which writes the data of many CASes at once, for example with one JDBC
+ * batch update, and which doesn't need the CAS while writing.
+ * <p>
+ * The CPM calls {@link #captureCas(CAS)} for each CAS on its CAS Consumer pipeline thread. The
+ * CAS is released back to the CAS pool as soon as the method returns. The captured data is
+ * collected into batches, which are handed to {@link #processBatch(List)} on a separate writer
+ * thread, one batch at a time and in order, while the CPM goes on with the next CASes. A batch is
+ * written when it reaches a number of CASes, an amount of document text, or an age, set with the
+ * <code>consumerBatchSize</code>, <code>consumerBatchBytes</code> and
+ * <code>consumerBatchTimeout</code> (milliseconds) deployment parameters of the CAS Processor in
+ * the CPE descriptor.
+ * <p>
+ * All captured data is written before {@link #batchProcessComplete(org.apache.uima.util.ProcessTrace)}
+ * and {@link #collectionProcessComplete(org.apache.uima.util.ProcessTrace)} are called.
+ * <p>
+ * Since the CAS is released before its data is written, the CPM reports the CAS as processed to
+ * the {@link org.apache.uima.collection.StatusCallbackListener}s when its data has been captured,
+ * not when it has been written. If {@link #processBatch(List)} then throws an exception, each
+ * document of the failed batch is reported a second time, after the first report, with a
+ * <code>null</code> CAS and a status for which <code>isException()</code> is true; the exception
+ * message names the document. Listeners counting completed documents or using the CAS must
+ * allow for this.
+ * <p>
+ * Outside of the CPM, {@link #processCas(CAS)} is used as for any other CAS Consumer;
+ * {@link BatchCasConsumer_ImplBase} implements it as a batch of one CAS.
+ */
+public interface BatchCasConsumer extends CasConsumer {
+  /**
+   * Extracts from a CAS the data to be written. The returned object must not refer to the CAS or
+   * to any of its Feature Structures.
+   * 
+   * @param aCAS
+   *          the CAS to capture
+   * 
+   * @return the data to be written for this CAS
+   * 
+   * @throws ResourceProcessException
+   *           if the data can't be extracted
+   */
+  public Object captureCas(CAS aCAS) throws ResourceProcessException;
+
+  /**
+   * Writes a batch of captured data.
+   * 
+   * @param aCapturedData
+   *          the data returned by {@link #captureCas(CAS)}, in the order of the CASes
+   * 
+   * @throws ResourceProcessException
+   *           if the data can't be written
+   */
+  public void processBatch(List<Object> aCapturedData) throws ResourceProcessException;
+}
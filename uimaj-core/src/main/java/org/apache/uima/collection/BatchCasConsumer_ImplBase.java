@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.collection;
+
+import java.util.Collections;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.resource.ResourceProcessException;
+
+/**
+ * Base class for {@link BatchCasConsumer}s. Subclasses implement
+ * {@link BatchCasConsumer#captureCas(CAS)} and
+ * {@link BatchCasConsumer#processBatch(java.util.List)}.
+ */
+public abstract class BatchCasConsumer_ImplBase extends CasConsumer_ImplBase implements
+        BatchCasConsumer {
+
+  /**
+   * Captures the CAS and writes it as a batch of its own. Only called when the CAS Consumer does
+   * not run in a CPM, which batches the captured data itself.
+   * 
+   * @see org.apache.uima.collection.base_cpm.CasObjectProcessor#processCas(org.apache.uima.cas.CAS)
+   */
+  public void processCas(CAS aCAS) throws ResourceProcessException {
+    processBatch(Collections.singletonList(captureCas(aCAS)));
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.uima.collection;
+
+import java.io.IOException;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.util.Progress;
+
+/**
+ * One independent part of the collection read by a {@link SplittableCollectionReader}. The CPM
+ * reads each split in its own thread, so a split is only ever used by one thread at a time, but
+ * different splits of the same reader are read concurrently.
+ * 
+ * @see SplittableCollectionReader#getSplits(int)
+ */
+public interface CollectionReaderSplit {
+  /**
+   * Gets whether there are any elements remaining to be read from this split.
+   * 
+   * @return true if and only if there are more elements available from this split
+   * 
+   * @throws IOException
+   *           if an I/O failure occurs
+   * @throws CollectionException
+   *           if there is some other problem with reading from the Collection
+   */
+  public boolean hasNext() throws IOException, CollectionException;
+
+  /**
+   * Gets the next element of this split. The element will be stored in the provided CAS object,
+   * exactly as {@link CollectionReader#getNext(CAS)} would.
+   * 
+   * @param aCAS
+   *          the CAS to populate with the next element of the split
+   * 
+   * @throws IOException
+   *           if an I/O failure occurs
+   * @throws CollectionException
+   *           if there is some other problem with reading from the Collection
+   */
+  public void getNext(CAS aCAS) throws IOException, CollectionException;
+
+  /**
+   * Gets the progress of this split. The CPM adds up the progress of all the splits, unit by unit,
+   * to report the progress of the whole collection.
+   * 
+   * @return an array of <code>Progress</code> objects, or null if the progress is not known
+   */
+  public Progress[] getProgress();
+
+  /**
+   * Closes this split, after which it may no longer be used. The Collection Reader itself is
+   * closed separately.
+   * 
+   * @throws IOException
+   *           if an I/O failure occurs
+   */
+  public void close() throws IOException;
+}
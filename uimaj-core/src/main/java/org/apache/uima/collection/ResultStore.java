@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.collection;
+
+import java.io.IOException;
+
+/**
+ * A key/value store holding the results of earlier analyses for the result cache of the CPE.
+ * <p>
+ * A key identifies the text of a document, the CasProcessors which analyzed it and their
+ * configuration, and the Feature Structures the Collection Reader created. A value holds the
+ * Feature Structures the CasProcessors added or changed, as a delta CAS in compressed binary form
+ * 6. The CPE calls the store from all its processing threads at once.
+ * <p>
+ * An implementation named in the <code>resultCache</code> attribute of the
+ * <code>&lt;casProcessors&gt;</code> element of a CPE descriptor must have a public no-arg
+ * constructor.
+ */
+public interface ResultStore {
+  /**
+   * Returns the value stored for a key.
+   * 
+   * @param aKey
+   *          the key
+   * 
+   * @return the value, or null if none is stored
+   * 
+   * @throws IOException
+   *           if the store can't be read
+   */
+  public byte[] get(String aKey) throws IOException;
+
+  /**
+   * Stores a value, replacing any value stored for the same key. A store may drop values at any
+   * time to bound its size.
+   * 
+   * @param aKey
+   *          the key
+   * @param aValue
+   *          the value
+   * 
+   * @throws IOException
+   *           if the store can't be written
+   */
+  public void put(String aKey, byte[] aValue) throws IOException;
+
+  /**
+   * Releases the resources of the store. Called once, when the CPE has finished processing.
+   * 
+   * @throws IOException
+   *           if the store can't be closed
+   */
+  public void close() throws IOException;
+}
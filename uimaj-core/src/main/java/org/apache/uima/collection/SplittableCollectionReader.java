@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.uima.collection;
+
+import java.io.IOException;
+
+/**
+ * A {@link CollectionReader} whose collection can be divided into independent splits, for example
+ * one per input file or one per range of a database table, which can be read concurrently.
+ * <p>
+ * When the CPE descriptor asks for more than one reader thread (the <code>readerThreads</code>
+ * attribute of the <code>&lt;collectionReader&gt;</code> element), the CPM calls
+ * {@link #getSplits(int)} once, instead of iterating over the reader with
+ * {@link #hasNext()} and {@link #getNext(org.apache.uima.cas.CAS)}, and reads every split in its
+ * own thread. Otherwise this is used as an ordinary <code>CollectionReader</code>.
+ * <p>
+ * If the reader is also a
+ * {@link org.apache.uima.collection.base_cpm.RecoverableCollectionReader}, the CPM repositions it
+ * from the checkpoint before calling {@link #getSplits(int)}, so the splits must only cover the
+ * elements which have not been read yet. The <code>SynchPoint</code> returned by the reader must
+ * account for the elements read from all the splits.
+ */
+public interface SplittableCollectionReader extends CollectionReader {
+  /**
+   * Divides the remainder of the collection into independent splits.
+   * 
+   * @param aMaxSplits
+   *          the number of reader threads the CPM will use. The reader may return fewer splits,
+   *          but not more.
+   * 
+   * @return the splits, which together contain every element remaining in the collection exactly
+   *         once
+   * 
+   * @throws IOException
+   *           if an I/O failure occurs
+   * @throws CollectionException
+   *           if there is some other problem with reading from the Collection
+   */
+  public CollectionReaderSplit[] getSplits(int aMaxSplits) throws IOException, CollectionException;
+}
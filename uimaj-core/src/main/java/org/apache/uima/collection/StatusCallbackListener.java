@@ -33,7 +33,9 @@ public interface StatusCallbackListener extends BaseStatusCallbackListener {
    * Called when the processing of each entity has completed.
    * 
    * @param aCas
-   *          the CAS containing the processed entity and the analysis results
+   *          the CAS containing the processed entity and the analysis results; may be
+   *          <code>null</code> if the processing failed, for instance for the late reports of a
+   *          {@link BatchCasConsumer}
    * @param aStatus
    *          the status of the processing. This object contains a record of any Exception that
    *          occurred, as well as timing information.
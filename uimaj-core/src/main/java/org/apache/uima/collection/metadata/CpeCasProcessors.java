@@ -97,6 +97,64 @@ public interface CpeCasProcessors extends MetaDataObject {
    */
   public int getConcurrentPUCount();
 
+  /**
+   * Sets the minimum number of ProcessingUnits. When this is set to a value smaller than the number
+   * of ProcessingUnits, the CPE adjusts the number of running ProcessingUnits while processing,
+   * between this minimum and {@link #getConcurrentPUCount()}, based on the depth of the work
+   * queue, the utilization of the ProcessingUnits and the throughput. A value of 0 (the default)
+   * keeps the number of ProcessingUnits fixed.
+   * 
+   * @param aMinConcurrentPUCount -
+   *          minimum number of ProcessingUnits(processing threads)
+   * @throws CpeDescriptorException tbd
+   */
+  public void setMinConcurrentPUCount(int aMinConcurrentPUCount) throws CpeDescriptorException;
+
+  /**
+   * Returns the minimum number of ProcessingUnits, or 0 if the number of ProcessingUnits is fixed.
+   * 
+   * @return - minimum number of ProcessingUnits(processing threads)
+   */
+  public int getMinConcurrentPUCount();
+
+  /**
+   * Sets the store of the result cache. When set, the CPE hashes the text of each CAS read by the
+   * Collection Reader and looks up the store for the results of an earlier analysis of the same
+   * text by the same CasProcessors. If found, the results are restored and the analysis is skipped.
+   * The store is <code>memory</code> (kept for the run only), <code>file:</code> followed by a
+   * directory, or the name of a class implementing {@link org.apache.uima.collection.ResultStore}.
+   * 
+   * @param aResultCache -
+   *          the result store, or null for no result cache
+   * @throws CpeDescriptorException tbd
+   */
+  public void setResultCache(String aResultCache) throws CpeDescriptorException;
+
+  /**
+   * Returns the store of the result cache, or null if there is no result cache.
+   * 
+   * @return - the result store
+   */
+  public String getResultCache();
+
+  /**
+   * Sets the maximum number of results kept by a <code>memory</code> result cache. The least
+   * recently used results are dropped first. A value of 0 (the default) keeps 10000 results.
+   * 
+   * @param aResultCacheSize -
+   *          maximum number of results
+   * @throws CpeDescriptorException tbd
+   */
+  public void setResultCacheSize(int aResultCacheSize) throws CpeDescriptorException;
+
+  /**
+   * Returns the maximum number of results kept by a <code>memory</code> result cache, or 0 for the
+   * default.
+   * 
+   * @return - maximum number of results
+   */
+  public int getResultCacheSize();
+
   /**
    * Inserts a new CasProcessor at an indicated position.
    * 
@@ -99,4 +99,21 @@ public interface CpeCollectionReader extends MetaDataObject {
   public void setCollectionIterator(CpeCollectionReaderIterator iterator);
 
   public CpeCollectionReaderIterator getCollectionIterator();
+
+  /**
+   * Sets the number of threads reading from the CollectionReader. More than one thread is only
+   * used with a {@link org.apache.uima.collection.SplittableCollectionReader}, each thread reading
+   * one of its splits.
+   * 
+   * @param aReaderThreads -
+   *          number of reader threads
+   */
+  public void setReaderThreads(int aReaderThreads);
+
+  /**
+   * Returns the number of threads reading from the CollectionReader.
+   * 
+   * @return number of reader threads, 1 by default
+   */
+  public int getReaderThreads();
 }
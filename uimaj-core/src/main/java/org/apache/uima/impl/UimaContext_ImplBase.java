@@ -50,9 +50,12 @@ import org.apache.uima.cas.SofaID;
 import org.apache.uima.cas.impl.CASImpl;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.CasManager;
+import org.apache.uima.resource.ConfigurationManager;
 import org.apache.uima.resource.ResourceAccessException;
 import org.apache.uima.resource.ResourceConfigurationException;
 import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.impl.ConfigurationManagerImplBase;
+import org.apache.uima.resource.impl.ConfigurationManagerImplBase.ParameterTable;
 import org.apache.uima.resource.metadata.ConfigurationGroup;
 import org.apache.uima.resource.metadata.ConfigurationParameter;
 import org.apache.uima.util.Level;
@@ -138,6 +141,13 @@ public abstract class UimaContext_ImplBase implements UimaContextAdmin {
    */
   private volatile boolean mCasPoolCreated = false;
 
+  /**
+   * The values of the configuration parameters of this context, when the configuration manager
+   * supports it.  Made on the first lookup, and remade on a lookup after any parameter value
+   * may have changed (setConfigParameterValue, reconfigure, ...).
+   */
+  private volatile ParameterTable mParameterTable;
+
   /**
    * CASes that have been requested via {@link #getEmptyCas(Class)} minus the number calls
    * the framework has made to {@link #returnedCAS(AbstractCas)} (which indicate that the 
@@ -265,7 +275,11 @@ public abstract class UimaContext_ImplBase implements UimaContextAdmin {
    * @see org.apache.uima.analysis_engine.annotator.AnnotatorContext#getConfigParameterValue(java.lang.String)
    */
   public Object getConfigParameterValue(String aName) {
-    return getConfigurationManager().getConfigParameterValue(makeQualifiedName(aName));
+    final ConfigurationManager cm = getConfigurationManager();
+    if (cm instanceof ConfigurationManagerImplBase) {
+      return getParameterTable(cm).getConfigParameterValue(aName);
+    }
+    return cm.getConfigParameterValue(makeQualifiedName(aName));
   }
 
   /**
@@ -273,8 +287,25 @@ public abstract class UimaContext_ImplBase implements UimaContextAdmin {
    *      java.lang.String)
    */
   public Object getConfigParameterValue(String aGroupName, String aParamName) {
-    return getConfigurationManager().getConfigParameterValue(makeQualifiedName(aParamName),
-            aGroupName);
+    final ConfigurationManager cm = getConfigurationManager();
+    if (cm instanceof ConfigurationManagerImplBase) {
+      return getParameterTable(cm).getConfigParameterValue(aParamName, aGroupName);
+    }
+    return cm.getConfigParameterValue(makeQualifiedName(aParamName), aGroupName);
+  }
+
+  /**
+   * @param cm the configuration manager, a ConfigurationManagerImplBase
+   * @return a current table of the values of the parameters of this context
+   */
+  private ParameterTable getParameterTable(ConfigurationManager cm) {
+    ParameterTable table = mParameterTable;
+    if (table == null || !table.isCurrentFor(cm)) {
+      // racing threads may each make one; they are equivalent
+      table = ((ConfigurationManagerImplBase) cm).getParameterTable(getQualifiedContextName());
+      mParameterTable = table;
+    }
+    return table;
   }
 
   @Override
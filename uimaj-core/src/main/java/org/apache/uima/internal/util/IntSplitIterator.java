@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.internal.util;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A forward only int iterator which can be split into parts, so the parts can be
+ * traversed in parallel on different threads (in the style of java.util.Spliterator.OfInt,
+ * but usable from Java 7).
+ *
+ * Each part is used by one thread at a time.
+ * The underlying collection must not be modified while any part is in use.
+ */
+public interface IntSplitIterator {
+
+  /**
+   * Check if there is a next element. Does not move the iterator.
+   *
+   * @return <code>true</code> iff there is a next element.
+   */
+  boolean hasNext();
+
+  /**
+   * Return the next element and increment the iterator.
+   *
+   * @return The next element.
+   * @exception NoSuchElementException
+   *              If no next element exists.
+   */
+  int next() throws NoSuchElementException;
+
+  /**
+   * Split off a part of the remaining elements.  After this, this iterator covers the
+   * remaining elements not in the returned part.
+   *
+   * @return an iterator for the part split off, or null if this iterator can't
+   *   (or isn't worth) splitting
+   */
+  IntSplitIterator trySplit();
+
+  /**
+   * @return an estimate of the number of elements remaining; exact for parts of
+   *   array based collections
+   */
+  int estimateSize();
+}
@@ -0,0 +1,233 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.internal.util;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * {@link IntSplitIterator}s over the int collections used by the indexes.
+ *
+ * Splitting:
+ *   - IntVector: by halving the index range (the part split off is the first half, so
+ *       the order of the vector is kept across parts)
+ *   - PositiveIntSet: by halving the range of set positions (bit positions or hash slots),
+ *       so the parts are of about equal size when the elements are spread out
+ *   - concatenations: by halving the list of parts; a single remaining part is split itself
+ */
+public class IntSplitIterators {
+
+  private static final IntSplitIterator EMPTY = new IntSplitIterator() {
+    public boolean hasNext() {
+      return false;
+    }
+    public int next() {
+      throw new NoSuchElementException();
+    }
+    public IntSplitIterator trySplit() {
+      return null;
+    }
+    public int estimateSize() {
+      return 0;
+    }
+  };
+
+  public static IntSplitIterator empty() {
+    return EMPTY;
+  }
+
+  /**
+   * @param v the vector; the part of the vector up to its current size is iterated
+   * @return a split iterator over the elements of the vector
+   */
+  public static IntSplitIterator of(IntVector v) {
+    return new IntVectorSplitIterator(v.getArray(), 0, v.size());
+  }
+
+  /**
+   * @param set the set
+   * @return a split iterator over the elements of the set, in the order of the set positions
+   */
+  public static IntSplitIterator of(PositiveIntSet set) {
+    final int first = set.moveToFirst();
+    if (first < 0) {
+      return EMPTY;
+    }
+    final int end = set.moveToLast() + 1;
+    return new PositiveIntSetSplitIterator(set, first, end, set.size(), end - first);
+  }
+
+  /**
+   * @param parts the iterators to concatenate
+   * @return a split iterator over the elements of all the parts, in order
+   */
+  public static IntSplitIterator concat(List<IntSplitIterator> parts) {
+    switch (parts.size()) {
+    case 0: return EMPTY;
+    case 1: return parts.get(0);
+    default: return new ConcatSplitIterator(parts.toArray(new IntSplitIterator[parts.size()]), 0, parts.size());
+    }
+  }
+
+  private static class IntVectorSplitIterator implements IntSplitIterator {
+
+    private final int[] array;
+
+    private int pos;
+
+    private final int end;
+
+    IntVectorSplitIterator(int[] array, int pos, int end) {
+      this.array = array;
+      this.pos = pos;
+      this.end = end;
+    }
+
+    public boolean hasNext() {
+      return pos < end;
+    }
+
+    public int next() {
+      if (pos >= end) {
+        throw new NoSuchElementException();
+      }
+      return array[pos++];
+    }
+
+    public IntSplitIterator trySplit() {
+      final int mid = (pos + end) >>> 1;
+      if (mid <= pos) {
+        return null;
+      }
+      final IntSplitIterator prefix = new IntVectorSplitIterator(array, pos, mid);
+      pos = mid;
+      return prefix;
+    }
+
+    public int estimateSize() {
+      return end - pos;
+    }
+  }
+
+  private static class PositiveIntSetSplitIterator implements IntSplitIterator {
+
+    private final PositiveIntSet set;
+
+    /** a valid position, or &gt;= end if there are no more elements */
+    private int pos;
+
+    private final int end;
+
+    /** for estimating sizes: the set size and the span of positions it was spread over */
+    private final int setSize;
+
+    private final int setSpan;
+
+    PositiveIntSetSplitIterator(PositiveIntSet set, int pos, int end, int setSize, int setSpan) {
+      this.set = set;
+      this.pos = pos;
+      this.end = end;
+      this.setSize = setSize;
+      this.setSpan = setSpan;
+    }
+
+    public boolean hasNext() {
+      return pos < end;
+    }
+
+    public int next() {
+      if (pos >= end) {
+        throw new NoSuchElementException();
+      }
+      final int r = set.get(pos);
+      final int nextPos = set.moveToNext(pos);
+      pos = (nextPos < 0) ? end : nextPos;
+      return r;
+    }
+
+    public IntSplitIterator trySplit() {
+      final int mid = (pos + end) >>> 1;
+      if (mid <= pos) {
+        return null;
+      }
+      final IntSplitIterator prefix = new PositiveIntSetSplitIterator(set, pos, mid, setSize, setSpan);
+      final int nextPos = set.moveToNext(mid - 1);  // the first position >= mid
+      pos = (nextPos < 0) ? end : nextPos;
+      return prefix;
+    }
+
+    public int estimateSize() {
+      return (pos >= end) ? 0 : (int) (((long) setSize * (end - pos)) / setSpan);
+    }
+  }
+
+  private static class ConcatSplitIterator implements IntSplitIterator {
+
+    private final IntSplitIterator[] parts;
+
+    private int cur;
+
+    private final int end;
+
+    ConcatSplitIterator(IntSplitIterator[] parts, int cur, int end) {
+      this.parts = parts;
+      this.cur = cur;
+      this.end = end;
+    }
+
+    public boolean hasNext() {
+      for (; cur < end; cur++) {
+        if (parts[cur].hasNext()) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    public int next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return parts[cur].next();
+    }
+
+    public IntSplitIterator trySplit() {
+      final int nbrParts = end - cur;
+      if (nbrParts == 1) {
+        return parts[cur].trySplit();
+      }
+      if (nbrParts < 1) {
+        return null;
+      }
+      final int mid = (cur + end) >>> 1;
+      final IntSplitIterator prefix = (mid - cur == 1) ? parts[cur] : new ConcatSplitIterator(parts, cur, mid);
+      cur = mid;
+      return prefix;
+    }
+
+    public int estimateSize() {
+      long s = 0;
+      for (int i = cur; i < end; i++) {
+        s += parts[i].estimateSize();
+      }
+      return (int) Math.min(Integer.MAX_VALUE, s);
+    }
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.internal.util;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.uima.resource.Resource;
+import org.apache.uima.resource.ResourceInitializationException;
+
+/**
+ * Runs independent initialization tasks (e.g., creating the delegates of an aggregate) on a
+ * bounded number of threads, for {@link Resource#PARAM_NUM_INIT_THREADS}.
+ *
+ * The threads are made for each call, by the calling thread, so they inherit its
+ * inheritable thread locals (such as the UimaContextHolder context) and context class loader.
+ * They are stopped before the call returns.
+ */
+public class ParallelInitializer {
+
+  /**
+   * @param aAdditionalParams initialization parameters, may be null
+   * @return the number of threads to use for initialization, 1 if not set
+   */
+  public static int getNumInitThreads(Map<String, Object> aAdditionalParams) {
+    if (aAdditionalParams == null) {
+      return 1;
+    }
+    final Object v = aAdditionalParams.get(Resource.PARAM_NUM_INIT_THREADS);
+    return (v instanceof Integer) ? Math.max(1, (Integer) v) : 1;
+  }
+
+  /**
+   * Run all the tasks, using at most maxThreads threads, and wait for all of them to finish
+   * (whether they succeed or fail).
+   *
+   * @param <T> the result type of the tasks
+   * @param tasks the tasks
+   * @param maxThreads the maximum number of threads to use
+   * @param threadName the base name for the threads
+   * @return the completed futures, in the order of the tasks
+   * @throws ResourceInitializationException if interrupted while waiting
+   */
+  public static <T> List<Future<T>> runAll(List<? extends Callable<T>> tasks, int maxThreads, final String threadName)
+      throws ResourceInitializationException {
+    final AtomicInteger threadNumber = new AtomicInteger(0);
+    final ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(maxThreads, tasks.size())),
+        new ThreadFactory() {
+          public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, threadName + "-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+          }
+        });
+    try {
+      return pool.invokeAll(tasks);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ResourceInitializationException(e);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Get the result of a completed initialization task, rethrowing what it threw.
+   *
+   * @param <T> the result type of the task
+   * @param future a completed future, from {@link #runAll}
+   * @return the result of the task
+   * @throws ResourceInitializationException if the task threw one, or a checked exception (wrapped)
+   */
+  public static <T> T getResult(Future<T> future) throws ResourceInitializationException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ResourceInitializationException(e);
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof ResourceInitializationException) {
+        throw (ResourceInitializationException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new ResourceInitializationException(cause);
+    }
+  }
+}
@@ -19,7 +19,11 @@
 
 package org.apache.uima.internal.util.rb_trees;
 
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
 import org.apache.uima.internal.util.IntArrayUtils;
+import org.apache.uima.internal.util.IntSplitIterator;
 import org.apache.uima.internal.util.StringUtils;
 
 /**
@@ -477,6 +481,101 @@ public class IntArrayRBTcommon {
     return (findKey(k) != NIL);
   }
 
+  /**
+   * @return an iterator over the keys, not in key order, which can be split by subtrees
+   *   for traversal in parallel.  The tree must not be modified while the iterator is in use.
+   */
+  public IntSplitIterator splitIterator() {
+    return new SubtreesSplitIterator(this.root, this.size);
+  }
+
+  /**
+   * Pre-order traversal of a set of subtrees, kept on a stack.
+   * Splitting gives away half of the subtrees on the stack; if there's only one, it is opened
+   * up: its root key is held as the next key to return, and its children are put on the stack.
+   */
+  private class SubtreesSplitIterator implements IntSplitIterator {
+
+    private int[] stack = new int[32];
+
+    private int top = 0;
+
+    private boolean hasPendingKey = false;
+
+    private int pendingKey;
+
+    private int estimatedSize;
+
+    SubtreesSplitIterator(int subtree, int estimatedSize) {
+      if (NIL != subtree) {
+        stack[top++] = subtree;
+      }
+      this.estimatedSize = estimatedSize;
+    }
+
+    private void push(int node) {
+      if (NIL != node) {
+        if (top == stack.length) {
+          stack = Arrays.copyOf(stack, top << 1);
+        }
+        stack[top++] = node;
+      }
+    }
+
+    public boolean hasNext() {
+      return hasPendingKey || top > 0;
+    }
+
+    public int next() {
+      estimatedSize--;
+      if (hasPendingKey) {
+        hasPendingKey = false;
+        return pendingKey;
+      }
+      if (top == 0) {
+        throw new NoSuchElementException();
+      }
+      final int node = stack[--top];
+      push(getRight(node));
+      push(getLeft(node));
+      return getKeyForNode(node);
+    }
+
+    public IntSplitIterator trySplit() {
+      if (top == 0) {
+        return null;
+      }
+      if (top == 1 && !hasPendingKey) {
+        final int node = stack[--top];
+        pendingKey = getKeyForNode(node);
+        hasPendingKey = true;
+        push(getRight(node));
+        push(getLeft(node));
+        if (top == 0) {
+          return null;
+        }
+      }
+      final int half = estimatedSize >> 1;
+      final SubtreesSplitIterator prefix = new SubtreesSplitIterator(NIL, half);
+      estimatedSize -= half;
+      if (top == 1) {
+        prefix.push(stack[--top]);
+      } else {
+        final int nbrGiven = top >> 1;
+        for (int i = 0; i < nbrGiven; i++) {
+          prefix.push(stack[i]);
+        }
+        System.arraycopy(stack, nbrGiven, stack, 0, top - nbrGiven);
+        top -= nbrGiven;
+      }
+      return prefix;
+    }
+
+    public int estimateSize() {
+      return hasNext() ? Math.max(1, estimatedSize) : 0;
+    }
+  }
+
   // internal use, public to access by internal routine in another package
   public final int getFirstNode() {
     if (this.root == NIL) {
@@ -36,6 +36,7 @@ import org.apache.uima.cas.Feature;
 import org.apache.uima.cas.FeaturePath;
 import org.apache.uima.cas.FeatureStructure;
 import org.apache.uima.cas.FeatureValuePath;
+import org.apache.uima.cas.SelectFSs;
 import org.apache.uima.cas.SofaFS;
 import org.apache.uima.cas.SofaID;
 import org.apache.uima.cas.Type;
@@ -359,6 +360,29 @@ public interface JCas extends AbstractCas {
    */
   <T extends FeatureStructure> FSIterator<T> createFilteredIterator(FSIterator<T> it, FSMatchConstraint cons);
 
+  /**
+   * Start a selection of the indexed Feature Structures of a type (and its subtypes) in this view.
+   * See {@link SelectFSs}.
+   * 
+   * @param type
+   *          The type to select.
+   * @param <T> the Java class for the selected Feature Structures
+   * @return A selection, to narrow and run.
+   */
+  <T extends FeatureStructure> SelectFSs<T> select(Type type);
+
+  /**
+   * Start a selection of the indexed Feature Structures of a JCas type (and its subtypes) in this view,
+   * for example <code>jcas.&lt;Token&gt;select(Token.type)</code>.
+   * See {@link SelectFSs}.
+   * 
+   * @param jcasType
+   *          The JCas type number (the static field "type" in the JCas class).
+   * @param <T> the JCas class for the selected Feature Structures
+   * @return A selection, to narrow and run.
+   */
+  <T extends TOP> SelectFSs<T> select(int jcasType);
+
   /**
    * Get a constraint factory. A constraint factory is a simple way of creating
    * {@link org.apache.uima.cas.FSMatchConstraint FSMatchConstraints}.
@@ -101,6 +101,10 @@ import org.apache.uima.internal.util.Utilities;
  * <p>
  * All calls are of the getReserved, followed by a put if the getReserved returns null.
  *
+ * Dense mode: when the CAS is configured to use a dense JCas cache, the sub maps are not used;
+ * instead, cover objects are kept in a {@link JCasPagedArrayMap}, indexed directly by heap addr.
+ * This has the same getReserve / put semantics, with an O(1) lookup and no locking when found.
+ * <p>
  * (Experiment - disabled after no change noted
  * To improve locality of reference, an aux data structure of size to fit in one cache line of a Power7 (128 bytes)
  * caches the latest lookups)
@@ -173,6 +177,9 @@ public class JCasHashMap {
   // optimization for concurrency level 1
   private final JCasHashMapSubMap oneSubmap;
   
+  // not null if dense mode, in which case the sub maps are not used
+  private final JCasPagedArrayMap pagedMap;
+  
 //  // cache to improve locality of reference for lookup
 //  private final FeatureStructureImpl[] cacheFS = new FeatureStructureImpl[CACHE_SIZE];  // one cache line is 32 words, save some for length and java object overhead
 //  private final int[] cacheInt = new int[CACHE_SIZE];
@@ -195,8 +202,26 @@ public class JCasHashMap {
     }
   }
   
+  /**
+   * @param capacity the initial capacity
+   * @param doUseCache false to not cache cover objects
+   * @param isDense true to keep cover objects in a paged array indexed by the heap addr, 
+   *                instead of in the hashed sub maps
+   */
+  JCasHashMap(int capacity, boolean doUseCache, boolean isDense) {
+    this(capacity, doUseCache, 1, isDense);
+  }
+  
   JCasHashMap(int capacity, boolean doUseCache, int aConcurrencyLevel) {
+    this(capacity, doUseCache, aConcurrencyLevel, false);
+  }
+  
+  private JCasHashMap(int capacity, boolean doUseCache, int aConcurrencyLevel, boolean isDense) {
     this.useCache = doUseCache;
+    this.pagedMap = (doUseCache && isDense) ? new JCasPagedArrayMap(capacity) : null;
+    if (null != pagedMap) {
+      capacity = 32;  // sub maps are not used, keep them at the minimum size
+    }
 
     if (aConcurrencyLevel < 1|| capacity < 1) {
       throw new RuntimeException(String.format("capacity %d and concurrencyLevel %d must be > 0", capacity, aConcurrencyLevel));
@@ -269,6 +294,10 @@ public class JCasHashMap {
     if (!this.useCache) {
       return;
     }
+    if (null != pagedMap) {
+      pagedMap.clear();
+      return;
+    }
     for (JCasHashMapSubMap m : subMaps) {
       m.clear();
     }
@@ -284,6 +313,9 @@ public class JCasHashMap {
     if (!this.useCache) {
       return null;
     }
+    if (null != pagedMap) {
+      return pagedMap.getReserve(key);
+    }
 //    for (int i = 0; i < cacheInt.length; i++) {
 //      final int vi = cacheInt[i];
 //      if (vi == 0) {
@@ -335,6 +367,9 @@ public class JCasHashMap {
       return null;
     }
     final int key = value.getAddress();
+    if (null != pagedMap) {
+      return pagedMap.put(key, value);
+    }
 //    updateCache(key, value);
     final int hash = hashInt(key);
     return getSubMap(hash).put(key, value, hash >>> concurrencyLevelBits);
@@ -380,6 +415,9 @@ public class JCasHashMap {
   }
   
   int getCapacity() {
+    if (null != pagedMap) {
+      return pagedMap.getCapacity();
+    }
     int r = 0;
     for (JCasHashMapSubMap subMap : subMaps) {
       r += subMap.table.length;
@@ -389,6 +427,9 @@ public class JCasHashMap {
   
   //test case use
   int getApproximateSize() {
+    if (null != pagedMap) {
+      return pagedMap.getApproximateSize();
+    }
     int s = 0;
     for (JCasHashMapSubMap subMap : subMaps) {
       synchronized (subMap) {
@@ -430,6 +471,10 @@ public class JCasHashMap {
   public int getConcurrencyLevel() {
     return concurrencyLevel;
   }
+  
+  public boolean isDense() {
+    return null != pagedMap;
+  }
     
 //  private static final Thread dumpMeasurements = MEASURE_CACHE ? new Thread(new Runnable() {
 //    @Override
@@ -119,7 +119,7 @@ class JCasHashMapSubMap {
           final int newCapacity = Math.max(subMapInitialCapacity, table.length >>> 1);
           if (newCapacity < table.length) { 
             newTable(newCapacity);  // shrink table by 50%
-          } else { // don't shrink below minimum
+          } else if (size > 0) { // don't shrink below minimum
             Arrays.fill(table,  null);
           }
           size = 0;
@@ -130,8 +130,12 @@ class JCasHashMapSubMap {
       } else {
         secondTimeShrinkable = false; // reset this to require 2 triggers in a row
       }
-      size = 0;
-      Arrays.fill(table, null);
+      // an empty submap is already all nulls - skip touching untouched tables,
+      // so reset cost is proportional to the number of cover objects created
+      if (size > 0) {
+        size = 0;
+        Arrays.fill(table, null);
+      }
     } finally {
       lock.unlock();
     }
@@ -396,10 +400,10 @@ class JCasHashMapSubMap {
     }
   }
   
-  private static boolean isReserve(FeatureStructureImpl m) {
+  static boolean isReserve(FeatureStructureImpl m) {
     return m != null && ((TOP)m).jcasType == RESERVE_TOP_TYPE_INSTANCE;
   }
-  private static boolean isReal(FeatureStructureImpl m) {
+  static boolean isReal(FeatureStructureImpl m) {
     return m != null && ((TOP)m).jcasType != RESERVE_TOP_TYPE_INSTANCE;
   }
   
@@ -28,6 +28,7 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -54,6 +55,7 @@ import org.apache.uima.cas.Feature;
 import org.apache.uima.cas.FeaturePath;
 import org.apache.uima.cas.FeatureStructure;
 import org.apache.uima.cas.FeatureValuePath;
+import org.apache.uima.cas.SelectFSs;
 import org.apache.uima.cas.SofaFS;
 import org.apache.uima.cas.SofaID;
 import org.apache.uima.cas.Type;
@@ -171,6 +173,13 @@ public class JCasImpl extends AbstractCas_ImplBase implements AbstractCas, JCas
 
     final Constructor<T> constructorForType;
 
+    /**
+     * set once an instance of the _Type class has been made for this type system without adding
+     * to the JCas errorSet; after that, instances of the _Type class are made lazily, on first use
+     * Access is synch'd on JCasImpl.class
+     */
+    boolean isValidated = false;
+
     LoadedJCasType(String typeName, Class<? extends TOP_Type> a_TypeClass, ClassLoader cl) {
       Class<? extends TOP_Type> _TypeClass = a_TypeClass;
       this.typeName = typeName;
@@ -263,6 +272,13 @@ public class JCasImpl extends AbstractCas_ImplBase implements AbstractCas, JCas
   private static Map<TypeSystemImpl, Map<ClassLoader, Map<String, LoadedJCasType<?>>>> typeSystemToLoadedJCasTypesByClassLoader = 
           new WeakHashMap<TypeSystemImpl, Map<ClassLoader, Map<String, LoadedJCasType<?>>>>(4);
 
+  // key = typeSystemImpl instance, value = array indexed by the JCasRegistry index of the
+  //   JCas cover class, of the LoadedJCasType instances for all the class loaders loaded for
+  //   this type system.  Used by getType to make _Type instances on first use.
+  // Access to this must be synch'd
+  private static Map<TypeSystemImpl, LoadedJCasType<?>[]> typeSystemToLoadedJCasTypesByIndex = 
+          new WeakHashMap<TypeSystemImpl, LoadedJCasType<?>[]>(4);
+
   // **********************************************
   // * Data shared among views of a single CAS *
   // * We keep one copy per view set *
@@ -319,13 +335,17 @@ public class JCasImpl extends AbstractCas_ImplBase implements AbstractCas, JCas
     private ClassLoader cacheClassLoaderInitialized;
     final private Map<ClassLoader, Boolean> isInitializedForClassLoader = Collections.synchronizedMap(new IdentityHashMap<ClassLoader, Boolean>());
 
+    private final boolean isDenseCache;
+    
     private JCasSharedView(CASImpl aCAS, boolean useJcasCache) {
-      setupJCasHashMap(aCAS.getJCasClassLoader(), useJcasCache, aCAS.getHeap().getInitialSize() / 16);
+      isDenseCache = aCAS.isJcasCacheDense();
+      setupJCasHashMap(aCAS.getJCasClassLoader(), useJcasCache, 
+          isDenseCache ? aCAS.getHeap().getInitialSize() : aCAS.getHeap().getInitialSize() / 16);
     }
     
     private void setupJCasHashMap(ClassLoader cl, boolean isUsedCache, int initialSize) {
       int size = Math.max(INITIAL_HASHMAP_SIZE, initialSize); 
-      cAddr2Jfs = new JCasHashMap(size, isUsedCache);
+      cAddr2Jfs = isDenseCache ? new JCasHashMap(size, isUsedCache, true) : new JCasHashMap(size, isUsedCache);
       cAddr2JfsByClassLoader.put(cl, cAddr2Jfs);
       currentClassLoader = cl;    
     }
@@ -356,8 +376,18 @@ public class JCasImpl extends AbstractCas_ImplBase implements AbstractCas, JCas
    * It is not final, because it may need to be "extended" if
    * alternate versions of types are loaded from different class loaders, at some point in the
    * execution. The alternate versions are given their own slots in this array.
+   * 
+   * The entries are filled in lazily, on the first getType for the slot.  Updates are done 
+   * synch'd on JCasImpl.class, followed by a (re)write of this volatile field to publish them
+   * to other threads reading this view.
    */
-  private TOP_Type[] typeArray = new TOP_Type[0]; // contents are subtypes of TOP_Type
+  private volatile TOP_Type[] typeArray = new TOP_Type[0]; // contents are subtypes of TOP_Type
+
+  /*
+   * The class loaders this view has been set up for (generators swapped in, _Type instances which
+   * are not validated yet made).  Access is synch'd on JCasImpl.class
+   */
+  private final Map<ClassLoader, Boolean> isViewInitializedForClassLoader = new IdentityHashMap<ClassLoader, Boolean>();
 
   // *********************************
   // * Getters for read-only objects *
@@ -422,29 +452,52 @@ public class JCasImpl extends AbstractCas_ImplBase implements AbstractCas, JCas
    * @see org.apache.uima.jcas.JCas#getType(int)
    */
   public TOP_Type getType(final int i) {
-    if (i >= typeArray.length || null == typeArray[i]) {
-      getTypeInit(i); 
+    final TOP_Type[] localTypeArray = typeArray;
+    if (i < localTypeArray.length) {
+      final TOP_Type t = localTypeArray[i];
+      if (null != t) {
+        return t;
+      }
     }
-    return typeArray[i];
+    return getTypeInit(i); 
   }
   
   /**
    * Map from type codes to _Type instances kept per view in the field typeArray
    * @param i
+   * @return the _Type instance, made if needed
    */
-  private void getTypeInit(final int i) {
-    // unknown ID. This may be due to a need to update the typeArray
+  private TOP_Type getTypeInit(final int i) {
+    // unknown ID. This is the first use of this _Type in this view, 
+    // or it may be due to a need to update the typeArray
     // due to switching class loaders. This updating is done
-    // partially lazily - when needed, beyond the particular CAS instance and
+    // lazily - when needed, beyond the particular CAS instance and
     // view that was being passed to a process method when the
     // class loader switch was done.
 
     // In order for this to work, all access to the typeArray must be
     // via this getter.
-
-    // Try instantiating the entries in typeArray for this class loader
-    instantiateJCas_Types(this.sharedView.currentClassLoader);
-    if (i >= typeArray.length || null == typeArray[i]) {
+    synchronized (JCasImpl.class) {
+      // recheck - another thread reading this view may have made it
+      TOP_Type[] localTypeArray = typeArray;
+      if (i < localTypeArray.length && null != localTypeArray[i]) {
+        return localTypeArray[i];
+      }
+      
+      // Make sure the JCas classes for this class loader are loaded
+      instantiateJCas_Types(this.sharedView.currentClassLoader);
+      
+      localTypeArray = typeArray;
+      if (i < localTypeArray.length && null == localTypeArray[i]) {
+        final LoadedJCasType<?>[] loadedJCasTypesByIndex = typeSystemToLoadedJCasTypesByIndex.get(casImpl.getTypeSystemImpl());
+        if (null != loadedJCasTypesByIndex && i < loadedJCasTypesByIndex.length && null != loadedJCasTypesByIndex[i]) {
+          makeInstanceOf_Type(loadedJCasTypesByIndex[i]);
+        }
+      }
+      localTypeArray = typeArray;
+      if (i < localTypeArray.length && null != localTypeArray[i]) {
+        return localTypeArray[i];
+      }
 
       // unknown ID. Attempt to get offending class.
       Class<? extends TOP> cls = JCasRegistry.getClassForIndex(i);
@@ -641,17 +694,28 @@ public class JCasImpl extends AbstractCas_ImplBase implements AbstractCas, JCas
     }
     classLoaderToLoadedJCasTypes.put(cl, jcasTypes);
 
+    LoadedJCasType<?>[] loadedJCasTypesByIndex = typeSystemToLoadedJCasTypesByIndex.get(casImpl.getTypeSystemImpl());
+    final int nbrRegisteredClasses = JCasRegistry.getNumberOfRegisteredClasses();
+    if (null == loadedJCasTypesByIndex || loadedJCasTypesByIndex.length < nbrRegisteredClasses) {
+      loadedJCasTypesByIndex = (null == loadedJCasTypesByIndex) 
+          ? new LoadedJCasType<?>[nbrRegisteredClasses]
+          : Arrays.copyOf(loadedJCasTypesByIndex, nbrRegisteredClasses);
+      typeSystemToLoadedJCasTypesByIndex.put(casImpl.getTypeSystemImpl(), loadedJCasTypesByIndex);
+    }
+    for (LoadedJCasType<?> jcasTypeInfo : jcasTypes.values()) {
+      loadedJCasTypesByIndex[jcasTypeInfo.index] = jcasTypeInfo;
+    }
+
     expandTypeArrayIfNeeded();
     return jcasTypes;
   }
 
-  // note: callers are not synchronized because the typeArray has a
+  // note: callers are synchronized on JCasImpl.class; the typeArray has a
   // separate instance per CAS (actually per CAS view)
   private void expandTypeArrayIfNeeded() {
-    if (typeArray.length < JCasRegistry.getNumberOfRegisteredClasses()) {
-      TOP_Type[] newTypeArray = new TOP_Type[JCasRegistry.getNumberOfRegisteredClasses()];
-      System.arraycopy(typeArray, 0, newTypeArray, 0, typeArray.length);
-      typeArray = newTypeArray;
+    final TOP_Type[] localTypeArray = typeArray;
+    if (localTypeArray.length < JCasRegistry.getNumberOfRegisteredClasses()) {
+      typeArray = Arrays.copyOf(localTypeArray, JCasRegistry.getNumberOfRegisteredClasses());
     }
   }
   
@@ -682,7 +746,6 @@ public class JCasImpl extends AbstractCas_ImplBase implements AbstractCas, JCas
     FSClassRegistry fscr = casImpl.getFSClassRegistry();
     boolean alreadyLoaded;  // means the "classes" have been loaded, but doesn't mean
                             // the _Type instances of those classes have been created.
-    boolean anyNewInstances = false;  // true if any new instances of _Type are generated
     FSGenerator<?>[] newFSGeneratorSet;
     synchronized (JCasImpl.class) {
       Map<ClassLoader, Map<String, LoadedJCasType<?>>> classLoaderToLoadedJCasTypes = typeSystemToLoadedJCasTypesByClassLoader.get(casImpl
@@ -696,31 +759,42 @@ public class JCasImpl extends AbstractCas_ImplBase implements AbstractCas, JCas
       }
 
       expandTypeArrayIfNeeded();
+      
+      // speed up - skip rest if nothing to do
+      if (alreadyLoaded &&
+          isViewInitializedForClassLoader.get(cl) != null &&
+          sharedView.isInitializedForClassLoader.get(cl) != null) {  // don't skip if need to install the new generators for this class loader UIMA-5055
+        return;
+      }
+      isViewInitializedForClassLoader.put(cl, Boolean.TRUE);
+      
       // if already loaded, can skip making new generators - 
       //   in this case newFSGeneratorSet is never referenced
       //   Set it to null for "safety"
       // If not already loaded, initialize the generators to a clone of the FSClassRegistry generators.
       newFSGeneratorSet = (alreadyLoaded ? null : fscr.getNewFSGeneratorSet());
-      for (Iterator<Map.Entry<String, LoadedJCasType<?>>> it = loadedJCasTypes.entrySet().iterator(); it.hasNext();) {
+      for (LoadedJCasType<?> jcasTypeInfo : loadedJCasTypes.values()) {
+        if (!alreadyLoaded) {
+          installGenerator(jcasTypeInfo, newFSGeneratorSet);
+        }
         
         // Explanation for this logic:
         //   Instances of _Types are kept per class loader, per Cas (e.g., in the cas pool)
         //     and per view (to support having the ref to the casImpl be to the right view
         //                   so add-to-indexes works better).
         //                   The "typeArray" field is per view.
-        //   When switching class loaders (e.g. a pear in the pipeline), some of the 
-        //     _Type instances (e.g. the built-ins) might be already instantiated, but others are not
-        //   
-        boolean madeNewInstance = makeInstanceOf_Type(it.next().getValue(), alreadyLoaded,
-            newFSGeneratorSet); 
-        anyNewInstances = madeNewInstance || anyNewInstances;
+        //   They are made lazily, by getType, on first use in the view.  
+        //   The exception is the first time a _Type is used with this type system: 
+        //     its instance is made here, because making it checks the JCas cover class
+        //     against the type system, and mismatches need to be reported when the JCas
+        //     is created.  _Types which report mismatches keep being made here.
+        if (!jcasTypeInfo.isValidated) {
+          final int nbrErrors = sharedView.errorSet.size();
+          makeInstanceOf_Type(jcasTypeInfo);
+          jcasTypeInfo.isValidated = (nbrErrors == sharedView.errorSet.size());
+        }
       }
       
-      // speed up - skip rest if nothing to do
-      if (!anyNewInstances && 
-          sharedView.isInitializedForClassLoader.get(cl) != null) {  // don't skip if need to install the new generators for this class loader UIMA-5055
-        return;
-      }
       if (!alreadyLoaded) {
         copyDownSuperGenerators(loadedJCasTypes, newFSGeneratorSet);
         if (casImpl.usingBaseClassLoader()) {
@@ -982,13 +1056,12 @@ public class JCasImpl extends AbstractCas_ImplBase implements AbstractCas, JCas
    * Make the instance of the JCas xxx_Type class for this CAS. Note: not all types will have
    * xxx_Type. Instance creation does the typeSystemInit kind of function, as well.
    * 
+   * Callers are synchronized on JCasImpl.class
+   * 
    * @param jcasTypeInfo -
-   * @param alreadyLoaded -
-   * @param fsGenerators updated by side effect with new instances of the _Type class
    * @return true if a new instance of a _Type class was created
    */
-  private <T extends TOP> boolean makeInstanceOf_Type(LoadedJCasType<T> jcasTypeInfo, boolean alreadyLoaded,
-      FSGenerator<?>[] fsGenerators) {
+  private <T extends TOP> boolean makeInstanceOf_Type(LoadedJCasType<T> jcasTypeInfo) {
     
     // return without doing anything if the _Type instance is already existing
     //   this happens when a JCas has some _Type instances made (e.g, the
@@ -997,35 +1070,23 @@ public class JCasImpl extends AbstractCas_ImplBase implements AbstractCas, JCas
     //     instantiated _Type instances, but others may be different
     //     (due to different impls of the _Type class loaded by the different
     //     class loader).
-    //   This can also happen in the case where JCasImpl.getType is called for a non-existing class.
-    //     What happens in this case is that the getType code has to assume that
-    //     perhaps none of the _Type instances were made for this JCas (yet), because
-    //     these are created lazily - so it calls instantiateJCas_Types to make them.
-    //     If they were already made, this next test short circuits this.
+    //   If it was already made, this next test short circuits this.
     int typeIndex = jcasTypeInfo.index;
     if (typeArray[typeIndex] != null) {
       return false;
     }
     
     Constructor<?> c_Type = jcasTypeInfo.constructorFor_Type;
-    Constructor<T> cType = jcasTypeInfo.constructorForType;
     TypeImpl casType = (TypeImpl) casImpl.getTypeSystem().getType(jcasTypeInfo.typeName);
 
     try {
       constructorArgsFor_Type[0] = this;
       constructorArgsFor_Type[1] = casType;
       TOP_Type x_Type_instance = (TOP_Type) c_Type.newInstance(constructorArgsFor_Type);
-      typeArray[typeIndex] = x_Type_instance;
-      // install the standard generator
-      // this is sharable by all views, since the CAS is passed to the generator
-      // Also sharable by all in a CasPool, except for "swapping" due to PEARs/Classloaders.
-      if (!alreadyLoaded) {
-        final TypeSystemImpl ts = casImpl.getTypeSystemImpl();
-        fsGenerators[casType.getCode()] = new JCasFsGenerator<T>(typeIndex, cType,
-            jcasTypeInfo.isSubtypeOfAnnotationBase, TypeSystemImpl.sofaNumFeatCode, TypeSystemImpl.annotSofaFeatCode);
-        // this.casImpl.getFSClassRegistry().loadJCasGeneratorForType(typeIndex, cType, casType,
-        // jcasTypeInfo.isSubtypeOfAnnotationBase);
-      }
+      // reread - the typeArray may have been expanded while the constructor ran
+      final TOP_Type[] localTypeArray = typeArray;
+      localTypeArray[typeIndex] = x_Type_instance;
+      typeArray = localTypeArray;  // volatile write, publishes the new instance
     } catch (SecurityException e) {
       logAndThrow(e);
     } catch (InstantiationException e) {
@@ -1040,6 +1101,22 @@ public class JCasImpl extends AbstractCas_ImplBase implements AbstractCas, JCas
     return true;
   }
 
+  /**
+   * Install the standard generator for the type.
+   * This is sharable by all views, since the CAS is passed to the generator.
+   * Also sharable by all in a CasPool, except for "swapping" due to PEARs/Classloaders.
+   * 
+   * @param jcasTypeInfo -
+   * @param fsGenerators updated by side effect with the generator for the type
+   */
+  private <T extends TOP> void installGenerator(LoadedJCasType<T> jcasTypeInfo, FSGenerator<?>[] fsGenerators) {
+    TypeImpl casType = (TypeImpl) casImpl.getTypeSystem().getType(jcasTypeInfo.typeName);
+    fsGenerators[casType.getCode()] = new JCasFsGenerator<T>(jcasTypeInfo.index, jcasTypeInfo.constructorForType,
+        jcasTypeInfo.isSubtypeOfAnnotationBase, TypeSystemImpl.sofaNumFeatCode, TypeSystemImpl.annotSofaFeatCode);
+    // this.casImpl.getFSClassRegistry().loadJCasGeneratorForType(typeIndex, cType, casType,
+    // jcasTypeInfo.isSubtypeOfAnnotationBase);
+  }
+
   /**
    * Make the instance of the JCas xxx_Type class for this CAS. Note: not all types will have
    * xxx_Type. Instance creation does the typeSystemInit kind of function, as well.
@@ -1175,9 +1252,10 @@ public class JCasImpl extends AbstractCas_ImplBase implements AbstractCas, JCas
 //    JCasHashMap currentMap = sv.cAddr2JfsByClassLoader.get(  ((CASImpl) cas).getJCasClassLoader()  );
     for (Iterator<Map.Entry<ClassLoader, JCasHashMap>> it = sv.cAddr2JfsByClassLoader.entrySet().iterator(); it.hasNext();) {
       Map.Entry<ClassLoader, JCasHashMap> e = it.next();
-      e.getValue().clear();  // implements resize as well
       ClassLoader cl = e.getKey();
       JCasHashMap jcas_hashmap = e.getValue();
+      // clear only once per reset: clear() implements resize, and
+      //   a 2nd call would count as another "shrinkable" reset
       jcas_hashmap.clear();
       if (cl instanceof UIMAClassLoader) {
         if (((UIMAClassLoader) cl).isClosed()) {
@@ -1440,6 +1518,24 @@ public class JCasImpl extends AbstractCas_ImplBase implements AbstractCas, JCas
     return casImpl.createFilteredIterator(it, constraint);
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.apache.uima.jcas.JCas#select(org.apache.uima.cas.Type)
+   */
+  public <T extends FeatureStructure> SelectFSs<T> select(Type type) {
+    return casImpl.select(type);
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.apache.uima.jcas.JCas#select(int)
+   */
+  public <T extends TOP> SelectFSs<T> select(int jcasType) {
+    return casImpl.select(getCasType(jcasType));
+  }
+
   /*
    * (non-Javadoc)
    * 
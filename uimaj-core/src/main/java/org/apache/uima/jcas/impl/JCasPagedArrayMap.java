@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.jcas.impl;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.uima.cas.impl.FeatureStructureImpl;
+import org.apache.uima.jcas.cas.TOP;
+
+/**
+ * Dense alternative to the hashed sub maps of {@link JCasHashMap}, used when a CAS is
+ * configured with a dense JCas cache.
+ *
+ * Heap addresses are small, dense ints, so the cover object for an addr is kept
+ * at that addr in a paged array:  page = addr &gt;&gt;&gt; PAGE_BITS, slot = addr &amp; PAGE_MASK.
+ * Pages are allocated on first use, so only the parts of the heap that have cover objects
+ * take space.  The space used is one reference per heap cell (not per FS) in the
+ * touched pages, which trades memory for a lookup without any hashing or probing.
+ *
+ * Threading: same contract as {@link JCasHashMapSubMap}.
+ *   The read path (finding a real value) takes no lock; cover objects are never updated
+ *   once put, and pages / the page table are published via the volatile pages field.
+ *   Not finding a value, or finding a reserve, falls back to the locked path, which
+ *   reserves the slot or waits for the thread that reserved it to do its put.
+ *
+ * Storage management on clear: pages which were used since the last clear are
+ * nulled out; pages which were not used are released, so the space held
+ * tracks the size of the previous document.
+ */
+class JCasPagedArrayMap {
+
+  // 1024 references per page
+  static final int PAGE_BITS = 10;
+
+  static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+  private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition lockCondition = lock.newCondition();
+
+  private volatile FeatureStructureImpl[][] pages;
+
+  /** number of entries (including reserves) in each page, parallel to pages; updated under the lock */
+  private int[] pageCounts;
+
+  JCasPagedArrayMap(int initialCapacity) {
+    final int nbrPages = Math.max(1, (initialCapacity + PAGE_MASK) >>> PAGE_BITS);
+    pages = new FeatureStructureImpl[nbrPages][];
+    pageCounts = new int[nbrPages];
+  }
+
+  /**
+   * Gets a value, but if the value isn't there, it reserves the slot where it will go
+   * with a new instance where the key matches, but the type is a unique value.
+   * See {@link JCasHashMapSubMap#getReserve(int, int)}
+   *
+   * @param key - the addr in the heap
+   * @return - the found fs, or null
+   */
+  FeatureStructureImpl getReserve(final int key) {
+    final FeatureStructureImpl m = get(pages, key);
+    if (JCasHashMapSubMap.isReal(m)) {
+      return m;  // fast path for found item, no locking
+    }
+
+    lock.lock();
+    try {
+      /*****************
+       *    LOCKED     *
+       *****************/
+      FeatureStructureImpl m2 = get(pages, key);
+      while (JCasHashMapSubMap.isReserve(m2)) {
+        // some other thread is creating the cover object for this addr, wait for its put
+        try {
+          lockCondition.await();
+        } catch (InterruptedException e) {
+        }
+        m2 = get(pages, key);
+      }
+      if (m2 != null) {
+        return m2;  // another thread put the real value
+      }
+
+      /*************
+       *  RESERVE  *
+       *************/
+      set(key, new TOP(key, JCasHashMapSubMap.RESERVE_TOP_TYPE_INSTANCE));
+      return null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  FeatureStructureImpl put(int key, FeatureStructureImpl value) {
+    lock.lock();
+    try {
+      final FeatureStructureImpl prevValue = set(key, value);
+      if (JCasHashMapSubMap.isReserve(prevValue)) {
+        lockCondition.signalAll();
+        return null;
+      }
+      return prevValue;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  void clear() {
+    lock.lock();
+    try {
+      final FeatureStructureImpl[][] localPages = pages;
+      for (int i = 0; i < localPages.length; i++) {
+        if (pageCounts[i] > 0) {
+          Arrays.fill(localPages[i], null);
+          pageCounts[i] = 0;
+        } else {
+          localPages[i] = null;  // not used since the last clear, release it
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  int getApproximateSize() {
+    lock.lock();
+    try {
+      int s = 0;
+      for (int c : pageCounts) {
+        s += c;
+      }
+      return s;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  int getCapacity() {
+    int r = 0;
+    for (FeatureStructureImpl[] page : pages) {
+      if (page != null) {
+        r += page.length;
+      }
+    }
+    return r;
+  }
+
+  private static FeatureStructureImpl get(final FeatureStructureImpl[][] localPages, final int key) {
+    final int pageIndex = key >>> PAGE_BITS;
+    if (pageIndex >= localPages.length) {
+      return null;
+    }
+    final FeatureStructureImpl[] page = localPages[pageIndex];
+    return (page == null) ? null : page[key & PAGE_MASK];
+  }
+
+  // called under lock
+  private FeatureStructureImpl set(final int key, final FeatureStructureImpl value) {
+    assert(lock.getHoldCount() > 0);
+    final int pageIndex = key >>> PAGE_BITS;
+    FeatureStructureImpl[][] localPages = pages;
+    if (pageIndex >= localPages.length) {
+      final int newLength = Math.max(pageIndex + 1, localPages.length << 1);
+      localPages = Arrays.copyOf(localPages, newLength);
+      pageCounts = Arrays.copyOf(pageCounts, newLength);
+      pages = localPages;  // publish
+    }
+    FeatureStructureImpl[] page = localPages[pageIndex];
+    if (page == null) {
+      page = new FeatureStructureImpl[PAGE_SIZE];
+      localPages[pageIndex] = page;
+      pages = localPages;  // volatile write, publishes the new page
+    }
+    final int slot = key & PAGE_MASK;
+    final FeatureStructureImpl prevValue = page[slot];
+    page[slot] = value;
+    if (prevValue == null) {
+      pageCounts[pageIndex] ++;
+    }
+    return prevValue;
+  }
+}
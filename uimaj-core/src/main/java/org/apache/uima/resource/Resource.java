@@ -194,4 +194,20 @@ public interface Resource {
    */
   public static final String PARAM_CONFIG_MANAGER = "CONFIG_MANAGER";
 
+  /**
+   * Key for the initialization parameter whose value is an Integer, the maximum number of threads
+   * used to initialize independent parts of this Resource concurrently: the delegates of an
+   * aggregate Analysis Engine, and the external resources declared by a component. If absent or
+   * 1 or less, initialization is done one part at a time, in declaration order. If an initialization
+   * fails, the error for the first failing part in declaration order is the one reported.
+   * <p>
+   * The value is passed on to the delegates, so nested aggregates each use up to this many
+   * threads for their own delegates. The delegates' initialization code must not depend on the
+   * order of initialization of the other delegates.
+   * This value is used as a key in
+   * the <code>aAdditionalParams</code> Map that is passed to the
+   * {@link #initialize(ResourceSpecifier,Map)} method.
+   */
+  public static final String PARAM_NUM_INIT_THREADS = "NUM_INIT_THREADS";
+
 }
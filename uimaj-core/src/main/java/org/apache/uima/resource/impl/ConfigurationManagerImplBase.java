@@ -22,8 +22,11 @@ package org.apache.uima.resource.impl;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.uima.UIMAFramework;
 import org.apache.uima.UIMARuntimeException;
@@ -92,6 +95,13 @@ public abstract class ConfigurationManagerImplBase implements ConfigurationManag
    */
   private volatile Session mSession = null;
 
+  /**
+   * Incremented after every change which may change the value of a parameter: a new context, a
+   * new session, a session setting, a reconfigure.  {@link ParameterTable}s made for an earlier
+   * generation are stale.
+   */
+  private final AtomicInteger mGeneration = new AtomicInteger();
+
 //  /**
 //   * Holds the externalOverrideSettings from the top-level Analysis Engine
 //   */
@@ -103,7 +113,10 @@ public abstract class ConfigurationManagerImplBase implements ConfigurationManag
    * @see org.apache.uima.resource.ConfigurationManager#setSession(org.apache.uima.resource.Session)
    */
   public void setSession(Session aSession) {
-    mSession = aSession;
+    if (mSession != aSession) {
+      mSession = aSession;
+      invalidateParameterTables();
+    }
   }
          
   /*
@@ -161,6 +174,8 @@ public abstract class ConfigurationManagerImplBase implements ConfigurationManag
 
     // store parameter declarations in map for later access
     mContextNameToParamDeclsMap.put(aContextName, paramDecls);
+    // the new context's links may change the values of parameters of other contexts
+    invalidateParameterTables();
 
     // validate
     validateConfigurationParameterSettings(aContextName);
@@ -256,6 +271,154 @@ public abstract class ConfigurationManagerImplBase implements ConfigurationManag
     // setConfigParameterValue.
     // This method only does validation
     this.validateConfigurationParameterSettings(aContextName);
+    invalidateParameterTables();
+  }
+
+  /**
+   * Makes a table of the current values of the parameters of a context.  The values are found
+   * as by {@link #getConfigParameterValue(String)} and {@link #getConfigParameterValue(String, String)},
+   * for each declared parameter name and group name; lookups of other names and groups are
+   * passed on to those methods.
+   * <p>
+   * The table is not updated: check {@link ParameterTable#isCurrentFor(ConfigurationManager)}
+   * before using one kept from an earlier call.
+   * 
+   * @param aContextName
+   *          the fully-qualified name of the context, ending in a slash
+   * 
+   * @return a new table of the values of the parameters of the context
+   */
+  public ParameterTable getParameterTable(String aContextName) {
+    // read the generation first: a change made while this table is filled in makes it stale
+    final int generation = mGeneration.get();
+    final Map<String, Object> values = new HashMap<String, Object>();
+    final Map<String, Map<String, Object>> groupValues = new HashMap<String, Map<String, Object>>();
+    final ConfigurationParameterDeclarations decls = mContextNameToParamDeclsMap.get(aContextName);
+    if (decls != null) {
+      Set<String> paramNames = new LinkedHashSet<String>();
+      addNames(paramNames, decls.getConfigurationParameters());
+      addNames(paramNames, decls.getCommonParameters());
+      ConfigurationGroup[] groups = decls.getConfigurationGroups();
+      if (groups != null) {
+        for (ConfigurationGroup group : groups) {
+          addNames(paramNames, group.getConfigurationParameters());
+        }
+      }
+      for (String paramName : paramNames) {
+        values.put(paramName, getConfigParameterValue(aContextName + paramName));
+      }
+      if (groups != null) {
+        for (ConfigurationGroup group : groups) {
+          for (String groupName : group.getNames()) {
+            if (!groupValues.containsKey(groupName)) {
+              Map<String, Object> m = new HashMap<String, Object>();
+              for (String paramName : paramNames) {
+                m.put(paramName, getConfigParameterValue(aContextName + paramName, groupName));
+              }
+              groupValues.put(groupName, m);
+            }
+          }
+        }
+      }
+    }
+    return new ParameterTable(this, aContextName, generation, values, groupValues);
+  }
+
+  private static void addNames(Set<String> aNames, ConfigurationParameter[] aParams) {
+    if (aParams != null) {
+      for (ConfigurationParameter param : aParams) {
+        aNames.add(param.getName());
+      }
+    }
+  }
+
+  /**
+   * Makes all the {@link ParameterTable}s made so far stale.  Subclasses which change parameter
+   * values other than through the methods of this class must call this afterwards.
+   */
+  protected void invalidateParameterTables() {
+    mGeneration.incrementAndGet();
+  }
+
+  /**
+   * The values of the parameters of one context, resolved (links, session settings, group
+   * fallbacks) when the table is made, see {@link ConfigurationManagerImplBase#getParameterTable(String)}.
+   * Lookups of declared parameters take no locks and make no objects, for components which get
+   * their parameter values often (e.g. per document).
+   * <p>
+   * Instances are immutable and may be shared by threads.
+   */
+  public static final class ParameterTable {
+
+    private final ConfigurationManagerImplBase mManager;
+
+    private final String mContextName;
+
+    private final int mGeneration;
+
+    /** parameter name to value, for all the declared parameter names */
+    private final Map<String, Object> mValues;
+
+    /** group name to (parameter name to value), for all the declared group names */
+    private final Map<String, Map<String, Object>> mGroupValues;
+
+    private ParameterTable(ConfigurationManagerImplBase aManager, String aContextName, int aGeneration,
+            Map<String, Object> aValues, Map<String, Map<String, Object>> aGroupValues) {
+      mManager = aManager;
+      mContextName = aContextName;
+      mGeneration = aGeneration;
+      mValues = aValues;
+      mGroupValues = aGroupValues;
+    }
+
+    /**
+     * @param aConfigurationManager
+     *          a configuration manager
+     * @return true if this table was made by the given configuration manager, and no parameter
+     *         value may have changed since
+     */
+    public boolean isCurrentFor(ConfigurationManager aConfigurationManager) {
+      return aConfigurationManager == mManager && mGeneration == mManager.mGeneration.get();
+    }
+
+    /**
+     * @return the name of the context of the parameters
+     */
+    public String getContextName() {
+      return mContextName;
+    }
+
+    /**
+     * @param aParamName
+     *          the name of a parameter of the context, not qualified
+     * @return the value of the parameter, as by {@link ConfigurationManager#getConfigParameterValue(String)}
+     */
+    public Object getConfigParameterValue(String aParamName) {
+      Object value = mValues.get(aParamName);
+      if (value != null || mValues.containsKey(aParamName)) {
+        return value;
+      }
+      return mManager.getConfigParameterValue(mContextName + aParamName);
+    }
+
+    /**
+     * @param aParamName
+     *          the name of a parameter of the context, not qualified
+     * @param aGroupName
+     *          the name of a parameter group
+     * @return the value of the parameter, as by
+     *         {@link ConfigurationManager#getConfigParameterValue(String, String)}
+     */
+    public Object getConfigParameterValue(String aParamName, String aGroupName) {
+      Map<String, Object> values = mGroupValues.get(aGroupName);
+      if (values != null) {
+        Object value = values.get(aParamName);
+        if (value != null || values.containsKey(aParamName)) {
+          return value;
+        }
+      }
+      return mManager.getConfigParameterValue(mContextName + aParamName, aGroupName);
+    }
   }
 
   /*
@@ -721,6 +884,7 @@ public abstract class ConfigurationManagerImplBase implements ConfigurationManag
         mSession.put(SESSION_CONFIGURATION_KEY, m);
       }
       m.put(aCompleteName, aValue);
+      invalidateParameterTables();
     }
   }
 
@@ -29,13 +29,19 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.uima.UIMAFramework;
 import org.apache.uima.UIMA_IllegalStateException;
 import org.apache.uima.analysis_engine.impl.AnalysisEngineImplBase;
 import org.apache.uima.internal.util.Class_TCCL;
+import org.apache.uima.internal.util.ParallelInitializer;
 import org.apache.uima.internal.util.UIMAClassLoader;
 import org.apache.uima.resource.CasManager;
 import org.apache.uima.resource.DataResource;
@@ -136,6 +142,17 @@ public class ResourceManager_impl implements ResourceManager {
    */
   final protected Map<String, ResourceRegistration> mInternalResourceRegistrationMap;
 
+  /**
+   * Registrations in progress, by resource name.
+   *   Uses: when components sharing this resource manager are initialized at the same time
+   *         (e.g. delegates initialized in parallel, see Resource.PARAM_NUM_INIT_THREADS),
+   *         the first one to need a resource creates it, and the others wait for it.
+   * 
+   * An entry is removed when its registration completes (or fails, so that it can be retried).
+   */
+  private final ConcurrentHashMap<String, FutureTask<ResourceRegistration>> mPendingRegistrationMap = 
+      new ConcurrentHashMap<String, FutureTask<ResourceRegistration>>();
+
   /**
    * Map from String keys to Class objects. For ParameterizedResources only, stores the
    * implementation class (not a Resource) corresponding to each resource name.
@@ -563,7 +580,7 @@ public class ResourceManager_impl implements ResourceManager {
    * @see ResourceManager#initializeExternalResources(ResourceManagerConfiguration, String, Map<String, Object>)
    */
   @Override
-  public synchronized void initializeExternalResources(ResourceManagerConfiguration aConfiguration,
+  public void initializeExternalResources(ResourceManagerConfiguration aConfiguration,
           String aQualifiedContextName, Map<String, Object> aAdditionalParams)
           throws ResourceInitializationException {
     // register resources
@@ -586,31 +603,80 @@ public class ResourceManager_impl implements ResourceManager {
     // see https://issues.apache.org/jira/browse/UIMA-5153
     
     ExternalResourceDescription[] resources = aConfiguration.getExternalResources();
+    
+    // Claim the registration of each resource not yet registered.
+    // A resource being registered by another thread is not claimed; it is waited for, below.
+    List<FutureTask<ResourceRegistration>> pending = new ArrayList<FutureTask<ResourceRegistration>>(resources.length);
+    List<FutureTask<ResourceRegistration>> claimed = new ArrayList<FutureTask<ResourceRegistration>>();
+    List<String> claimedNames = new ArrayList<String>();
     for (int i = 0; i < resources.length; i++) {
-      String name = resources[i].getName();
+      final String name = resources[i].getName();
 
       // check for existing resource registration under this name
       ResourceRegistration registration = mInternalResourceRegistrationMap.get(name);
+      FutureTask<ResourceRegistration> task = null;
       if (registration == null) {
-        registerResource(name, resources[i], aQualifiedContextName, aAdditionalParams);
-      } else {
-        // log a message if the resource definitions are not identical
-        if (!registration.description.equals(resources[i])) {
-          // if the resource was overridden in an enclosing aggregate, use an INFO level message.
-          // if not (e.g. sibling annotators declare the same resource name), it's a WARNING.
-          if (aQualifiedContextName.startsWith(registration.definingContext)) {
-            UIMAFramework.getLogger().logrb(Level.CONFIG, ResourceManager_impl.class.getName(),
-                    "initializeExternalResources", LOG_RESOURCE_BUNDLE,
-                    "UIMA_overridden_resource__CONFIG",
-                    new Object[] { name, aQualifiedContextName, registration.definingContext});
+        FutureTask<ResourceRegistration> newTask = newRegistrationTask(name, resources[i],
+                aQualifiedContextName, aAdditionalParams);
+        task = mPendingRegistrationMap.putIfAbsent(name, newTask);
+        if (task == null) {
+          // recheck: another thread may have completed this registration after our first check
+          registration = mInternalResourceRegistrationMap.get(name);
+          if (registration == null) {
+            task = newTask;
+            claimed.add(newTask);
+            claimedNames.add(name);
           } else {
-            UIMAFramework.getLogger().logrb(Level.WARNING, ResourceManager_impl.class.getName(),
-                    "initializeExternalResources", LOG_RESOURCE_BUNDLE,
-                    "UIMA_duplicate_resource_name__WARNING",
-                    new Object[] { name, registration.definingContext, aQualifiedContextName});
+            mPendingRegistrationMap.remove(name, newTask);
+          }
+        }
+      }
+      pending.add(task);
+      if (registration != null) {
+        logIfDifferentResource(registration, resources[i], aQualifiedContextName);
+      }
+    }
+    
+    // register the claimed resources
+    try {
+      int nbrThreads = ParallelInitializer.getNumInitThreads(aAdditionalParams);
+      if (nbrThreads > 1 && claimed.size() > 1) {
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(claimed.size());
+        for (FutureTask<ResourceRegistration> task : claimed) {
+          tasks.add(Executors.callable(task));
+        }
+        ParallelInitializer.runAll(tasks, nbrThreads, "UIMA resource init " + aQualifiedContextName);
+      } else {
+        for (FutureTask<ResourceRegistration> task : claimed) {
+          task.run();
+          if (isFailed(task)) {
+            break;  // as when not run in parallel, the resources after a failing one are not created
           }
         }
       }
+    } finally {
+      // release the claims; any not run are cancelled so that threads waiting for them are not blocked
+      for (int i = 0; i < claimed.size(); i++) {
+        claimed.get(i).cancel(false);
+        mPendingRegistrationMap.remove(claimedNames.get(i), claimed.get(i));
+      }
+    }
+    
+    // report the first failure in declaration order, or wait for registrations done by other threads
+    for (int i = 0; i < resources.length; i++) {
+      FutureTask<ResourceRegistration> task = pending.get(i);
+      while (task != null) {
+        try {
+          ResourceRegistration registration = ParallelInitializer.getResult(task);
+          if (!claimed.contains(task)) {
+            logIfDifferentResource(registration, resources[i], aQualifiedContextName);
+          }
+          task = null;
+        } catch (CancellationException e) {
+          // the thread which claimed this registration gave up on it; claim it again
+          task = reclaimRegistration(task, resources[i], aQualifiedContextName, aAdditionalParams);
+        }
+      }
     }
     // apply bindings
     ExternalResourceBinding[] bindings = aConfiguration.getExternalResourceBindings();
@@ -630,6 +696,85 @@ public class ResourceManager_impl implements ResourceManager {
     }
   }
 
+  private FutureTask<ResourceRegistration> newRegistrationTask(final String aName,
+          final ExternalResourceDescription aResource, final String aDefiningContext,
+          final Map<String, Object> aAdditionalParams) {
+    return new FutureTask<ResourceRegistration>(new Callable<ResourceRegistration>() {
+      @Override
+      public ResourceRegistration call() throws Exception {
+        return registerResource(aName, aResource, aDefiningContext, aAdditionalParams);
+      }
+    });
+  }
+
+  /**
+   * Claim the registration of a resource again, after the thread which claimed it cancelled it,
+   * and register the resource in this thread.
+   * 
+   * @return the task to wait for: the one run here, or one claimed by another thread in the meantime;
+   *         null if the resource is registered
+   */
+  private FutureTask<ResourceRegistration> reclaimRegistration(FutureTask<ResourceRegistration> aCancelled,
+          ExternalResourceDescription aResource, String aQualifiedContextName,
+          Map<String, Object> aAdditionalParams) {
+    final String name = aResource.getName();
+    mPendingRegistrationMap.remove(name, aCancelled);  // in case it's still there
+    if (mInternalResourceRegistrationMap.containsKey(name)) {
+      return null;
+    }
+    FutureTask<ResourceRegistration> newTask = newRegistrationTask(name, aResource,
+            aQualifiedContextName, aAdditionalParams);
+    FutureTask<ResourceRegistration> task = mPendingRegistrationMap.putIfAbsent(name, newTask);
+    if (task != null) {
+      return task;
+    }
+    try {
+      // recheck: another thread may have completed this registration after our first check
+      if (mInternalResourceRegistrationMap.containsKey(name)) {
+        return null;
+      }
+      newTask.run();
+      return newTask;
+    } finally {
+      mPendingRegistrationMap.remove(name, newTask);
+    }
+  }
+
+  private static boolean isFailed(FutureTask<ResourceRegistration> task) {
+    try {
+      task.get();
+      return false;
+    } catch (ExecutionException e) {
+      return true;
+    } catch (InterruptedException e) {  // can't happen, the task is done
+      Thread.currentThread().interrupt();
+      return true;
+    }
+  }
+
+  /**
+   * Log a message if a resource declaration has the same name as the registered resource, 
+   * but is not identical.
+   */
+  private void logIfDifferentResource(ResourceRegistration registration, ExternalResourceDescription aResource,
+          String aQualifiedContextName) {
+    if (!registration.description.equals(aResource)) {
+      // if the resource was overridden in an enclosing aggregate, use an INFO level message.
+      // if not (e.g. sibling annotators declare the same resource name), it's a WARNING.
+      if (aQualifiedContextName.startsWith(registration.definingContext)) {
+        UIMAFramework.getLogger().logrb(Level.CONFIG, ResourceManager_impl.class.getName(),
+                "initializeExternalResources", LOG_RESOURCE_BUNDLE,
+                "UIMA_overridden_resource__CONFIG",
+                new Object[] { aResource.getName(), aQualifiedContextName, registration.definingContext});
+      } else {
+        UIMAFramework.getLogger().logrb(Level.WARNING, ResourceManager_impl.class.getName(),
+                "initializeExternalResources", LOG_RESOURCE_BUNDLE,
+                "UIMA_duplicate_resource_name__WARNING",
+                new Object[] { aResource.getName(), registration.definingContext, aQualifiedContextName});
+      }
+    }
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -706,8 +851,10 @@ public class ResourceManager_impl implements ResourceManager {
 
   /**
    * Instantiates a resource and inserts it in the internal resource map.
+   * 
+   * @return the registration
    */
-  private void registerResource(String aName, ExternalResourceDescription aResourceDescription,
+  private ResourceRegistration registerResource(String aName, ExternalResourceDescription aResourceDescription,
           String aDefiningContext, Map<String, Object> aResourceInitParams) throws ResourceInitializationException {
     // add the relative path resolver to the resource init. params
     Map<String, Object> initParams = (aResourceInitParams == null) ? new HashMap<String, Object>() : new HashMap<String, Object>(
@@ -782,6 +929,7 @@ public class ResourceManager_impl implements ResourceManager {
     ResourceRegistration registration = new ResourceRegistration(implInstance, aResourceDescription,
             aDefiningContext);
     mInternalResourceRegistrationMap.put(aName, registration);
+    return registration;
   }
 
   /*
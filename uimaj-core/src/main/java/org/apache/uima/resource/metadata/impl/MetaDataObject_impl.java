@@ -26,15 +26,21 @@ import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Writer;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -113,6 +119,9 @@ public abstract class MetaDataObject_impl implements MetaDataObject {
    *     the reader (a Method)
    *     the writer (a Method)
    *     the java Class of the data type of this attribute <converted to a wrapper class for primitives>
+   *     method handles for the reader and writer, which are used to get and set the values
+   *       (much faster than Method.invoke when cloning, comparing, or (de)serializing
+   *       large descriptors)
    */
 
   public static class MetaDataAttr {
@@ -151,12 +160,69 @@ public abstract class MetaDataObject_impl implements MetaDataObject {
     final Method reader;
     final Method writer;
     final Class  clazz;
+    
+    /** (Object)Object, or null if there's no reader or it couldn't be made accessible */
+    final MethodHandle readerHandle;
+    /** (Object, Object)void, or null if there's no writer or it couldn't be made accessible */
+    final MethodHandle writerHandle;
+    /** the type of the writer's parameter, converted to a wrapper class for primitives */
+    final Class<?> writerValueClass;
+    /** true if the writer's parameter is a primitive type */
+    final boolean isWriterPrimitive;
 
     public MetaDataAttr(String name, Method reader, Method writer, Class clazz) {
       this.name = name;
       this.reader = reader;
       this.writer = writer;
       this.clazz = clazz;
+      this.readerHandle = (reader == null) ? null : 
+          toHandle(reader, MethodType.methodType(Object.class, Object.class));
+      this.writerHandle = (writer == null) ? null : 
+          toHandle(writer, MethodType.methodType(void.class, Object.class, Object.class));
+      Class<?> valueClass = (writer == null) ? null : writer.getParameterTypes()[0];
+      this.isWriterPrimitive = (valueClass != null) && valueClass.isPrimitive();
+      this.writerValueClass = isWriterPrimitive ? getWrapperClass(valueClass) : valueClass;
+    }
+    
+    private static MethodHandle toHandle(Method m, MethodType type) {
+      try {
+        if (!Modifier.isPublic(m.getDeclaringClass().getModifiers())) {
+          m.setAccessible(true);  // e.g., public getter in a non-public class
+        }
+        return MethodHandles.lookup().unreflect(m).asType(type);
+      } catch (Exception e) {
+        return null;  // use the Method
+      }
+    }
+    
+    Object get(Object target) throws Exception {
+      if (readerHandle == null) {
+        return reader.invoke(target);
+      }
+      try {
+        return (Object) readerHandle.invokeExact(target);
+      } catch (Throwable e) {
+        throw new InvocationTargetException(e);  // as from Method.invoke
+      }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value is not of the attribute's type
+     */
+    void set(Object target, Object value) throws Exception {
+      if (writerHandle == null) {
+        writer.invoke(target, value);
+        return;
+      }
+      // check the value, as Method.invoke does
+      if ((value == null) ? isWriterPrimitive : !writerValueClass.isInstance(value)) {
+        throw new IllegalArgumentException("argument type mismatch");
+      }
+      try {
+        writerHandle.invokeExact(target, value);
+      } catch (Throwable e) {
+        throw new InvocationTargetException(e);  // as from Method.invoke
+      }
     }
   }
 
@@ -172,6 +238,10 @@ public abstract class MetaDataObject_impl implements MetaDataObject {
   private static final transient ConcurrentHashMapWithProducer<Class<? extends MetaDataObject_impl>, MetaDataAttr[]> 
       class2attrsMapUnfiltered =
           new ConcurrentHashMapWithProducer<Class<? extends MetaDataObject_impl>, MetaDataAttr[]>();
+  // holds the unfiltered set of Java Bean Info by attribute name, for getting and setting by name
+  private static final transient ConcurrentHashMapWithProducer<Class<? extends MetaDataObject_impl>, Map<String, MetaDataAttr[]>> 
+      class2attrsByNameMap =
+          new ConcurrentHashMapWithProducer<Class<? extends MetaDataObject_impl>, Map<String, MetaDataAttr[]>>();
 
   /**
    * methods used for serializing
@@ -284,6 +354,30 @@ public abstract class MetaDataObject_impl implements MetaDataObject {
     return class2attrsMapUnfiltered.get(clazz);
   }
 
+  /**
+   * @param aName the name of an attribute
+   * @return the unfiltered attributes with this name (usually just one), in order, or null if none
+   */
+  private MetaDataAttr[] getUnfilteredAttributes(String aName) {
+    final Class<? extends MetaDataObject_impl> clazz = this.getClass();
+    Map<String, MetaDataAttr[]> byName = class2attrsByNameMap.get(clazz);
+    if (null == byName) {
+      byName = new HashMap<String, MetaDataAttr[]>();
+      for (MetaDataAttr attr : getUnfilteredAttributes()) {
+        MetaDataAttr[] prev = byName.get(attr.name);
+        if (prev == null) {
+          byName.put(attr.name, new MetaDataAttr[] { attr });
+        } else {
+          MetaDataAttr[] attrs = Arrays.copyOf(prev, prev.length + 1);
+          attrs[prev.length] = attr;
+          byName.put(attr.name, attrs);
+        }
+      }
+      class2attrsByNameMap.putIfAbsent(clazz, byName);
+    }
+    return byName.get(aName);
+  }
+
   /**
    * On first call, looks up the information using JavaBeans introspection, but then
    * caches the result for subsequent calls.
@@ -382,10 +476,9 @@ public abstract class MetaDataObject_impl implements MetaDataObject {
   }
 
   private Object getAttributeValue(MetaDataAttr attr) {
-    final Method reader = attr.reader;
-    if (reader != null) {
+    if (attr.reader != null) {
       try {
-        return reader.invoke(this);
+        return attr.get(this);
       } catch (Exception e) {
         throw new UIMARuntimeException(e);
       }
@@ -398,12 +491,11 @@ public abstract class MetaDataObject_impl implements MetaDataObject {
    */
   public Object getAttributeValue(String aName) {
     try {
-      MetaDataAttr[] attrs = getUnfilteredAttributes();
-      for (MetaDataAttr attr : attrs) {
-        if (attr.name.equals(aName)) {
-          Method reader = attr.reader;
-          if (reader != null) {
-            return reader.invoke(this);
+      MetaDataAttr[] attrs = getUnfilteredAttributes(aName);
+      if (attrs != null) {
+        for (MetaDataAttr attr : attrs) {
+          if (attr.reader != null) {
+            return attr.get(this);
           }
         }
       }
@@ -443,10 +535,9 @@ public abstract class MetaDataObject_impl implements MetaDataObject {
   }
 
   private void setAttributeValue(MetaDataAttr attr, Object aValue) {
-    Method writer = attr.writer;
-    if (writer != null) {
+    if (attr.writer != null) {
       try {
-        writer.invoke(this, aValue);
+        attr.set(this, aValue);
       } catch (IllegalArgumentException e) {
         throw new UIMA_IllegalArgumentException(
                 UIMA_IllegalArgumentException.METADATA_ATTRIBUTE_TYPE_MISMATCH, new Object[] {
@@ -462,13 +553,12 @@ public abstract class MetaDataObject_impl implements MetaDataObject {
    */
   public void setAttributeValue(String aName, Object aValue) {
     try {
-      MetaDataAttr[] attrs = getUnfilteredAttributes();
-      for (MetaDataAttr attr : attrs) {
-        if (attr.name.equals(aName)) {
-          Method writer = attr.writer;
-          if (writer != null) {
+      MetaDataAttr[] attrs = getUnfilteredAttributes(aName);
+      if (attrs != null) {
+        for (MetaDataAttr attr : attrs) {
+          if (attr.writer != null) {
             try {
-              writer.invoke(this, new Object[] { aValue });
+              attr.set(this, aValue);
             } catch (IllegalArgumentException e) {
               throw new UIMA_IllegalArgumentException(
                       UIMA_IllegalArgumentException.METADATA_ATTRIBUTE_TYPE_MISMATCH, new Object[] {
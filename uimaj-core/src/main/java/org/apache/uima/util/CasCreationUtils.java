@@ -599,6 +599,15 @@ public class CasCreationUtils {
       // Commit the type system
       ((CASImpl) casMgr).commitTypeSystem();
     }
+    
+    // Check Jcas cache kind performance setting.  Defaults to the JVM property setting.
+    if (aPerformanceTuningSettings != null) {
+      String jcasCacheDenseString = aPerformanceTuningSettings.getProperty(
+          UIMAFramework.JCAS_CACHE_DENSE);
+      if (jcasCacheDenseString != null) {
+        ((CASImpl) casMgr).setJcasCacheDense("true".equalsIgnoreCase(jcasCacheDenseString));
+      }
+    }
 
     try {
       // install TypePriorities into CAS
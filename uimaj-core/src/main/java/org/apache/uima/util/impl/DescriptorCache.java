@@ -0,0 +1,310 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.util.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.cas.FSTypeConstraint;
+import org.apache.uima.util.Level;
+import org.apache.uima.util.XMLizable;
+
+/**
+ * An on-disk cache of parsed descriptors, in Java serialized form, so that later JVMs
+ * can skip XML parsing and schema validation.
+ *
+ * The cache is enabled by setting the system property {@link #DESCRIPTOR_CACHE_DIR} to a directory
+ * (created if needed).  It is used by the XML parser for every descriptor parsed from a URL.
+ * Entries are keyed by a hash of the XML content and the parsing options, so they never need
+ * to be invalidated.  Documents using xi:include or envVarRef elements are not cached,
+ * because their results depend on more than their content.
+ *
+ * Only parsing is cached.  Import resolution and the merging of type systems, type priorities
+ * and index definitions still run on every start; imported descriptors are parsed through
+ * the cache like any other.
+ *
+ * Entries are written to a temporary file which is then renamed, so several JVMs may share a
+ * cache directory.  Unreadable entries are ignored and replaced.  Only the classes making up
+ * descriptors are read back from an entry.
+ * Entries are specific to the UIMA version which wrote them.
+ */
+public class DescriptorCache {
+
+  /**
+   * System property naming the directory for the descriptor cache.  If not set, nothing is cached.
+   */
+  public static final String DESCRIPTOR_CACHE_DIR = "uima.descriptor_cache_dir";
+
+  private static final int FORMAT_VERSION = 2;
+
+  private static final Map<File, DescriptorCache> caches = new ConcurrentHashMap<File, DescriptorCache>();
+
+  /**
+   * The classes, other than XMLizables, primitives, arrays of these and the type constraints of
+   * language preconditions, which may appear in an entry: the value types and collections held
+   * by descriptor objects.
+   */
+  private static final Set<Class<?>> ENTRY_CLASSES = new HashSet<Class<?>>(Arrays.<Class<?>>asList(
+      String.class, Boolean.class, Byte.class, Character.class, Short.class, Integer.class,
+      Long.class, Float.class, Double.class, Number.class,
+      ArrayList.class, HashMap.class, LinkedHashMap.class, HashSet.class));
+
+  /**
+   * The cache directory may be shared, so only the classes of descriptor objects are read back
+   * from an entry; any other class makes the entry unreadable.  Such objects are not written.
+   */
+  private static boolean isEntryClass(Class<?> aClass) {
+    Class<?> c = aClass;
+    while (c.isArray()) {
+      c = c.getComponentType();
+    }
+    return c.isPrimitive() || XMLizable.class.isAssignableFrom(c) || ENTRY_CLASSES.contains(c)
+        || FSTypeConstraint.class.isAssignableFrom(c);
+  }
+
+  /**
+   * The stream entries are written with; rejects objects which could not be read back.
+   */
+  private static class EntryOutputStream extends ObjectOutputStream {
+    EntryOutputStream(OutputStream out) throws IOException {
+      super(out);
+    }
+
+    @Override
+    protected void annotateClass(Class<?> cl) throws IOException {
+      if (!isEntryClass(cl)) {
+        throw new InvalidClassException(cl.getName(), "not allowed in a descriptor cache entry");
+      }
+    }
+  }
+
+  /**
+   * The stream entries are read with; resolves classes with the thread context class loader.
+   * The source URLs of parsed objects are not stored, the XML parser sets them on each hit.
+   */
+  private static class EntryInputStream extends ObjectInputStream {
+    EntryInputStream(InputStream in) throws IOException {
+      super(in);
+    }
+
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+      Class<?> c = null;
+      final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+      if (loader != null) {
+        try {
+          c = Class.forName(desc.getName(), false, loader);
+        } catch (ClassNotFoundException e) {
+          // try the default
+        }
+      }
+      if (c == null) {
+        c = super.resolveClass(desc);
+      }
+      if (!isEntryClass(c)) {
+        throw new InvalidClassException(desc.getName(), "not allowed in a descriptor cache entry");
+      }
+      return c;
+    }
+
+    @Override
+    protected Class<?> resolveProxyClass(String[] interfaces) throws IOException {
+      throw new InvalidClassException("proxy", "not allowed in a descriptor cache entry");
+    }
+  }
+
+  private final File directory;
+
+  /**
+   * @return the cache for the directory named by the {@link #DESCRIPTOR_CACHE_DIR} system property,
+   *   or null if the property is not set
+   */
+  public static DescriptorCache getDefault() {
+    final String dir = System.getProperty(DESCRIPTOR_CACHE_DIR);
+    if (dir == null || dir.length() == 0) {
+      return null;
+    }
+    final File directory = new File(dir).getAbsoluteFile();
+    DescriptorCache cache = caches.get(directory);
+    if (cache == null) {
+      cache = new DescriptorCache(directory);
+      caches.put(directory, cache);
+    }
+    return cache;
+  }
+
+  /**
+   * @param aDirectory the directory for the cache entries; created if it doesn't exist
+   */
+  public DescriptorCache(File aDirectory) {
+    directory = aDirectory;
+  }
+
+  public File getDirectory() {
+    return directory;
+  }
+
+  /*
+   * Parsed descriptors
+   */
+
+  /**
+   * @param aContent the XML content of a descriptor
+   * @param aVariant the parsing options which affect the result
+   * @return the key for the parsed form of the content, or null if the content can't be cached
+   */
+  String getParsedKey(byte[] aContent, String aVariant) {
+    final String s = new String(aContent, 0, aContent.length, StandardCharsets.ISO_8859_1);
+    if (s.contains("XInclude") || s.contains("envVarRef")) {
+      return null;
+    }
+    final MessageDigest md = newDigest();
+    md.update(aContent);
+    md.update(("\n" + aVariant + "\n" + UIMAFramework.getVersionString()).getBytes(StandardCharsets.UTF_8));
+    return "p-" + toHex(md.digest());
+  }
+
+  /**
+   * @param aKey from {@link #getParsedKey}
+   * @return a new copy of the cached parsed object, or null if not cached
+   */
+  XMLizable getParsed(String aKey) {
+    final Object o = readEntry(aKey);
+    return (o instanceof XMLizable) ? (XMLizable) o : null;
+  }
+
+  void putParsed(String aKey, XMLizable aObject) {
+    writeEntry(aKey, aObject);
+  }
+
+  /*
+   * Entries
+   *
+   * An entry file is a Java serialization stream holding the format version and the cached object.
+   */
+
+  private Object readEntry(String aKey) {
+    final File file = new File(directory, aKey + ".ser");
+    if (!file.isFile()) {
+      return null;
+    }
+    ObjectInputStream in = null;
+    try {
+      in = new EntryInputStream(new BufferedInputStream(new FileInputStream(file)));
+      if (in.readInt() != FORMAT_VERSION) {
+        return null;
+      }
+      return in.readObject();
+    } catch (Exception e) {
+      // unreadable (e.g. written by another version): treat as not cached
+      UIMAFramework.getLogger(DescriptorCache.class).log(Level.FINE,
+              "Ignoring descriptor cache entry " + file + ": " + e);
+      return null;
+    } finally {
+      if (in != null) {
+        try {
+          in.close();
+        } catch (IOException e) {
+        }
+      }
+    }
+  }
+
+  private void writeEntry(String aKey, Object aObject) {
+    File tmp = null;
+    try {
+      directory.mkdirs();
+      tmp = File.createTempFile(aKey, ".tmp", directory);
+      final ObjectOutputStream out = new EntryOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+      try {
+        out.writeInt(FORMAT_VERSION);
+        out.writeObject(aObject);
+      } finally {
+        out.close();
+      }
+      Files.move(tmp.toPath(), new File(directory, aKey + ".ser").toPath(),
+              StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      tmp = null;
+    } catch (Exception e) {
+      // e.g. not serializable, or the directory is not writable: just don't cache
+      UIMAFramework.getLogger(DescriptorCache.class).log(Level.CONFIG,
+              "Could not write descriptor cache entry " + aKey + " in " + directory + ": " + e);
+    } finally {
+      if (tmp != null) {
+        tmp.delete();
+      }
+    }
+  }
+
+  /*
+   * Hashing
+   */
+
+  static byte[] readFully(InputStream aInput) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final byte[] buf = new byte[8192];
+    int n;
+    while ((n = aInput.read(buf)) > 0) {
+      bytes.write(buf, 0, n);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);  // every Java platform has SHA-1
+    }
+  }
+
+  private static String toHex(byte[] aBytes) {
+    final StringBuilder sb = new StringBuilder(aBytes.length * 2);
+    for (byte b : aBytes) {
+      sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return sb.toString();
+  }
+}
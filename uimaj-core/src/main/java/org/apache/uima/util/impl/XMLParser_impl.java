@@ -19,7 +19,9 @@
 
 package org.apache.uima.util.impl;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Collections;
@@ -179,9 +181,35 @@ public class XMLParser_impl implements XMLParser {
         }
       }
 
+      // use the descriptor cache, if enabled
+      DescriptorCache cache = (urlToParse == null || aOptions.preserveComments) ? null : DescriptorCache.getDefault();
+      String cacheKey = null;
+      InputStream inputStream = aInput.getInputStream();
+      if (cache != null) {
+        byte[] content;
+        try {
+          content = DescriptorCache.readFully(inputStream);
+        } finally {
+          inputStream.close();
+        }
+        cacheKey = cache.getParsedKey(content, 
+            ((mSchemaValidationEnabled && aNamespaceForSchema != null && aSchemaUrl != null) ? "validated " : "") +
+            aOptions.expandEnvVarRefs);
+        if (cacheKey != null) {
+          XMLizable cached = cache.getParsed(cacheKey);
+          if (cached != null) {
+            if (cached instanceof MetaDataObject_impl) {
+              ((MetaDataObject_impl) cached).setSourceUrl(urlToParse);
+            }
+            return cached;
+          }
+        }
+        inputStream = new ByteArrayInputStream(content);
+      }
+
       // set up InputSource
       InputSource input = new InputSource();
-      input.setByteStream(aInput.getInputStream());
+      input.setByteStream(inputStream);
       String systemId;
       if (urlToParse != null) {
         systemId = urlToParse.toString();
@@ -209,6 +237,9 @@ public class XMLParser_impl implements XMLParser {
 
       // otherwise build the UIMA XMLizable object and return it
       XMLizable result = deser.getObject();
+      if (cacheKey != null) {
+        cache.putParsed(cacheKey, result);
+      }
 
       if (result instanceof MetaDataObject_impl) {
         // set Source URL (needed to later resolve descriptor-relative paths)
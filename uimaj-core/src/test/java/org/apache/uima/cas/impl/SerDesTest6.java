@@ -47,6 +47,7 @@ import org.apache.uima.cas.FeatureStructure;
 import org.apache.uima.cas.FloatArrayFS;
 import org.apache.uima.cas.IntArrayFS;
 import org.apache.uima.cas.LongArrayFS;
+import org.apache.uima.cas.Marker;
 import org.apache.uima.cas.ShortArrayFS;
 import org.apache.uima.cas.StringArrayFS;
 import org.apache.uima.cas.Type;
@@ -54,6 +55,7 @@ import org.apache.uima.cas.TypeSystem;
 import org.apache.uima.cas.admin.FSIndexRepositoryMgr;
 import org.apache.uima.cas.admin.TypeSystemMgr;
 import org.apache.uima.cas.impl.BinaryCasSerDes6.ReuseInfo;
+import org.apache.uima.cas.text.AnnotationFS;
 import org.apache.uima.cas.test.AnnotatorInitializer;
 import org.apache.uima.cas.test.CASInitializer;
 import org.apache.uima.resource.ResourceInitializationException;
@@ -319,6 +321,41 @@ public class SerDesTest6 extends SerDesTstCommon {
     }
   }
   
+  /**
+   * Delta computed against a CAS which was never serialized, applied to another CAS built the
+   * same way
+   */
+  public void testDeltaFromComputedReuseInfo() throws Exception {
+    CAS cas = CasCreationUtils.createCas((TypeSystemDescription) null, null, null);
+    cas.setDocumentText("test one");
+    cas.setDocumentLanguage("x-unspecified");
+    BinaryCasSerDes6 bcs = new BinaryCasSerDes6(cas);
+    ReuseInfo ri = bcs.computeReuseInfo();
+    int[] layout = bcs.getFsLayout();
+    Marker marker = cas.createMarker();
+    cas.setDocumentLanguage("en");
+    cas.addFsToIndexes(cas.createAnnotation(cas.getAnnotationType(), 5, 8));
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream(1024);
+    Serialization.serializeWithCompression(cas, baos, null, marker, ri);
+
+    CAS cas2 = CasCreationUtils.createCas((TypeSystemDescription) null, null, null);
+    cas2.setDocumentText("test one");
+    cas2.setDocumentLanguage("x-unspecified");
+    BinaryCasSerDes6 bcs2 = new BinaryCasSerDes6(cas2);
+    ReuseInfo ri2 = bcs2.computeReuseInfo();
+    assertTrue(Arrays.equals(layout, bcs2.getFsLayout()));
+    Serialization.deserializeCAS(cas2, new ByteArrayInputStream(baos.toByteArray()), null, ri2);
+
+    assertEquals("en", cas2.getDocumentLanguage());
+    assertEquals("test one", cas2.getDocumentText());
+    List<String> covered = new ArrayList<String>();
+    for (FSIterator<AnnotationFS> it = cas2.getAnnotationIndex().iterator(); it.hasNext();) {
+      covered.add(it.next().getCoveredText());
+    }
+    assertEquals("[test one, one]", covered.toString());
+  }
+
   public void testDocumentText() {
 //     serdesSimple(getTT(EqTwoTypes));
     remoteCas = setupCas(getTT(EqTwoTypes));
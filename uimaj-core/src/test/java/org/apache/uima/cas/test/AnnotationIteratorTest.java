@@ -28,9 +28,11 @@ import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.CASRuntimeException;
 import org.apache.uima.cas.FSIndexRepository;
 import org.apache.uima.cas.FSIterator;
+import org.apache.uima.cas.FSTypeConstraint;
 import org.apache.uima.cas.Feature;
 import org.apache.uima.cas.Type;
 import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.cas.impl.CASImpl;
 import org.apache.uima.cas.impl.FSIndexFlat;
 import org.apache.uima.cas.impl.FSIteratorWrapper;
 import org.apache.uima.cas.text.AnnotationFS;
@@ -423,6 +425,95 @@ public class AnnotationIteratorTest extends TestCase {
     }
   }
 
+  public void testSelect() {
+    this.cas.setDocumentText("The quick brown fox jumps over the lazy dog. It barked.");
+    final AnnotationFS s1 = cas.createAnnotation(this.sentenceType, 0, 44);
+    final AnnotationFS s2 = cas.createAnnotation(this.sentenceType, 45, 56);
+    cas.addFsToIndexes(s1);
+    cas.addFsToIndexes(s2);
+    final Type annotType = cas.getAnnotationType();
+    for (int i = 0; i < 56; i += 3) {
+      // tokens of lengths 0 to 4 at each start, some of them crossing the sentence bounds
+      for (int len = 0; len < 5; len++) {
+        final Type t = ((i + len) % 2 == 0) ? this.tokenType : annotType;
+        cas.addFsToIndexes(cas.createAnnotation(t, i, Math.min(56, i + len)));
+      }
+    }
+    
+    // includes the sentences and the document annotation
+    final AnnotationIndex<AnnotationFS> annotIndex = cas.getAnnotationIndex();
+    // selecting creates nothing in the CAS
+    final int heapEnd = ((CASImpl) cas).getHeap().getNextId();
+    int[][] bounds = new int[][] {{0, 44}, {45, 56}, {3, 3}, {10, 20}, {0, 0}, {56, 56}, {4, 100}};
+    for (int[] b : bounds) {
+      List<AnnotationFS> coveredBy = new ArrayList<AnnotationFS>();
+      List<AnnotationFS> covering = new ArrayList<AnnotationFS>();
+      List<AnnotationFS> following = new ArrayList<AnnotationFS>();
+      List<AnnotationFS> preceding = new ArrayList<AnnotationFS>();
+      for (AnnotationFS a : annotIndex) {
+        if (a.getBegin() >= b[0] && a.getEnd() <= b[1]) {
+          coveredBy.add(a);
+        }
+        if (a.getBegin() <= b[0] && a.getEnd() >= b[1]) {
+          covering.add(a);
+        }
+        if (a.getBegin() >= b[0]) {
+          following.add(a);
+        }
+        if (a.getEnd() <= b[0]) {
+          preceding.add(a);
+        }
+      }
+      assertEquals(coveredBy, cas.<AnnotationFS>select(annotType).coveredBy(b[0], b[1]).asList());
+      assertEquals(covering, cas.<AnnotationFS>select(annotType).covering(b[0], b[1]).asList());
+      assertEquals(following, cas.<AnnotationFS>select(annotType).following(b[0]).asList());
+      assertEquals(preceding, cas.<AnnotationFS>select(annotType).preceding(b[0]).asList());
+      assertEquals(coveredBy.size(), cas.select(annotType).coveredBy(b[0], b[1]).count());
+    }
+    assertEquals(heapEnd, ((CASImpl) cas).getHeap().getNextId());
+    
+    // bounds given by an annotation: the annotation itself is not selected
+    List<AnnotationFS> sentences = cas.<AnnotationFS>select(this.sentenceType).coveredBy(s1).asList();
+    assertEquals(0, sentences.size());
+    sentences = cas.<AnnotationFS>select(this.sentenceType).following(s1).asList();
+    assertEquals(1, sentences.size());
+    assertEquals(s2, sentences.get(0));
+    assertEquals(s1, cas.<AnnotationFS>select(this.sentenceType).preceding(s2).get());
+    assertNull(cas.<AnnotationFS>select(this.sentenceType).preceding(s1).get());
+    
+    // filter, skip and limit
+    FSTypeConstraint tokenConstraint = cas.getConstraintFactory().createTypeConstraint();
+    tokenConstraint.add(this.tokenType);
+    List<AnnotationFS> tokens = new ArrayList<AnnotationFS>();
+    for (AnnotationFS a : annotIndex) {
+      if (a.getType() == this.tokenType && a.getBegin() >= s2.getBegin() && a.getEnd() <= s2.getEnd()) {
+        tokens.add(a);
+      }
+    }
+    assertTrue(tokens.size() > 4);
+    assertEquals(tokens, cas.<AnnotationFS>select(annotType).coveredBy(s2).filter(tokenConstraint).asList());
+    assertEquals(tokens.subList(2, 4), 
+        cas.<AnnotationFS>select(annotType).coveredBy(s2).filter(tokenConstraint).skip(2).limit(2).asList());
+    int n = 0;
+    for (AnnotationFS a : cas.<AnnotationFS>select(annotType).coveredBy(s2).filter(tokenConstraint).limit(3)) {
+      assertEquals(tokens.get(n++), a);
+    }
+    assertEquals(3, n);
+    
+    // no position: all indexed FSs of the type
+    assertEquals(annotIndex.size(), cas.select(annotType).count());
+    assertEquals(cas.getAnnotationIndex(this.tokenType).size(), cas.select(annotType).filter(tokenConstraint).count());
+    
+    // positional selection needs an annotation type
+    boolean caughtException = false;
+    try {
+      cas.select(this.tokenTypeType).coveredBy(s1);
+    } catch (CASRuntimeException e) {
+      caughtException = true;
+    }
+    assertTrue(caughtException);
+  }
+
   public static void main(String[] args) {
     AnnotationIteratorTest test = new AnnotationIteratorTest(null);
     test.run();
@@ -23,11 +23,15 @@ import junit.framework.TestCase;
 
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.CASRuntimeException;
+import org.apache.uima.cas.FSIterator;
+import org.apache.uima.cas.Feature;
 import org.apache.uima.cas.IntArrayFS;
+import org.apache.uima.cas.Type;
 import org.apache.uima.cas.TypeSystem;
 import org.apache.uima.cas.admin.CASFactory;
 import org.apache.uima.cas.admin.TypeSystemMgr;
 import org.apache.uima.cas.impl.Heap;
+import org.apache.uima.cas.text.AnnotationFS;
 import org.apache.uima.cas.text.AnnotationIndex;
 
 /**
@@ -131,6 +135,96 @@ public class CASTest extends TestCase {
     // assertTrue(caughtExc);
   }
 
+  public void testFreeze() throws Exception {
+    final Type tokenType = this.ts.getType(CASTestSetup.TOKEN_TYPE);
+    final Feature lemmaFeat = this.ts.getFeatureByFullName(CASTestSetup.LEMMA_FEAT_Q);
+    final int nbrTokens = 100;
+    this.cas.setDocumentText("some text");
+    for (int i = 0; i < nbrTokens; i++) {
+      this.cas.addFsToIndexes(this.cas.createAnnotation(tokenType, i, i + 1));
+    }
+    final CAS otherView = this.cas.createView("other");
+    otherView.addFsToIndexes(otherView.createAnnotation(tokenType, 0, 1));
+
+    assertFalse(this.cas.isFrozen());
+    this.cas.freeze();
+    assertTrue(this.cas.isFrozen());
+    assertTrue(otherView.isFrozen());
+    this.cas.freeze();  // no-op if already frozen
+
+    // concurrent readers
+    final int nbrThreads = 4;
+    final int[] counts = new int[nbrThreads];
+    final Throwable[] errors = new Throwable[nbrThreads];
+    Thread[] threads = new Thread[nbrThreads];
+    for (int t = 0; t < nbrThreads; t++) {
+      final int threadNbr = t;
+      threads[t] = new Thread() {
+        public void run() {
+          try {
+            for (int r = 0; r < 10; r++) {
+              int c = 0;
+              for (FSIterator<AnnotationFS> it = cas.getAnnotationIndex(tokenType).iterator(); it.hasNext();) {
+                it.next().getBegin();
+                c++;
+              }
+              counts[threadNbr] = c;
+            }
+          } catch (Throwable e) {
+            errors[threadNbr] = e;
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    for (int t = 0; t < nbrThreads; t++) {
+      assertNull(errors[t]);
+      assertEquals(nbrTokens, counts[t]);
+    }
+
+    // positional selects only read the CAS
+    assertEquals(5, this.cas.select(tokenType).coveredBy(10, 15).count());
+    assertEquals(nbrTokens - 90, this.cas.select(tokenType).following(90).count());
+    assertEquals(10, this.cas.select(tokenType).preceding(10).count());
+
+    // updates are refused
+    AnnotationFS token = this.cas.getAnnotationIndex(tokenType).iterator().next();
+    try {
+      this.cas.createAnnotation(tokenType, 0, 1);
+      fail();
+    } catch (CASRuntimeException e) {
+      assertEquals(CASRuntimeException.CAS_FROZEN, e.getMessageKey());
+    }
+    try {
+      token.setStringValue(lemmaFeat, "x");
+      fail();
+    } catch (CASRuntimeException e) {
+      assertEquals(CASRuntimeException.CAS_FROZEN, e.getMessageKey());
+    }
+    try {
+      otherView.removeFsFromIndexes(token);
+      fail();
+    } catch (CASRuntimeException e) {
+      assertEquals(CASRuntimeException.CAS_FROZEN, e.getMessageKey());
+    }
+
+    // unfreeze allows updates again
+    this.cas.unfreeze();
+    assertFalse(otherView.isFrozen());
+    token.setStringValue(lemmaFeat, "x");
+    assertEquals("x", token.getStringValue(lemmaFeat));
+    this.cas.addFsToIndexes(this.cas.createAnnotation(tokenType, 0, 1));
+
+    // reset ends a freeze
+    this.cas.freeze();
+    this.cas.reset();
+    assertFalse(this.cas.isFrozen());
+    this.cas.createAnnotation(tokenType, 0, 1);
+  }
+
   public void testCreateCAS() {
     TypeSystemMgr tsm = CASFactory.createTypeSystem();
     tsm.commit();
@@ -27,6 +27,7 @@ import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.CASRuntimeException;
 import org.apache.uima.cas.ConstraintFactory;
 import org.apache.uima.cas.FSIndex;
+import org.apache.uima.cas.FSIntConstraint;
 import org.apache.uima.cas.FSIterator;
 import org.apache.uima.cas.FSMatchConstraint;
 import org.apache.uima.cas.FSStringConstraint;
@@ -380,6 +381,36 @@ public class FilteredIteratorTest extends TestCase {
     // assertTrue(count == 4);
   }
   
+  public void testIntPathConstraintMixedTypes() {
+    cas.setDocumentText("This is a test.");
+    AnnotationFS sent = cas.createAnnotation(sentenceType, 0, 15);
+    sent.setIntValue(sentLenFeat, 4);
+    cas.getIndexRepository().addFS(sent);
+    sent = cas.createAnnotation(sentenceType, 5, 15);
+    sent.setIntValue(sentLenFeat, 3);
+    cas.getIndexRepository().addFS(sent);
+    cas.getIndexRepository().addFS(cas.createAnnotation(tokenType, 0, 4));
+    cas.getIndexRepository().addFS(cas.createAnnotation(tokenType, 5, 7));
+
+    // tokens don't have the sentence length feature, and never match
+    FSIntConstraint lenConstraint = cas.getConstraintFactory().createIntConstraint();
+    lenConstraint.geq(4);
+    FeaturePath path = cas.createFeaturePath();
+    path.addFeature(sentLenFeat);
+    FSMatchConstraint cons = cas.getConstraintFactory().embedConstraint(path, lenConstraint);
+    // match more than once, to use the compiled form of the path
+    for (int i = 0; i < 2; i++) {
+      FSIterator<AnnotationFS> it = cas.createFilteredIterator(cas.getAnnotationIndex().iterator(), cons);
+      int count = 0;
+      for (it.moveToFirst(); it.isValid(); it.moveToNext()) {
+        assertEquals(sentenceType, it.get().getType());
+        assertEquals(0, it.get().getBegin());
+        ++count;
+      }
+      assertEquals(1, count);
+    }
+  }
+
   public void testIterator2a() {
     try {
       cas.setDocumentText("This is a test with the word \"the\" in it.");
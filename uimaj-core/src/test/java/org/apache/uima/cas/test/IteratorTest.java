@@ -43,12 +43,14 @@ import org.apache.uima.cas.FeatureStructure;
 import org.apache.uima.cas.Type;
 import org.apache.uima.cas.TypeSystem;
 import org.apache.uima.cas.impl.CASImpl;
+import org.apache.uima.cas.impl.FSCursor;
 import org.apache.uima.cas.impl.FeatureStructureImpl;
 import org.apache.uima.cas.impl.LowLevelIndex;
 import org.apache.uima.cas.impl.LowLevelIndexRepository;
 import org.apache.uima.cas.impl.LowLevelIterator;
 import org.apache.uima.cas.impl.TypeImpl;
 import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.internal.util.IntSplitIterator;
 import org.apache.uima.internal.util.IntVector;
 import org.apache.uima.internal.util.MultiThreadUtils;
 import org.apache.uima.jcas.JCas;
@@ -449,6 +451,183 @@ public class IteratorTest extends TestCase {
     MultiThreadUtils.terminateThreads(threads);
   }
   
+  public void testFSCursor() {
+    for (int i = 0; i < 10; i++) {
+      this.cas.getIndexRepository().addFS(this.cas.createAnnotation(this.tokenType, i * 2, i * 2 + 1));
+    }
+    final int tokenTypeCode = ((TypeImpl) this.tokenType).getCode();
+    final int lemmaFeatCode = this.cas.ll_getTypeSystem().ll_getCodeForFeature(this.lemmaFeat);
+    final int floatFeatCode = this.cas.ll_getTypeSystem().ll_getCodeForFeature(this.tokenFloatFeat);
+    FSCursor c = new FSCursor(this.cas, this.cas.ll_getIndexRepository().ll_getIndex(CAS.STD_ANNOTATION_INDEX, tokenTypeCode));
+    assertEquals(10, c.size());
+
+    // set values through the cursor
+    int n = 0;
+    for (c.moveToFirst(); c.isValid(); c.moveToNext()) {
+      assertEquals(tokenTypeCode, c.getTypeCode());
+      assertEquals(n * 2, c.getBegin());
+      assertEquals(n * 2 + 1, c.getEnd());
+      c.setStringValue(lemmaFeatCode, "l" + n);
+      c.setFloatValue(floatFeatCode, n);
+      n++;
+    }
+    assertEquals(10, n);
+
+    // read them back, both ways
+    for (c.moveToLast(); c.isValid(); c.moveToPrevious()) {
+      n--;
+      assertEquals("l" + n, c.getStringValue(lemmaFeatCode));
+      assertEquals((float) n, c.getFloatValue(floatFeatCode));
+      AnnotationFS fs = this.cas.ll_getFSForRef(c.getRef());
+      assertEquals("l" + n, fs.getStringValue(this.lemmaFeat));
+    }
+    assertEquals(0, n);
+
+    // reuse after reset
+    this.cas.reset();
+    this.cas.getIndexRepository().addFS(this.cas.createAnnotation(this.tokenType, 3, 4));
+    c.setIndex(this.cas.ll_getIndexRepository().ll_getIndex(CAS.STD_ANNOTATION_INDEX, tokenTypeCode));
+    assertTrue(c.isValid());
+    assertEquals(3, c.getBegin());
+    c.moveToNext();
+    assertFalse(c.isValid());
+  }
+
+  public void testBulkCreateAnnotations() {
+    // some annotations already in the indexes, interleaved with the bulk ones
+    for (int i = 0; i < 5; i++) {
+      this.cas.getIndexRepository().addFS(this.cas.createAnnotation(this.tokenType, i * 10 + 1, i * 10 + 3));
+    }
+    final int tokenTypeCode = ((TypeImpl) this.tokenType).getCode();
+    final int lemmaFeatCode = this.cas.ll_getTypeSystem().ll_getCodeForFeature(this.lemmaFeat);
+    final int floatFeatCode = this.cas.ll_getTypeSystem().ll_getCodeForFeature(this.tokenFloatFeat);
+    final int n = 20;
+    final int[] begins = new int[n];
+    final int[] ends = new int[n];
+    final String[] lemmas = new String[n];
+    final float[] floats = new float[n];
+    for (int i = 0; i < n; i++) {
+      begins[i] = (n - i) * 2;  // not in index order
+      ends[i] = begins[i] + 1;
+      lemmas[i] = "l" + begins[i];
+      floats[i] = begins[i];
+    }
+    int[] fsRefs = this.cas.ll_createAnnotations(tokenTypeCode, n, begins, ends,
+        new int[] {lemmaFeatCode, floatFeatCode}, new Object[] {lemmas, floats}, true);
+    assertEquals(n, fsRefs.length);
+
+    for (String indexName : new String[] {CAS.STD_ANNOTATION_INDEX, CASTestSetup.ANNOT_SORT_INDEX, CASTestSetup.ANNOT_SET_INDEX}) {
+      FSIterator<AnnotationFS> it = this.cas.getIndexRepository().<AnnotationFS>getIndex(indexName, this.tokenType).iterator();
+      int count = 0;
+      int prevBegin = -1;
+      for (; it.hasNext(); count++) {
+        AnnotationFS a = it.next();
+        assertTrue(a.getBegin() > prevBegin);
+        prevBegin = a.getBegin();
+        if (a.getEnd() == a.getBegin() + 1) {
+          assertEquals("l" + a.getBegin(), a.getStringValue(this.lemmaFeat));
+          assertEquals((float) a.getBegin(), a.getFloatValue(this.tokenFloatFeat));
+          assertEquals(this.cas, a.getView());
+        }
+      }
+      assertEquals(25, count);
+    }
+    assertEquals(25, this.cas.getIndexRepository().getIndex(CASTestSetup.ANNOT_BAG_INDEX, this.tokenType).size());
+
+    // adding again does nothing to the sorted indexes
+    this.cas.ll_getIndexRepository().ll_addFSs(fsRefs, n);
+    assertEquals(25, this.cas.getAnnotationIndex(this.tokenType).size());
+
+    // column not matching the feature range
+    try {
+      this.cas.ll_createAnnotations(tokenTypeCode, 1, new int[] {0}, new int[] {1},
+          new int[] {lemmaFeatCode}, new Object[] {new int[] {1}}, false);
+      fail();
+    } catch (CASRuntimeException e) {
+      assertEquals(CASRuntimeException.INAPPROP_RANGE, e.getMessageKey());
+    }
+
+    // columns shorter than the count, or not one per feature code: rejected before allocating
+    final int nextId = this.cas.getHeap().getNextId();
+    try {
+      this.cas.ll_createAnnotations(tokenTypeCode, 2, new int[] {0, 1}, new int[] {1},
+          null, null, false);
+      fail();
+    } catch (IllegalArgumentException e) {
+    }
+    try {
+      this.cas.ll_createAnnotations(tokenTypeCode, 2, new int[] {0, 1}, new int[] {1, 2},
+          new int[] {lemmaFeatCode}, new Object[] {new String[] {"a"}}, false);
+      fail();
+    } catch (IllegalArgumentException e) {
+    }
+    try {
+      this.cas.ll_createAnnotations(tokenTypeCode, 1, new int[] {0}, new int[] {1},
+          new int[] {lemmaFeatCode, floatFeatCode}, new Object[] {new String[] {"a"}}, false);
+      fail();
+    } catch (IllegalArgumentException e) {
+    }
+    try {
+      this.cas.ll_createFSs(tokenTypeCode, -1);
+      fail();
+    } catch (IllegalArgumentException e) {
+    }
+    assertEquals(nextId, this.cas.getHeap().getNextId());
+  }
+
+  public void testSplitIterator() throws Exception {
+    setupFSs();
+    String[] indexNames = new String[] {CASTestSetup.ANNOT_BAG_INDEX, CASTestSetup.ANNOT_SET_INDEX, CASTestSetup.ANNOT_SORT_INDEX};
+    for (String indexName : indexNames) {
+      LowLevelIndex index = this.cas.ll_getIndexRepository().ll_getIndex(indexName);
+      int[] expected = new int[index.size()];
+      LowLevelIterator it = index.ll_iterator();
+      for (int i = 0; it.isValid(); it.moveToNext(), i++) {
+        expected[i] = it.ll_get();
+      }
+      Arrays.sort(expected);
+      
+      // split as far as possible, and drain the parts on their own threads
+      final List<IntSplitIterator> parts = new ArrayList<IntSplitIterator>();
+      splitAll(index.ll_splitIterator(), parts);
+      assertTrue(indexName, parts.size() > 10);
+      final IntVector[] results = new IntVector[parts.size()];
+      Thread[] threads = new Thread[parts.size()];
+      for (int i = 0; i < parts.size(); i++) {
+        final int finalI = i;
+        threads[i] = new Thread() {
+          public void run() {
+            IntVector v = new IntVector();
+            IntSplitIterator part = parts.get(finalI);
+            while (part.hasNext()) {
+              v.add(part.next());
+            }
+            results[finalI] = v;
+          }
+        };
+        threads[i].start();
+      }
+      IntVector all = new IntVector();
+      for (int i = 0; i < threads.length; i++) {
+        threads[i].join();
+        all.addBulk(results[i]);
+      }
+      int[] actual = all.toArray();
+      Arrays.sort(actual);
+      assertTrue(indexName, Arrays.equals(expected, actual));
+    }
+  }
+  
+  private void splitAll(IntSplitIterator it, List<IntSplitIterator> parts) {
+    IntSplitIterator prefix = it.trySplit();
+    if (null == prefix) {
+      parts.add(it);
+      return;
+    }
+    splitAll(prefix, parts);
+    splitAll(it, parts);
+  }
+  
   public void testIterator() {
     setupFSs();
     
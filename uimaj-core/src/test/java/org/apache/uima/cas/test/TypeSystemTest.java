@@ -431,6 +431,32 @@ public class TypeSystemTest extends TestCase {
     assertTrue(!this.ts.subsumes(tokenType, top));
   }
 
+  /*
+   * Test subsumes for all pairs of non-array types against the parent chain
+   */
+  public void testSubsumesAllPairs() {
+    List<Type> types = new ArrayList<Type>();
+    Iterator<Type> it = this.ts.getTypeIterator();
+    while (it.hasNext()) {
+      Type t = it.next();
+      if (!t.isArray()) {
+        types.add(t);
+      }
+    }
+    for (Type superType : types) {
+      for (Type type : types) {
+        boolean isAncestor = false;
+        for (Type t = type; t != null; t = this.ts.getParent(t)) {
+          if (t == superType) {
+            isAncestor = true;
+            break;
+          }
+        }
+        assertEquals(superType.getName() + " " + type.getName(), isAncestor, this.ts.subsumes(superType, type));
+      }
+    }
+  }
+
   /**
    * Test presence of builtin types and their properties.
    */
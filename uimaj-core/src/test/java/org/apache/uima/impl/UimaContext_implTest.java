@@ -244,6 +244,31 @@ public class UimaContext_implTest extends TestCase {
     }
   }
 
+  public void testConfigParameterValueAfterChanges() throws Exception {
+    AnalysisEngine ae = UIMAFramework.produceAnalysisEngine(UIMAFramework.getXMLParser()
+            .parseAnalysisEngineDescription(new XMLInputSource(JUnitExtension
+                    .getFile("AnnotatorContextTest/AnnotatorWithConfigurationGroups.xml"))));
+    UimaContext context = ae.getUimaContext();
+    assertEquals("en", context.getConfigParameterValue("StringParam"));
+    assertEquals("de", context.getConfigParameterValue("de", "StringParam"));
+    assertEquals("en", context.getConfigParameterValue("en-US", "StringParam"));
+    assertNull(context.getConfigParameterValue("NoSuchParam"));
+
+    // a setting is seen at once, in the groups which fall back to it too
+    ae.setConfigParameterValue("en", "StringParam", "en2");
+    assertEquals("en2", context.getConfigParameterValue("StringParam"));
+    assertEquals("en2", context.getConfigParameterValue("en-US", "StringParam"));
+    assertEquals("de", context.getConfigParameterValue("de", "StringParam"));
+    ae.reconfigure();
+    assertEquals("en2", context.getConfigParameterValue("StringParam"));
+
+    ae.setConfigParameterValue("de", "StringParam", "de2");
+    ae.reconfigure();
+    assertEquals("de2", context.getConfigParameterValue("de", "StringParam"));
+    assertEquals("en2", context.getConfigParameterValue("en-US", "StringParam"));
+    ae.destroy();
+  }
+
   public void testGetConfigurationGroupNames() {
     String[] names = mContext2.getConfigurationGroupNames();
     Assert.assertEquals(5, names.length);
@@ -81,6 +81,37 @@ public class JCasHashMapTest extends TestCase {
     }
   }
   
+  public void testDense() {
+    JCasHashMap m = new JCasHashMap(200, true, true); // true = do use cache, dense
+    assertTrue(m.isDense());
+    assertEquals(0, m.getApproximateSize());
+    
+    for (int i = 0; i < SIZE; i++) {
+      final int key = addrs[i];
+      assertNull(m.getReserve(key));   // reserves the slot
+      m.put(new TOP(key, FAKE_TOP_TYPE_INSTANCE));
+    }
+    assertEquals(SIZE, m.getApproximateSize());
+    
+    for (int i = 0; i < SIZE; i++) {
+      final int key = addrs[i];
+      FeatureStructureImpl fs = m.getReserve(key);
+      assertNotNull(fs);
+      assertEquals(key, fs.getAddress());
+    }
+    
+    m.clear();
+    assertEquals(0, m.getApproximateSize());
+    assertNull(m.getReserve(addrs[0]));
+    m.put(new TOP(addrs[0], FAKE_TOP_TYPE_INSTANCE));
+    
+    m.clear();  // releases the pages not used since the previous clear
+    assertEquals(JCasPagedArrayMap.PAGE_SIZE, m.getCapacity());
+    
+    m.clear();
+    assertEquals(0, m.getCapacity());
+  }
+  
   public void testWithPerf()  {
     
     for (int i = 0; i <  5; i++ ) {
@@ -500,6 +500,20 @@ public class JCasTest extends TestCase {
 		}
 	}
 
+	public void testTypeInstancePerView() throws Exception {
+		try {
+			// _Type instances are made on first use, one per view
+			JCas view2 = jcas.createView("view2");
+			assertTrue(view2.getType(Token.type) != jcas.getType(Token.type));
+			assertTrue(view2.getType(Token.type) == view2.getType(Token.type));
+			assertTrue(view2.getType(Token.type).jcas == view2);
+			Token tok = new Token(view2);
+			assertTrue(tok.jcasType == view2.getType(Token.type));
+		} catch (Exception e) {
+			JUnitExtension.handleException(e);
+		}
+	}
+
 	public void testAbstract() throws Exception {
 		try {
 			boolean caughtExc = true;
@@ -23,6 +23,14 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Assert;
 import junit.framework.TestCase;
@@ -33,7 +41,10 @@ import org.apache.uima.resource.DataResource;
 import org.apache.uima.resource.ExternalResourceDependency;
 import org.apache.uima.resource.ExternalResourceDescription;
 import org.apache.uima.resource.FileLanguageResourceSpecifier;
+import org.apache.uima.resource.Resource;
+import org.apache.uima.resource.ResourceInitializationException;
 import org.apache.uima.resource.ResourceManager;
+import org.apache.uima.resource.SharedResourceObject;
 import org.apache.uima.resource.metadata.ExternalResourceBinding;
 import org.apache.uima.resource.metadata.ResourceManagerConfiguration;
 import org.apache.uima.resource.metadata.impl.ExternalResourceBinding_impl;
@@ -263,4 +274,165 @@ public class ResourceManager_implTest extends TestCase {
       JUnitExtension.handleException(e);
     }
   }
+
+  public void testParallelInitialization() throws Exception {
+    // the aggregate of testOverrides, with its delegates initialized in parallel
+    File descFile = JUnitExtension.getFile("ResourceManagerImplTest/ResourceTestAggregate.xml");
+    AnalysisEngineDescription desc = UIMAFramework.getXMLParser().parseAnalysisEngineDescription(
+            new XMLInputSource(descFile));
+    ResourceManager resMgr = UIMAFramework.newDefaultResourceManager();
+    resMgr.setDataPath(JUnitExtension.getFile("AnnotatorContextTest").getPath());
+    Map<String, Object> params = new HashMap<String, Object>();
+    params.put(Resource.PARAM_NUM_INIT_THREADS, 4);
+    UIMAFramework.produceAnalysisEngine(desc, resMgr, params);
+    assertTrue(resMgr.getResourceURL("/Annotator1/TestFileResource").toString().endsWith("testDataFile2.dat"));
+    assertNotNull(resMgr.getResource("/Annotator2/TestFileResource"));
+
+    // components sharing a resource manager, initialized at the same time: each resource is made once
+    final ResourceManager_impl rm = new ResourceManager_impl();
+    FileResourceSpecifier_impl spec = new FileResourceSpecifier_impl();
+    spec.setFileUrl(TEST_DATA_FILE.toURL().toString());
+    final ResourceManagerConfiguration cfg = new ResourceManagerConfiguration_impl();
+    ExternalResourceDescription[] resources = new ExternalResourceDescription[8];
+    ExternalResourceBinding[] bindings = new ExternalResourceBinding[resources.length];
+    for (int i = 0; i < resources.length; i++) {
+      resources[i] = new ExternalResourceDescription_impl();
+      resources[i].setName("res" + i);
+      resources[i].setResourceSpecifier(spec);
+      resources[i].setImplementationName(TestResourceInterface_impl.class.getName());
+      bindings[i] = new ExternalResourceBinding_impl();
+      bindings[i].setKey("key" + i);
+      bindings[i].setResourceName("res" + i);
+    }
+    cfg.setExternalResources(resources);
+    cfg.setExternalResourceBindings(bindings);
+    final int nbrComponents = 6;
+    ExecutorService executor = Executors.newFixedThreadPool(nbrComponents);
+    try {
+      Future<?>[] futures = new Future<?>[nbrComponents];
+      for (int c = 0; c < nbrComponents; c++) {
+        final String context = "/c" + c + "/";
+        final Map<String, Object> p = new HashMap<String, Object>();
+        p.put(Resource.PARAM_NUM_INIT_THREADS, c % 3 + 1);
+        futures[c] = executor.submit(new Callable<Object>() {
+          public Object call() throws Exception {
+            rm.initializeExternalResources(cfg, context, p);
+            return null;
+          }
+        });
+      }
+      for (Future<?> f : futures) {
+        f.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    for (int i = 0; i < resources.length; i++) {
+      Object r = rm.getResource("/c0/key" + i);
+      assertEquals(TEST_STRING, ((TestResourceInterface) r).readString());
+      for (int c = 1; c < nbrComponents; c++) {
+        assertSame(r, rm.getResource("/c" + c + "/key" + i));
+      }
+    }
+
+    // the first failing resource (in declaration order) is reported; later calls retry it
+    ResourceManager_impl rm2 = new ResourceManager_impl();
+    resources[2].setImplementationName("org.apache.uima.NoSuchClass");
+    resources[5].setImplementationName(String.class.getName());
+    params.put(Resource.PARAM_NUM_INIT_THREADS, 3);
+    try {
+      rm2.initializeExternalResources(cfg, "/x/", params);
+      fail();
+    } catch (ResourceInitializationException e) {
+      assertEquals(ResourceInitializationException.CLASS_NOT_FOUND, e.getMessageKey());
+    }
+    resources[2].setImplementationName(TestResourceInterface_impl.class.getName());
+    try {
+      rm2.initializeExternalResources(cfg, "/x/", params);
+      fail();
+    } catch (ResourceInitializationException e) {
+      assertEquals(ResourceInitializationException.NOT_A_SHARED_RESOURCE_OBJECT, e.getMessageKey());
+    }
+  }
+
+  public void testReclaimCancelledRegistration() throws Exception {
+    // component a fails on res0 and cancels its claim on res1, which component b is waiting for
+    final ResourceManager_impl rm = new ResourceManager_impl();
+    FileResourceSpecifier_impl spec = new FileResourceSpecifier_impl();
+    spec.setFileUrl(TEST_DATA_FILE.toURL().toString());
+    ExternalResourceDescription failing = new ExternalResourceDescription_impl();
+    failing.setName("res0");
+    failing.setResourceSpecifier(spec);
+    failing.setImplementationName(BlockingFailingResource.class.getName());
+    ExternalResourceDescription shared = new ExternalResourceDescription_impl();
+    shared.setName("res1");
+    shared.setResourceSpecifier(spec);
+    shared.setImplementationName(TestResourceInterface_impl.class.getName());
+    final ResourceManagerConfiguration cfgA = new ResourceManagerConfiguration_impl();
+    cfgA.setExternalResources(new ExternalResourceDescription[] { failing, shared });
+    final ResourceManagerConfiguration cfgB = new ResourceManagerConfiguration_impl();
+    cfgB.setExternalResources(new ExternalResourceDescription[] { shared });
+    ExternalResourceBinding binding = new ExternalResourceBinding_impl();
+    binding.setKey("key");
+    binding.setResourceName("res1");
+    cfgB.setExternalResourceBindings(new ExternalResourceBinding[] { binding });
+
+    BlockingFailingResource.started = new CountDownLatch(1);
+    BlockingFailingResource.release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<?> a = executor.submit(new Callable<Object>() {
+        public Object call() throws Exception {
+          rm.initializeExternalResources(cfgA, "/a/", null);
+          return null;
+        }
+      });
+      BlockingFailingResource.started.await();
+      final CountDownLatch bStarted = new CountDownLatch(1);
+      final Thread[] bThread = new Thread[1];
+      Future<?> b = executor.submit(new Callable<Object>() {
+        public Object call() throws Exception {
+          bThread[0] = Thread.currentThread();
+          bStarted.countDown();
+          rm.initializeExternalResources(cfgB, "/b/", null);
+          return null;
+        }
+      });
+      // let b wait for a's claim on res1
+      bStarted.await();
+      long deadline = System.currentTimeMillis() + 10000;
+      while (bThread[0].getState() != Thread.State.WAITING
+              && System.currentTimeMillis() < deadline) {
+        Thread.yield();
+      }
+      assertEquals(Thread.State.WAITING, bThread[0].getState());
+      BlockingFailingResource.release.countDown();
+      try {
+        a.get();
+        fail();
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof ResourceInitializationException);
+      }
+      b.get();
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(TEST_STRING, ((TestResourceInterface) rm.getResource("/b/key")).readString());
+  }
+
+  public static class BlockingFailingResource implements SharedResourceObject {
+    static CountDownLatch started;
+
+    static CountDownLatch release;
+
+    public void load(DataResource aData) throws ResourceInitializationException {
+      started.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      throw new ResourceInitializationException();
+    }
+  }
 }
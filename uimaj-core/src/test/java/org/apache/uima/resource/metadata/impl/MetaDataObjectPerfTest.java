@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.resource.metadata.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.resource.ResourceSpecifier;
+import org.apache.uima.resource.metadata.impl.MetaDataObject_impl.MetaDataAttr;
+import org.apache.uima.test.junit_extension.JUnitExtension;
+import org.apache.uima.util.XMLInputSource;
+
+/**
+ * Times the MetaDataObject_impl operations which go over all the attributes of a descriptor
+ * (clone, equals, hashCode, toXML, parsing), on a large aggregate, and compares getting all the
+ * attribute values through the method handles with getting them through Method.invoke.
+ */
+public class MetaDataObjectPerfTest extends TestCase {
+  /**
+   * Set to false to run the performance test
+   */
+  final boolean SKIP = true;
+
+  final int NBR_COPIES = 200;  // of each delegate of the merge test aggregate
+
+  final int NBR_ITERATIONS = 20;
+
+  int dmv = 0;
+
+  public void testPerf() throws Exception {
+    if (SKIP) return;
+    AnalysisEngineDescription base = UIMAFramework.getXMLParser().parseAnalysisEngineDescription(
+        new XMLInputSource(JUnitExtension.getFile("TextAnalysisEngineImplTest/AggregateTaeForMergeTest.xml")));
+    Map<String, ResourceSpecifier> delegates = base.getAllComponentSpecifiers(null);
+
+    AnalysisEngineDescription aggregate = (AnalysisEngineDescription) base.clone();
+    aggregate.getDelegateAnalysisEngineSpecifiersWithImports().clear();
+    for (int i = 0; i < NBR_COPIES; i++) {
+      for (Map.Entry<String, ResourceSpecifier> e : delegates.entrySet()) {
+        if (e.getValue() instanceof AnalysisEngineDescription) {
+          aggregate.getDelegateAnalysisEngineSpecifiersWithImports().put(e.getKey() + i,
+              (ResourceSpecifier) e.getValue().clone());
+        }
+      }
+    }
+    StringWriter sw = new StringWriter();
+    aggregate.toXML(sw);
+    final byte[] xml = sw.toString().getBytes("UTF-8");
+    List<MetaDataObject_impl> all = new ArrayList<MetaDataObject_impl>();
+    collect((MetaDataObject_impl) aggregate, all, new IdentityHashMap<Object, Object>());
+    System.out.format("aggregate of %,d delegates, %,d metadata objects, %,d bytes of XML%n",
+        aggregate.getDelegateAnalysisEngineSpecifiersWithImports().size(), all.size(), xml.length);
+
+    for (int round = 0; round < 3; round++) {
+      long start = System.nanoTime();
+      for (int i = 0; i < NBR_ITERATIONS; i++) {
+        dmv += ((AnalysisEngineDescription) aggregate.clone()).getDelegateAnalysisEngineSpecifiersWithImports().size();
+      }
+      report("clone", start);
+
+      AnalysisEngineDescription copy = (AnalysisEngineDescription) aggregate.clone();
+      start = System.nanoTime();
+      for (int i = 0; i < NBR_ITERATIONS; i++) {
+        dmv += aggregate.equals(copy) ? 1 : 0;
+      }
+      report("equals", start);
+
+      start = System.nanoTime();
+      for (int i = 0; i < NBR_ITERATIONS; i++) {
+        dmv += aggregate.hashCode();
+      }
+      report("hashCode", start);
+
+      start = System.nanoTime();
+      for (int i = 0; i < NBR_ITERATIONS; i++) {
+        StringWriter w = new StringWriter();
+        aggregate.toXML(w);
+        dmv += w.getBuffer().length();
+      }
+      report("toXML", start);
+
+      start = System.nanoTime();
+      for (int i = 0; i < NBR_ITERATIONS; i++) {
+        dmv += UIMAFramework.getXMLParser().parseAnalysisEngineDescription(
+            new XMLInputSource(new ByteArrayInputStream(xml), null)).hashCode();
+      }
+      report("parse", start);
+
+      start = System.nanoTime();
+      for (int i = 0; i < NBR_ITERATIONS; i++) {
+        for (MetaDataObject_impl mdo : all) {
+          for (MetaDataAttr attr : mdo.getAttributes()) {
+            if (attr.reader != null) {
+              dmv += (attr.get(mdo) == null) ? 0 : 1;
+            }
+          }
+        }
+      }
+      report("get all attribute values (method handles)", start);
+
+      start = System.nanoTime();
+      for (int i = 0; i < NBR_ITERATIONS; i++) {
+        for (MetaDataObject_impl mdo : all) {
+          for (MetaDataAttr attr : mdo.getAttributes()) {
+            if (attr.reader != null) {
+              dmv += (attr.reader.invoke(mdo) == null) ? 0 : 1;
+            }
+          }
+        }
+      }
+      report("get all attribute values (Method.invoke)", start);
+    }
+    System.out.println(dmv);
+  }
+
+  private void report(String what, long start) {
+    System.out.format("%s: %.3f milliseconds per iteration%n", what,
+        (System.nanoTime() - start) / 1000000.0F / NBR_ITERATIONS);
+  }
+
+  private static void collect(Object o, List<MetaDataObject_impl> all, IdentityHashMap<Object, Object> seen) throws Exception {
+    if (o == null || seen.put(o, o) != null) {
+      return;
+    }
+    if (o instanceof MetaDataObject_impl) {
+      MetaDataObject_impl mdo = (MetaDataObject_impl) o;
+      all.add(mdo);
+      for (MetaDataAttr attr : mdo.getAttributes()) {
+        if (attr.reader != null) {
+          collect(attr.get(mdo), all, seen);
+        }
+      }
+    } else if (o instanceof Object[]) {
+      for (Object e : (Object[]) o) {
+        collect(e, all, seen);
+      }
+    } else if (o instanceof Map) {
+      for (Object e : ((Map<?, ?>) o).values()) {
+        collect(e, all, seen);
+      }
+    }
+  }
+}
@@ -33,6 +33,7 @@ import org.junit.Assert;
 import junit.framework.TestCase;
 
 import org.apache.uima.UIMAFramework;
+import org.apache.uima.UIMA_IllegalArgumentException;
 import org.apache.uima.internal.util.SerializationUtils;
 import org.apache.uima.resource.metadata.ConfigurationParameterSettings;
 import org.apache.uima.resource.metadata.MetaDataObject;
@@ -173,6 +174,33 @@ public class MetaDataObject_implTest extends TestCase {
     }
   }
 
+  /**
+   * Tests getting and setting attribute values by name, including primitive valued ones, 
+   * and values of the wrong type.
+   */
+  public void testAttributeValues() throws Exception {
+    Assert.assertEquals("Apple", apple1.getAttributeValue("name"));
+    Assert.assertEquals(Float.valueOf(0.3F), apple1.getAttributeValue("avgWeightLbs"));
+    Assert.assertEquals(Integer.valueOf(40), apple1.getAttributeValue("avgCostCents"));
+    Assert.assertEquals(Boolean.FALSE, apple1.getAttributeValue("citrus"));
+    Assert.assertNull(apple1.getAttributeValue("noSuchAttribute"));
+    
+    TestFruitObject fruit = new TestFruitObject();
+    fruit.setAttributeValue("avgCostCents", Integer.valueOf(7));
+    Assert.assertEquals(7, fruit.getAvgCostCents());
+    
+    Object[][] badValues = { { "avgCostCents", "seven" }, { "avgCostCents", null }, { "name", Integer.valueOf(1) } };
+    for (Object[] badValue : badValues) {
+      try {
+        fruit.setAttributeValue((String) badValue[0], badValue[1]);
+        fail();
+      } catch (UIMA_IllegalArgumentException e) {
+        Assert.assertEquals(UIMA_IllegalArgumentException.METADATA_ATTRIBUTE_TYPE_MISMATCH, e.getMessageKey());
+      }
+    }
+    Assert.assertEquals(7, fruit.getAvgCostCents());
+  }
+
   /**
    * Tests the {@link MetaDataObject#toString()} method.
    */
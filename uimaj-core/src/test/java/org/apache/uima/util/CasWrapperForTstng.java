@@ -43,6 +43,7 @@ import org.apache.uima.cas.IntArrayFS;
 import org.apache.uima.cas.LongArrayFS;
 import org.apache.uima.cas.Marker;
 import org.apache.uima.cas.ShortArrayFS;
+import org.apache.uima.cas.SelectFSs;
 import org.apache.uima.cas.SofaFS;
 import org.apache.uima.cas.SofaID;
 import org.apache.uima.cas.StringArrayFS;
@@ -98,6 +99,10 @@ public class CasWrapperForTstng implements CAS {
     return originalCAS.createFilteredIterator(it, cons);
   }
 
+  public SelectFSs select(Type type) {
+    return originalCAS.select(type);
+  }
+
   public FloatArrayFS createFloatArrayFS(int length) throws CASRuntimeException {
     return originalCAS.createFloatArrayFS(length);
   }
@@ -269,6 +274,18 @@ public class CasWrapperForTstng implements CAS {
     originalCAS.reset();
   }
 
+  public void freeze() {
+    originalCAS.freeze();
+  }
+
+  public void unfreeze() {
+    originalCAS.unfreeze();
+  }
+
+  public boolean isFrozen() {
+    return originalCAS.isFrozen();
+  }
+
   public void setCurrentComponentInfo(ComponentInfo info) {
     originalCAS.setCurrentComponentInfo(info);
   }
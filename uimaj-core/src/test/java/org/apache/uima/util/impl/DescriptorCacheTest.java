@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.util.impl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Serializable;
+import java.io.Writer;
+
+import junit.framework.TestCase;
+
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.resource.metadata.impl.NameValuePair_impl;
+import org.apache.uima.util.XMLInputSource;
+
+public class DescriptorCacheTest extends TestCase {
+
+  private static final String NS = " xmlns=\"http://uima.apache.org/resourceSpecifier\"";
+
+  private File dir;
+
+  private File cacheDir;
+
+  protected void setUp() throws Exception {
+    super.setUp();
+    dir = File.createTempFile("DescriptorCacheTest", "");
+    dir.delete();
+    new File(dir, "sub").mkdirs();
+    cacheDir = new File(dir, "cache");
+
+    write("sub/tsA.xml", typeSystem("", "test.A"));
+  }
+
+  protected void tearDown() throws Exception {
+    System.clearProperty(DescriptorCache.DESCRIPTOR_CACHE_DIR);
+    delete(dir);
+    super.tearDown();
+  }
+
+  public void testParsedDescriptors() throws Exception {
+    System.setProperty(DescriptorCache.DESCRIPTOR_CACHE_DIR, cacheDir.getPath());
+    File tsA = new File(dir, "sub/tsA.xml");
+    TypeSystemDescription ts1 = UIMAFramework.getXMLParser().parseTypeSystemDescription(new XMLInputSource(tsA));
+    assertEquals(1, cacheDir.list().length);
+    TypeSystemDescription ts2 = UIMAFramework.getXMLParser().parseTypeSystemDescription(new XMLInputSource(tsA));
+    assertEquals(1, cacheDir.list().length);
+    assertNotSame(ts1, ts2);
+    assertEquals(ts1, ts2);
+    assertEquals(tsA.toURI().toURL(), ts2.getSourceUrl());
+    assertEquals(tsA.toURI().toURL(), ts2.getType("test.A").getSourceUrl());
+
+    // same content elsewhere: same entry
+    write("tsA_copy.xml", typeSystem("", "test.A"));
+    File copy = new File(dir, "tsA_copy.xml");
+    TypeSystemDescription ts3 = UIMAFramework.getXMLParser().parseTypeSystemDescription(new XMLInputSource(copy));
+    assertEquals(1, cacheDir.list().length);
+    assertEquals(copy.toURI().toURL(), ts3.getSourceUrl());
+  }
+
+  public void testOtherClassesNotRead() throws Exception {
+    System.setProperty(DescriptorCache.DESCRIPTOR_CACHE_DIR, cacheDir.getPath());
+    File tsA = new File(dir, "sub/tsA.xml");
+    UIMAFramework.getXMLParser().parseTypeSystemDescription(new XMLInputSource(tsA));
+    File entry = cacheDir.listFiles()[0];
+
+    // an entry holding some other serializable class
+    ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(entry));
+    try {
+      out.writeInt(2);
+      out.writeObject(new Gadget());
+    } finally {
+      out.close();
+    }
+    TypeSystemDescription ts = UIMAFramework.getXMLParser().parseTypeSystemDescription(new XMLInputSource(tsA));
+    assertFalse(Gadget.read);
+    assertEquals("test.A", ts.getType("test.A").getName());
+
+    // and such objects are not written
+    DescriptorCache cache = DescriptorCache.getDefault();
+    cache.putParsed("gadget", new NameValuePair_impl("n", new Gadget()));
+    assertFalse(new File(cacheDir, "gadget.ser").exists());
+  }
+
+  static class Gadget implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    static boolean read = false;
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+      in.defaultReadObject();
+      read = true;
+    }
+  }
+
+  private static String typeSystem(String imports, String typeName) {
+    return "<typeSystemDescription" + NS + ">" + imports + "<types><typeDescription><name>" + typeName
+        + "</name><supertypeName>uima.tcas.Annotation</supertypeName></typeDescription></types></typeSystemDescription>";
+  }
+
+  private void write(String name, String content) throws IOException {
+    Writer w = new OutputStreamWriter(new FileOutputStream(new File(dir, name)), "UTF-8");
+    try {
+      w.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + content);
+    } finally {
+      w.close();
+    }
+  }
+
+  private static void delete(File f) {
+    File[] children = f.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        delete(child);
+      }
+    }
+    f.delete();
+  }
+}
@@ -0,0 +1,472 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.collection.impl;
+
+import java.io.ObjectStreamException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Feature;
+import org.apache.uima.cas.SofaFS;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.impl.CASImpl;
+import org.apache.uima.cas_data.CasData;
+import org.apache.uima.cas_data.FeatureStructure;
+import org.apache.uima.cas_data.FeatureValue;
+import org.apache.uima.cas_data.PrimitiveArrayFS;
+import org.apache.uima.cas_data.PrimitiveValue;
+import org.apache.uima.cas_data.ReferenceArrayFS;
+import org.apache.uima.cas_data.ReferenceValue;
+import org.apache.uima.collection.CollectionException;
+
+/**
+ * A {@link CasData} backed by a {@link CAS}. It lets a CasData based CAS Processor work on a CAS
+ * without converting the CAS to CasData and back again for the CAS Processors that follow it.
+ * <p>
+ * The CasData content is materialized from the CAS (using the {@link CasConverter}) the first time
+ * it is accessed. {@link #writeBack(boolean)} then makes the CAS hold the content of this CasData
+ * again. When the CasData was not changed, or when the changes only add new Feature Structures or
+ * remove existing ones, only those changes are applied to the CAS. Any other change (a modified
+ * Feature Structure, an added array, a type or feature not known to the CAS, ...) falls back to a
+ * full conversion with {@link CasConverter#casDataToCasContainer(CasData, CAS, boolean)}.
+ * <p>
+ * The CAS must not be modified by anything else while the view is in use. The CPM materializes
+ * the views it gives to a CasDataConsumer, which may hold on to the CasData; other CAS Processors
+ * must not use a view after their process call returns, and a view they do not read is never
+ * converted.
+ */
+public class CasDataView implements CasData {
+
+  private static final long serialVersionUID = -2370497262719524532L;
+
+  private static final String SOFA_FEATURE_NAME = "sofa";
+
+  private transient CAS mCas;
+
+  private transient CasConverter mConverter;
+
+  // The materialized content, null until first accessed
+  private CasData mData = null;
+
+  // The state of the Feature Structures when the CAS and mData last held the same content
+  private transient Map<FeatureStructure, FsSnapshot> mSnapshot = null;
+
+  // The ids of the Feature Structures in mSnapshot
+  private transient Set<String> mOriginalIds = null;
+
+  // True as long as the ids of the Feature Structures in mData are addresses in the CAS
+  private transient boolean mIdsAreAddresses = true;
+
+  /**
+   * Creates a view of the given CAS.
+   *
+   * @param aCas
+   *          the CAS to view
+   * @param aConverter
+   *          the converter used to materialize the CasData, and to write it back if needed
+   */
+  public CasDataView(CAS aCas, CasConverter aConverter) {
+    mCas = aCas;
+    mConverter = aConverter;
+  }
+
+  /**
+   * Writes the changes made through a CasDataView back to its CAS, if the given CasData is a
+   * view of the given CAS.
+   *
+   * @param aCasData
+   *          the CasData to write back
+   * @param aCas
+   *          the CAS that is to hold the content of the CasData
+   * @param aLenient
+   *          if true, data that does not fit into CAS type system will be ignored. If false, an
+   *          exception will be thrown in that case.
+   * @return true if <code>aCas</code> now holds the content of <code>aCasData</code>, false if
+   *         <code>aCasData</code> is not a view of <code>aCas</code> and has to be converted
+   * @throws CollectionException
+   *           if <code>aLenient</code> is false and a type system incompatibility is found
+   */
+  public static boolean writeBack(Object aCasData, CAS aCas, boolean aLenient)
+          throws CollectionException {
+    if (aCas == null || !(aCasData instanceof CasDataView)
+            || ((CasDataView) aCasData).getCas() != aCas) {
+      return false;
+    }
+    ((CasDataView) aCasData).writeBack(aLenient);
+    return true;
+  }
+
+  /**
+   * @return the CAS this CasData is a view of
+   */
+  public CAS getCas() {
+    return mCas;
+  }
+
+  /**
+   * @return true if the CasData content has been materialized from the CAS
+   */
+  public boolean isMaterialized() {
+    return mData != null;
+  }
+
+  /**
+   * Materializes the CasData content from the CAS, if not done already. Once materialized, the
+   * content of this CasData no longer depends on the CAS.
+   */
+  public void materialize() {
+    if (mData == null) {
+      mData = mConverter.casContainerToCasData(mCas);
+      takeSnapshot();
+    }
+  }
+
+  public Iterator<FeatureStructure> getFeatureStructures() {
+    materialize();
+    return mData.getFeatureStructures();
+  }
+
+  public void addFeatureStructure(FeatureStructure aFS) {
+    materialize();
+    mData.addFeatureStructure(aFS);
+  }
+
+  public void removeFeatureStructure(FeatureStructure aFS) {
+    materialize();
+    mData.removeFeatureStructure(aFS);
+  }
+
+  /**
+   * Makes the CAS hold the content of this CasData. Does nothing if the content was not
+   * materialized or not changed since the last write back.
+   *
+   * @param aLenient
+   *          if true, data that does not fit into CAS type system will be ignored. If false, an
+   *          exception will be thrown in that case.
+   * @throws CollectionException
+   *           if <code>aLenient</code> is false and a type system incompatibility is found
+   */
+  public void writeBack(boolean aLenient) throws CollectionException {
+    if (mData == null) {
+      return;
+    }
+    List<FeatureStructure> added = new ArrayList<FeatureStructure>();
+    Set<FeatureStructure> current = newIdentitySet();
+    boolean modified = false;
+    for (Iterator<FeatureStructure> it = mData.getFeatureStructures(); it.hasNext();) {
+      FeatureStructure fs = it.next();
+      current.add(fs);
+      FsSnapshot snapshot = mSnapshot.get(fs);
+      if (snapshot == null) {
+        added.add(fs);
+      } else if (!snapshot.isUnchanged(fs)) {
+        modified = true;
+      }
+    }
+    List<FsSnapshot> removed = new ArrayList<FsSnapshot>();
+    for (FsSnapshot snapshot : mSnapshot.values()) {
+      if (!current.contains(snapshot.mFs)) {
+        removed.add(snapshot);
+      }
+    }
+    if (added.isEmpty() && removed.isEmpty() && !modified) {
+      return;
+    }
+    if (modified || !mIdsAreAddresses || !applyChanges(added, removed)) {
+      mConverter.casDataToCasContainer(mData, mCas, aLenient);
+      // the Feature Structures got new addresses
+      mIdsAreAddresses = false;
+    }
+    takeSnapshot();
+  }
+
+  /**
+   * Applies the added and removed Feature Structures to the CAS.
+   *
+   * @return false if the changes can't be applied, in which case the CAS must be converted
+   */
+  private boolean applyChanges(List<FeatureStructure> aAdded, List<FsSnapshot> aRemoved) {
+    for (FsSnapshot snapshot : aRemoved) {
+      if (!isPlainType(snapshot.mType) || snapshot.mArray != null) {
+        return false;
+      }
+    }
+    CASImpl cas = (CASImpl) mCas;
+    Map<String, org.apache.uima.cas.FeatureStructure> addedById = new HashMap<String, org.apache.uima.cas.FeatureStructure>();
+    List<org.apache.uima.cas.FeatureStructure> created = new ArrayList<org.apache.uima.cas.FeatureStructure>();
+    try {
+      // create the new Feature Structures first, so that they can refer to each other
+      for (FeatureStructure fs : aAdded) {
+        Type type = mCas.getTypeSystem().getType(fs.getType());
+        if (type == null || !isPlainType(fs.getType())
+                || fs instanceof PrimitiveArrayFS || fs instanceof ReferenceArrayFS) {
+          return false;
+        }
+        if (fs.getId() != null
+                && (addedById.containsKey(fs.getId()) || isOriginalId(fs.getId()))) {
+          return false;
+        }
+        CAS view = getViewFor(fs);
+        if (view == null) {
+          return false;
+        }
+        org.apache.uima.cas.FeatureStructure casFs = view.createFS(type);
+        created.add(casFs);
+        if (fs.getId() != null) {
+          addedById.put(fs.getId(), casFs);
+        }
+      }
+      for (int i = 0; i < aAdded.size(); i++) {
+        if (!setFeatures(aAdded.get(i), created.get(i), addedById)) {
+          return false;
+        }
+      }
+      for (int i = 0; i < aAdded.size(); i++) {
+        int[] indexed = aAdded.get(i).getIndexed();
+        for (int j = 0; indexed != null && j < indexed.length; j++) {
+          cas.getView(indexed[j]).addFsToIndexes(created.get(i));
+        }
+      }
+      for (FsSnapshot snapshot : aRemoved) {
+        org.apache.uima.cas.FeatureStructure casFs = cas.ll_getFSForRef(Integer
+                .parseInt(snapshot.mId));
+        for (int j = 0; snapshot.mIndexed != null && j < snapshot.mIndexed.length; j++) {
+          cas.getView(snapshot.mIndexed[j]).removeFsFromIndexes(casFs);
+        }
+      }
+    } catch (RuntimeException e) {
+      // e.g. a value that can't be parsed, or an unknown view. The conversion reports it.
+      return false;
+    }
+    // the new Feature Structures are now part of the CAS
+    for (int i = 0; i < aAdded.size(); i++) {
+      aAdded.get(i).setId(Integer.toString(cas.ll_getFSRef(created.get(i))));
+    }
+    return true;
+  }
+
+  private boolean setFeatures(FeatureStructure aFs, org.apache.uima.cas.FeatureStructure aCasFs,
+          Map<String, org.apache.uima.cas.FeatureStructure> aAddedById) {
+    Type type = aCasFs.getType();
+    String[] featureNames = aFs.getFeatureNames();
+    for (int i = 0; i < featureNames.length; i++) {
+      if (SOFA_FEATURE_NAME.equals(featureNames[i])) {
+        // set when the Feature Structure is created in its view
+        continue;
+      }
+      Feature feature = type.getFeatureByBaseName(featureNames[i]);
+      if (feature == null) {
+        return false;
+      }
+      FeatureValue value = aFs.getFeatureValue(featureNames[i]);
+      if (value instanceof PrimitiveValue && feature.getRange().isPrimitive()) {
+        aCasFs.setFeatureValueFromString(feature, value.toString());
+      } else if (value instanceof ReferenceValue && !feature.getRange().isPrimitive()) {
+        org.apache.uima.cas.FeatureStructure target = resolve(
+                ((ReferenceValue) value).getTargetId(), aAddedById);
+        if (target == null) {
+          return false;
+        }
+        aCasFs.setFeatureValue(feature, target);
+      } else {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the view to create the given new Feature Structure in, or null if it is not known
+   */
+  private CAS getViewFor(FeatureStructure aFs) {
+    FeatureValue sofa = aFs.getFeatureValue(SOFA_FEATURE_NAME);
+    if (sofa instanceof ReferenceValue) {
+      String sofaId = ((ReferenceValue) sofa).getTargetId();
+      if (!isOriginalId(sofaId)) {
+        return null;
+      }
+      org.apache.uima.cas.FeatureStructure sofaFs = ((CASImpl) mCas).ll_getFSForRef(Integer
+              .parseInt(sofaId));
+      return (sofaFs instanceof SofaFS) ? mCas.getView((SofaFS) sofaFs) : null;
+    }
+    if (sofa != null) {
+      return null;
+    }
+    int[] indexed = aFs.getIndexed();
+    if (indexed != null && indexed.length > 0) {
+      return ((CASImpl) mCas).getView(indexed[0]);
+    }
+    return mCas.getView(CAS.NAME_DEFAULT_SOFA);
+  }
+
+  private org.apache.uima.cas.FeatureStructure resolve(String aId,
+          Map<String, org.apache.uima.cas.FeatureStructure> aAddedById) {
+    org.apache.uima.cas.FeatureStructure target = aAddedById.get(aId);
+    if (target == null && isOriginalId(aId)) {
+      target = ((CASImpl) mCas).ll_getFSForRef(Integer.parseInt(aId));
+    }
+    return target;
+  }
+
+  private boolean isOriginalId(String aId) {
+    return mOriginalIds.contains(aId);
+  }
+
+  /**
+   * Sofas and the document text are set up by the conversion, other types can be added and
+   * removed directly.
+   */
+  private boolean isPlainType(String aTypeName) {
+    return !CAS.TYPE_NAME_SOFA.equals(aTypeName)
+            && !mConverter.getDocumentTextTypeName().equals(aTypeName);
+  }
+
+  private void takeSnapshot() {
+    mSnapshot = new IdentityHashMap<FeatureStructure, FsSnapshot>();
+    mOriginalIds = new HashSet<String>();
+    for (Iterator<FeatureStructure> it = mData.getFeatureStructures(); it.hasNext();) {
+      FeatureStructure fs = it.next();
+      mSnapshot.put(fs, new FsSnapshot(fs));
+      if (fs.getId() != null) {
+        mOriginalIds.add(fs.getId());
+      }
+    }
+  }
+
+  private static Set<FeatureStructure> newIdentitySet() {
+    return Collections.newSetFromMap(new IdentityHashMap<FeatureStructure, Boolean>());
+  }
+
+  /**
+   * Serializes the materialized content, the CAS does not go along.
+   */
+  private Object writeReplace() throws ObjectStreamException {
+    materialize();
+    return mData;
+  }
+
+  public String toString() {
+    materialize();
+    return mData.toString();
+  }
+
+  /**
+   * The state of a CasData Feature Structure, to find out if it was changed.
+   */
+  private static class FsSnapshot {
+    final FeatureStructure mFs;
+
+    final String mType;
+
+    final String mId;
+
+    final int[] mIndexed;
+
+    final String[] mFeatureNames;
+
+    final FeatureValue[] mValues;
+
+    // the target of the ReferenceValues, which can be changed in place
+    final String[] mTargetIds;
+
+    // a copy of the array of an array Feature Structure
+    final Object mArray;
+
+    FsSnapshot(FeatureStructure aFs) {
+      mFs = aFs;
+      mType = aFs.getType();
+      mId = aFs.getId();
+      mIndexed = (aFs.getIndexed() == null) ? null : aFs.getIndexed().clone();
+      mFeatureNames = aFs.getFeatureNames();
+      mValues = new FeatureValue[mFeatureNames.length];
+      mTargetIds = new String[mFeatureNames.length];
+      for (int i = 0; i < mFeatureNames.length; i++) {
+        mValues[i] = aFs.getFeatureValue(mFeatureNames[i]);
+        if (mValues[i] instanceof ReferenceValue) {
+          mTargetIds[i] = ((ReferenceValue) mValues[i]).getTargetId();
+        }
+      }
+      mArray = copyArray(aFs);
+    }
+
+    boolean isUnchanged(FeatureStructure aFs) {
+      if (!equal(mType, aFs.getType()) || !equal(mId, aFs.getId())
+              || !Arrays.equals(mIndexed, aFs.getIndexed())) {
+        return false;
+      }
+      String[] featureNames = aFs.getFeatureNames();
+      if (!Arrays.equals(mFeatureNames, featureNames)) {
+        return false;
+      }
+      for (int i = 0; i < featureNames.length; i++) {
+        FeatureValue value = aFs.getFeatureValue(featureNames[i]);
+        if (value != mValues[i]) {
+          return false;
+        }
+        if (value instanceof ReferenceValue
+                && !equal(mTargetIds[i], ((ReferenceValue) value).getTargetId())) {
+          return false;
+        }
+      }
+      return arrayEquals(mArray, copyArray(aFs));
+    }
+
+    private static Object copyArray(FeatureStructure aFs) {
+      if (aFs instanceof ReferenceArrayFS) {
+        return ((ReferenceArrayFS) aFs).getIdRefArray().clone();
+      }
+      if (aFs instanceof PrimitiveArrayFS) {
+        // the array in its original element type
+        PrimitiveArrayFS array = (PrimitiveArrayFS) aFs;
+        if (array.toIntArray() != null) {
+          return array.toIntArray().clone();
+        } else if (array.toFloatArray() != null) {
+          return array.toFloatArray().clone();
+        }
+        return array.toStringArray().clone();
+      }
+      return null;
+    }
+
+    private static boolean arrayEquals(Object a1, Object a2) {
+      if (a1 instanceof int[] && a2 instanceof int[]) {
+        return Arrays.equals((int[]) a1, (int[]) a2);
+      } else if (a1 instanceof float[] && a2 instanceof float[]) {
+        return Arrays.equals((float[]) a1, (float[]) a2);
+      } else if (a1 instanceof Object[] && a2 instanceof Object[]) {
+        return Arrays.equals((Object[]) a1, (Object[]) a2);
+      }
+      return a1 == null && a2 == null;
+    }
+
+    private static boolean equal(Object o1, Object o2) {
+      return (o1 == null) ? o2 == null : o1.equals(o2);
+    }
+  }
+}
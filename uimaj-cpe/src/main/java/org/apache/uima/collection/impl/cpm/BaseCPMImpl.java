@@ -302,11 +302,15 @@ public class BaseCPMImpl implements BaseCPM, Runnable {
     try {
       int threadCount = cpeFactory.getCpeDescriptor().getCpeCasProcessors().getConcurrentPUCount();
       cpEngine.setConcurrentThreadSize(threadCount);
+      cpEngine.setMinConcurrentThreadSize(cpeFactory.getCpeDescriptor().getCpeCasProcessors()
+              .getMinConcurrentPUCount());
     } catch (NumberFormatException e) {
       throw new Exception(CpmLocalizedMessage.getLocalizedMessage(CPMUtils.CPM_LOG_RESOURCE_BUNDLE,
               "UIMA_CPM_EXP_invalid_component_reference__WARNING", new Object[] {
                   Thread.currentThread().getName(), "casProcessors", "processingUnitThreadCount" }));
     }
+    cpEngine.setResultCache(cpeFactory.getCpeDescriptor().getCpeCasProcessors().getResultCache(),
+            cpeFactory.getCpeDescriptor().getCpeCasProcessors().getResultCacheSize());
   }
 
   /**
@@ -934,6 +938,7 @@ public void process(BaseCollectionReader aCollectionReader, int aBatchSize)
       UIMAFramework.getLogger(this.getClass()).log(Level.FINEST,
               "-------------------------------------------");
     }
+    addProcessingUnitEvents(perfReport, processTrace);
     if (useJediiReport) {
       try {
         synchronized (procTr) {
@@ -1123,6 +1128,28 @@ public void process(BaseCollectionReader aCollectionReader, int aBatchSize)
     }
   }
 
+  /**
+   * Adds the number of Processing Pipelines, and the reason of its last adjustment, to a given
+   * ProcessTrace. These are only present in the stats when the number of pipelines is adjusted
+   * while running.
+   * 
+   * @param aPerfReport -
+   *          CPE stats
+   * @param aProcessTrace -
+   *          ProcessTrace to add the events to
+   */
+  private void addProcessingUnitEvents(Map aPerfReport, ProcessTrace aProcessTrace) {
+    Integer processingUnitCount = (Integer) aPerfReport.get("PROCESSING_UNIT_COUNT");
+    if (processingUnitCount != null) {
+      aProcessTrace.addEvent("CPM", "PROCESSING_UNIT_COUNT", String.valueOf(processingUnitCount),
+              0, null);
+      String scaling = (String) aPerfReport.get("PROCESSING_UNIT_SCALING");
+      if (scaling != null) {
+        aProcessTrace.addEvent("CPM", "PROCESSING_UNIT_SCALING", scaling, 0, null);
+      }
+    }
+  }
+
   /**
    * Returns current CPE progress. How many entities processed and bytes processed.
    */
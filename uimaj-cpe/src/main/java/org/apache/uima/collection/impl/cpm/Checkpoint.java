@@ -25,7 +25,6 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.List;
 
 import org.apache.uima.UIMAFramework;
@@ -36,7 +35,10 @@ import org.apache.uima.util.ProcessTrace;
 import org.apache.uima.util.ProcessTraceEvent;
 
 /**
- * Runing in a seperate thread creates a checkpoint file at predefined intervals.
+ * Runing in a seperate thread creates a checkpoint file at predefined intervals. The checkpoint
+ * file is a {@link CheckpointLog}, to which each checkpoint appends what changed since the previous
+ * one. Checkpoint files written by previous versions of the CPE, holding a serialized
+ * {@link CheckpointData}, can still be restored.
  * 
  */
 public class Checkpoint implements Runnable {
@@ -59,6 +61,11 @@ public class Checkpoint implements Runnable {
 
   private String synchPointFileName = null;
 
+  private final CheckpointLog checkpointLog;
+
+  // Last SynchPoint written to synchPointFileName
+  private String lastSynchPointXml = null;
+
   /**
    * Initialize the checkpoint with a reference to controlling cpe, the file where the checkpoint is
    * to be stored, and the frequency of checkpoints.
@@ -75,6 +82,7 @@ public class Checkpoint implements Runnable {
     }
     cpm = aCpm;
     checkpointFrequency = aCheckpointFrequency;
+    checkpointLog = new CheckpointLog(fileName);
   }
 
   /**
@@ -91,6 +99,7 @@ public class Checkpoint implements Runnable {
    */
   public void stop() {
     stop = true;
+    checkpointLog.close();
     // isRunning = false;
     if (UIMAFramework.getLogger().isLoggable(Level.INFO)) {
       UIMAFramework.getLogger(this.getClass()).logrb(Level.INFO, this.getClass().getName(),
@@ -146,8 +155,7 @@ public class Checkpoint implements Runnable {
    */
   public void delete() {
     try {
-      File checkpointFile = new File(fileName);
-      checkpointFile.delete();
+      checkpointLog.delete();
     } catch (Exception e) {
       e.printStackTrace();
     }
@@ -162,6 +170,14 @@ public class Checkpoint implements Runnable {
     synchronized (lockForPause) {
       pause = true;
     }
+    try {
+      checkpointLog.sync();
+    } catch (IOException e) {
+      UIMAFramework.getLogger(this.getClass()).logrb(Level.FINEST, this.getClass().getName(),
+              "process", CPMUtils.CPM_LOG_RESOURCE_BUNDLE,
+              "UIMA_CPM_exception_when_checkpointing__FINEST",
+              new Object[] { Thread.currentThread().getName(), e.getMessage() });
+    }
   }
 
   /**
@@ -178,85 +194,47 @@ public class Checkpoint implements Runnable {
   }
 
   /**
-   * Serializes checkpoint information to disk. It retrieves data to checkpoint from the CPEEngine.
+   * Appends checkpoint information to the checkpoint log. It retrieves data to checkpoint from the
+   * CPEEngine.
    * 
    */
-  public void doCheckpoint() {
+  public synchronized void doCheckpoint() {
     try {
       if (UIMAFramework.getLogger().isLoggable(Level.FINEST)) {
         UIMAFramework.getLogger(this.getClass()).logrb(Level.FINEST, this.getClass().getName(),
                 "process", CPMUtils.CPM_LOG_RESOURCE_BUNDLE, "UIMA_CPM_checkpoint__FINEST",
                 new Object[] { Thread.currentThread().getName() });
       }
-      // 02/08/05 Checkpoint has been broken up into two files. One containing the
-      // ProcessTrace saved as binary object, and second containing the SynchPoint
-      // saved as xml.
-      rename(fileName);
-      rename(synchPointFileName);
-      // This stream is for the ProcessTrace part of the Checkppoint
-      FileOutputStream out = null;
-      // This stream is for the SynchPoint part of the Checkpoint
-      FileOutputStream synchPointOut = null;
-      ObjectOutputStream s = null;
-
-      try {
-        out = new FileOutputStream(fileName);
-        synchPointOut = new FileOutputStream(synchPointFileName);
-        s = new ObjectOutputStream(out);
-        SynchPoint synchPoint = cpm.getSynchPoint();
-
-        ProcessTrace pTrace = cpm.getPerformanceReport();
-        CheckpointData targetToSave = null;
-        if (pTrace != null) {
-          if (synchPoint != null) {
-            if (UIMAFramework.getLogger().isLoggable(Level.FINEST)) {
-              UIMAFramework.getLogger(this.getClass()).logrb(Level.FINEST,
-                      this.getClass().getName(), "process", CPMUtils.CPM_LOG_RESOURCE_BUNDLE,
-                      "UIMA_CPM_checkpoint_with_synchpoint__FINEST",
-                      new Object[] { Thread.currentThread().getName() });
-            }
-            targetToSave = new CheckpointData(pTrace, synchPoint);
-          } else {
-            if (UIMAFramework.getLogger().isLoggable(Level.FINEST)) {
-              UIMAFramework.getLogger(this.getClass()).logrb(Level.FINEST,
-                      this.getClass().getName(), "process", CPMUtils.CPM_LOG_RESOURCE_BUNDLE,
-                      "UIMA_CPM_checkpoint_with_pt__FINEST",
-                      new Object[] { Thread.currentThread().getName() });
-            }
-            targetToSave = new CheckpointData(pTrace);
-          }
-          synchronized (targetToSave) {
-            s.writeObject(targetToSave);
-            s.flush();
-            if (synchPoint != null) {
-              String xmlSynchPoint = synchPoint.serializeToXML();
-              synchPointOut.write(xmlSynchPoint.getBytes());
-              synchPointOut.flush();
-            }
+      SynchPoint synchPoint = cpm.getSynchPoint();
+
+      ProcessTrace pTrace = cpm.getPerformanceReport();
+      if (pTrace != null) {
+        if (synchPoint != null) {
+          if (UIMAFramework.getLogger().isLoggable(Level.FINEST)) {
+            UIMAFramework.getLogger(this.getClass()).logrb(Level.FINEST,
+                    this.getClass().getName(), "process", CPMUtils.CPM_LOG_RESOURCE_BUNDLE,
+                    "UIMA_CPM_checkpoint_with_synchpoint__FINEST",
+                    new Object[] { Thread.currentThread().getName() });
           }
-        }
-      } catch (Exception e) {
-        UIMAFramework.getLogger(this.getClass()).logrb(Level.FINEST, this.getClass().getName(),
-                "process", CPMUtils.CPM_LOG_RESOURCE_BUNDLE,
-                "UIMA_CPM_exception_when_checkpointing__FINEST",
-                new Object[] { Thread.currentThread().getName(), e.getMessage() });
-      } finally {
-        if (out != null) {
-          try {
-            out.close();
-            s.close();
-
-          } catch (Exception e) {
+        } else {
+          if (UIMAFramework.getLogger().isLoggable(Level.FINEST)) {
+            UIMAFramework.getLogger(this.getClass()).logrb(Level.FINEST,
+                    this.getClass().getName(), "process", CPMUtils.CPM_LOG_RESOURCE_BUNDLE,
+                    "UIMA_CPM_checkpoint_with_pt__FINEST",
+                    new Object[] { Thread.currentThread().getName() });
           }
         }
-        if (synchPointOut != null) {
-          try {
-            synchPointOut.close();
-          } catch (Exception e) {
+        checkpointLog.append(pTrace, synchPoint);
+        // 02/08/05 Checkpoint has been broken up into two files. The SynchPoint is also saved as
+        // xml, so that it can be changed by hand. It is only rewritten when it changed.
+        if (synchPoint != null && synchPointFileName != null) {
+          String xmlSynchPoint = synchPoint.serializeToXML();
+          if (!xmlSynchPoint.equals(lastSynchPointXml)) {
+            writeSynchPoint(xmlSynchPoint);
+            lastSynchPointXml = xmlSynchPoint;
           }
         }
       }
-
     } catch (Exception e) {
       UIMAFramework.getLogger(this.getClass()).logrb(Level.FINEST, this.getClass().getName(),
               "process", CPMUtils.CPM_LOG_RESOURCE_BUNDLE,
@@ -265,6 +243,24 @@ public class Checkpoint implements Runnable {
     }
   }
 
+  /**
+   * Writes the SynchPoint xml to its file, keeping the previous one with a .prev extension.
+   * 
+   * @param aXmlSynchPoint -
+   *          serialized SynchPoint
+   * @throws IOException -
+   */
+  private void writeSynchPoint(String aXmlSynchPoint) throws IOException {
+    rename(synchPointFileName);
+    FileOutputStream synchPointOut = new FileOutputStream(synchPointFileName);
+    try {
+      synchPointOut.write(aXmlSynchPoint.getBytes());
+      synchPointOut.flush();
+    } finally {
+      synchPointOut.close();
+    }
+  }
+
   /**
    * Renames previous checkpoint file.
    * 
@@ -374,14 +370,17 @@ public class Checkpoint implements Runnable {
                   "UIMA_CPM_restoring_from_checkpoint__FINEST",
                   new Object[] { Thread.currentThread().getName() });
         }
-        FileInputStream in = new FileInputStream(file);
-        stream = new ObjectInputStream(in);
-        if (stream != null) {
+        if (CheckpointLog.isCheckpointLog(file)) {
+          anObject = checkpointLog.read();
+        } else {
+          // Checkpoint written by a previous version of the CPE
+          FileInputStream in = new FileInputStream(file);
+          stream = new ObjectInputStream(in);
           anObject = stream.readObject();
-          if (anObject != null && anObject instanceof CheckpointData) {
-            ProcessTrace processTrace = ((CheckpointData) anObject).getProcessTrace();
-            printStats(processTrace);
-          }
+        }
+        if (anObject != null && anObject instanceof CheckpointData) {
+          ProcessTrace processTrace = ((CheckpointData) anObject).getProcessTrace();
+          printStats(processTrace);
         }
       }
       file = new File(synchPointFileName);
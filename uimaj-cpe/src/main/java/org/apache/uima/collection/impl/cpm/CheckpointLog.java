@@ -0,0 +1,537 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.uima.collection.impl.cpm;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.apache.uima.collection.base_cpm.SynchPoint;
+import org.apache.uima.util.ProcessTrace;
+import org.apache.uima.util.ProcessTraceEvent;
+import org.apache.uima.util.impl.ProcessTraceEvent_impl;
+import org.apache.uima.util.impl.ProcessTrace_impl;
+
+/**
+ * Append-only binary checkpoint file. Instead of the whole ProcessTrace, a checkpoint records the
+ * aggregated duration and the last description of the events found in the ProcessTrace, by
+ * enclosing event, component and event type, and the SynchPoint of the Collection Reader. Only the
+ * values that changed since the previous checkpoint are appended. The performance report of the
+ * CPM has one event per enclosing event, component and event type, whatever the number of
+ * documents, so a checkpoint costs about the same at the end of a long run as at its beginning.
+ * <p>
+ * The file starts with a header, followed by records of the form length, type, data, CRC32. A
+ * record which was not completely written (the CPE died while checkpointing) fails its CRC, and
+ * reading stops there. Writes are forced to disk at most once per {@link #SYNC_INTERVAL} ms, and
+ * when the log is synced or closed. When the log grows past {@link #COMPACT_RATIO} times the size
+ * of its last full snapshot, it is rewritten with just the current values; the previous file is
+ * kept with a .prev extension.
+ */
+public class CheckpointLog {
+  private static final int MAGIC = 0x55434b50; // UCKP
+
+  private static final int VERSION = 2;
+
+  // Record types
+  private static final byte KEY = 1; // id, parent id, component name, event type
+
+  private static final byte VALUE = 2; // id, duration, description
+
+  private static final byte SYNCH_POINT = 3; // class name, xml
+
+  // Minimum time between two forced writes, in ms
+  public static final long SYNC_INTERVAL = 5000;
+
+  // Log size, relative to its last full snapshot, which triggers a compaction
+  public static final int COMPACT_RATIO = 4;
+
+  private static final long MIN_COMPACT_SIZE = 64 * 1024;
+
+  private static class Counter {
+    final int id;
+
+    // id of the counter of the enclosing event, -1 for top level events
+    final int parent;
+
+    final String component;
+
+    final String type;
+
+    long duration;
+
+    String description;
+
+    // true if the key of this counter is in the current log file
+    boolean written = false;
+
+    // the values being aggregated by the current checkpoint
+    long checkpoint = -1;
+
+    long newDuration;
+
+    String newDescription;
+
+    Counter(int aId, int aParent, String aComponent, String aType) {
+      id = aId;
+      parent = aParent;
+      component = aComponent;
+      type = aType;
+    }
+  }
+
+  private final File file;
+
+  // Values written to the log so far, by parent id, component name and event type, parents first
+  private final Map<String, Counter> counters = new LinkedHashMap<String, Counter>();
+
+  // Number of the current checkpoint
+  private long checkpoints = 0;
+
+  private boolean closed = false;
+
+  private String synchPointClass = null;
+
+  private String synchPointXml = null;
+
+  private FileOutputStream out = null;
+
+  private long size = 0;
+
+  private long snapshotSize = 0;
+
+  private long lastSync = 0;
+
+  private boolean unsynced = false;
+
+  // Reused for each record
+  private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+
+  private final DataOutputStream recordData = new DataOutputStream(record);
+
+  private final CRC32 crc = new CRC32();
+
+  private final byte[] crcBytes = new byte[4];
+
+  public CheckpointLog(String aFileName) {
+    file = new File(aFileName);
+  }
+
+  /**
+   * Returns true if a given file is a checkpoint log, as opposed to a checkpoint written by
+   * previous versions of the CPE.
+   * 
+   * @param aFile -
+   *          checkpoint file
+   * @return - true if the file starts with the checkpoint log header
+   */
+  public static boolean isCheckpointLog(File aFile) {
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new FileInputStream(aFile));
+      return in.readInt() == MAGIC;
+    } catch (IOException e) {
+      return false;
+    } finally {
+      close(in);
+    }
+  }
+
+  /**
+   * Appends the values of a ProcessTrace and a SynchPoint which changed since the last checkpoint.
+   * The first checkpoint written by this instance, and the checkpoints which let the log grow too
+   * large, replace the log with a full snapshot instead. Nothing is appended once the log is closed.
+   * 
+   * @param aProcessTrace -
+   *          events and timers accumulated so far
+   * @param aSynchPoint -
+   *          position of the Collection Reader, may be null
+   * @throws IOException -
+   */
+  public synchronized void append(ProcessTrace aProcessTrace, SynchPoint aSynchPoint)
+          throws IOException {
+    if (closed) {
+      return; // the CPE stopped
+    }
+    checkpoints++;
+    aggregate(aProcessTrace.getEvents(), -1);
+    String xml = (aSynchPoint == null) ? null : aSynchPoint.serializeToXML();
+
+    if (out == null || size > Math.max(MIN_COMPACT_SIZE, snapshotSize * COMPACT_RATIO)) {
+      compact(aSynchPoint, xml);
+      return;
+    }
+    for (Counter counter : counters.values()) {
+      if (counter.checkpoint != checkpoints) {
+        continue; // not in this trace
+      }
+      if (!counter.written) {
+        writeKey(counter);
+      } else if (counter.duration == counter.newDuration
+              && equal(counter.description, counter.newDescription)) {
+        continue;
+      }
+      counter.duration = counter.newDuration;
+      counter.description = counter.newDescription;
+      writeValue(counter);
+    }
+    if (xml != null && !xml.equals(synchPointXml)) {
+      synchPointClass = aSynchPoint.getClass().getName();
+      synchPointXml = xml;
+      writeSynchPoint();
+    }
+    if (unsynced && System.currentTimeMillis() - lastSync >= SYNC_INTERVAL) {
+      sync();
+    }
+  }
+
+  /**
+   * Forces the records appended so far to disk.
+   * 
+   * @throws IOException -
+   */
+  public synchronized void sync() throws IOException {
+    if (out != null && unsynced) {
+      out.getChannel().force(false);
+      unsynced = false;
+    }
+    lastSync = System.currentTimeMillis();
+  }
+
+  /**
+   * Forces the records appended so far to disk and closes the log. Later appends are ignored.
+   */
+  public synchronized void close() {
+    closed = true;
+    try {
+      sync();
+    } catch (IOException e) {
+      // closed anyway
+    }
+    close(out);
+    out = null;
+  }
+
+  /**
+   * Returns the size of the log file, in bytes
+   * 
+   * @return - size of the log
+   */
+  public synchronized long size() {
+    return size;
+  }
+
+  /**
+   * Reads the log. A ProcessTrace is rebuilt from the aggregated values, with one event per
+   * enclosing event, component name and event type.
+   * 
+   * @return - the last checkpoint in the log, null if the log has no valid checkpoint
+   * @throws IOException -
+   */
+  public CheckpointData read() throws IOException {
+    if (!file.exists()) {
+      return null;
+    }
+    List<Counter> keys = new ArrayList<Counter>();
+    Counter[] byId = new Counter[16];
+    String className = null;
+    String xml = null;
+    DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+    try {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        return null;
+      }
+      byte[] data = new byte[256];
+      CRC32 check = new CRC32();
+      while (true) {
+        int length;
+        try {
+          length = in.readInt();
+        } catch (EOFException e) {
+          break;
+        }
+        if (length <= 0 || length > file.length()) {
+          break; // torn write
+        }
+        if (data.length < length) {
+          data = new byte[length];
+        }
+        try {
+          in.readFully(data, 0, length);
+          check.reset();
+          check.update(data, 0, length);
+          if ((int) check.getValue() != in.readInt()) {
+            break;
+          }
+        } catch (EOFException e) {
+          break;
+        }
+        DataInputStream r = new DataInputStream(new ByteArrayInputStream(data, 0, length));
+        byte type = r.readByte();
+        if (type == KEY) {
+          int id = r.readInt();
+          Counter counter = new Counter(id, r.readInt(), r.readUTF(), r.readUTF());
+          if (id >= byId.length) {
+            Counter[] grown = new Counter[Math.max(id + 1, byId.length * 2)];
+            System.arraycopy(byId, 0, grown, 0, byId.length);
+            byId = grown;
+          }
+          byId[id] = counter;
+          keys.add(counter);
+        } else if (type == VALUE) {
+          int id = r.readInt();
+          Counter counter = (id < byId.length) ? byId[id] : null;
+          if (counter == null) {
+            break;
+          }
+          counter.duration = r.readLong();
+          counter.description = r.readBoolean() ? readString(r) : null;
+        } else if (type == SYNCH_POINT) {
+          className = r.readUTF();
+          xml = readString(r);
+        } else {
+          break;
+        }
+      }
+    } catch (EOFException e) {
+      return null; // no complete header
+    } finally {
+      close(in);
+    }
+
+    ProcessTrace processTrace = new ProcessTrace_impl();
+    ProcessTraceEvent_impl[] events = new ProcessTraceEvent_impl[byId.length];
+    for (Counter counter : keys) {
+      ProcessTraceEvent_impl event = new ProcessTraceEvent_impl(counter.component, counter.type,
+              counter.description);
+      event.setDuration((int) Math.min(counter.duration, Integer.MAX_VALUE));
+      events[counter.id] = event;
+      // parents are written before their sub-events
+      ProcessTraceEvent_impl parent = (counter.parent >= 0 && counter.parent < events.length)
+              ? events[counter.parent] : null;
+      if (parent != null) {
+        parent.addSubEvent(event);
+      } else {
+        processTrace.addEvent(event);
+      }
+    }
+    SynchPoint synchPoint = null;
+    if (className != null) {
+      try {
+        synchPoint = (SynchPoint) Class.forName(className).newInstance();
+        synchPoint.deserialize(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+      } catch (Exception e) {
+        IOException ioe = new IOException(e.getMessage());
+        ioe.initCause(e);
+        throw ioe;
+      }
+    }
+    return new CheckpointData(processTrace, synchPoint);
+  }
+
+  /**
+   * Deletes the log
+   */
+  public synchronized void delete() {
+    close();
+    file.delete();
+  }
+
+  /**
+   * Sums the durations of the events of each enclosing event, component name and event type into
+   * the new values of their counters, and keeps their last description. Sub-events are summed into
+   * their own counters, so each duration is counted once.
+   */
+  private void aggregate(List<ProcessTraceEvent> aEvents, int aParent) {
+    for (int i = 0; aEvents != null && i < aEvents.size(); i++) {
+      ProcessTraceEvent event = aEvents.get(i);
+      String component = (event.getComponentName() == null) ? "" : event.getComponentName();
+      String type = (event.getType() == null) ? "" : event.getType();
+      String key = String.valueOf(aParent) + '\u0000' + component + '\u0000' + type;
+      Counter counter = counters.get(key);
+      if (counter == null) {
+        counter = new Counter(counters.size(), aParent, component, type);
+        counters.put(key, counter);
+      }
+      if (counter.checkpoint != checkpoints) {
+        counter.checkpoint = checkpoints;
+        counter.newDuration = 0;
+        counter.newDescription = null;
+      }
+      counter.newDuration += event.getDuration();
+      if (event.getDescription() != null) {
+        counter.newDescription = event.getDescription();
+      }
+      aggregate(event.getSubEvents(), counter.id);
+    }
+  }
+
+  /**
+   * Writes a new log with the values of the current checkpoint, and replaces the existing log
+   * with it.
+   */
+  private void compact(SynchPoint aSynchPoint, String aXml) throws IOException {
+    close(out);
+    out = null;
+    File tmpFile = new File(file.getPath() + ".tmp");
+    out = new FileOutputStream(tmpFile);
+    size = 0;
+    record.reset();
+    recordData.writeInt(MAGIC);
+    recordData.writeInt(VERSION);
+    out.write(record.toByteArray());
+    size += record.size();
+    for (Counter counter : counters.values()) {
+      if (counter.checkpoint != checkpoints) {
+        counter.written = false; // not in this trace, dropped from the log
+        continue;
+      }
+      counter.duration = counter.newDuration;
+      counter.description = counter.newDescription;
+      writeKey(counter);
+      writeValue(counter);
+    }
+    synchPointClass = (aXml == null) ? null : aSynchPoint.getClass().getName();
+    synchPointXml = aXml;
+    if (aXml != null) {
+      writeSynchPoint();
+    }
+    out.getChannel().force(false);
+    close(out);
+    out = null;
+    // the log is replaced in one step, so that there is a complete log at all times
+    if (file.exists()) {
+      Files.copy(file.toPath(), new File(file.getPath() + ".prev").toPath(),
+              StandardCopyOption.REPLACE_EXISTING);
+    }
+    Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+    out = new FileOutputStream(file, true);
+    snapshotSize = size;
+    unsynced = false;
+    lastSync = System.currentTimeMillis();
+  }
+
+  private void writeKey(Counter aCounter) throws IOException {
+    startRecord(KEY);
+    recordData.writeInt(aCounter.id);
+    recordData.writeInt(aCounter.parent);
+    recordData.writeUTF(aCounter.component);
+    recordData.writeUTF(aCounter.type);
+    endRecord();
+    aCounter.written = true;
+  }
+
+  private void writeValue(Counter aCounter) throws IOException {
+    startRecord(VALUE);
+    recordData.writeInt(aCounter.id);
+    recordData.writeLong(aCounter.duration);
+    recordData.writeBoolean(aCounter.description != null);
+    if (aCounter.description != null) {
+      writeString(recordData, aCounter.description);
+    }
+    endRecord();
+  }
+
+  private void writeSynchPoint() throws IOException {
+    startRecord(SYNCH_POINT);
+    recordData.writeUTF(synchPointClass);
+    writeString(recordData, synchPointXml);
+    endRecord();
+  }
+
+  private void startRecord(byte aType) throws IOException {
+    record.reset();
+    recordData.writeInt(0); // length, set in endRecord()
+    recordData.writeByte(aType);
+  }
+
+  private void endRecord() throws IOException {
+    byte[] bytes = record.toByteArray();
+    int length = bytes.length - 4;
+    bytes[0] = (byte) (length >>> 24);
+    bytes[1] = (byte) (length >>> 16);
+    bytes[2] = (byte) (length >>> 8);
+    bytes[3] = (byte) length;
+    crc.reset();
+    crc.update(bytes, 4, length);
+    int value = (int) crc.getValue();
+    out.write(bytes);
+    crcBytes[0] = (byte) (value >>> 24);
+    crcBytes[1] = (byte) (value >>> 16);
+    crcBytes[2] = (byte) (value >>> 8);
+    crcBytes[3] = (byte) value;
+    out.write(crcBytes);
+    size += bytes.length + 4;
+    unsynced = true;
+  }
+
+  // writeUTF is limited to 64K, descriptions and the xml of a SynchPoint may be longer
+  private static void writeString(DataOutputStream aOut, String aString) throws IOException {
+    byte[] bytes = aString.getBytes("UTF-8");
+    aOut.writeInt(bytes.length);
+    aOut.write(bytes);
+  }
+
+  private static String readString(DataInputStream aIn) throws IOException {
+    byte[] bytes = new byte[aIn.readInt()];
+    aIn.readFully(bytes);
+    return new String(bytes, "UTF-8");
+  }
+
+  private static boolean equal(String a, String b) {
+    return (a == null) ? b == null : a.equals(b);
+  }
+
+  private static void close(InputStream aStream) {
+    if (aStream != null) {
+      try {
+        aStream.close();
+      } catch (IOException e) {
+        // ignore
+      }
+    }
+  }
+
+  private static void close(FileOutputStream aStream) {
+    if (aStream != null) {
+      try {
+        aStream.close();
+      } catch (IOException e) {
+        // ignore
+      }
+    }
+  }
+}
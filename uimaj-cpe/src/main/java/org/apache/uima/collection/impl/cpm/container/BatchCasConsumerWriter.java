@@ -0,0 +1,362 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.collection.impl.cpm.container;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.collection.BatchCasConsumer;
+import org.apache.uima.collection.impl.cpm.Constants;
+import org.apache.uima.collection.impl.cpm.engine.ConsumerCasUtils;
+import org.apache.uima.collection.impl.cpm.utils.CPMUtils;
+import org.apache.uima.collection.impl.cpm.utils.HashedWheelTimer;
+import org.apache.uima.resource.ResourceProcessException;
+import org.apache.uima.util.Level;
+
+/**
+ * Collects the data a {@link BatchCasConsumer} captures from each CAS into batches, and writes the
+ * batches with {@link BatchCasConsumer#processBatch(List)} on a writer thread of its own.
+ * <p>
+ * A batch is handed to the writer thread when it holds <code>aMaxBatchSize</code> CASes, when the
+ * document text of its CASes reaches <code>aMaxBatchBytes</code>, or <code>aBatchTimeout</code> ms
+ * after its first CAS was added. Batches are written one at a time, in order. When the writer
+ * falls behind by {@link #MAX_PENDING_BATCHES} batches, {@link #add(CAS)} waits for it.
+ * <p>
+ * The id of the document of each CAS is kept with its data. When a batch fails, its documents are
+ * reported to the {@link FailureListener}, if there is one. Otherwise the failure is thrown by the
+ * next call to {@link #add(CAS)} or {@link #flush()}, with the ids of the documents in its message.
+ */
+public class BatchCasConsumerWriter {
+  /**
+   * Number of batches that may wait for the writer thread
+   */
+  public static final int MAX_PENDING_BATCHES = 2;
+
+  /**
+   * Receives the documents of the batches which failed to be written.
+   */
+  public interface FailureListener {
+    /**
+     * Called on the writer thread when a document was not written.
+     * 
+     * @param aDocumentId -
+     *          id of the document, from the CPM metadata of its CAS, or its position ("CAS n")
+     *          among the CASes added to the writer
+     * @param aException -
+     *          the failure of its batch, naming the document
+     */
+    public void documentFailed(String aDocumentId, ResourceProcessException aException);
+  }
+
+  private final BatchCasConsumer consumer;
+
+  private final String name;
+
+  private final int maxBatchSize;
+
+  private final long maxBatchBytes;
+
+  private final long batchTimeout;
+
+  private final FailureListener failureListener;
+
+  private final ExecutorService writerThread;
+
+  // One permit per batch that may be handed to the writer thread
+  private final Semaphore pendingBatches = new Semaphore(MAX_PENDING_BATCHES);
+
+  // First failure of the writer thread, not reported yet (when there is no listener)
+  private final AtomicReference<ResourceProcessException> failure = new AtomicReference<ResourceProcessException>();
+
+  // Batch being filled, and the ids of its documents, guarded by this
+  private List<Object> batch = new ArrayList<Object>();
+
+  private List<String> batchDocumentIds = new ArrayList<String>();
+
+  private long casCount = 0;
+
+  private long batchBytes = 0;
+
+  private final HashedWheelTimer.Timeout batchTimer = new HashedWheelTimer.Timeout() {
+    protected void expired() {
+      // Don't block the shared timer thread if the writer is behind, try again later
+      if (pendingBatches.tryAcquire()) {
+        submitBatch();
+      } else {
+        HashedWheelTimer.getInstance().schedule(this, batchTimeout);
+      }
+    }
+  };
+
+  /**
+   * Creates a writer for the given consumer.
+   *
+   * @param aConsumer -
+   *          the consumer writing the batches
+   * @param aName -
+   *          name of the consumer, used for the writer thread and in messages
+   * @param aMaxBatchSize -
+   *          maximum number of CASes in a batch
+   * @param aMaxBatchBytes -
+   *          maximum size of the document text of a batch in bytes, 0 for no limit
+   * @param aBatchTimeout -
+   *          maximum time in ms a batch is held before it is written, 0 for no limit
+   */
+  public BatchCasConsumerWriter(BatchCasConsumer aConsumer, String aName, int aMaxBatchSize,
+          long aMaxBatchBytes, long aBatchTimeout) {
+    this(aConsumer, aName, aMaxBatchSize, aMaxBatchBytes, aBatchTimeout, null);
+  }
+
+  /**
+   * Creates a writer for the given consumer, reporting the documents of failed batches to a
+   * listener.
+   *
+   * @param aConsumer -
+   *          the consumer writing the batches
+   * @param aName -
+   *          name of the consumer, used for the writer thread and in messages
+   * @param aMaxBatchSize -
+   *          maximum number of CASes in a batch
+   * @param aMaxBatchBytes -
+   *          maximum size of the document text of a batch in bytes, 0 for no limit
+   * @param aBatchTimeout -
+   *          maximum time in ms a batch is held before it is written, 0 for no limit
+   * @param aFailureListener -
+   *          receives the documents of failed batches, may be null
+   */
+  public BatchCasConsumerWriter(BatchCasConsumer aConsumer, String aName, int aMaxBatchSize,
+          long aMaxBatchBytes, long aBatchTimeout, FailureListener aFailureListener) {
+    consumer = aConsumer;
+    failureListener = aFailureListener;
+    name = aName;
+    maxBatchSize = Math.max(1, aMaxBatchSize);
+    maxBatchBytes = aMaxBatchBytes;
+    batchTimeout = aBatchTimeout;
+    writerThread = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      public Thread newThread(Runnable aRunnable) {
+        Thread t = new Thread(aRunnable, "BatchCasConsumerWriter-" + name);
+        t.setDaemon(true);
+        return t;
+      }
+    });
+  }
+
+  /**
+   * Captures the data of a CAS and adds it to the current batch. The CAS is no longer used when
+   * this method returns.
+   *
+   * @param aCas -
+   *          the CAS to capture
+   *
+   * @throws ResourceProcessException -
+   *           if the CAS can't be captured, or a previous batch failed to be written
+   */
+  public void add(CAS aCas) throws ResourceProcessException {
+    checkFailure();
+    Object data = consumer.captureCas(aCas);
+    long bytes = (maxBatchBytes > 0) ? getDocumentBytes(aCas) : 0;
+    boolean full;
+    synchronized (this) {
+      casCount++;
+      batch.add(data);
+      batchDocumentIds.add(getDocumentId(aCas, casCount));
+      batchBytes += bytes;
+      full = batch.size() >= maxBatchSize || (maxBatchBytes > 0 && batchBytes >= maxBatchBytes);
+      if (!full && batch.size() == 1 && batchTimeout > 0) {
+        HashedWheelTimer.getInstance().schedule(batchTimer, batchTimeout);
+      }
+    }
+    if (full) {
+      acquirePendingBatch();
+      submitBatch();
+    }
+  }
+
+  /**
+   * Writes the current batch and waits until all the batches have been written.
+   *
+   * @throws ResourceProcessException -
+   *           if a batch failed to be written
+   */
+  public void flush() throws ResourceProcessException {
+    acquirePendingBatch();
+    submitBatch();
+    // The writer is done when all the permits are back
+    try {
+      pendingBatches.acquire(MAX_PENDING_BATCHES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ResourceProcessException(e);
+    }
+    pendingBatches.release(MAX_PENDING_BATCHES);
+    checkFailure();
+  }
+
+  /**
+   * Writes the remaining data and stops the writer thread.
+   *
+   * @throws ResourceProcessException -
+   *           if a batch failed to be written
+   */
+  public void close() throws ResourceProcessException {
+    try {
+      flush();
+    } finally {
+      writerThread.shutdown();
+    }
+  }
+
+  /**
+   * Returns the number of CASes in the batch being filled.
+   *
+   * @return - number of CASes
+   */
+  public synchronized int getBatchSize() {
+    return batch.size();
+  }
+
+  /**
+   * Hands the current batch to the writer thread. The caller holds a permit, which is released
+   * when the batch is written.
+   */
+  private void submitBatch() {
+    final List<Object> full;
+    final List<String> documentIds;
+    synchronized (this) {
+      HashedWheelTimer.getInstance().cancel(batchTimer);
+      if (batch.isEmpty()) {
+        pendingBatches.release();
+        return;
+      }
+      full = batch;
+      documentIds = batchDocumentIds;
+      batch = new ArrayList<Object>();
+      batchDocumentIds = new ArrayList<String>();
+      batchBytes = 0;
+      // Submitted while locked to keep the batches in order
+      writerThread.execute(new Runnable() {
+        public void run() {
+          write(full, documentIds);
+        }
+      });
+    }
+  }
+
+  private void write(List<Object> aBatch, List<String> aDocumentIds) {
+    try {
+      consumer.processBatch(aBatch);
+    } catch (Throwable e) {
+      if (UIMAFramework.getLogger().isLoggable(Level.SEVERE)) {
+        UIMAFramework.getLogger(this.getClass()).logrb(
+                Level.SEVERE,
+                this.getClass().getName(),
+                "process",
+                CPMUtils.CPM_LOG_RESOURCE_BUNDLE,
+                "UIMA_CPM_batch_write_failed__SEVERE",
+                new Object[] { Thread.currentThread().getName(), name,
+                    String.valueOf(aBatch.size()), aDocumentIds.toString(), getReason(e) });
+      }
+      if (failureListener != null) {
+        for (String documentId : aDocumentIds) {
+          failureListener.documentFailed(documentId, newFailure(documentId, e));
+        }
+      } else {
+        failure.compareAndSet(null, newFailure(aDocumentIds.toString(), e));
+      }
+    } finally {
+      pendingBatches.release();
+    }
+  }
+
+  private void acquirePendingBatch() throws ResourceProcessException {
+    try {
+      pendingBatches.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ResourceProcessException(e);
+    }
+  }
+
+  /**
+   * Reports a failure of the writer thread once.
+   */
+  private void checkFailure() throws ResourceProcessException {
+    ResourceProcessException e = failure.getAndSet(null);
+    if (e != null) {
+      throw e;
+    }
+  }
+
+  private ResourceProcessException newFailure(String aDocumentIds, Throwable aCause) {
+    return new ResourceProcessException(CPMUtils.CPM_LOG_RESOURCE_BUNDLE,
+            "UIMA_CPM_EXP_documents_not_written__WARNING", new Object[] {
+                Thread.currentThread().getName(), name, aDocumentIds, getReason(aCause) }, aCause);
+  }
+
+  /**
+   * Returns the first message found in an exception or its causes; UIMA exceptions made from a
+   * cause have none of their own.
+   */
+  private static String getReason(Throwable aException) {
+    for (Throwable t = aException; t != null; t = t.getCause()) {
+      if (t.getMessage() != null) {
+        return t.getMessage();
+      }
+    }
+    return aException.toString();
+  }
+
+  /**
+   * Returns the id of the document of a CAS, from its CPM metadata, or its position among the CASes
+   * added to this writer if it has none.
+   */
+  private static String getDocumentId(CAS aCas, long aPosition) {
+    String id = null;
+    try {
+      id = ConsumerCasUtils.getStringFeatValue(aCas.getView(CAS.NAME_DEFAULT_SOFA),
+              Constants.METADATA_KEY, Constants.DOC_ID);
+    } catch (Exception e) {
+      // no CPM metadata in this CAS
+    }
+    return (id == null || id.length() == 0) ? "CAS " + aPosition : id;
+  }
+
+  /**
+   * Returns the size of the document text of all the views of a CAS in bytes, as UTF-16.
+   */
+  private static long getDocumentBytes(CAS aCas) {
+    long bytes = 0;
+    for (Iterator<CAS> it = aCas.getViewIterator(); it.hasNext();) {
+      String text = it.next().getDocumentText();
+      if (text != null) {
+        bytes += 2L * text.length();
+      }
+    }
+    return bytes;
+  }
+}
@@ -1167,6 +1167,24 @@ public class CPEFactory {
     return threadCount;
   }
 
+  /**
+   * Returns number of threads reading from the CollectionReader, as configured by the
+   * readerThreads attribute of the &lt;collectionReader&gt; element.
+   * 
+   * @return - number of reader threads, 1 when the descriptor has no Collection Reader
+   */
+  public int getReaderThreadCount() {
+    try {
+      CpeCollectionReader[] readers = getCpeDescriptor().getAllCollectionCollectionReaders();
+      if (readers != null && readers.length > 0 && readers[0] != null) {
+        return Math.max(1, readers[0].getReaderThreads());
+      }
+    } catch (CpeDescriptorException e) {
+      // no Collection Reader in the descriptor
+    }
+    return 1;
+  }
+
   /**
    * 
    * @return true if the configuration is the default
@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.collection.impl.cpm.container;
+
+import java.util.List;
+
+/**
+ * Chooses which free proxy a {@link ServiceProxyPool} hands out. Implementations are set with the
+ * <code>loadBalancer</code> parameter in the &lt;deploymentParameters&gt; section of a remote
+ * or local CasProcessor in the cpe descriptor; see {@link LoadBalancers}.
+ */
+public interface LoadBalancer {
+  /**
+   * Chooses one of the free proxies of the pool. Proxies of the endpoints the circuit breaker
+   * keeps calls away from are not candidates.
+   * 
+   * @param aCandidates -
+   *          the stats of the endpoint of each free proxy, in pool order; not empty. An endpoint
+   *          appears once for each of its free proxies.
+   * @return - index of the chosen candidate
+   */
+  int select(List<ServiceEndpointStats> aCandidates);
+}
@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.collection.impl.cpm.container;
+
+import java.util.List;
+import java.util.Random;
+
+import org.apache.uima.resource.ResourceConfigurationException;
+
+/**
+ * The {@link LoadBalancer}s of the CPE, by the name given in the <code>loadBalancer</code>
+ * deployment parameter:
+ * <ul>
+ * <li><code>pool-order</code> - the proxy checked in the longest time ago</li>
+ * <li><code>least-outstanding</code> - a proxy of the endpoint with the fewest calls in progress</li>
+ * <li><code>ewma-latency</code> - a proxy of the endpoint with the lowest expected latency</li>
+ * <li><code>power-of-two-choices</code> - the proxy with the lower expected latency of two taken
+ * at random, which keeps a little load on the slower endpoints so that their latency is known.
+ * The default.</li>
+ * </ul>
+ * The parameter may also name a class implementing {@link LoadBalancer}.
+ */
+public class LoadBalancers {
+  public static final String POOL_ORDER = "pool-order";
+
+  public static final String LEAST_OUTSTANDING = "least-outstanding";
+
+  public static final String EWMA_LATENCY = "ewma-latency";
+
+  public static final String POWER_OF_TWO_CHOICES = "power-of-two-choices";
+
+  public static class PoolOrder implements LoadBalancer {
+    public int select(List<ServiceEndpointStats> aCandidates) {
+      return 0;
+    }
+  }
+
+  public static class LeastOutstanding implements LoadBalancer {
+    public int select(List<ServiceEndpointStats> aCandidates) {
+      int best = 0;
+      for (int i = 1; i < aCandidates.size(); i++) {
+        if (aCandidates.get(i).getOutstanding() < aCandidates.get(best).getOutstanding()) {
+          best = i;
+        }
+      }
+      return best;
+    }
+  }
+
+  public static class EwmaLatency implements LoadBalancer {
+    public int select(List<ServiceEndpointStats> aCandidates) {
+      int best = 0;
+      for (int i = 1; i < aCandidates.size(); i++) {
+        if (aCandidates.get(i).getLoad() < aCandidates.get(best).getLoad()) {
+          best = i;
+        }
+      }
+      return best;
+    }
+  }
+
+  public static class PowerOfTwoChoices implements LoadBalancer {
+    private final Random random;
+
+    public PowerOfTwoChoices() {
+      this(new Random());
+    }
+
+    public PowerOfTwoChoices(Random aRandom) {
+      random = aRandom;
+    }
+
+    public int select(List<ServiceEndpointStats> aCandidates) {
+      int n = aCandidates.size();
+      if (n == 1) {
+        return 0;
+      }
+      int first = random.nextInt(n);
+      int second = random.nextInt(n - 1);
+      if (second >= first) {
+        second++;
+      }
+      return (aCandidates.get(second).getLoad() < aCandidates.get(first).getLoad()) ? second
+              : first;
+    }
+  }
+
+  /**
+   * Returns the load balancer of the given name, or an instance of the given class.
+   * 
+   * @param aName -
+   *          name of a load balancer, or of a class implementing {@link LoadBalancer}. The
+   *          default load balancer if null.
+   * @return - a new load balancer
+   * @throws ResourceConfigurationException -
+   *           if the class can't be instantiated
+   */
+  public static LoadBalancer forName(String aName) throws ResourceConfigurationException {
+    if (aName == null || aName.trim().length() == 0
+            || POWER_OF_TWO_CHOICES.equals(aName.trim())) {
+      return new PowerOfTwoChoices();
+    }
+    String name = aName.trim();
+    if (POOL_ORDER.equals(name)) {
+      return new PoolOrder();
+    } else if (LEAST_OUTSTANDING.equals(name)) {
+      return new LeastOutstanding();
+    } else if (EWMA_LATENCY.equals(name)) {
+      return new EwmaLatency();
+    }
+    try {
+      return (LoadBalancer) Class.forName(name).newInstance();
+    } catch (Exception e) {
+      throw new ResourceConfigurationException(
+              ResourceConfigurationException.RESOURCE_DATA_NOT_VALID, new Object[] { name,
+                  "loadBalancer" }, e);
+    }
+  }
+}
@@ -22,6 +22,7 @@ package org.apache.uima.collection.impl.cpm.container;
 import java.io.IOException;
 import java.net.SocketTimeoutException;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Map;
@@ -34,6 +35,7 @@ import java.util.logging.Logger;
 import org.apache.uima.UIMAFramework;
 import org.apache.uima.analysis_engine.TypeOrFeature;
 import org.apache.uima.cas_data.CasData;
+import org.apache.uima.collection.BatchCasConsumer;
 import org.apache.uima.collection.base_cpm.AbortCPMException;
 import org.apache.uima.collection.base_cpm.AbortCasProcessorException;
 import org.apache.uima.collection.base_cpm.CasProcessor;
@@ -157,6 +159,14 @@ public class ProcessingContainer_Impl extends ProcessingContainer implements Run
 
   public LinkedList failedCasProcessorList = new LinkedList();
 
+  private static final long DEFAULT_CONSUMER_BATCH_SIZE = 100;
+
+  private static final long DEFAULT_CONSUMER_BATCH_TIMEOUT = 1000;
+
+  // Writers of the BatchCasConsumer instances in the pool, guarded by itself
+  private final Map<CasProcessor, BatchCasConsumerWriter> batchWriters =
+          new IdentityHashMap<CasProcessor, BatchCasConsumerWriter>();
+
   /**
    * Initialize container with CasProcessor configuration and pool containing instances of
    * CasProcessor instances.
@@ -179,6 +189,15 @@ public class ProcessingContainer_Impl extends ProcessingContainer implements Run
     failureThresholdSample = casProcessorCPEConfiguration.getErrorSampleSize();
     configuredErrorRate = casProcessorCPEConfiguration.getErrorRate();
     filterList = casProcessorCPEConfiguration.getFilter();
+    if (casProcessorPool != null
+            && !Constants.DEPLOYMENT_INTEGRATED.equals(aCasProcessorConfig.getDeploymentType())) {
+      // Balance the calls across the service instances
+      casProcessorPool.setLoadBalancer(LoadBalancers.forName(casProcessorCPEConfiguration
+              .getDeploymentParameter("loadBalancer")), (int) getNumericDeploymentParameter(
+              "circuitBreakerFailures", ServiceProxyPool.DEFAULT_FAILURE_THRESHOLD),
+              getNumericDeploymentParameter("circuitBreakerCooldown",
+                      ServiceProxyPool.DEFAULT_COOLDOWN));
+    }
   }
 
   /**
@@ -884,6 +903,8 @@ public Object getLastCas() {
                 new Object[] { Thread.currentThread().getName(), "NULL" })));
       }
 
+      // Everything a batch consumer captured must be written before it completes the batch
+      flushBatchWriter(aCasProcessor);
       // endOfBatch must be done on all CAS Processor, not just CAS Consumers
       // ProcessTrace object not really needed any more except for backwards compatibility
       aCasProcessor.batchProcessComplete(new ProcessTrace_impl());
@@ -1140,7 +1161,8 @@ public void stop() {
                       "UIMA_CPM_wait_no_processor__FINEST",
                       new Object[] { Thread.currentThread().getName(), getName() });
             }
-            casProcessorPool.wait(); // wait for something to be checked in
+            // wait for something to be checked in, or for the circuit of a service to close
+            casProcessorPool.wait(ServiceProxyPool.DEFAULT_COOLDOWN);
           } else {
             return processor;
           }
@@ -1307,6 +1329,72 @@ public boolean isIntegrated() {
     return true;
   }
 
+  /**
+   * Returns the writer collecting the data of the given {@link BatchCasConsumer} into batches,
+   * creating it on first use. The batches are sized with the <code>consumerBatchSize</code>,
+   * <code>consumerBatchBytes</code> and <code>consumerBatchTimeout</code> parameters in the
+   * &lt;deploymentParameters&gt; section of the cpe descriptor.
+   * 
+   * @param aConsumer -
+   *          CasProcessor instance from this container's pool
+   * @param aFailureListener -
+   *          receives the documents of the batches which fail, used when the writer is created
+   * @return - the writer of the consumer
+   * @throws ResourceConfigurationException -
+   *           if a batch parameter is not a number
+   */
+  public BatchCasConsumerWriter getBatchWriter(BatchCasConsumer aConsumer,
+          BatchCasConsumerWriter.FailureListener aFailureListener)
+          throws ResourceConfigurationException {
+    synchronized (batchWriters) {
+      BatchCasConsumerWriter writer = batchWriters.get(aConsumer);
+      if (writer == null) {
+        writer = new BatchCasConsumerWriter(aConsumer, getName(), (int) getNumericDeploymentParameter(
+                "consumerBatchSize", DEFAULT_CONSUMER_BATCH_SIZE), getNumericDeploymentParameter(
+                "consumerBatchBytes", 0), getNumericDeploymentParameter("consumerBatchTimeout",
+                DEFAULT_CONSUMER_BATCH_TIMEOUT), aFailureListener);
+        batchWriters.put(aConsumer, writer);
+      }
+      return writer;
+    }
+  }
+
+  private long getNumericDeploymentParameter(String aName, long aDefault)
+          throws ResourceConfigurationException {
+    String value = (casProcessorCPEConfiguration == null) ? null : casProcessorCPEConfiguration
+            .getDeploymentParameter(aName);
+    if (value == null || value.trim().length() == 0) {
+      return aDefault;
+    }
+    try {
+      return Long.parseLong(value.trim());
+    } catch (NumberFormatException e) {
+      throw new ResourceConfigurationException(
+              ResourceConfigurationException.PARAMETER_TYPE_MISMATCH, new Object[] { getName(),
+                  "String", aName, "Integer" }, e);
+    }
+  }
+
+  private void flushBatchWriter(CasProcessor aCasProcessor) throws ResourceProcessException {
+    BatchCasConsumerWriter writer;
+    synchronized (batchWriters) {
+      writer = batchWriters.get(aCasProcessor);
+    }
+    if (writer != null) {
+      writer.flush();
+    }
+  }
+
+  private void closeBatchWriter(CasProcessor aCasProcessor) throws ResourceProcessException {
+    BatchCasConsumerWriter writer;
+    synchronized (batchWriters) {
+      writer = batchWriters.remove(aCasProcessor);
+    }
+    if (writer != null) {
+      writer.close();
+    }
+  }
+
   /**
    * Destroy instances of CasProcessors managed by this container. Before destroying the instance,
    * this method notifies it with CollectionProcessComplete so that the component finalizes its
@@ -1326,6 +1414,8 @@ public boolean isIntegrated() {
     }
     try {
       synchronized (casProcessorPool) {
+        // Failing services are destroyed as well
+        casProcessorPool.closeCircuits();
         while (casProcessorPool.getSize() > 0) {
           // Retrieve next instance of CasProcessor from the pool. Wait max. 50 ms for it.
           CasProcessor cp = casProcessorPool.checkOut(50);
@@ -1346,6 +1436,7 @@ public boolean isIntegrated() {
                     new Object[] { Thread.currentThread().getName(), getName() });
           }
           ProcessTrace pt = new ProcessTrace_impl();
+          closeBatchWriter(cp);
           cp.collectionProcessComplete(pt);
           if (cp instanceof Resource) {
             ((Resource) (cp)).destroy();
@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.collection.impl.cpm.container;
+
+/**
+ * What a {@link ServiceProxyPool} knows of a service instance its proxies are connected to: the
+ * calls in progress, the latency of the calls and the failures. The pool keeps its circuit breaker
+ * state here as well. Read by {@link LoadBalancer}s under the lock of the pool.
+ */
+public class ServiceEndpointStats {
+  /**
+   * Weight of the latest call in the latency average
+   */
+  public static final double EWMA_WEIGHT = 0.2;
+
+  private final Object endpoint;
+
+  int outstanding = 0;
+
+  double latencyEwma = 0;
+
+  long calls = 0;
+
+  int consecutiveFailures = 0;
+
+  // 0 when the circuit is closed
+  long openUntil = 0;
+
+  int timesOpened = 0;
+
+  // a call is made to test the service after the circuit was open
+  boolean trial = false;
+
+  ServiceEndpointStats(Object anEndpoint) {
+    endpoint = anEndpoint;
+  }
+
+  /**
+   * Returns the endpoint: host:port of a Vinci service, the URL of a socket service, or the
+   * CasProcessor itself for other instances.
+   * 
+   * @return - the endpoint
+   */
+  public Object getEndpoint() {
+    return endpoint;
+  }
+
+  /**
+   * Returns the number of proxies of this endpoint checked out of the pool.
+   * 
+   * @return - calls in progress
+   */
+  public int getOutstanding() {
+    return outstanding;
+  }
+
+  /**
+   * Returns the exponentially weighted moving average of the latency of the calls, in ms.
+   * 
+   * @return - average latency, 0 until a call completed
+   */
+  public double getLatencyEwma() {
+    return latencyEwma;
+  }
+
+  /**
+   * Returns the number of calls that completed.
+   * 
+   * @return - number of calls
+   */
+  public long getCalls() {
+    return calls;
+  }
+
+  /**
+   * Returns the number of calls that failed since the last one that succeeded.
+   * 
+   * @return - number of failures
+   */
+  public int getConsecutiveFailures() {
+    return consecutiveFailures;
+  }
+
+  /**
+   * Returns true while the circuit breaker keeps calls away from the endpoint.
+   * 
+   * @param aNow -
+   *          current time in ms
+   * @return - true if the circuit is open
+   */
+  public boolean isCircuitOpen(long aNow) {
+    return openUntil != 0 && (aNow < openUntil || trial);
+  }
+
+  /**
+   * Returns the expected latency of a new call: the average latency times the calls in progress
+   * plus one. Endpoints which haven't completed a call yet come first.
+   * 
+   * @return - expected latency in ms
+   */
+  public double getLoad() {
+    return latencyEwma * (outstanding + 1);
+  }
+
+  void recordSuccess(double aLatencyMillis) {
+    latencyEwma = (calls == 0) ? aLatencyMillis : EWMA_WEIGHT * aLatencyMillis
+            + (1 - EWMA_WEIGHT) * latencyEwma;
+    calls++;
+    consecutiveFailures = 0;
+    openUntil = 0;
+    timesOpened = 0;
+    trial = false;
+  }
+
+  public String toString() {
+    return endpoint + " (outstanding: " + outstanding + ", latency: " + Math.round(latencyEwma)
+            + " ms, failures: " + consecutiveFailures + ")";
+  }
+}
@@ -19,25 +19,81 @@
 
 package org.apache.uima.collection.impl.cpm.container;
 
+import java.net.URL;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.uima.UIMAFramework;
 import org.apache.uima.collection.base_cpm.CasProcessor;
+import org.apache.uima.collection.impl.cpm.container.deployer.VinciTAP;
 import org.apache.uima.collection.impl.cpm.utils.CPMUtils;
 import org.apache.uima.util.Level;
 
 /**
  * Pool containing and managing instances of CasProcessors. Managed by the container the pool
  * facilitates check out and check in of Cas Processors.
+ * <p>
+ * With a {@link LoadBalancer}, the pool keeps {@link ServiceEndpointStats} for each service the
+ * proxies are connected to, and lets the load balancer choose the proxy to check out. Callers
+ * report the outcome of the calls with {@link #markSucceeded(CasProcessor)} and
+ * {@link #markFailed(CasProcessor)}. After a number of consecutive failures, a circuit breaker
+ * keeps the proxies of a service checked in for a cooldown time, doubled each time the service
+ * fails again, unless the proxies of all the services are kept. Then one call tests the service.
  * 
  * 
  */
 public class ServiceProxyPool {
+  /**
+   * Default number of consecutive failures which open the circuit of a service
+   */
+  public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+
+  /**
+   * Default time in ms the circuit of a service stays open the first time
+   */
+  public static final long DEFAULT_COOLDOWN = 5000;
+
+  private static final long MAX_COOLDOWN = 60000;
+
+  /**
+   * A proxy checked out of the pool
+   */
+  private static class Checkout {
+    final ServiceEndpointStats stats;
+
+    final long startTime = System.nanoTime();
+
+    boolean done = false;
+
+    Checkout(ServiceEndpointStats aStats) {
+      stats = aStats;
+    }
+  }
+
   private LinkedList mAllInstances = new LinkedList();
 
   private LinkedList mFreeInstances = new LinkedList();
 
+  private LoadBalancer mLoadBalancer = null;
+
+  private int mFailureThreshold = DEFAULT_FAILURE_THRESHOLD;
+
+  private long mCooldown = DEFAULT_COOLDOWN;
+
+  // endpoint -> ServiceEndpointStats
+  private final Map<Object, ServiceEndpointStats> mEndpoints =
+          new HashMap<Object, ServiceEndpointStats>();
+
+  // CasProcessor -> Checkout, when there is a load balancer
+  private final Map<CasProcessor, Checkout> mCheckedOut =
+          new IdentityHashMap<CasProcessor, Checkout>();
+
 //  private int mNumInstances;
 
   /**
@@ -55,7 +111,12 @@ public class ServiceProxyPool {
                 "UIMA_CPM_checking_out_cp_from_pool__FINEST",
                 new Object[] { Thread.currentThread().getName() });
       }
-      CasProcessor r = (CasProcessor) mFreeInstances.remove(0);
+      CasProcessor r = (mLoadBalancer == null) ? (CasProcessor) mFreeInstances.remove(0)
+              : balancedCheckOut();
+      if (r == null) {
+        // the proxies of failing services are kept
+        return null;
+      }
       if (UIMAFramework.getLogger().isLoggable(Level.FINEST)) {
         UIMAFramework.getLogger(this.getClass()).logrb(
                 Level.FINEST,
@@ -123,6 +184,14 @@ public class ServiceProxyPool {
         }
       }
     } else {
+      Checkout checkout = mCheckedOut.remove(aResource);
+      if (checkout != null) {
+        checkout.stats.outstanding--;
+        if (!checkout.done && checkout.stats.trial) {
+          // no outcome, let another call test the service
+          checkout.stats.trial = false;
+        }
+      }
       // Add the Resource to the end of the free instances List
       mFreeInstances.add(aResource);
     }
@@ -156,7 +225,8 @@ public class ServiceProxyPool {
     CasProcessor resource;
     while ((resource = checkOut()) == null) {
       try {
-        wait(aTimeout);
+        // bounded, a circuit may close without a check in
+        wait((aTimeout > 0) ? Math.min(aTimeout, DEFAULT_COOLDOWN) : DEFAULT_COOLDOWN);
       } catch (InterruptedException e) {
       }
       if (aTimeout > 0 && (new Date().getTime() - startTime) >= aTimeout) {
@@ -173,6 +243,189 @@ public class ServiceProxyPool {
   public synchronized void destroy() {
     mAllInstances.clear();
     mFreeInstances.clear();
+    mCheckedOut.clear();
+    mEndpoints.clear();
+  }
+
+  /**
+   * Sets the load balancer choosing the proxies to check out, and the circuit breaker settings.
+   * 
+   * @param aLoadBalancer -
+   *          the load balancer, null to check out the proxies in pool order without a circuit
+   *          breaker
+   * @param aFailureThreshold -
+   *          number of consecutive failures which open the circuit of a service, 0 for no circuit
+   *          breaker
+   * @param aCooldown -
+   *          time in ms the circuit of a service stays open the first time
+   */
+  public synchronized void setLoadBalancer(LoadBalancer aLoadBalancer, int aFailureThreshold,
+          long aCooldown) {
+    mLoadBalancer = aLoadBalancer;
+    mFailureThreshold = aFailureThreshold;
+    mCooldown = aCooldown;
+  }
+
+  /**
+   * Returns the load balancer choosing the proxies to check out.
+   * 
+   * @return - the load balancer, null if the proxies are checked out in pool order
+   */
+  public synchronized LoadBalancer getLoadBalancer() {
+    return mLoadBalancer;
+  }
+
+  /**
+   * Records that the call made with a proxy checked out of this pool succeeded, with the time since
+   * the check out as its latency.
+   * 
+   * @param aResource -
+   *          a checked out instance of the CasProcessor
+   */
+  public synchronized void markSucceeded(CasProcessor aResource) {
+    Checkout checkout = mCheckedOut.get(aResource);
+    if (checkout != null && !checkout.done) {
+      checkout.done = true;
+      checkout.stats.recordSuccess((System.nanoTime() - checkout.startTime) / 1000000.0);
+    }
+  }
+
+  /**
+   * Records that the call made with a proxy checked out of this pool failed. Opens the circuit of
+   * the service after the configured number of consecutive failures.
+   * 
+   * @param aResource -
+   *          a checked out instance of the CasProcessor
+   */
+  public synchronized void markFailed(CasProcessor aResource) {
+    Checkout checkout = mCheckedOut.get(aResource);
+    if (checkout == null || checkout.done) {
+      return;
+    }
+    checkout.done = true;
+    ServiceEndpointStats stats = checkout.stats;
+    stats.consecutiveFailures++;
+    long now = System.currentTimeMillis();
+    if (mFailureThreshold > 0
+            && (stats.trial || (!stats.isCircuitOpen(now) && stats.consecutiveFailures >= mFailureThreshold))) {
+      long cooldown = Math.min(mCooldown << Math.min(stats.timesOpened, 16), MAX_COOLDOWN);
+      stats.timesOpened++;
+      stats.openUntil = now + cooldown;
+      stats.trial = false;
+      if (UIMAFramework.getLogger().isLoggable(Level.WARNING)) {
+        UIMAFramework.getLogger(this.getClass()).logrb(
+                Level.WARNING,
+                this.getClass().getName(),
+                "process",
+                CPMUtils.CPM_LOG_RESOURCE_BUNDLE,
+                "UIMA_CPM_circuit_open__WARNING",
+                new Object[] { Thread.currentThread().getName(), String.valueOf(stats.getEndpoint()),
+                    String.valueOf(stats.consecutiveFailures), String.valueOf(cooldown) });
+      }
+    }
+    // proxies of other services may be checked out now
+    notifyAll();
+  }
+
+  /**
+   * Closes the circuits of all the services, so that all the free proxies can be checked out.
+   */
+  public synchronized void closeCircuits() {
+    for (ServiceEndpointStats stats : mEndpoints.values()) {
+      stats.openUntil = 0;
+      stats.trial = false;
+      stats.consecutiveFailures = 0;
+    }
+    notifyAll();
+  }
+
+  /**
+   * Returns the stats of the services the proxies of this pool are connected to.
+   * 
+   * @return - list of ServiceEndpointStats, empty if there is no load balancer
+   */
+  public synchronized List<ServiceEndpointStats> getEndpointStats() {
+    return new ArrayList<ServiceEndpointStats>(mEndpoints.values());
+  }
+
+  /**
+   * Removes the free proxy chosen by the load balancer among those of the services whose circuit is
+   * closed. If the circuits of all the services are open, all the free proxies are candidates.
+   * 
+   * @return - the proxy, or null if only proxies of services with an open circuit are free
+   */
+  private CasProcessor balancedCheckOut() {
+    long now = System.currentTimeMillis();
+    List<CasProcessor> candidates = new ArrayList<CasProcessor>();
+    List<ServiceEndpointStats> candidateStats = new ArrayList<ServiceEndpointStats>();
+    for (Iterator it = mFreeInstances.iterator(); it.hasNext();) {
+      CasProcessor cp = (CasProcessor) it.next();
+      ServiceEndpointStats stats = getStats(cp);
+      if (!stats.isCircuitOpen(now)) {
+        candidates.add(cp);
+        candidateStats.add(stats);
+      }
+    }
+    if (candidates.isEmpty()) {
+      for (Iterator it = mAllInstances.iterator(); it.hasNext();) {
+        if (!getStats((CasProcessor) it.next()).isCircuitOpen(now)) {
+          // wait for a proxy of a working service
+          return null;
+        }
+      }
+      for (Iterator it = mFreeInstances.iterator(); it.hasNext();) {
+        CasProcessor cp = (CasProcessor) it.next();
+        candidates.add(cp);
+        candidateStats.add(getStats(cp));
+      }
+    }
+    int index = mLoadBalancer.select(candidateStats);
+    if (index < 0 || index >= candidates.size()) {
+      index = 0;
+    }
+    CasProcessor cp = candidates.get(index);
+    ServiceEndpointStats stats = candidateStats.get(index);
+    mFreeInstances.remove(cp);
+    stats.outstanding++;
+    if (stats.openUntil != 0 && now >= stats.openUntil) {
+      // the cooldown is over, this call tests the service
+      stats.trial = true;
+    }
+    mCheckedOut.put(cp, new Checkout(stats));
+    return cp;
+  }
+
+  private ServiceEndpointStats getStats(CasProcessor aCasProcessor) {
+    Object endpoint = getEndpoint(aCasProcessor);
+    ServiceEndpointStats stats = mEndpoints.get(endpoint);
+    if (stats == null) {
+      stats = new ServiceEndpointStats(endpoint);
+      mEndpoints.put(endpoint, stats);
+    }
+    return stats;
+  }
+
+  /**
+   * Returns the service a proxy is connected to: host:port of a Vinci service, the URL of a socket
+   * service, and the CasProcessor itself otherwise.
+   */
+  private static Object getEndpoint(CasProcessor aCasProcessor) {
+    if (aCasProcessor instanceof NetworkCasProcessorImpl) {
+      VinciTAP tap = ((NetworkCasProcessorImpl) aCasProcessor).getProxy();
+      if (tap != null && tap.getServiceHost() != null) {
+        try {
+          return tap.getServiceHost() + ":" + tap.getServicePort();
+        } catch (NumberFormatException e) {
+          // not connected
+        }
+      }
+    } else if (aCasProcessor instanceof CasObjectNetworkCasProcessorImpl) {
+      URL url = ((CasObjectNetworkCasProcessorImpl) aCasProcessor).getEndpoint();
+      if (url != null) {
+        return url.getHost() + ":" + url.getPort();
+      }
+    }
+    return aCasProcessor;
   }
 
   /**
@@ -22,6 +22,7 @@ package org.apache.uima.collection.impl.cpm.engine;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.uima.UIMAFramework;
@@ -32,6 +33,8 @@ import org.apache.uima.cas_data.CasData;
 import org.apache.uima.collection.CasInitializer;
 import org.apache.uima.collection.CollectionException;
 import org.apache.uima.collection.CollectionReader;
+import org.apache.uima.collection.CollectionReaderSplit;
+import org.apache.uima.collection.SplittableCollectionReader;
 import org.apache.uima.collection.StatusCallbackListener;
 import org.apache.uima.collection.base_cpm.BaseCollectionReader;
 import org.apache.uima.collection.base_cpm.CasDataCollectionReader;
@@ -46,6 +49,7 @@ import org.apache.uima.resource.metadata.Capability;
 import org.apache.uima.util.Level;
 import org.apache.uima.util.ProcessTrace;
 import org.apache.uima.util.Progress;
+import org.apache.uima.util.ProgressImpl;
 import org.apache.uima.util.UimaTimer;
 import org.apache.uima.util.impl.ProcessTrace_impl;
 
@@ -61,6 +65,10 @@ import org.apache.uima.util.impl.ProcessTrace_impl;
  * Units. No more data is expected to be placed on the work queue. The Processing Threads upon
  * seeing the EOFToken are expected to complete processing and do necessary cleanup.
  * 
+ * When the CollectionReader is a {@link SplittableCollectionReader} and the CPE descriptor
+ * configures more than one reader thread, each split of the collection is read by its own thread.
+ * The reader threads run ahead of the Processing Units, limited only by the size of the CAS pool,
+ * so the work queue is kept full while some of the splits are waiting for I/O.
  * 
  */
 public class ArtifactProducer extends Thread {
@@ -87,7 +95,8 @@ public class ArtifactProducer extends Thread {
 
   private Map cpmStatTable = null;
 
-  private String[] lastDocId = { "" };
+  // Replaced rather than updated in place, as the split readers set it concurrently
+  private volatile String[] lastDocId = { "" };
 
   private long totalFetchTime = 0;
 
@@ -101,6 +110,12 @@ public class ArtifactProducer extends Thread {
 
   private ProcessTrace globalSharedProcessTrace = null;
 
+  // Number of threads reading from a SplittableCollectionReader
+  private int readerThreadCount = 1;
+
+  // Progress of each split, when reading a SplittableCollectionReader in parallel
+  private volatile Progress[][] splitProgress = null;
+
   /**
    * Instantiates and initializes this instance.
    * 
@@ -203,6 +218,17 @@ public class ArtifactProducer extends Thread {
     }
   }
 
+  /**
+   * Assigns the number of threads reading from the CollectionReader. More than one thread is only
+   * used if the CollectionReader is a {@link SplittableCollectionReader}.
+   * 
+   * @param aReaderThreadCount -
+   *          number of reader threads
+   */
+  public void setReaderThreadCount(int aReaderThreadCount) {
+    readerThreadCount = aReaderThreadCount;
+  }
+
   /**
    * Assigns a queue where the artifacts produced by this component will be deposited
    * 
@@ -553,13 +579,13 @@ public class ArtifactProducer extends Thread {
         try {
           if (((CASImpl) casList[0]).isBackwardCompatibleCas()) {
             CAS view = casList[0].getView(CAS.NAME_DEFAULT_SOFA);
-            lastDocId[0] = ConsumerCasUtils.getStringFeatValue(view, Constants.METADATA_KEY,
-                    Constants.DOC_ID);
+            lastDocId = new String[] { ConsumerCasUtils.getStringFeatValue(view,
+                    Constants.METADATA_KEY, Constants.DOC_ID) };
           } else {
-            lastDocId[0] = "";
+            lastDocId = new String[] { "" };
           }
         } catch (Exception e) {
-          lastDocId[0] = "";
+          lastDocId = new String[] { "" };
         }
       }
     } else {
@@ -656,6 +682,12 @@ public class ArtifactProducer extends Thread {
       return;
     }
     isRunning = true;
+    if (readerThreadCount > 1 && collectionReader instanceof SplittableCollectionReader) {
+      readSplits();
+      placeEOFToken();
+      isRunning = false;
+      return;
+    }
     ProcessTrace localTrace = new ProcessTrace_impl(cpm.getPerformanceTuningSettings());
     while (cpm.isRunning()) {
 
@@ -872,6 +904,294 @@ public class ArtifactProducer extends Thread {
     Thread.currentThread().interrupt();
   }
 
+  /**
+   * Reads the splits of a SplittableCollectionReader, each in its own thread, and returns when all
+   * the splits have been read, the configured number of entities has been read, or the CPM stops.
+   */
+  private void readSplits() {
+    CollectionReaderSplit[] splits;
+    try {
+      splits = ((SplittableCollectionReader) collectionReader).getSplits(readerThreadCount);
+    } catch (Exception e) {
+      UIMAFramework.getLogger(this.getClass()).logrb(Level.WARNING, this.getClass().getName(),
+              "process", CPMUtils.CPM_LOG_RESOURCE_BUNDLE, "UIMA_CPM_exception__WARNING",
+              new Object[] { Thread.currentThread().getName(), e.getMessage() });
+      UIMAFramework.getLogger(this.getClass()).log(Level.WARNING, e.getMessage(), e);
+      notifyListeners(null, e);
+      return;
+    }
+    if (splits == null) {
+      return;
+    }
+    if (UIMAFramework.getLogger().isLoggable(Level.CONFIG)) {
+      UIMAFramework.getLogger(this.getClass()).logrb(Level.CONFIG, this.getClass().getName(),
+              "process", CPMUtils.CPM_LOG_RESOURCE_BUNDLE, "UIMA_CPM_reading_splits__CONFIG",
+              new Object[] { Thread.currentThread().getName(), String.valueOf(splits.length) });
+    }
+    splitProgress = new Progress[splits.length][];
+    Thread[] readers = new Thread[splits.length];
+    for (int i = 0; i < splits.length; i++) {
+      readers[i] = new SplitReader(splits[i], i);
+      readers[i].start();
+    }
+    threadState = 1011; // Waiting for the split readers
+    for (int i = 0; i < readers.length; i++) {
+      try {
+        readers[i].join();
+      } catch (InterruptedException e) {
+        i--; // keep waiting, the readers terminate when the CPM stops
+      }
+    }
+    for (int i = 0; i < splits.length; i++) {
+      try {
+        splits[i].close();
+      } catch (IOException e) {
+        UIMAFramework.getLogger(this.getClass()).log(Level.WARNING, e.getMessage(), e);
+      }
+    }
+    threadState = 1010; // End of processing
+  }
+
+  /**
+   * Returns the progress of the collection, added up unit by unit over all the splits, when the
+   * CollectionReader is being read in parallel.
+   * 
+   * @return the progress of the collection, or null if the CollectionReader is not read in splits
+   */
+  public Progress[] getSplitProgress() {
+    Progress[][] progressOfSplits = splitProgress;
+    if (progressOfSplits == null) {
+      return null;
+    }
+    List<String> units = new ArrayList<String>();
+    List<long[]> totals = new ArrayList<long[]>();
+    synchronized (progressOfSplits) {
+      for (int i = 0; i < progressOfSplits.length; i++) {
+        for (int j = 0; progressOfSplits[i] != null && j < progressOfSplits[i].length; j++) {
+          Progress p = progressOfSplits[i][j];
+          int index = units.indexOf(p.getUnit());
+          if (index == -1) {
+            units.add(p.getUnit());
+            totals.add(new long[] { 0, 0, 0 });
+            index = units.size() - 1;
+          }
+          long[] total = totals.get(index);
+          total[0] += p.getCompleted();
+          // the total is unknown if it is unknown for any split
+          total[1] = (total[1] == -1 || p.getTotal() == -1) ? -1 : total[1] + p.getTotal();
+          if (p.isApproximate()) {
+            total[2] = 1;
+          }
+        }
+      }
+    }
+    Progress[] progress = new Progress[units.size()];
+    for (int i = 0; i < progress.length; i++) {
+      long[] total = totals.get(i);
+      progress[i] = new ProgressImpl((int) total[0], (int) total[1], units.get(i),
+              total[2] == 1);
+    }
+    return progress;
+  }
+
+  /**
+   * Reserves one of the entities to process for a split reader.
+   * 
+   * @return false if the configured number of entities has already been read
+   */
+  private synchronized boolean reserveEntity() {
+    if (maxToProcess != -1 && entityCount >= maxToProcess) {
+      return false;
+    }
+    entityCount++;
+    return true;
+  }
+
+  /**
+   * Gives back an entity reserved with {@link #reserveEntity()} which was not placed in the work
+   * queue.
+   */
+  private synchronized void releaseEntity() {
+    entityCount--;
+  }
+
+  /**
+   * Records the progress of a split and the time spent reading it in the stat table.
+   */
+  private void updateSplitStats(CollectionReaderSplit aSplit, int aSplitIndex, long aFetchTime) {
+    Progress[] progress = aSplit.getProgress();
+    synchronized (splitProgress) {
+      splitProgress[aSplitIndex] = progress;
+    }
+    synchronized (this) {
+      totalFetchTime += aFetchTime;
+      // the stat table is not synchronized, and is updated by all the split readers
+      if (cpmStatTable != null) {
+        cpmStatTable.put("COLLECTION_READER_PROGRESS", getSplitProgress());
+        cpmStatTable.put("COLLECTION_READER_TIME", Long.valueOf(totalFetchTime));
+      }
+    }
+  }
+
+  /**
+   * Waits while the CPM is paused.
+   * 
+   * @return false if the CPM was stopped while paused
+   */
+  private boolean waitWhilePaused() {
+    synchronized (cpm.lockForPause) {
+      if (cpm.isPaused()) {
+        if (UIMAFramework.getLogger().isLoggable(Level.FINEST)) {
+          UIMAFramework.getLogger(this.getClass()).logrb(Level.FINEST, this.getClass().getName(),
+                  "process", CPMUtils.CPM_LOG_RESOURCE_BUNDLE, "UIMA_CPM_pausing_cr__FINEST",
+                  new Object[] { Thread.currentThread().getName() });
+        }
+        try {
+          // Wait until resumed
+          cpm.lockForPause.wait();
+        } catch (InterruptedException e) {
+        }
+        return cpm.isRunning();
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Determines if the CollectionReader must be given the default view, because neither it nor its
+   * CAS Initializer declare any output SofAs.
+   */
+  private boolean isSofaUnaware() {
+    Capability[] capabilities;
+    CasInitializer casIni = ((CollectionReader) collectionReader).getCasInitializer();
+    if (casIni != null)
+      capabilities = casIni.getProcessingResourceMetaData().getCapabilities();
+    else
+      capabilities = ((CollectionReader) collectionReader).getProcessingResourceMetaData()
+              .getCapabilities();
+    for (int j = 0; j < capabilities.length; j++) {
+      if (capabilities[j].getOutputSofas().length > 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Thread reading one split of a SplittableCollectionReader. Each CAS read is placed in the work
+   * queue on its own.
+   */
+  private class SplitReader extends Thread {
+    private final CollectionReaderSplit split;
+
+    private final int splitIndex;
+
+    private SplitReader(CollectionReaderSplit aSplit, int aSplitIndex) {
+      super(ArtifactProducer.this.getThreadGroup(), ArtifactProducer.this.getName() + "[split "
+              + aSplitIndex + "]");
+      split = aSplit;
+      splitIndex = aSplitIndex;
+    }
+
+    public void run() {
+      String readerName = collectionReader.getProcessingResourceMetaData().getName();
+      UimaContextAdmin context = ((CollectionReader) collectionReader).getUimaContextAdmin();
+      boolean sofaUnaware = isSofaUnaware();
+      ProcessTrace localTrace = new ProcessTrace_impl(cpm.getPerformanceTuningSettings());
+      while (cpm.isRunning() && waitWhilePaused()) {
+        CAS cas = null;
+        boolean reserved = false;
+        boolean eventStarted = false;
+        long start = (timer != null) ? timer.getTimeInMillis() : 0;
+        try {
+          localTrace.startEvent(readerName, "Process", "");
+          eventStarted = true;
+          if (!split.hasNext() || !reserveEntity()) {
+            localTrace.endEvent(readerName, "Process", "success");
+            break;
+          }
+          reserved = true;
+          // Get the cas from the pool.
+          while (cpm.isRunning() && (cas = casPool.getCas(0)) == null)
+            ; // intentionally empty while loop
+          if (cas == null) {
+            // CPM is in shutdown stage
+            localTrace.endEvent(readerName, "Process", "success");
+            releaseEntity();
+            break;
+          }
+          cas.reset();
+          cas.setCurrentComponentInfo(context.getComponentInfo());
+          try {
+            if (sofaUnaware) {
+              String absSofaName = context.getComponentInfo().mapToSofaID(CAS.NAME_DEFAULT_SOFA);
+              if (!CAS.NAME_DEFAULT_SOFA.equals(absSofaName)) {
+                cas.createView(CAS.NAME_DEFAULT_SOFA);
+              }
+              split.getNext(cas.getView(CAS.NAME_DEFAULT_SOFA));
+            } else {
+              split.getNext(((CASImpl) cas).getBaseCAS());
+            }
+          } finally {
+            cas.setCurrentComponentInfo(null);
+          }
+          localTrace.endEvent(readerName, "Process", "success");
+          eventStarted = false;
+
+          ChunkMetadata meta = CPMUtils.getChunkMetadata(cas);
+          if (meta != null && timedoutDocs.containsKey(meta.getDocId())) {
+            notifyListeners(cas, new ResourceProcessException(new SkipCasException(
+                    "Dropping CAS due chunk Timeout. Doc Id::" + meta.getDocId() + " Sequence:"
+                            + meta.getSequence())));
+            casPool.releaseCas(cas);
+            releaseEntity();
+            continue;
+          }
+          try {
+            if (((CASImpl) cas).isBackwardCompatibleCas()) {
+              lastDocId = new String[] { ConsumerCasUtils.getStringFeatValue(
+                      cas.getView(CAS.NAME_DEFAULT_SOFA), Constants.METADATA_KEY, Constants.DOC_ID) };
+            }
+          } catch (Exception e) {
+            lastDocId = new String[] { "" };
+          }
+          // Prevent processing of new CASes if the CPM has been killed hard
+          if (cpm.isRunning() == false && cpm.isHardKilled() == true) {
+            casPool.releaseCas(cas);
+            releaseEntity();
+            break;
+          }
+          workQueue.enqueue(new CAS[] { cas });
+        } catch (Exception e) {
+          if (eventStarted) {
+            localTrace.endEvent(readerName, "Process", "failure");
+          }
+          if (UIMAFramework.getLogger().isLoggable(Level.WARNING)) {
+            UIMAFramework.getLogger(this.getClass()).logrb(Level.WARNING,
+                    this.getClass().getName(), "process", CPMUtils.CPM_LOG_RESOURCE_BUNDLE,
+                    "UIMA_CPM_exception__WARNING",
+                    new Object[] { Thread.currentThread().getName(), e.getMessage() });
+            UIMAFramework.getLogger(this.getClass()).log(Level.WARNING, e.getMessage(), e);
+          }
+          notifyListeners(cas, e);
+          if (cas != null) {
+            casPool.releaseCas(cas);
+          }
+          if (reserved) {
+            releaseEntity();
+          }
+        } finally {
+          synchronized (globalSharedProcessTrace) {
+            globalSharedProcessTrace.aggregate(localTrace);
+          }
+          localTrace.clear();
+          updateSplitStats(split, splitIndex, (timer != null) ? timer.getTimeInMillis() - start
+                  : 0);
+        }
+      }
+    }
+  }
+
   /**
    * Notify registered callback listeners of a given exception.
    * 
@@ -936,8 +1256,9 @@ public class ArtifactProducer extends Thread {
   }
 
   public String getLastDocId() {
-    if (lastDocId != null && lastDocId.length > 0) {
-      return lastDocId[0];
+    String[] docId = lastDocId;
+    if (docId != null && docId.length > 0) {
+      return docId[0];
     } else {
       return "N/A";
     }
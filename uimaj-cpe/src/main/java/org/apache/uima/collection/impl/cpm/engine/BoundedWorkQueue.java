@@ -287,6 +287,26 @@ public class BoundedWorkQueue {
     return resource;
   }
 
+  /**
+   * Removes the objects available at the front of the queue, up to the length of the buffer,
+   * without waiting. The CPM itself still dequeues one object at a time: CPMEngine stops the
+   * CAS processors once its queues are empty, so objects held in a caller's buffer would be
+   * lost.
+   * 
+   * @param aBuffer -
+   *          where to put the objects, in FIFO order
+   * 
+   * @return - the number of objects removed
+   */
+  public synchronized int drainTo(Object[] aBuffer) {
+    int n = 0;
+    Object anObject;
+    while (n < aBuffer.length && (anObject = dequeue()) != null) {
+      aBuffer[n++] = anObject;
+    }
+    return n;
+  }
+
   public void invalidate(CAS[] aCasObjectList) {
   }
 }
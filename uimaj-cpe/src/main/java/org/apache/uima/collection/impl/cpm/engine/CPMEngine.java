@@ -42,6 +42,7 @@ import org.apache.uima.collection.CasConsumer;
 import org.apache.uima.collection.CasInitializer;
 import org.apache.uima.collection.CollectionReader;
 import org.apache.uima.collection.EntityProcessStatus;
+import org.apache.uima.collection.ResultStore;
 import org.apache.uima.collection.StatusCallbackListener;
 import org.apache.uima.collection.base_cpm.AbortCPMException;
 import org.apache.uima.collection.base_cpm.BaseCollectionReader;
@@ -107,6 +108,14 @@ public class CPMEngine extends Thread {
 
   private static final String SINGLE_THREADED_MODE = "single-threaded";
 
+  /**
+   * System property naming the class of the work queue, and of the output queue unless the CPE
+   * descriptor names one. The class must extend {@link BoundedWorkQueue} and have its constructor
+   * arguments. {@link RingBufferWorkQueue} by default; {@link WorkStealingWorkQueue} gives each
+   * processing pipeline a deque of its own.
+   */
+  public static final String WORK_QUEUE_IMPL_PROPERTY = "WORK_QUEUE_IMPL";
+
   public CPECasPool casPool;
 
   // Used internally for synchronization
@@ -177,6 +186,24 @@ public class CPMEngine extends Thread {
   // Number of concurrent processing units (pipelines)
   private int concurrentThreadCount = 1;
 
+  // Minimum number of processing units when their number is adjusted while running, 0 when the
+  // number is fixed
+  private int minConcurrentThreadCount = 0;
+
+  // Adjusts the number of processing units between minConcurrentThreadCount and
+  // concurrentThreadCount
+  private ProcessingUnitScaler processingUnitScaler = null;
+
+  // Store of the results of earlier analyses, null when results are not cached
+  private ResultStore resultStore = null;
+
+  private ResultCache resultCache = null;
+
+  // Entities processed and busy time of processing units which have been retired and replaced
+  private long retiredPUEntityCount = 0;
+
+  private long retiredPUBusyTime = 0;
+
   private Hashtable analysisEngines = new Hashtable();
 
   private Hashtable consumers = new Hashtable();
@@ -418,6 +445,36 @@ public class CPMEngine extends Thread {
     concurrentThreadCount = aConcurrentThreadSize;
   }
 
+  /**
+   * Defines the minimum number of threads executing the processing pipeline concurrently. When
+   * this is smaller than the number defined with {@link #setConcurrentThreadSize(int)}, the CPE
+   * starts with this number of pipelines and adjusts it while running. See
+   * {@link ProcessingUnitScaler}.
+   * 
+   * @param aMinConcurrentThreadSize
+   *          the minimum number of pipelines, 0 to keep the number of pipelines fixed
+   */
+  public void setMinConcurrentThreadSize(int aMinConcurrentThreadSize) {
+    minConcurrentThreadCount = aMinConcurrentThreadSize;
+  }
+
+  /**
+   * Defines the store holding the results of earlier analyses. The results of documents found in
+   * it are restored instead of analyzed. See {@link ResultCache}.
+   * 
+   * @param aName
+   *          <code>memory</code>, <code>file:</code> followed by a directory, or the name of a
+   *          class implementing {@link ResultStore}; null to analyze all the documents
+   * @param aSize
+   *          maximum number of results kept in a <code>memory</code> store, 0 for the default
+   * 
+   * @throws ResourceConfigurationException -
+   *           if there is no such store
+   */
+  public void setResultCache(String aName, int aSize) throws ResourceConfigurationException {
+    resultStore = (aName == null) ? null : ResultCache.createStore(aName, aSize);
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -483,7 +540,8 @@ public class CPMEngine extends Thread {
                   CPMUtils.CPM_LOG_RESOURCE_BUNDLE,
                   "UIMA_CPM_show_pu_state__INFO",
                   new Object[] { Thread.currentThread().getName(), String.valueOf(i),
-                      String.valueOf(processingUnits[i].threadState) });
+                      String.valueOf(processingUnits[i] == null ? -1
+                              : processingUnits[i].threadState) });
         }
         if (casConsumerPU != null) {
           UIMAFramework.getLogger(this.getClass()).logrb(
@@ -515,7 +573,8 @@ public class CPMEngine extends Thread {
                   CPMUtils.CPM_LOG_RESOURCE_BUNDLE,
                   "UIMA_CPM_show_pu_state__INFO",
                   new Object[] { Thread.currentThread().getName(), String.valueOf(i),
-                      String.valueOf(processingUnits[i].threadState) });
+                      String.valueOf(processingUnits[i] == null ? -1
+                              : processingUnits[i].threadState) });
         }
         if (casConsumerPU != null) {
           UIMAFramework.getLogger(this.getClass()).logrb(
@@ -699,7 +758,9 @@ public void asynchStop() {
                       "UIMA_CPM_stop_processors__FINEST",
                       new Object[] { Thread.currentThread().getName(), String.valueOf(i) });
             }
-            processingUnits[i].stopCasProcessors(false);
+            if (processingUnits[i] != null) {
+              processingUnits[i].stopCasProcessors(false);
+            }
           }
         } catch (Exception e) {
 
@@ -1657,6 +1718,199 @@ public void asynchStop() {
     return pu;
   }
 
+  /**
+   * Creates and configures the Processing Pipeline for a given slot of the processingUnits array.
+   * The pipeline is not started.
+   * 
+   * @param aSlot -
+   *          index of the pipeline
+   * 
+   * @return - the Processing Pipeline
+   * 
+   * @throws Exception -
+   */
+  private ProcessingUnit createProcessingUnit(int aSlot) throws Exception {
+    ProcessingUnit pu;
+    // Plug in custom ProcessingUnit via -DPROCESSING_PIPELINE_IMPL=class
+    // Initialize Processing Pipeline with input and output queues
+    if (System.getProperty("PROCESSING_PIPELINE_IMPL") != null) {
+      String puClass = System.getProperty("PROCESSING_PIPELINE_IMPL");
+      pu = producePU(puClass);
+      pu.setInputQueue(workQueue);
+      pu.setOutputQueue(outputQueue);
+      pu.setCPMEngine(this);
+    } else {
+      pu = new ProcessingUnit(this, workQueue, outputQueue);
+    }
+    // If there are no consumers in the pipeline, instruct the pipeline to release a CAS at the
+    // end of processing
+    if (consumerList == null || consumerList.size() == 0) {
+      pu.setReleaseCASFlag(true);
+    }
+
+    if (UIMAFramework.getLogger().isLoggable(Level.FINEST)) {
+      UIMAFramework.getLogger(this.getClass()).logrb(
+              Level.FINEST,
+              this.getClass().getName(),
+              "initialize",
+              CPMUtils.CPM_LOG_RESOURCE_BUNDLE,
+              "UIMA_CPM_pipeline_impl_class__FINEST",
+              new Object[] { Thread.currentThread().getName(),
+                  pu.getClass().getName() });
+    }
+    // Add tracing instance so that performance and stats are globally aggregated for all
+    // processing pipelines
+    pu.setProcessingUnitProcessTrace(procTr);
+    // Add all annotators to the processing pipeline
+    pu.setContainers(annotatorList);
+    pu.setResultCache(resultCache);
+    // pass initialized list of cases to processing units in case cas conversion is required
+    // between
+    // CasData and CASObject based annotators.
+    pu.setCasPool(casPool);
+    try {
+      pu.setUimaTimer(getTimer());
+    } catch (Exception e) {
+      pu.setUimaTimer(new JavaTimer());
+    }
+    // Add Callback Listeners
+    for (int j = 0; j < statusCbL.size(); j++) {
+      BaseStatusCallbackListener statCL = (BaseStatusCallbackListener) statusCbL.get(j);
+      if (statCL != null)
+        pu.addStatusCallbackListener(statCL);
+    }
+
+    // Name the Processing Unit thread
+    pu.setName("[Procesing Pipeline#" + (aSlot + 1) + " Thread]::");
+
+    return pu;
+  }
+
+  /**
+   * Starts one more Processing Pipeline, if fewer than the configured number of pipelines are
+   * running. Called by the {@link ProcessingUnitScaler}.
+   * 
+   * @return - true if a pipeline was started
+   */
+  public synchronized boolean addProcessingUnit() {
+    // Once the Collection Reader is done, the pipelines are shutting down
+    if (!isRunning || activeProcessingUnits <= 0 || producer == null || !producer.isRunning()
+            || processingUnits == null) {
+      return false;
+    }
+    for (int i = 0; i < processingUnits.length; i++) {
+      ProcessingUnit slot = processingUnits[i];
+      if (slot == null || (slot.isRetired() && !slot.isAlive())) {
+        ProcessingUnit pu;
+        try {
+          pu = createProcessingUnit(i);
+        } catch (Exception e) {
+          UIMAFramework.getLogger(this.getClass()).log(Level.SEVERE, e.getMessage(), e);
+          return false;
+        }
+        if (slot != null) {
+          retiredPUEntityCount += slot.getProcessedEntityCount();
+          retiredPUBusyTime += slot.getBusyTime();
+          slot.cleanup();
+        }
+        pu.setRetirable();
+        processingUnits[i] = pu;
+        activeProcessingUnits++;
+        pu.start();
+        processingThreadsState[i] = 1; // Started
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Retires the last running Processing Pipeline, if more than the minimum number of pipelines are
+   * running. Called by the {@link ProcessingUnitScaler}.
+   * 
+   * @return - true if a pipeline was retired
+   */
+  public synchronized boolean retireProcessingUnit() {
+    int last = -1;
+    if (processingUnits == null
+            || getActiveProcessingUnitCount() <= Math.max(1, minConcurrentThreadCount)) {
+      return false;
+    }
+    for (int i = 0; i < processingUnits.length; i++) {
+      if (processingUnits[i] != null && processingUnits[i].isAlive()
+              && !processingUnits[i].isRetired()) {
+        last = i;
+      }
+    }
+    if (last == -1) {
+      return false;
+    }
+    processingUnits[last].retire();
+    return true;
+  }
+
+  /**
+   * Returns number of Processing Pipelines which are running and have not been retired.
+   * 
+   * @return - number of running pipelines
+   */
+  public synchronized int getActiveProcessingUnitCount() {
+    int count = 0;
+    for (int i = 0; processingUnits != null && i < processingUnits.length; i++) {
+      if (processingUnits[i] != null && processingUnits[i].isAlive()
+              && !processingUnits[i].isRetired()) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Returns number of entities processed by all Processing Pipelines, including the retired ones.
+   * 
+   * @return - number of entities
+   */
+  public synchronized long getProcessingUnitEntityCount() {
+    long count = retiredPUEntityCount;
+    for (int i = 0; processingUnits != null && i < processingUnits.length; i++) {
+      if (processingUnits[i] != null) {
+        count += processingUnits[i].getProcessedEntityCount();
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Returns time all Processing Pipelines, including the retired ones, have spent processing.
+   * 
+   * @return - busy time in nanoseconds
+   */
+  public synchronized long getProcessingUnitBusyTime() {
+    long time = retiredPUBusyTime;
+    for (int i = 0; processingUnits != null && i < processingUnits.length; i++) {
+      if (processingUnits[i] != null) {
+        time += processingUnits[i].getBusyTime();
+      }
+    }
+    return time;
+  }
+
+  /**
+   * Records the number of running Processing Pipelines, and the reason of the last adjustment, in
+   * the CPE stats.
+   * 
+   * @param aReason -
+   *          reason of the last adjustment, null if the number of pipelines was not adjusted yet
+   */
+  synchronized void updateProcessingUnitStats(String aReason) {
+    if (stats != null) {
+      stats.put("PROCESSING_UNIT_COUNT", Integer.valueOf(getActiveProcessingUnitCount()));
+      if (aReason != null) {
+        stats.put("PROCESSING_UNIT_SCALING", aReason);
+      }
+    }
+  }
+
   private void startDebugControlThread() {
     String dbgCtrlFile = System.getProperty("DEBUG_CONTROL");
     dbgCtrlThread = new DebugControlThread(this, dbgCtrlFile, 1000);
@@ -1686,11 +1940,35 @@ public void asynchStop() {
       }
     } else {
       // default queue
-      outputQueue = new BoundedWorkQueue(aQueueSize, "Output Queue", this);
+      outputQueue = createWorkQueue(aQueueSize, "Output Queue");
     }
     return outputQueue;
   }
 
+  /**
+   * Instantiate a queue of the class given by the {@link #WORK_QUEUE_IMPL_PROPERTY} system
+   * property, a {@link RingBufferWorkQueue} by default
+   * 
+   * @param aQueueSize -
+   *          max size of the queue
+   * @param aQueueName -
+   *          name of the queue
+   * @return - new instance of the queue
+   * 
+   * @throws Exception -
+   */
+  private BoundedWorkQueue createWorkQueue(int aQueueSize, String aQueueName) throws Exception {
+    String queueClass = System.getProperty(WORK_QUEUE_IMPL_PROPERTY);
+    if (queueClass == null) {
+      return new RingBufferWorkQueue(aQueueSize, aQueueName, this);
+    }
+    Class<? extends BoundedWorkQueue> cls = Class.forName(queueClass).asSubclass(
+            BoundedWorkQueue.class);
+    Constructor<? extends BoundedWorkQueue> constructor = cls.getConstructor(int.class,
+            String.class, CPMEngine.class);
+    return constructor.newInstance(Integer.valueOf(aQueueSize), aQueueName, this);
+  }
+
   /**
    * Notify listeners of a given exception
    * 
@@ -1915,7 +2193,7 @@ public void asynchStop() {
       // Instantiate work queue. This queue is shared among all processing units.
       // The Producer thread fills this queue with CAS'es and processing units
       // retrieve these Cas'es for analysis.
-      workQueue = new BoundedWorkQueue(poolSize, "Input Queue", this);
+      workQueue = createWorkQueue(poolSize, "Input Queue");
 
       // Instantiate output queue. The Cas'es containing result of analysis are deposited to
       // this queue, and the CasConsumer Processing Unit retrieves them.
@@ -1942,6 +2220,7 @@ public void asynchStop() {
       // indicate how many entities to process
       producer.setNumEntitiesToProcess(numToProcess);
       producer.setCollectionReader(collectionReader);
+      producer.setReaderThreadCount(cpeFactory.getReaderThreadCount());
       producer.setWorkQueue(workQueue);
       // producer.setOutputQueue(outputQueue);
 
@@ -2052,10 +2331,31 @@ public void asynchStop() {
         }
       }
 
-      // Setup Processing Pipelines
+      // Setup Processing Pipelines. When their number is adjusted while running, only the
+      // minimum number is started here.
+      if (minConcurrentThreadCount >= concurrentThreadCount) {
+        minConcurrentThreadCount = 0;
+      }
+      int startThreadCount = (minConcurrentThreadCount > 0) ? minConcurrentThreadCount
+              : concurrentThreadCount;
       processingUnits = new ProcessingUnit[concurrentThreadCount];
+      if (resultStore != null) {
+        // Results of other CasProcessors, or of differently configured ones, are not reused
+        List<ProcessingContainer> analysisContainers = new ArrayList<ProcessingContainer>();
+        for (int i = 0; i < annotatorList.size(); i++) {
+          analysisContainers.add((ProcessingContainer) annotatorList.get(i));
+        }
+        resultCache = new ResultCache(resultStore, ResultCache.fingerprint(analysisContainers));
+        if (UIMAFramework.getLogger().isLoggable(Level.CONFIG)) {
+          UIMAFramework.getLogger(this.getClass()).logrb(Level.CONFIG, this.getClass().getName(),
+                  "initialize", CPMUtils.CPM_LOG_RESOURCE_BUNDLE,
+                  "UIMA_CPM_result_cache__CONFIG",
+                  new Object[] { Thread.currentThread().getName(),
+                      resultStore.getClass().getName(), resultCache.getFingerprint() });
+        }
+      }
       synchronized (this) {
-        activeProcessingUnits = concurrentThreadCount; // keeps track of how many threads are still
+        activeProcessingUnits = startThreadCount; // keeps track of how many threads are still
         // active. -Adam
       }
 
@@ -2066,7 +2366,7 @@ public void asynchStop() {
       }
 
       // Configure Processing Pipelines, and start each running in a seperate thread
-      for (int i = 0; i < concurrentThreadCount; i++) {
+      for (int i = 0; i < startThreadCount; i++) {
         // casList = new CAS[readerFetchSize];
         if (UIMAFramework.getLogger().isLoggable(Level.FINEST)) {
           UIMAFramework.getLogger(this.getClass()).logrb(Level.FINEST, this.getClass().getName(),
@@ -2074,69 +2374,30 @@ public void asynchStop() {
                   "UIMA_CPM_initialize_pipeline__FINEST",
                   new Object[] { Thread.currentThread().getName(), String.valueOf(i) });
         }
-        // Plug in custom ProcessingUnit via -DPROCESSING_PIPELINE_IMPL=class
-        // Initialize Processing Pipeline with input and output queues
-        if (System.getProperty("PROCESSING_PIPELINE_IMPL") != null) {
-          String puClass = System.getProperty("PROCESSING_PIPELINE_IMPL");
-          try {
-            processingUnits[i] = producePU(puClass);
-            processingUnits[i].setInputQueue(workQueue);
-            processingUnits[i].setOutputQueue(outputQueue);
-            processingUnits[i].setCPMEngine(this);
-          } catch (Exception e) {
-            UIMAFramework.getLogger(this.getClass()).log(Level.SEVERE, e.getMessage(), e);
-            if (dbgCtrlThread != null) {
-              dbgCtrlThread.stop();
-            }
-            return; // / DONE HERE !!!
-          }
-        } else {
-          processingUnits[i] = new ProcessingUnit(this, workQueue, outputQueue);
-        }
-        // If there are no consumers in the pipeline, instruct the pipeline to release a CAS at the
-        // end of processing
-        if (consumerList == null || consumerList.size() == 0) {
-          processingUnits[i].setReleaseCASFlag(true);
-        }
-
-        if (UIMAFramework.getLogger().isLoggable(Level.FINEST)) {
-          UIMAFramework.getLogger(this.getClass()).logrb(
-                  Level.FINEST,
-                  this.getClass().getName(),
-                  "initialize",
-                  CPMUtils.CPM_LOG_RESOURCE_BUNDLE,
-                  "UIMA_CPM_pipeline_impl_class__FINEST",
-                  new Object[] { Thread.currentThread().getName(),
-                      processingUnits[i].getClass().getName() });
-        }
-        // Add tracing instance so that performance and stats are globally aggregated for all
-        // processing pipelines
-        processingUnits[i].setProcessingUnitProcessTrace(procTr);
-        // Add all annotators to the processing pipeline
-        processingUnits[i].setContainers(annotatorList);
-        // pass initialized list of cases to processing units in case cas conversion is required
-        // between
-        // CasData and CASObject based annotators.
-        processingUnits[i].setCasPool(casPool);
         try {
-          processingUnits[i].setUimaTimer(getTimer());
+          processingUnits[i] = createProcessingUnit(i);
         } catch (Exception e) {
-          processingUnits[i].setUimaTimer(new JavaTimer());
+          UIMAFramework.getLogger(this.getClass()).log(Level.SEVERE, e.getMessage(), e);
+          if (dbgCtrlThread != null) {
+            dbgCtrlThread.stop();
+          }
+          return; // / DONE HERE !!!
         }
-        // Add Callback Listeners
-        for (int j = 0; j < statusCbL.size(); j++) {
-          BaseStatusCallbackListener statCL = (BaseStatusCallbackListener) statusCbL.get(j);
-          if (statCL != null)
-            processingUnits[i].addStatusCallbackListener(statCL);
+        if (minConcurrentThreadCount > 0) {
+          processingUnits[i].setRetirable();
         }
 
-        // Start the Processing Unit thread
-        processingUnits[i].setName("[Procesing Pipeline#" + (i + 1) + " Thread]::");
-
         // Start the Processing Pipeline
         processingUnits[i].start();
         processingThreadsState[i] = 1; // Started
       }
+      if (minConcurrentThreadCount > 0) {
+        // Adjust the number of pipelines between minConcurrentThreadCount and concurrentThreadCount
+        processingUnitScaler = new ProcessingUnitScaler(this, workQueue, outputQueue,
+                minConcurrentThreadCount, concurrentThreadCount);
+        updateProcessingUnitStats(null);
+        processingUnitScaler.start();
+      }
 
       producer.setProcessTrace(procTr);
       // Start the ArtifactProducer thread and the Collection Reader embedded therein. The
@@ -2177,8 +2438,16 @@ public void asynchStop() {
                 new Object[] { Thread.currentThread().getName() });
       }
 
+      // No more pipelines are added or retired
+      if (processingUnitScaler != null) {
+        processingUnitScaler.stopScaling();
+      }
+
       // Join each of the Processing Threads and wait for them to finish
       for (int i = 0; i < concurrentThreadCount; i++) {
+        if (processingUnits[i] == null) {
+          continue; // never started
+        }
         if (UIMAFramework.getLogger().isLoggable(Level.FINEST)) {
           UIMAFramework.getLogger(this.getClass()).logrb(
                   Level.FINEST,
@@ -2202,6 +2471,15 @@ public void asynchStop() {
         }
       }
 
+      // All the results are stored
+      if (resultCache != null) {
+        resultCache.close();
+        if (stats != null) {
+          stats.put("RESULT_CACHE_HITS", Long.valueOf(resultCache.getHits()));
+          stats.put("RESULT_CACHE_MISSES", Long.valueOf(resultCache.getMisses()));
+        }
+      }
+
       // Join the Consumer Thread and wait for it to finish
       if (casConsumerPU != null) {
 
@@ -2321,6 +2599,9 @@ public void asynchStop() {
 
       // Terminate Annotators and cleanup resources
       for (int i = 0; i < processingUnits.length; i++) {
+        if (processingUnits[i] == null) {
+          continue;
+        }
         if (UIMAFramework.getLogger().isLoggable(Level.FINEST)) {
           UIMAFramework.getLogger(this.getClass()).logrb(Level.FINEST, this.getClass().getName(),
                   "process", CPMUtils.CPM_LOG_RESOURCE_BUNDLE, "UIMA_CPM_stop_processors__FINEST",
@@ -2410,7 +2691,7 @@ public void asynchStop() {
 
           // Cleanup Processing Threads
           for (int i = 0; processingUnits != null && i < concurrentThreadCount; i++) {
-            if (UIMAFramework.getLogger().isLoggable(Level.FINEST)) {
+            if (processingUnits[i] != null && UIMAFramework.getLogger().isLoggable(Level.FINEST)) {
               UIMAFramework.getLogger(this.getClass()).logrb(
                       Level.FINEST,
                       this.getClass().getName(),
@@ -2630,7 +2911,9 @@ public void asynchStop() {
     try {
       if (processingUnits != null) {
         for (int i = 0; i < this.processingUnits.length; i++) {
-          this.processingUnits[i].cleanup();
+          if (this.processingUnits[i] != null) {
+            this.processingUnits[i].cleanup();
+          }
         }
       }
 
@@ -2909,6 +3192,13 @@ public void asynchStop() {
     if (collectionReader == null) {
       return null;
     }
+    // When the Collection Reader is read in splits, its progress is the sum of theirs
+    ArtifactProducer artifactProducer = producer;
+    Progress[] splitProgress = (artifactProducer == null) ? null : artifactProducer
+            .getSplitProgress();
+    if (splitProgress != null) {
+      return splitProgress;
+    }
     return collectionReader.getProgress();
   }
 
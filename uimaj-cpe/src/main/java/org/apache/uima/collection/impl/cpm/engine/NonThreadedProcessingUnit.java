@@ -39,6 +39,7 @@ import org.apache.uima.collection.base_cpm.CasObjectProcessor;
 import org.apache.uima.collection.base_cpm.CasProcessor;
 import org.apache.uima.collection.base_cpm.SkipCasException;
 import org.apache.uima.collection.impl.CasConverter;
+import org.apache.uima.collection.impl.CasDataView;
 import org.apache.uima.collection.impl.EntityProcessStatusImpl;
 import org.apache.uima.collection.impl.base_cpm.container.ProcessingContainer;
 import org.apache.uima.collection.impl.base_cpm.container.ServiceConnectionException;
@@ -1032,6 +1033,13 @@ public class NonThreadedProcessingUnit {
    */
   private void convertCasDataToCasObject(int casIndex, String aContainerName,
           Object[] aCasObjectList) throws Exception {
+    if (casCache != null && casIndex < casCache.length
+            && CasDataView.writeBack(aCasObjectList[casIndex], casCache[casIndex], true)) {
+      // The CasData is a view of the cached CAS, which now holds its content
+      casList[casIndex] = casCache[casIndex];
+      casCache[casIndex] = null;
+      return;
+    }
     // The following may be true if the CollectionReader is CasData based and this is the first
     // CasObject based annotator in the chain.
     if (casCache == null || casCache[casIndex] == null) {
@@ -1101,17 +1109,27 @@ public class NonThreadedProcessingUnit {
     if (isCasObject == true) {
       CasData[] casDataObjects = new CasData[aCasObjectList.length];
       for (int casIndex = 0; casIndex < aCasObjectList.length; casIndex++) {
-        casDataObjects[casIndex] = mConverter.casContainerToCasData((CAS) aCasObjectList[casIndex]);
-        // After the conversion reset the CAS so that it can be reused
+        // A view of the CAS, the changes made through it are written back to the CAS
         if ((CAS) aCasObjectList[casIndex] != null) {
-          ((CAS) aCasObjectList[casIndex]).reset();
+          casDataObjects[casIndex] = new CasDataView((CAS) aCasObjectList[casIndex], mConverter);
         }
       }
-      // Cache the CAS list for possible reuse
+      // Cache the CAS list for the changes to be written back
       casCache = (CAS[]) aCasObjectList;
       // aCasObjectList is working list.
       aCasObjectList = casDataObjects;
     }
+    // A CasDataConsumer may hold on to the CasData, its content must not follow later CAS
+    // changes. Other CAS Processors only materialize the views they read.
+    boolean[] unreadViews = new boolean[aCasObjectList.length];
+    for (int casIndex = 0; casIndex < aCasObjectList.length; casIndex++) {
+      if (aCasObjectList[casIndex] instanceof CasDataView) {
+        if (processor instanceof CasDataConsumer) {
+          ((CasDataView) aCasObjectList[casIndex]).materialize();
+        }
+        unreadViews[casIndex] = !((CasDataView) aCasObjectList[casIndex]).isMaterialized();
+      }
+    }
     long byteCount = 0;
     if (!retry) {
       for (int casIndex = 0; casIndex < aCasObjectList.length; casIndex++) {
@@ -1155,6 +1173,14 @@ public class NonThreadedProcessingUnit {
                   processor.getClass().getName() });
     }
     casObjects = ((CasDataProcessor) processor).process((CasData[]) casObjects);
+    if (!retry) {
+      // the views read by the processor, counting them before would have materialized them
+      for (int casIndex = 0; casIndex < aCasObjectList.length; casIndex++) {
+        if (unreadViews[casIndex]) {
+          container.addBytesIn(getBytes(aCasObjectList[casIndex]));
+        }
+      }
+    }
     if (UIMAFramework.getLogger().isLoggable(Level.FINEST)) {
       UIMAFramework.getLogger(this.getClass()).logrb(
               Level.FINEST,
@@ -1283,6 +1309,7 @@ public class NonThreadedProcessingUnit {
                 aEntityProcStatus);
       } else if (statCL instanceof StatusCallbackListener) {
         boolean casFromPool = false;
+        boolean writtenBack = false;
         // The cas is of type CasData, need to convert it to CAS
         if (isCasObject == false) {
           conversionCas = null;
@@ -1295,7 +1322,11 @@ public class NonThreadedProcessingUnit {
             casFromPool = true;
           }
           try {
-            mConverter.casDataToCasContainer((CasData) casObjectCopy, conversionCas, true);
+            // A view of the cached CAS only needs its changes written back
+            writtenBack = CasDataView.writeBack(casObjectCopy, conversionCas, true);
+            if (!writtenBack) {
+              mConverter.casDataToCasContainer((CasData) casObjectCopy, conversionCas, true);
+            }
           } catch (CollectionException e) {
             UIMAFramework.getLogger(this.getClass()).logrb(Level.WARNING,
                     this.getClass().getName(), "process", CPMUtils.CPM_LOG_RESOURCE_BUNDLE,
@@ -1315,7 +1346,8 @@ public class NonThreadedProcessingUnit {
             cpm.releaseCASes(conversionCasArray);
           }
           conversionCas = null;
-          if (casCache != null && casCache[0] != null) {
+          // Keep a written back CAS, it still holds the content of its view
+          if (casCache != null && casCache[0] != null && !writtenBack) {
             casCache[0].reset();
           }
         }
@@ -1544,6 +1576,10 @@ public class NonThreadedProcessingUnit {
    */
   protected long getBytes(Object aCas) {
     try {
+      if (aCas instanceof CasDataView && !((CasDataView) aCas).isMaterialized()) {
+        // counting would convert the CAS, only the views that were read are counted
+        return 0;
+      }
       if (aCas instanceof CasData) {
         return DATACasUtils.getByteCount((CasData) aCas);
       }
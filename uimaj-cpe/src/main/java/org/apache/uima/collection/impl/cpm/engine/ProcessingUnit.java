@@ -27,6 +27,7 @@ import org.apache.uima.UIMAFramework;
 import org.apache.uima.analysis_engine.AnalysisEngine;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas_data.CasData;
+import org.apache.uima.collection.BatchCasConsumer;
 import org.apache.uima.collection.CollectionException;
 import org.apache.uima.collection.EntityProcessStatus;
 import org.apache.uima.collection.StatusCallbackListener;
@@ -40,12 +41,14 @@ import org.apache.uima.collection.base_cpm.CasObjectProcessor;
 import org.apache.uima.collection.base_cpm.CasProcessor;
 import org.apache.uima.collection.base_cpm.SkipCasException;
 import org.apache.uima.collection.impl.CasConverter;
+import org.apache.uima.collection.impl.CasDataView;
 import org.apache.uima.collection.impl.EntityProcessStatusImpl;
 import org.apache.uima.collection.impl.base_cpm.container.KillPipelineException;
 import org.apache.uima.collection.impl.base_cpm.container.ProcessingContainer;
 import org.apache.uima.collection.impl.base_cpm.container.ServiceConnectionException;
 import org.apache.uima.collection.impl.base_cpm.container.deployer.CasProcessorDeployer;
 import org.apache.uima.collection.impl.cpm.Constants;
+import org.apache.uima.collection.impl.cpm.container.BatchCasConsumerWriter;
 import org.apache.uima.collection.impl.cpm.container.CasObjectNetworkCasProcessorImpl;
 import org.apache.uima.collection.impl.cpm.container.NetworkCasProcessorImpl;
 import org.apache.uima.collection.impl.cpm.container.ProcessingContainer_Impl;
@@ -95,6 +98,9 @@ public class ProcessingUnit extends Thread {
 
   protected ArrayList statusCbL = new ArrayList();
 
+  // Notifies the listeners of documents a BatchCasConsumer failed to write, created on first use
+  private BatchCasConsumerWriter.FailureListener batchFailureListener = null;
+
   protected boolean notifyListeners = false;
 
   protected CAS conversionCas = null;
@@ -113,8 +119,24 @@ public class ProcessingUnit extends Thread {
 
   private boolean isCasConsumerPipeline = false;
 
+  private ResultCache resultCache = null;
+
   private boolean isRunning = false;
 
+  // Set when the CPE adjusts the number of pipelines. The pipeline then waits for work at most
+  // RETIRE_CHECK_INTERVAL ms at a time, to notice when it is retired.
+  private boolean retirable = false;
+
+  private volatile boolean retired = false;
+
+  // Number of entities processed and time spent processing them (ns), used to measure the
+  // throughput and utilization of the pipelines
+  private volatile long processedEntityCount = 0;
+
+  private volatile long busyTime = 0;
+
+  private static final int RETIRE_CHECK_INTERVAL = 500;
+
   public long timer01 = 0;
 
   public long timer02 = 0;
@@ -189,6 +211,43 @@ public class ProcessingUnit extends Thread {
     return isCasConsumerPipeline;
   }
 
+  /**
+   * Allows this pipeline to be retired with {@link #retire()} while the CPE is running.
+   */
+  public void setRetirable() {
+    retirable = true;
+  }
+
+  /**
+   * Stops this pipeline before it takes the next bundle of Cas from the work queue. The bundle
+   * being processed, if any, is completed first.
+   */
+  public void retire() {
+    retired = true;
+  }
+
+  public boolean isRetired() {
+    return retired;
+  }
+
+  /**
+   * Returns number of entities processed by this pipeline so far.
+   * 
+   * @return - number of entities
+   */
+  public long getProcessedEntityCount() {
+    return processedEntityCount;
+  }
+
+  /**
+   * Returns time this pipeline has spent processing entities, as opposed to waiting for them.
+   * 
+   * @return - busy time in nanoseconds
+   */
+  public long getBusyTime() {
+    return busyTime;
+  }
+
   /**
    * Alternative method of providing a queue from which this PU will read bundle of Cas
    * 
@@ -249,6 +308,17 @@ public class ProcessingUnit extends Thread {
     notifyListeners = aDoNotify;
   }
 
+  /**
+   * Sets the cache holding the results of earlier analyses. The results of CASes found in it are
+   * restored instead of analyzed.
+   * 
+   * @param aResultCache -
+   *          the result cache, or null
+   */
+  public void setResultCache(ResultCache aResultCache) {
+    resultCache = aResultCache;
+  }
+
   /**
    * Plugs in Listener object used for notifications.
    * 
@@ -504,6 +574,13 @@ public class ProcessingUnit extends Thread {
       // blocks if CPM is in pause state
       isCpmPaused();
 
+      if (retired) {
+        // The CPE reduced the number of pipelines
+        maybeLogFinest("UIMA_CPM_pp_retired__FINEST");
+        cpm.processingUnitShutdown(this);
+        break;
+      }
+
       maybeLogFinestWorkQueue("UIMA_CPM_dequeue_artifact__FINEST", workQueue);
       artifact = null;
       Object entity = null;
@@ -515,6 +592,8 @@ public class ProcessingUnit extends Thread {
       // D E Q U E U E *************************************
       if (maxWaitTimeForEntity > 0) {
         entity = workQueue.dequeue(maxWaitTimeForEntity);
+      } else if (retirable) {
+        entity = workQueue.dequeue(RETIRE_CHECK_INTERVAL);
       } else {
         entity = workQueue.dequeue(0);
 
@@ -572,7 +651,10 @@ public class ProcessingUnit extends Thread {
         
         maybeLogFinest("UIMA_CPM_call_processNext__FINEST");
         /* *********** EXECUTE PIPELINE ************ */
+        long start = System.nanoTime();
         processNext(artifact, pT);
+        busyTime += System.nanoTime() - start;
+        processedEntityCount += cases.length;
 
         if (System.getProperty("DEBUG_EVENTS") != null) {
           maybeLogFinest("UIMA_CPM_dump_events__FINEST");
@@ -711,6 +793,33 @@ public class ProcessingUnit extends Thread {
     // String docid = "";
     maybeLogFinest("UIMA_CPM_entering_pipeline__FINEST");
 
+    // Look up the results of an earlier analysis of the same documents. Set to null as soon as
+    // the results of this analysis are incomplete.
+    ResultCache.Lookup lookup = null;
+    if (resultCache != null && isCasObject && !isCasConsumerPipeline()) {
+      CAS[] bundle = new CAS[aCasObjectList.length];
+      System.arraycopy(aCasObjectList, 0, bundle, 0, bundle.length);
+      try {
+        lookup = resultCache.lookup(bundle);
+      } catch (ResourceProcessException e) {
+        dropCachedResults(bundle, pTrTemp, e);
+        return true;
+      }
+      if (lookup.isHit()) {
+        try {
+          postCachedResults(bundle, pTrTemp);
+        } catch (ResourceProcessException e) {
+          throw e;
+        } catch (Exception e) {
+          throw new ResourceProcessException(e);
+        }
+        return true;
+      }
+      if (!lookup.isCacheable()) {
+        lookup = null;
+      }
+    }
+
     ProcessingContainer container = null;
     // *******************************************
     // ** P R O C E S S I N G P I P E L I N E **
@@ -726,6 +835,7 @@ public class ProcessingUnit extends Thread {
         // Check to see if the CasProcessor is available for processing
         if (!isProcessorReady(container.getStatus())) {
           maybeLogFinest("UIMA_CPM_container_not_ready__FINEST", container);
+          lookup = null;
           boolean breakTheLoop = (i == (processContainers.size() - 1));
           if (breakTheLoop && isCasObject) {
             releaseCases(aCasObjectList, true, container.getName());
@@ -779,6 +889,7 @@ public class ProcessingUnit extends Thread {
           }
 
           // Skip any CasProcessor that is not ready to process
+          lookup = null;
           break;
         }
 
@@ -786,22 +897,19 @@ public class ProcessingUnit extends Thread {
         try {
           if (processor instanceof CasDataProcessor) {
             maybeLogFinest("UIMA_CPM_cas_data_processor__FINEST", container, processor);
+            // Only the results of CasObjectProcessors are tracked in the CAS
+            lookup = null;
             pTrTemp.startEvent(container.getName(), "Process", "");
             if (isCasObject == true) {
-              CasData[] casDataObjects = new CasData[aCasObjectList.length];
-              for (int casIndex = 0; casIndex < aCasObjectList.length; casIndex++) {
-                casDataObjects[casIndex] = mConverter
-                        .casContainerToCasData((CAS) aCasObjectList[casIndex]);
-                if ((CAS) aCasObjectList[casIndex] != null) {
-                  ((CAS) aCasObjectList[casIndex]).reset();
-                }
-              }
-
-              casCache = (CAS[]) aCasObjectList;
-
-              aCasObjectList = casDataObjects;
+              // Give the CasDataProcessor views of the CASes. The CASes are kept as they are, so
+              // that the next CasObjectProcessor only needs the changes written back to them.
+              aCasObjectList = toCasDataViews((CAS[]) aCasObjectList);
             }
             isCasObject = false;
+            if (processor instanceof CasDataConsumer) {
+              materializeCasDataViews(aCasObjectList);
+            }
+            boolean[] unreadViews = findUnreadCasDataViews(aCasObjectList);
             byteCount = 0;
             if (!retry) {
 
@@ -823,6 +931,9 @@ public class ProcessingUnit extends Thread {
             maybeLogFinest("UIMA_CPM_call_process__FINEST", container, processor);
             casObjects = ((CasDataProcessor) processor).process((CasData[]) casObjects);
             maybeLogFinest("UIMA_CPM_call_process_completed__FINEST", container, processor);
+            if (!retry) {
+              addBytesInOfReadViews(container, aCasObjectList, unreadViews);
+            }
             long pEnd = System.currentTimeMillis();
             container.incrementTotalTime((pEnd - pStart));
             if (casObjects != null) {
@@ -856,7 +967,12 @@ public class ProcessingUnit extends Thread {
               if (isCasObject == false) {
                 // The following may be true if the CollectionReader is CasData based and this is
                 // the first CasObject based annotator in the chain.
-                if (casCache == null || casCache[casIndex] == null) {
+                boolean writtenBack = writeBackCasDataView(aCasObjectList, casIndex);
+                if (writtenBack) {
+                  // The CasData is a view of the cached CAS, which now holds its content
+                  casList[casIndex] = casCache[casIndex];
+                  casCache[casIndex] = null;
+                } else if (casCache == null || casCache[casIndex] == null) {
                   casList[casIndex] = null;
 
                   while (casList[casIndex] == null) {
@@ -877,9 +993,11 @@ public class ProcessingUnit extends Thread {
                   casCache[casIndex] = null;
                 }
 
-                // Convert CasData to CAS
-                mConverter.casDataToCasContainer((CasData) aCasObjectList[casIndex],
-                        casList[casIndex], true);
+                if (!writtenBack) {
+                  // Convert CasData to CAS
+                  mConverter.casDataToCasContainer((CasData) aCasObjectList[casIndex],
+                          casList[casIndex], true);
+                }
               } else {
                 casList[casIndex] = (CAS) aCasObjectList[casIndex];
               }
@@ -898,12 +1016,20 @@ public class ProcessingUnit extends Thread {
                 pTrTemp.startEvent(container.getName(), "Process", "");
                 threadState = 2006;
                 maybeLogFinest("UIMA_CPM_call_process__FINEST", container, processor);
-                ((CasObjectProcessor) processor).processCas(casList[casIndex]);
+                processCas(container, processor, casList[casIndex]);
                 maybeLogFinest("UIMA_CPM_call_process_completed__FINEST", container, processor);
                 pTrTemp.endEvent(container.getName(), "Process", "success");
               }
             }
           }
+          // Let the pool balance the calls to the service instances
+          container.getPool().markSucceeded(processor);
+
+          // Store the results once all the CasProcessors analyzed the CASes
+          if (lookup != null && i == (processContainers.size() - 1)) {
+            resultCache.store(lookup);
+            lookup = null;
+          }
 
           // Release the CAS and notify listeners if the end of the
           // pipeline is reached.
@@ -941,6 +1067,8 @@ public class ProcessingUnit extends Thread {
             container.resetRestartCount();
           }
         } catch (Exception e) {
+          container.getPool().markFailed(processor);
+          lookup = null;
           e.printStackTrace();
           if (UIMAFramework.getLogger().isLoggable(Level.SEVERE)) {
 
@@ -1207,6 +1335,51 @@ public class ProcessingUnit extends Thread {
     return true;
   }
 
+  /**
+   * Completes the processing of CASes whose results were restored from the result cache, as if
+   * they had just been analyzed.
+   * 
+   * @param aCasList -
+   *          the CASes
+   * @param aProcessTr -
+   *          ProcessTrace object holding events and stats
+   * 
+   * @throws Exception -
+   */
+  private void postCachedResults(CAS[] aCasList, ProcessTrace aProcessTr) throws Exception {
+    boolean doneAlready = false;
+    if (releaseCAS) {
+      doneAlready = true;
+      notifyListeners(aCasList, true, new EntityProcessStatusImpl(aProcessTr));
+      if (casCache != null) {
+        clearCasCache();
+      }
+      cpm.releaseCASes(aCasList);
+    }
+    postAnalysis(aCasList, true, null, aProcessTr, doneAlready);
+  }
+
+  /**
+   * Drops CASes whose results failed to be restored from the result cache. They may be partly
+   * restored, so they are not analyzed.
+   * 
+   * @param aCasList -
+   *          the CASes
+   * @param aProcessTr -
+   *          ProcessTrace object holding events and stats
+   * @param aException -
+   *          the failure
+   */
+  private void dropCachedResults(CAS[] aCasList, ProcessTrace aProcessTr, Exception aException) {
+    EntityProcessStatusImpl enProcSt = new EntityProcessStatusImpl(aProcessTr);
+    enProcSt.addEventStatus("Process", "Failed", aException);
+    notifyListeners(aCasList, true, enProcSt);
+    if (casCache != null) {
+      clearCasCache();
+    }
+    cpm.invalidateCASes(aCasList);
+  }
+
   /**
    * Notifies application listeners of completed analysis and stores results of analysis (CAS) in
    * the Output Queue that this thread shares with a Cas Consumer thread.
@@ -1626,6 +1799,7 @@ public class ProcessingUnit extends Thread {
                 aEntityProcStatus);
       } else if (statCL instanceof StatusCallbackListener) {
         boolean casFromPool = false;
+        boolean writtenBack = false;
         // The cas is of type CasData, need to convert it to CAS
         if (isCasObject == false) {
           conversionCas = null;
@@ -1638,7 +1812,11 @@ public class ProcessingUnit extends Thread {
             casFromPool = true;
           }
           try {
-            mConverter.casDataToCasContainer((CasData) casObjectCopy, conversionCas, true);
+            // A view of the cached CAS only needs its changes written back
+            writtenBack = CasDataView.writeBack(casObjectCopy, conversionCas, true);
+            if (!writtenBack) {
+              mConverter.casDataToCasContainer((CasData) casObjectCopy, conversionCas, true);
+            }
           } catch (CollectionException e) {
             logWarning("UIMA_CPM_exception_converting_CAS__WARNING");
           }
@@ -1654,7 +1832,8 @@ public class ProcessingUnit extends Thread {
             cpm.releaseCASes(conversionCasArray);
           }
           conversionCas = null;
-          if (casCache != null && casCache[0] != null) {
+          // Keep a written back CAS, it still holds the content of its view
+          if (casCache != null && casCache[0] != null && !writtenBack) {
             casCache[0].reset();
           }
         }
@@ -1795,6 +1974,10 @@ public class ProcessingUnit extends Thread {
    */
   protected long getBytes(Object aCas) {
     try {
+      if (aCas instanceof CasDataView && !((CasDataView) aCas).isMaterialized()) {
+        // counting would convert the CAS, only the views that were read are counted
+        return 0;
+      }
       if (aCas instanceof CasData) {
         return DATACasUtils.getByteCount((CasData) aCas);
       }
@@ -1954,6 +2137,8 @@ public class ProcessingUnit extends Thread {
           }
           timer02 += (System.currentTimeMillis() - t1);
           maybeLogFinest("UIMA_CPM_analysis_successfull__FINEST", container, processor);
+          // Let the pool balance the calls to the service instances
+          container.getPool().markSucceeded(processor);
           retry = false;
           // On successfull processing reset the restart counter. Restart counter determines how
           // many times to restart Cas Processor on the same CAS
@@ -1963,6 +2148,7 @@ public class ProcessingUnit extends Thread {
             container.resetRestartCount();
           }
         } catch (Exception e) {
+          container.getPool().markFailed(processor);
           retry = handleErrors(e, container, processor, pTrTemp, aCasObjectList, isCasObject);
           if (cpm.dropCasOnException()) {
             retry = false; // override
@@ -2213,7 +2399,7 @@ public class ProcessingUnit extends Thread {
         pTrTemp.startEvent(container.getName(), "Process", "");
         threadState = 2006;
         maybeLogFinest("UIMA_CPM_call_process__FINEST", container, processor);
-        ((CasObjectProcessor) processor).processCas(casList[casIndex]);
+        processCas(container, processor, casList[casIndex]);
         maybeLogFinest("UIMA_CPM_call_process_completed__FINEST", container, processor);
       }
       pTrTemp.endEvent(container.getName(), "Process", "success");
@@ -2222,6 +2408,63 @@ public class ProcessingUnit extends Thread {
 
   }
 
+  /**
+   * Hands a CAS to a CasObjectProcessor. A {@link BatchCasConsumer} only captures the data of the
+   * CAS here; the data is written in batches by the writer of its container, and the documents of
+   * a batch which fails are reported to the listeners without a CAS.
+   * 
+   * @param aContainer -
+   *          container of the processor
+   * @param aProcessor -
+   *          the CasObjectProcessor
+   * @param aCas -
+   *          CAS to process
+   * @throws ResourceProcessException -
+   */
+  private void processCas(ProcessingContainer aContainer, CasProcessor aProcessor, CAS aCas)
+          throws ResourceProcessException {
+    if (aProcessor instanceof BatchCasConsumer && aContainer instanceof ProcessingContainer_Impl) {
+      BatchCasConsumerWriter writer;
+      try {
+        writer = ((ProcessingContainer_Impl) aContainer).getBatchWriter(
+                (BatchCasConsumer) aProcessor, getBatchFailureListener());
+      } catch (ResourceConfigurationException e) {
+        throw new ResourceProcessException(e);
+      }
+      writer.add(aCas);
+    } else {
+      ((CasObjectProcessor) aProcessor).processCas(aCas);
+    }
+  }
+
+  /**
+   * Returns the listener notifying the application listeners of documents which a
+   * {@link BatchCasConsumer} failed to write. Their CASes are back in the pool by then, so the
+   * listeners get the document id in the exception, and no CAS.
+   * 
+   * @return - the listener
+   */
+  private synchronized BatchCasConsumerWriter.FailureListener getBatchFailureListener() {
+    if (batchFailureListener == null) {
+      final CPMEngine engine = cpm;
+      batchFailureListener = new BatchCasConsumerWriter.FailureListener() {
+        public void documentFailed(String aDocumentId, ResourceProcessException aException) {
+          EntityProcessStatusImpl enProcSt = new EntityProcessStatusImpl(new ProcessTrace_impl(
+                  engine.getPerformanceTuningSettings()));
+          enProcSt.addEventStatus("Process", "Failed", aException);
+          ArrayList listeners = engine.getCallbackListeners();
+          for (int j = 0; listeners != null && j < listeners.size(); j++) {
+            Object listener = listeners.get(j);
+            if (listener instanceof StatusCallbackListener) {
+              ((StatusCallbackListener) listener).entityProcessComplete(null, enProcSt);
+            }
+          }
+        }
+      };
+    }
+    return batchFailureListener;
+  }
+
   /**
    * 
    * @param casIndex
@@ -2231,6 +2474,12 @@ public class ProcessingUnit extends Thread {
    */
   private void convertCasDataToCasObject(int casIndex, String aContainerName,
           Object[] aCasObjectList) throws Exception {
+    if (writeBackCasDataView(aCasObjectList, casIndex)) {
+      // The CasData is a view of the cached CAS, which now holds its content
+      casList[casIndex] = casCache[casIndex];
+      casCache[casIndex] = null;
+      return;
+    }
     // The following may be true if the CollectionReader is CasData based and this is the first
     // CasObject based annotator in the chain.
     if (casCache == null || casCache[casIndex] == null) {
@@ -2258,6 +2507,93 @@ public class ProcessingUnit extends Thread {
     mConverter.casDataToCasContainer((CasData) aCasObjectList[casIndex], casList[casIndex], true);
   }
 
+  /**
+   * Wraps the given CASes in {@link CasDataView}s for a CasDataProcessor, and caches the CASes so
+   * that the changes made through the views can be written back to them.
+   * 
+   * @param aCasList -
+   *          the CASes to wrap
+   * @return the views of the CASes
+   */
+  private CasData[] toCasDataViews(CAS[] aCasList) {
+    CasData[] casDataObjects = new CasData[aCasList.length];
+    for (int casIndex = 0; casIndex < aCasList.length; casIndex++) {
+      if (aCasList[casIndex] != null) {
+        casDataObjects[casIndex] = new CasDataView(aCasList[casIndex], mConverter);
+      }
+    }
+    casCache = aCasList;
+    return casDataObjects;
+  }
+
+  /**
+   * Materializes the {@link CasDataView}s in the given list. A CasDataConsumer may hold on to the
+   * CasData it was given, its content must not change when the CAS is later reused. Other
+   * CasDataProcessors get the views as they are, a view is only materialized if it is read.
+   * 
+   * @param aCasObjectList -
+   *          the CasData list given to a CasDataConsumer
+   */
+  private void materializeCasDataViews(Object[] aCasObjectList) {
+    for (int casIndex = 0; casIndex < aCasObjectList.length; casIndex++) {
+      if (aCasObjectList[casIndex] instanceof CasDataView) {
+        ((CasDataView) aCasObjectList[casIndex]).materialize();
+      }
+    }
+  }
+
+  /**
+   * @param aCasObjectList -
+   *          the CasData list given to a CasDataProcessor
+   * @return for each CasData in the list, true if it is a {@link CasDataView} that is not
+   *         materialized yet
+   */
+  private boolean[] findUnreadCasDataViews(Object[] aCasObjectList) {
+    boolean[] unread = new boolean[aCasObjectList.length];
+    for (int casIndex = 0; casIndex < aCasObjectList.length; casIndex++) {
+      unread[casIndex] = aCasObjectList[casIndex] instanceof CasDataView
+              && !((CasDataView) aCasObjectList[casIndex]).isMaterialized();
+    }
+    return unread;
+  }
+
+  /**
+   * Adds the bytes in of the {@link CasDataView}s the CasDataProcessor read. They are not counted
+   * before the call, as that would materialize them; a view that is not read adds nothing.
+   * 
+   * @param container -
+   *          the container of the CasDataProcessor
+   * @param aCasObjectList -
+   *          the CasData list given to the CasDataProcessor
+   * @param aUnread -
+   *          the views that were not materialized before the call
+   */
+  private void addBytesInOfReadViews(ProcessingContainer container, Object[] aCasObjectList,
+          boolean[] aUnread) {
+    for (int casIndex = 0; casIndex < aCasObjectList.length; casIndex++) {
+      if (aUnread[casIndex]) {
+        container.addBytesIn(getBytes(aCasObjectList[casIndex]));
+      }
+    }
+  }
+
+  /**
+   * Writes the changes made to a CasData back to the cached CAS, if the CasData is a view of that
+   * CAS.
+   * 
+   * @param aCasObjectList -
+   *          the CasData list
+   * @param casIndex -
+   *          the position of the CasData in the list
+   * @return true if the cached CAS at <code>casIndex</code> now holds the content of the CasData
+   * @throws CollectionException -
+   */
+  private boolean writeBackCasDataView(Object[] aCasObjectList, int casIndex)
+          throws CollectionException {
+    return casCache != null && casIndex < casCache.length
+            && CasDataView.writeBack(aCasObjectList[casIndex], casCache[casIndex], true);
+  }
+
   /**
    * 
    * @param container
@@ -2275,19 +2611,13 @@ public class ProcessingUnit extends Thread {
     pTrTemp.startEvent(container.getName(), "Process", "");
     // Check if the CasObject to CasData conversion is necessary
     if (isCasObject == true) {
-      CasData[] casDataObjects = new CasData[aCasObjectList.length];
-      for (int casIndex = 0; casIndex < aCasObjectList.length; casIndex++) {
-        casDataObjects[casIndex] = mConverter.casContainerToCasData((CAS) aCasObjectList[casIndex]);
-        // After the conversion reset the CAS so that it can be reused
-        if ((CAS) aCasObjectList[casIndex] != null) {
-          ((CAS) aCasObjectList[casIndex]).reset();
-        }
-      }
-      // Cache the CAS list for possible reuse
-      casCache = (CAS[]) aCasObjectList;
-      // aCasObjectList is working list.
-      aCasObjectList = casDataObjects;
+      // aCasObjectList is working list. The CAS list is cached for the changes to be written back.
+      aCasObjectList = toCasDataViews((CAS[]) aCasObjectList);
+    }
+    if (processor instanceof CasDataConsumer) {
+      materializeCasDataViews(aCasObjectList);
     }
+    boolean[] unreadViews = findUnreadCasDataViews(aCasObjectList);
     long byteCount = 0;
     if (!retry) {
 
@@ -2304,6 +2634,9 @@ public class ProcessingUnit extends Thread {
     maybeLogFinest("UIMA_CPM_call_process__FINEST", container, processor);
     casObjects = ((CasDataProcessor) processor).process((CasData[]) casObjects);
     maybeLogFinest("UIMA_CPM_call_process_completed__FINEST", container, processor);
+    if (!retry) {
+      addBytesInOfReadViews(container, aCasObjectList, unreadViews);
+    }
     long pEnd = System.currentTimeMillis();
     container.incrementTotalTime((pEnd - pStart));
     if (casObjects != null) {
@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.collection.impl.cpm.engine;
+
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.collection.impl.cpm.utils.CPMUtils;
+import org.apache.uima.util.Level;
+
+/**
+ * Adjusts the number of running Processing Pipelines between a configured minimum and maximum
+ * while the CPE is running. Every interval it samples the depth of the work and output queues, the
+ * utilization of the running pipelines (the share of time they spend processing rather than
+ * waiting for work) and the throughput, and adds or retires one pipeline:
+ * <ul>
+ * <li>a pipeline is added when the work queue is backing up, the pipelines are busy, and the
+ * output queue (the Cas Consumers) has room;</li>
+ * <li>a pipeline is retired when the pipelines are mostly waiting for work from the Collection
+ * Reader;</li>
+ * <li>a pipeline which did not increase the throughput (for example because the CPUs are already
+ * saturated) is retired again, and no pipeline is added for a few intervals.</li>
+ * </ul>
+ * The interval defaults to 2 seconds and may be changed with
+ * -DPROCESSING_UNIT_SCALER_INTERVAL=ms. The current number of pipelines and the last adjustment are
+ * kept in the CPE stats, under PROCESSING_UNIT_COUNT and PROCESSING_UNIT_SCALING.
+ */
+public class ProcessingUnitScaler extends Thread {
+  public static final String INTERVAL_PROPERTY = "PROCESSING_UNIT_SCALER_INTERVAL";
+
+  private static final long DEFAULT_INTERVAL = 2000;
+
+  // Throughput gain expected from an added pipeline
+  private static final double MIN_GAIN = 1.05;
+
+  // Number of intervals without adding a pipeline after one did not help
+  private static final int COOLDOWN_INTERVALS = 5;
+
+  private final CPMEngine cpm;
+
+  private final BoundedWorkQueue workQueue;
+
+  private final BoundedWorkQueue outputQueue;
+
+  private final int minCount;
+
+  private final int maxCount;
+
+  private final long interval;
+
+  private volatile boolean stopped = false;
+
+  // State of the last decision
+  private int lastAction = 0;
+
+  private double lastThroughput = 0;
+
+  private int cooldown = 0;
+
+  private String lastReason = null;
+
+  /**
+   * @param aCpm -
+   *          the CPE engine running the pipelines
+   * @param aWorkQueue -
+   *          queue the pipelines read from
+   * @param aOutputQueue -
+   *          queue the pipelines write to, null if there are no Cas Consumers
+   * @param aMinCount -
+   *          minimum number of pipelines
+   * @param aMaxCount -
+   *          maximum number of pipelines
+   */
+  public ProcessingUnitScaler(CPMEngine aCpm, BoundedWorkQueue aWorkQueue,
+          BoundedWorkQueue aOutputQueue, int aMinCount, int aMaxCount) {
+    super("[Processing Pipeline Scaler Thread]::");
+    setDaemon(true);
+    cpm = aCpm;
+    workQueue = aWorkQueue;
+    outputQueue = aOutputQueue;
+    minCount = aMinCount;
+    maxCount = aMaxCount;
+    interval = Long.getLong(INTERVAL_PROPERTY, DEFAULT_INTERVAL).longValue();
+  }
+
+  /**
+   * Stops adjusting the number of pipelines. Called by the CPE when the Collection Reader is done.
+   */
+  public void stopScaling() {
+    stopped = true;
+    interrupt();
+  }
+
+  public void run() {
+    long lastTime = System.nanoTime();
+    long lastBusyTime = cpm.getProcessingUnitBusyTime();
+    long lastProcessed = cpm.getProcessingUnitEntityCount();
+    while (!stopped && cpm.isRunning()) {
+      try {
+        Thread.sleep(interval);
+      } catch (InterruptedException e) {
+        continue; // stopped
+      }
+      if (cpm.isPaused()) {
+        continue;
+      }
+      long now = System.nanoTime();
+      long busyTime = cpm.getProcessingUnitBusyTime();
+      long processed = cpm.getProcessingUnitEntityCount();
+      int active = cpm.getActiveProcessingUnitCount();
+      long elapsed = now - lastTime;
+      if (active > 0 && elapsed > 0) {
+        double utilization = (double) (busyTime - lastBusyTime) / ((double) elapsed * active);
+        double throughput = (processed - lastProcessed) * 1e9 / elapsed;
+        int action = evaluate(active, utilization, fill(workQueue), fill(outputQueue), throughput);
+        if (action > 0 && cpm.addProcessingUnit()) {
+          report(active + 1);
+        } else if (action < 0 && cpm.retireProcessingUnit()) {
+          report(active - 1);
+        } else {
+          lastAction = 0;
+        }
+      }
+      lastTime = now;
+      lastBusyTime = busyTime;
+      lastProcessed = processed;
+    }
+  }
+
+  /**
+   * Decides whether to add or retire a pipeline.
+   * 
+   * @param aActive -
+   *          number of running pipelines
+   * @param aUtilization -
+   *          share of the last interval the pipelines spent processing, from 0 to 1
+   * @param aWorkQueueFill -
+   *          share of the work queue capacity in use
+   * @param aOutputQueueFill -
+   *          share of the output queue capacity in use, 0 if there is no output queue
+   * @param aThroughput -
+   *          entities processed per second during the last interval
+   * 
+   * @return 1 to add a pipeline, -1 to retire one, 0 to keep the current number
+   */
+  int evaluate(int aActive, double aUtilization, double aWorkQueueFill, double aOutputQueueFill,
+          double aThroughput) {
+    int action = 0;
+    if (cooldown > 0) {
+      cooldown--;
+    }
+    if (lastAction > 0 && aThroughput < lastThroughput * MIN_GAIN && aActive > minCount) {
+      action = -1;
+      cooldown = COOLDOWN_INTERVALS;
+      lastReason = "no throughput gain from the last added pipeline";
+    } else if (aActive < maxCount && cooldown == 0 && aWorkQueueFill >= 0.5
+            && aUtilization >= 0.75 && aOutputQueueFill < 0.9) {
+      action = 1;
+      lastReason = "work queue " + percent(aWorkQueueFill) + " full, pipelines "
+              + percent(aUtilization) + " busy";
+    } else if (aActive > minCount && aUtilization < 0.5 && aWorkQueueFill < 0.25) {
+      action = -1;
+      lastReason = "pipelines waiting for work, " + percent(aUtilization) + " busy";
+    }
+    lastAction = action;
+    lastThroughput = aThroughput;
+    return action;
+  }
+
+  private void report(int aCount) {
+    cpm.updateProcessingUnitStats(lastReason);
+    if (UIMAFramework.getLogger().isLoggable(Level.CONFIG)) {
+      UIMAFramework.getLogger(this.getClass()).logrb(Level.CONFIG, this.getClass().getName(),
+              "process", CPMUtils.CPM_LOG_RESOURCE_BUNDLE, "UIMA_CPM_scale_pipelines__CONFIG",
+              new Object[] { Thread.currentThread().getName(), String.valueOf(aCount), lastReason });
+    }
+  }
+
+  private static double fill(BoundedWorkQueue aQueue) {
+    if (aQueue == null || aQueue.getCapacity() <= 0) {
+      return 0;
+    }
+    return (double) aQueue.getCurrentSize() / aQueue.getCapacity();
+  }
+
+  private static String percent(double aValue) {
+    return Math.round(aValue * 100) + "%";
+  }
+}
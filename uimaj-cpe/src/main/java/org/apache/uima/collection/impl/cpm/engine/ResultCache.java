@@ -0,0 +1,451 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.collection.impl.cpm.engine;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.FSIterator;
+import org.apache.uima.cas.Marker;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.impl.BinaryCasSerDes6;
+import org.apache.uima.cas.impl.BinaryCasSerDes6.ReuseInfo;
+import org.apache.uima.cas.impl.Serialization;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.collection.ResultStore;
+import org.apache.uima.collection.impl.base_cpm.container.ProcessingContainer;
+import org.apache.uima.collection.impl.cpm.utils.CPMUtils;
+import org.apache.uima.collection.impl.cpm.utils.FileResultStore;
+import org.apache.uima.collection.impl.cpm.utils.MemoryResultStore;
+import org.apache.uima.resource.ResourceConfigurationException;
+import org.apache.uima.resource.ResourceProcessException;
+import org.apache.uima.resource.metadata.ResourceMetaData;
+import org.apache.uima.util.Level;
+
+/**
+ * The result cache of the CPE. Before the CASes read by the Collection Reader are analyzed, the
+ * Processing Pipeline looks up a {@link ResultStore} for the results of an earlier analysis of
+ * the same documents. When all the CASes of a bundle are found, the results are restored into the
+ * CASes and the analysis is skipped. Otherwise the CASes are analyzed, and their results stored.
+ * <p>
+ * A result is the delta CAS, in compressed binary form 6, of what the CasProcessors added to the
+ * CAS or changed in it. The Feature Structures of the Collection Reader, such as the source of the
+ * document, are kept as they were read. The key of a result is a hash of:
+ * <ul>
+ * <li>the fingerprint of the analysis CasProcessors: their names and their metadata, including
+ * the configuration parameter settings, the type system and the version. Results of CasProcessors
+ * changed in any of these are not reused.</li>
+ * <li>for each view, its name, the MIME type and data of its Sofa, and the document language</li>
+ * <li>the types of the Feature Structures of the Collection Reader, which the delta CAS refers to
+ * by their order</li>
+ * </ul>
+ * The analysis must only depend on what is in the key; in particular, it must not depend on the
+ * values of other Feature Structures of the Collection Reader. CASes with a view whose Sofa data
+ * is an array or a URI are not cached: the data behind a URI may change while the URI stays the
+ * same.
+ * <p>
+ * Each value is stored with a CRC32, so a damaged value is analyzed again rather than restored.
+ */
+public class ResultCache {
+  /**
+   * Name of the store kept in memory
+   */
+  public static final String MEMORY = "memory";
+
+  /**
+   * Prefix of the name of a store kept in a directory
+   */
+  public static final String FILE_PREFIX = "file:";
+
+  /**
+   * The lookup of a bundle of CASes, which also holds what's needed to store their results.
+   */
+  public static class Lookup {
+    private final CAS[] casList;
+
+    private final String[] keys;
+
+    private final ReuseInfo[] reuseInfos;
+
+    private final Marker[] markers;
+
+    private boolean cacheable = false;
+
+    private boolean hit = false;
+
+    Lookup(CAS[] aCasList) {
+      casList = aCasList;
+      keys = new String[aCasList.length];
+      reuseInfos = new ReuseInfo[aCasList.length];
+      markers = new Marker[aCasList.length];
+    }
+
+    /**
+     * @return - true if the results of all the CASes were restored from the cache
+     */
+    public boolean isHit() {
+      return hit;
+    }
+
+    /**
+     * @return - true if the results of the CASes can be stored after the analysis
+     */
+    public boolean isCacheable() {
+      return cacheable;
+    }
+  }
+
+  private final ResultStore store;
+
+  private final String fingerprint;
+
+  private final AtomicLong hits = new AtomicLong();
+
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * @param aStore -
+   *          the store holding the results
+   * @param aFingerprint -
+   *          fingerprint of the analysis CasProcessors, see {@link #fingerprint(List)}
+   */
+  public ResultCache(ResultStore aStore, String aFingerprint) {
+    store = aStore;
+    fingerprint = aFingerprint;
+  }
+
+  /**
+   * Creates a store by the name given in the <code>resultCache</code> attribute of the
+   * &lt;casProcessors&gt; element: <code>memory</code>, <code>file:</code> followed by a
+   * directory, or a class implementing {@link ResultStore}.
+   * 
+   * @param aName -
+   *          name of the store
+   * @param aSize -
+   *          maximum number of results kept in a <code>memory</code> store, 0 for the default
+   * @return - the store
+   * @throws ResourceConfigurationException -
+   *           if there is no such store
+   */
+  public static ResultStore createStore(String aName, int aSize)
+          throws ResourceConfigurationException {
+    String name = aName.trim();
+    if (MEMORY.equals(name)) {
+      return new MemoryResultStore(aSize);
+    } else if (name.startsWith(FILE_PREFIX)) {
+      return new FileResultStore(new File(name.substring(FILE_PREFIX.length())));
+    }
+    try {
+      return (ResultStore) Class.forName(name).newInstance();
+    } catch (Exception e) {
+      throw new ResourceConfigurationException(
+              ResourceConfigurationException.RESOURCE_DATA_NOT_VALID, new Object[] { name,
+                  "resultCache" }, e);
+    }
+  }
+
+  /**
+   * Computes the fingerprint of the CasProcessors of the given containers from their names and
+   * metadata.
+   * 
+   * @param aContainers -
+   *          the containers of the CasProcessors
+   * @return - the fingerprint
+   */
+  public static String fingerprint(List<ProcessingContainer> aContainers) {
+    MessageDigest md = newDigest();
+    for (ProcessingContainer container : aContainers) {
+      update(md, container.getName());
+      ResourceMetaData metaData = container.getMetaData();
+      String xml = null;
+      if (metaData != null) {
+        try {
+          StringWriter writer = new StringWriter();
+          metaData.toXML(writer);
+          xml = writer.toString();
+        } catch (Exception e) {
+          xml = metaData.toString();
+        }
+      }
+      update(md, xml);
+    }
+    return toHex(md.digest());
+  }
+
+  /**
+   * Looks up the results of a bundle of CASes. If all are found, they are restored into the CASes.
+   * Otherwise the changes made to the CASes from now on are tracked, to be stored by
+   * {@link #store(Lookup)} after the analysis.
+   * 
+   * @param aCasList -
+   *          the CASes read by the Collection Reader
+   * @return - the lookup
+   * @throws ResourceProcessException -
+   *           if a result could not be restored; the CASes are then partly restored
+   */
+  public Lookup lookup(CAS[] aCasList) throws ResourceProcessException {
+    Lookup lookup = new Lookup(aCasList);
+    byte[][] values = new byte[aCasList.length][];
+    boolean found = true;
+    try {
+      for (int i = 0; i < aCasList.length; i++) {
+        if (aCasList[i] == null) {
+          return lookup;
+        }
+        BinaryCasSerDes6 bcs = new BinaryCasSerDes6(aCasList[i]);
+        lookup.reuseInfos[i] = bcs.computeReuseInfo();
+        lookup.keys[i] = computeKey(aCasList[i], bcs.getFsLayout());
+        if (lookup.keys[i] == null) {
+          return lookup;
+        }
+        if (found) {
+          values[i] = get(lookup.keys[i]);
+          found = (values[i] != null);
+        }
+      }
+    } catch (Exception e) {
+      // not expected, the CASes are just analyzed
+      logFailure("read", null, e);
+      return lookup;
+    }
+
+    if (found) {
+      for (int i = 0; i < aCasList.length; i++) {
+        try {
+          Serialization.deserializeCAS(aCasList[i], new ByteArrayInputStream(values[i], 4,
+                  values[i].length - 4), null, lookup.reuseInfos[i]);
+        } catch (Exception e) {
+          logFailure("restore", lookup.keys[i], e);
+          throw new ResourceProcessException(e);
+        }
+      }
+      hits.addAndGet(aCasList.length);
+      lookup.hit = true;
+      return lookup;
+    }
+
+    misses.addAndGet(aCasList.length);
+    try {
+      for (int i = 0; i < aCasList.length; i++) {
+        lookup.markers[i] = aCasList[i].createMarker();
+      }
+      lookup.cacheable = true;
+    } catch (RuntimeException e) {
+      // the CAS is already tracked by someone else
+      logFailure("track", lookup.keys[0], e);
+    }
+    return lookup;
+  }
+
+  /**
+   * Stores the results of the analysis of the CASes of a lookup which were not found.
+   * 
+   * @param aLookup -
+   *          the lookup of the CASes, after their analysis
+   */
+  public void store(Lookup aLookup) {
+    if (aLookup.hit || !aLookup.cacheable) {
+      return;
+    }
+    for (int i = 0; i < aLookup.casList.length; i++) {
+      try {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[4]);
+        Serialization.serializeWithCompression(aLookup.casList[i], out, null,
+                aLookup.markers[i], aLookup.reuseInfos[i]);
+        byte[] value = out.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(value, 4, value.length - 4);
+        putInt(value, 0, (int) crc.getValue());
+        store.put(aLookup.keys[i], value);
+      } catch (Exception e) {
+        logFailure("store", aLookup.keys[i], e);
+      }
+    }
+  }
+
+  /**
+   * Closes the store.
+   */
+  public void close() {
+    try {
+      store.close();
+    } catch (IOException e) {
+      logFailure("close", null, e);
+    }
+  }
+
+  /**
+   * @return - the store holding the results
+   */
+  public ResultStore getStore() {
+    return store;
+  }
+
+  /**
+   * @return - the fingerprint of the analysis CasProcessors
+   */
+  public String getFingerprint() {
+    return fingerprint;
+  }
+
+  /**
+   * @return - number of CASes whose results were restored
+   */
+  public long getHits() {
+    return hits.get();
+  }
+
+  /**
+   * @return - number of CASes whose results were not found
+   */
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * Returns a value whose CRC32 is right, or null.
+   */
+  private byte[] get(String aKey) {
+    byte[] value;
+    try {
+      value = store.get(aKey);
+    } catch (IOException e) {
+      logFailure("read", aKey, e);
+      return null;
+    }
+    if (value == null || value.length < 4) {
+      return null;
+    }
+    CRC32 crc = new CRC32();
+    crc.update(value, 4, value.length - 4);
+    if (getInt(value, 0) != (int) crc.getValue()) {
+      logFailure("read", aKey, new IOException("CRC32 mismatch"));
+      return null;
+    }
+    return value;
+  }
+
+  /**
+   * Returns the key of the result of a CAS, or null if the CAS can't be cached.
+   */
+  private String computeKey(CAS aCas, int[] aLayout) {
+    MessageDigest md = newDigest();
+    update(md, fingerprint);
+    byte[] bytes = new byte[4 * aLayout.length];
+    for (int i = 0; i < aLayout.length; i++) {
+      putInt(bytes, 4 * i, aLayout[i]);
+    }
+    md.update(bytes);
+    for (Iterator<CAS> it = aCas.getViewIterator(); it.hasNext();) {
+      CAS view = it.next();
+      if (view.getSofaDataArray() != null || view.getSofaDataURI() != null) {
+        return null;
+      }
+      update(md, view.getViewName());
+      update(md, view.getSofaMimeType());
+      update(md, view.getSofaDataString());
+      update(md, getDocumentLanguage(view));
+    }
+    return toHex(md.digest());
+  }
+
+  /**
+   * Returns the language of the document annotation of a view, without creating it.
+   */
+  private static String getDocumentLanguage(CAS aView) {
+    Type type = aView.getTypeSystem().getType(CAS.TYPE_NAME_DOCUMENT_ANNOTATION);
+    FSIterator<AnnotationFS> it = aView.getAnnotationIndex(type).iterator();
+    if (!it.isValid()) {
+      return null;
+    }
+    return it.get().getStringValue(type.getFeatureByBaseName(CAS.FEATURE_BASE_NAME_LANGUAGE));
+  }
+
+  private void logFailure(String aAction, String aKey, Exception e) {
+    if (UIMAFramework.getLogger().isLoggable(Level.WARNING)) {
+      UIMAFramework.getLogger(this.getClass()).logrb(
+              Level.WARNING,
+              this.getClass().getName(),
+              "process",
+              CPMUtils.CPM_LOG_RESOURCE_BUNDLE,
+              "UIMA_CPM_result_cache_failed__WARNING",
+              new Object[] { Thread.currentThread().getName(), aAction, String.valueOf(aKey),
+                  String.valueOf(e) });
+    }
+  }
+
+  /**
+   * Adds a string, or null, to a digest in a way that can't be mistaken for other strings.
+   */
+  private static void update(MessageDigest aDigest, String aString) {
+    byte[] length = new byte[4];
+    if (aString == null) {
+      putInt(length, 0, -1);
+      aDigest.update(length);
+      return;
+    }
+    byte[] bytes = aString.getBytes(StandardCharsets.UTF_8);
+    putInt(length, 0, bytes.length);
+    aDigest.update(length);
+    aDigest.update(bytes);
+  }
+
+  private static void putInt(byte[] aBytes, int aOffset, int aValue) {
+    aBytes[aOffset] = (byte) (aValue >>> 24);
+    aBytes[aOffset + 1] = (byte) (aValue >>> 16);
+    aBytes[aOffset + 2] = (byte) (aValue >>> 8);
+    aBytes[aOffset + 3] = (byte) aValue;
+  }
+
+  private static int getInt(byte[] aBytes, int aOffset) {
+    return ((aBytes[aOffset] & 0xff) << 24) | ((aBytes[aOffset + 1] & 0xff) << 16)
+            | ((aBytes[aOffset + 2] & 0xff) << 8) | (aBytes[aOffset + 3] & 0xff);
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static String toHex(byte[] aBytes) {
+    StringBuilder buf = new StringBuilder(2 * aBytes.length);
+    for (int i = 0; i < aBytes.length; i++) {
+      buf.append(Character.forDigit((aBytes[i] >> 4) & 0xf, 16));
+      buf.append(Character.forDigit(aBytes[i] & 0xf, 16));
+    }
+    return buf.toString();
+  }
+}
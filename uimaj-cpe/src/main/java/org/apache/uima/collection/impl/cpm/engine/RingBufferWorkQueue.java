@@ -0,0 +1,416 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.collection.impl.cpm.engine;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A Bounded Queue which does not lock: a ring buffer of slots, each with a sequence number which
+ * tells whether it is free for the next enqueue or holds the entry for the next dequeue. Producers
+ * and consumers claim positions with a compare-and-set, so hand-offs between the ArtifactProducer,
+ * the ProcessingUnits and the Cas Consumer pipeline don't contend on the queue's monitor, and a
+ * hand-off wakes at most one waiting thread instead of all of them.
+ *
+ * <p>The semantics are those of {@link BoundedWorkQueue}: FIFO order, enqueue blocks while the
+ * queue is full and the CPE is running, and an EOFToken is always accepted, even when the queue is
+ * full (it is kept after the entries in the ring until they are dequeued).
+ *
+ * <p>Threads which have to wait (enqueue on a full queue, dequeue with a timeout on an empty one)
+ * do so according to the {@link WaitStrategy} given by the system property
+ * {@link #WAIT_STRATEGY_PROPERTY}, BLOCKING by default.
+ *
+ * <p>This is the default work and output queue of the CPMEngine; see
+ * {@link CPMEngine#WORK_QUEUE_IMPL_PROPERTY}.
+ */
+public class RingBufferWorkQueue extends BoundedWorkQueue {
+
+  /**
+   * System property naming the {@link WaitStrategy} of the queues.
+   */
+  public static final String WAIT_STRATEGY_PROPERTY = "WORK_QUEUE_WAIT_STRATEGY";
+
+  /**
+   * How threads wait for an entry or a free slot.
+   */
+  public enum WaitStrategy {
+    /**
+     * Wait on a condition, signalled by the thread which makes the entry or slot available (this
+     * takes a lock only when some thread is waiting). Uses no CPU while waiting.
+     */
+    BLOCKING,
+    /**
+     * Spin for a while, then yield the processor between checks. Lowest latency, but keeps a
+     * processor busy while waiting.
+     */
+    YIELDING,
+    /**
+     * Spin for a while, yield for a while, then sleep briefly between checks.
+     */
+    SLEEPING
+  }
+
+  private static final int SPIN_TRIES = 100;
+
+  private static final int YIELD_TRIES = 200;
+
+  private static final long SLEEP_NANOS = 100000;
+
+  /**
+   * Entries which the ring had no room for: EOFTokens enqueued while it was full, and entries
+   * enqueued after the CPE stopped running. They are dequeued after the entries of the ring.
+   */
+  private final ConcurrentLinkedQueue<Object> overflow = new ConcurrentLinkedQueue<Object>();
+
+  private final AtomicReferenceArray<Object> slots;
+
+  /**
+   * For the slot of position p: p when free for the enqueue at p, p + 1 when it holds the entry
+   * enqueued at p.
+   */
+  private final AtomicLongArray sequences;
+
+  private final int mask;
+
+  private final AtomicLong enqueuePosition = new AtomicLong();
+
+  private final AtomicLong dequeuePosition = new AtomicLong();
+
+  private final WaitStrategy waitStrategy;
+
+  // for the BLOCKING wait strategy
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final Condition notEmpty = lock.newCondition();
+
+  private final Condition notFull = lock.newCondition();
+
+  private final AtomicInteger waitingForEntry = new AtomicInteger();
+
+  private final AtomicInteger waitingForSlot = new AtomicInteger();
+
+  /**
+   * Initialize the instance, with the wait strategy given by the system property
+   * {@link #WAIT_STRATEGY_PROPERTY}
+   *
+   * @param aQueueSize -
+   *          fixed size for this queue (capacity)
+   * @param aQueueName -
+   *          name for this queue
+   * @param aCpmEngine -
+   *          CPE Engine reference
+   */
+  public RingBufferWorkQueue(int aQueueSize, String aQueueName, CPMEngine aCpmEngine) {
+    this(aQueueSize, aQueueName, aCpmEngine, getDefaultWaitStrategy());
+  }
+
+  /**
+   * Initialize the instance
+   *
+   * @param aQueueSize -
+   *          fixed size for this queue (capacity)
+   * @param aQueueName -
+   *          name for this queue
+   * @param aCpmEngine -
+   *          CPE Engine reference
+   * @param aWaitStrategy -
+   *          how threads wait for an entry or a free slot
+   */
+  public RingBufferWorkQueue(int aQueueSize, String aQueueName, CPMEngine aCpmEngine,
+          WaitStrategy aWaitStrategy) {
+    super(aQueueSize, aQueueName, aCpmEngine);
+    int ringSize = 1;
+    while (ringSize < aQueueSize) {
+      ringSize <<= 1;
+    }
+    slots = new AtomicReferenceArray<Object>(ringSize);
+    sequences = new AtomicLongArray(ringSize);
+    for (int i = 0; i < ringSize; i++) {
+      sequences.set(i, i);
+    }
+    mask = ringSize - 1;
+    waitStrategy = aWaitStrategy;
+  }
+
+  private static WaitStrategy getDefaultWaitStrategy() {
+    String strategy = System.getProperty(WAIT_STRATEGY_PROPERTY);
+    return (strategy == null) ? WaitStrategy.BLOCKING : WaitStrategy.valueOf(strategy.trim()
+            .toUpperCase());
+  }
+
+  /**
+   * @return how threads wait for an entry or a free slot
+   */
+  public WaitStrategy getWaitStrategy() {
+    return waitStrategy;
+  }
+
+  /**
+   * Returns number of elements in the queue. Special case handles EOFToken.
+   *
+   * @return - number of elements in the queue
+   */
+  public int getCurrentSize() {
+    Object head = peek();
+    if (head instanceof Object[] && ((Object[]) head)[0] instanceof EOFToken) {
+      return 0;
+    }
+    long inRing = enqueuePosition.get() - dequeuePosition.get();
+    return (int) Math.max(0, Math.min(inRing, queueMaxSize)) + overflow.size();
+  }
+
+  /**
+   * Enqueues a given object onto the queue. It blocks if the queue is full and the CPE is running,
+   * unless the object is an EOFToken.
+   *
+   * @param anObject -
+   *          an object to enqueue
+   */
+  public void enqueue(Object anObject) {
+    if (anObject instanceof Object[] && ((Object[]) anObject)[0] instanceof EOFToken) {
+      // an EOFToken is never refused; entries must not pass it
+      if (!overflow.isEmpty() || !offer(anObject)) {
+        overflow.add(anObject);
+      }
+    } else {
+      int attempt = 0;
+      while (!overflow.isEmpty() || !offer(anObject)) {
+        if (cpm != null && !cpm.isRunning()) {
+          overflow.add(anObject);
+          break;
+        }
+        await(false, Long.MAX_VALUE, attempt++);
+      }
+    }
+    signal(true, false);
+  }
+
+  /**
+   * Removes an object from the front of the queue according to FIFO.
+   *
+   * @return object dequeued from the head of the queue, null if the queue is empty
+   */
+  public Object dequeue() {
+    Object anObject = poll();
+    if (anObject == null) {
+      anObject = overflow.poll();
+      if (anObject == null) {
+        return null;
+      }
+    }
+    signal(false, false);
+    return anObject;
+  }
+
+  /**
+   * Returns an object from the queue. It will wait for the object to show up in the queue until a
+   * given timer expires.
+   *
+   * @param aTimeout -
+   *          max millis to wait for an object, 0 to wait while the CPE runs
+   *
+   * @return - Object from the queue, or null if time out
+   */
+  public Object dequeue(long aTimeout) {
+    Object resource = dequeue();
+    if (resource == null) {
+      long timeNow = System.currentTimeMillis();
+      long timeExpire = (cpm != null && !cpm.isRunning()) ? timeNow + WAIT_TIMEOUT
+              : ((0 == aTimeout) ? Long.MAX_VALUE : timeNow + aTimeout + 1);
+      int attempt = 0;
+      while (resource == null && System.currentTimeMillis() < timeExpire) {
+        await(true, timeExpire, attempt++);
+        resource = dequeue();
+      }
+    }
+    return resource;
+  }
+
+  /**
+   * Removes the objects available at the front of the queue, up to the length of the buffer,
+   * without waiting. Threads waiting to enqueue are signalled once for the whole batch.
+   *
+   * @param aBuffer -
+   *          where to put the objects, in FIFO order
+   *
+   * @return - the number of objects removed
+   */
+  public int drainTo(Object[] aBuffer) {
+    int n = 0;
+    while (n < aBuffer.length) {
+      Object anObject = poll();
+      if (anObject == null) {
+        anObject = overflow.poll();
+        if (anObject == null) {
+          break;
+        }
+      }
+      aBuffer[n++] = anObject;
+    }
+    if (n > 0) {
+      signal(false, n > 1);
+    }
+    return n;
+  }
+
+  /**
+   * Puts an object in the ring, if there is room for it.
+   */
+  private boolean offer(Object anObject) {
+    while (true) {
+      long position = enqueuePosition.get();
+      int index = (int) position & mask;
+      long dif = sequences.get(index) - position;
+      if (dif == 0) {
+        // the ring may be bigger than the capacity
+        if (position - dequeuePosition.get() >= queueMaxSize) {
+          return false;
+        }
+        if (enqueuePosition.compareAndSet(position, position + 1)) {
+          slots.set(index, anObject);
+          sequences.set(index, position + 1);
+          return true;
+        }
+      } else if (dif < 0) {
+        return false; // full
+      }
+      // else another producer got this position first
+    }
+  }
+
+  /**
+   * Takes the object at the front of the ring, if any.
+   */
+  private Object poll() {
+    while (true) {
+      long position = dequeuePosition.get();
+      int index = (int) position & mask;
+      long dif = sequences.get(index) - (position + 1);
+      if (dif == 0) {
+        if (dequeuePosition.compareAndSet(position, position + 1)) {
+          Object anObject = slots.get(index);
+          slots.set(index, null);
+          sequences.set(index, position + mask + 1);
+          return anObject;
+        }
+      } else if (dif < 0) {
+        return null; // empty
+      }
+      // else another consumer got this position first
+    }
+  }
+
+  private Object peek() {
+    long position = dequeuePosition.get();
+    int index = (int) position & mask;
+    if (sequences.get(index) == position + 1) {
+      return slots.get(index);
+    }
+    return overflow.peek();
+  }
+
+  private boolean isReady(boolean forEntry) {
+    if (forEntry) {
+      return enqueuePosition.get() != dequeuePosition.get() || !overflow.isEmpty();
+    }
+    return enqueuePosition.get() - dequeuePosition.get() < queueMaxSize && overflow.isEmpty();
+  }
+
+  /**
+   * Waits a little for an entry or a free slot, according to the wait strategy. Callers check
+   * again after each call: this may return early.
+   *
+   * @param forEntry -
+   *          true to wait for an entry, false for a free slot
+   * @param timeExpire -
+   *          time (in millis) after which not to wait
+   * @param attempt -
+   *          the number of times the caller waited already
+   */
+  private void await(boolean forEntry, long timeExpire, int attempt) {
+    if (attempt < SPIN_TRIES) {
+      return;
+    }
+    switch (waitStrategy) {
+      case BLOCKING:
+        long waitMillis = Math.min(WAIT_TIMEOUT, timeExpire - System.currentTimeMillis());
+        if (waitMillis <= 0) {
+          return;
+        }
+        AtomicInteger waiting = forEntry ? waitingForEntry : waitingForSlot;
+        lock.lock();
+        try {
+          // count before checking, so that a signal after the entry or slot is made available
+          // is not lost
+          waiting.incrementAndGet();
+          try {
+            if (!isReady(forEntry)) {
+              (forEntry ? notEmpty : notFull).await(waitMillis, TimeUnit.MILLISECONDS);
+            }
+          } finally {
+            waiting.decrementAndGet();
+          }
+        } catch (InterruptedException e) {
+          // like BoundedWorkQueue, the caller checks again
+        } finally {
+          lock.unlock();
+        }
+        break;
+      case SLEEPING:
+        if (attempt >= SPIN_TRIES + YIELD_TRIES) {
+          LockSupport.parkNanos(SLEEP_NANOS);
+          break;
+        }
+        Thread.yield();
+        break;
+      default:
+        Thread.yield();
+    }
+  }
+
+  /**
+   * Wakes a thread waiting for an entry or a free slot, if there is one (only for the BLOCKING
+   * wait strategy; the others poll).
+   */
+  private void signal(boolean entryAvailable, boolean all) {
+    AtomicInteger waiting = entryAvailable ? waitingForEntry : waitingForSlot;
+    if (waiting.get() > 0) {
+      lock.lock();
+      try {
+        Condition condition = entryAvailable ? notEmpty : notFull;
+        if (all) {
+          condition.signalAll();
+        } else {
+          condition.signal();
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
@@ -0,0 +1,381 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.collection.impl.cpm.engine;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A Bounded Queue which gives each consumer (each ProcessingUnit) a deque of its own. Entries are
+ * enqueued onto the deque of an idle consumer, or of the one with the fewest entries, and a
+ * consumer with nothing left in its own deque steals from the deque with the most entries. A
+ * ProcessingUnit held up by a large document thus doesn't hold up the entries handed to it, and
+ * consumers don't contend on one head of queue.
+ *
+ * <p>A thread gets a deque when it first calls {@link #dequeue(long)}; {@link #dequeue()} takes
+ * from the deque of the calling thread if it has one, and steals otherwise. Entries enqueued
+ * before any consumer waits, and the deques of consumers that have ended, are served to the
+ * others.
+ *
+ * <p>The semantics are otherwise those of {@link BoundedWorkQueue}: enqueue blocks while the queue
+ * is full and the CPE is running, and an EOFToken is always accepted and is only dequeued once the
+ * entries enqueued before it are. The order of the entries is not kept across consumers.
+ *
+ * <p>Selected with the system property {@link CPMEngine#WORK_QUEUE_IMPL_PROPERTY}.
+ */
+public class WorkStealingWorkQueue extends BoundedWorkQueue {
+
+  /**
+   * The deque of a consumer
+   */
+  private static class LocalDeque {
+    final Thread owner;
+
+    final ConcurrentLinkedDeque<Object> entries = new ConcurrentLinkedDeque<Object>();
+
+    // entries.size() is not constant time
+    final AtomicInteger size = new AtomicInteger();
+
+    volatile boolean waiting = false;
+
+    LocalDeque(Thread aOwner) {
+      owner = aOwner;
+    }
+
+    Object poll() {
+      Object anObject = entries.pollFirst();
+      if (anObject != null) {
+        size.decrementAndGet();
+      }
+      return anObject;
+    }
+  }
+
+  private final CopyOnWriteArrayList<LocalDeque> deques = new CopyOnWriteArrayList<LocalDeque>();
+
+  private final ThreadLocal<LocalDeque> localDeque = new ThreadLocal<LocalDeque>();
+
+  /**
+   * Entries enqueued while no consumer has a deque, EOFTokens, and anything enqueued after an
+   * EOFToken. Served in FIFO order, an EOFToken only when the deques are empty.
+   */
+  private final ConcurrentLinkedQueue<Object> shared = new ConcurrentLinkedQueue<Object>();
+
+  // number of entries in the queue, EOFTokens excluded
+  private final AtomicInteger size = new AtomicInteger();
+
+  private final AtomicInteger nextDeque = new AtomicInteger();
+
+  private final AtomicLong steals = new AtomicLong();
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final Condition notEmpty = lock.newCondition();
+
+  private final Condition notFull = lock.newCondition();
+
+  private final AtomicInteger waitingForEntry = new AtomicInteger();
+
+  private final AtomicInteger waitingForSlot = new AtomicInteger();
+
+  /**
+   * Initialize the instance
+   *
+   * @param aQueueSize -
+   *          fixed size for this queue (capacity)
+   * @param aQueueName -
+   *          name for this queue
+   * @param aCpmEngine -
+   *          CPE Engine reference
+   */
+  public WorkStealingWorkQueue(int aQueueSize, String aQueueName, CPMEngine aCpmEngine) {
+    super(aQueueSize, aQueueName, aCpmEngine);
+  }
+
+  /**
+   * Returns number of elements in the queue, EOFTokens excluded.
+   *
+   * @return - number of elements in the queue
+   */
+  public int getCurrentSize() {
+    return size.get();
+  }
+
+  /**
+   * Returns the number of entries a consumer took from the deque of another.
+   *
+   * @return - number of entries stolen so far
+   */
+  public long getStealCount() {
+    return steals.get();
+  }
+
+  /**
+   * Enqueues a given object onto the queue. It blocks if the queue is full and the CPE is running,
+   * unless the object is an EOFToken.
+   *
+   * @param anObject -
+   *          an object to enqueue
+   */
+  public void enqueue(Object anObject) {
+    if (isEOFToken(anObject)) {
+      shared.add(anObject);
+    } else {
+      while (!reserveSlot()) {
+        if (cpm != null && !cpm.isRunning()) {
+          size.incrementAndGet();
+          break;
+        }
+        await(false, Long.MAX_VALUE);
+      }
+      LocalDeque target = shared.isEmpty() ? selectDeque() : null;
+      if (target == null) {
+        shared.add(anObject);
+      } else {
+        target.entries.addLast(anObject);
+        target.size.incrementAndGet();
+      }
+    }
+    signal(true);
+  }
+
+  /**
+   * Removes an object from the deque of the calling thread, or from another deque if that is empty.
+   *
+   * @return object dequeued, null if the queue is empty
+   */
+  public Object dequeue() {
+    Object anObject = take(localDeque.get());
+    if (anObject != null) {
+      signal(false);
+    }
+    return anObject;
+  }
+
+  /**
+   * Returns an object from the queue, giving the calling thread a deque of its own if it has none.
+   * It will wait for the object to show up in the queue until a given timer expires.
+   *
+   * @param aTimeout -
+   *          max millis to wait for an object, 0 to wait while the CPE runs
+   *
+   * @return - Object from the queue, or null if time out
+   */
+  public Object dequeue(long aTimeout) {
+    LocalDeque own = localDeque.get();
+    if (own == null) {
+      own = new LocalDeque(Thread.currentThread());
+      localDeque.set(own);
+      deques.add(own);
+    }
+    Object resource = dequeue();
+    if (resource == null) {
+      long timeNow = System.currentTimeMillis();
+      long timeExpire = (cpm != null && !cpm.isRunning()) ? timeNow + WAIT_TIMEOUT
+              : ((0 == aTimeout) ? Long.MAX_VALUE : timeNow + aTimeout + 1);
+      own.waiting = true;
+      try {
+        while (resource == null && System.currentTimeMillis() < timeExpire) {
+          await(true, timeExpire);
+          resource = dequeue();
+        }
+      } finally {
+        own.waiting = false;
+      }
+    }
+    return resource;
+  }
+
+  /**
+   * Removes the objects available, up to the length of the buffer, without waiting.
+   *
+   * @param aBuffer -
+   *          where to put the objects
+   *
+   * @return - the number of objects removed
+   */
+  public int drainTo(Object[] aBuffer) {
+    int n = 0;
+    Object anObject;
+    while (n < aBuffer.length && (anObject = dequeue()) != null) {
+      aBuffer[n++] = anObject;
+    }
+    return n;
+  }
+
+  private static boolean isEOFToken(Object anObject) {
+    return anObject instanceof Object[] && ((Object[]) anObject)[0] instanceof EOFToken;
+  }
+
+  private boolean reserveSlot() {
+    while (true) {
+      int current = size.get();
+      if (current >= queueMaxSize) {
+        return false;
+      }
+      if (size.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Returns the deque to enqueue onto: the first deque of a waiting consumer after the last one
+   * chosen, or else the deque with the fewest entries. Null if no live consumer has a deque.
+   */
+  private LocalDeque selectDeque() {
+    Object[] all = deques.toArray();
+    if (all.length == 0) {
+      return null;
+    }
+    int start = (nextDeque.getAndIncrement() & Integer.MAX_VALUE) % all.length;
+    LocalDeque fewest = null;
+    for (int i = 0; i < all.length; i++) {
+      LocalDeque deque = (LocalDeque) all[(start + i) % all.length];
+      if (!deque.owner.isAlive()) {
+        // the consumer ended, what is left in its deque is stolen by the others
+        if (deque.size.get() == 0) {
+          deques.remove(deque);
+        }
+        continue;
+      }
+      if (deque.waiting) {
+        return deque;
+      }
+      if (fewest == null || deque.size.get() < fewest.size.get()) {
+        fewest = deque;
+      }
+    }
+    return fewest;
+  }
+
+  /**
+   * Takes an entry from the given deque, or the shared queue, or steals one from the deque with the
+   * most entries. An EOFToken is taken only when all the deques are empty.
+   */
+  private Object take(LocalDeque own) {
+    Object anObject = (own == null) ? null : own.poll();
+    if (anObject != null) {
+      size.decrementAndGet();
+      return anObject;
+    }
+    Object head = shared.peek();
+    if (head != null && !isEOFToken(head)) {
+      anObject = shared.poll();
+      if (anObject != null && !isEOFToken(anObject)) {
+        size.decrementAndGet();
+        return anObject;
+      }
+      // another consumer took the entry, and anObject is an EOFToken or null
+    }
+    Object stolen = steal(own);
+    if (stolen != null) {
+      if (anObject != null) {
+        // Put the EOFToken back. Only entries enqueued after the CPE stopped can get ahead of it.
+        shared.add(anObject);
+      }
+      size.decrementAndGet();
+      return stolen;
+    }
+    if (anObject == null && head != null) {
+      // the deques were empty after the EOFToken was seen
+      anObject = shared.poll();
+      if (anObject != null && !isEOFToken(anObject)) {
+        size.decrementAndGet();
+      }
+    }
+    return anObject;
+  }
+
+  /**
+   * Takes the oldest entry of the deque with the most entries, other than the given one. The
+   * oldest entry is the one that has waited the longest for its consumer.
+   */
+  private Object steal(LocalDeque own) {
+    LocalDeque victim = null;
+    for (Iterator<LocalDeque> it = deques.iterator(); it.hasNext();) {
+      LocalDeque deque = it.next();
+      if (deque != own && deque.size.get() > 0
+              && (victim == null || deque.size.get() > victim.size.get())) {
+        victim = deque;
+      }
+    }
+    // null if another consumer was first; the caller looks again
+    Object anObject = (victim == null) ? null : victim.poll();
+    if (anObject != null) {
+      steals.incrementAndGet();
+    }
+    return anObject;
+  }
+
+  /**
+   * Waits a little for an entry or a free slot. Callers check again after each call: this may
+   * return early.
+   */
+  private void await(boolean forEntry, long timeExpire) {
+    long waitMillis = Math.min(WAIT_TIMEOUT, timeExpire - System.currentTimeMillis());
+    if (waitMillis <= 0) {
+      return;
+    }
+    AtomicInteger waiting = forEntry ? waitingForEntry : waitingForSlot;
+    lock.lock();
+    try {
+      // count before checking, so that a signal after the entry or slot is made available
+      // is not lost
+      waiting.incrementAndGet();
+      try {
+        boolean ready = forEntry ? (size.get() > 0 || !shared.isEmpty())
+                : size.get() < queueMaxSize;
+        if (!ready) {
+          (forEntry ? notEmpty : notFull).await(waitMillis, TimeUnit.MILLISECONDS);
+        }
+      } finally {
+        waiting.decrementAndGet();
+      }
+    } catch (InterruptedException e) {
+      // like BoundedWorkQueue, the caller checks again
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Wakes a thread waiting for an entry or a free slot, if there is one. Any consumer woken for an
+   * entry can take it, from its own deque or by stealing.
+   */
+  private void signal(boolean entryAvailable) {
+    AtomicInteger waiting = entryAvailable ? waitingForEntry : waitingForSlot;
+    if (waiting.get() > 0) {
+      lock.lock();
+      try {
+        (entryAvailable ? notEmpty : notFull).signal();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
@@ -26,10 +26,11 @@ import org.apache.uima.collection.impl.cpm.engine.CPMEngine;
 import org.apache.uima.util.Level;
 
 /**
- * Facilitates cleaning up resources associated with chunking/sequencing logic.
+ * Facilitates cleaning up resources associated with chunking/sequencing logic. Runs on the
+ * {@link HashedWheelTimer} shared by the CPE.
  * 
  */
-public class ExpirationTimer extends Thread {
+public class ExpirationTimer extends HashedWheelTimer.Timeout {
   private final long timeOut;
 
   private final HashMap map;
@@ -51,23 +52,25 @@ public class ExpirationTimer extends Thread {
   }
 
   /**
-   * Sleeps until a given timeout occurs. When awaken this timer deletes an entry in the shared
-   * HashMap using provided key. The map holds docId's that have been split into chunks.
-   * 
+   * Starts the timer.
    */
-  public void run() {
-    try {
-      Thread.sleep(timeOut);
-    } catch (InterruptedException e) {
-    }
+  public void start() {
+    HashedWheelTimer.getInstance().schedule(this, timeOut);
+  }
 
-    if (map.containsKey(key)) {
-      if (UIMAFramework.getLogger().isLoggable(Level.FINEST)) {
-        UIMAFramework.getLogger(this.getClass()).logrb(Level.FINEST, this.getClass().getName(),
-                "process", CPMUtils.CPM_LOG_RESOURCE_BUNDLE, "UIMA_CPM_timer_expired__FINEST",
-                new Object[] { Thread.currentThread().getName(), key, String.valueOf(map.size()) });
-      }
-      synchronized (map) {
+  /**
+   * Called when a given timeout occurs. Deletes an entry in the shared HashMap using provided key.
+   * The map holds docId's that have been split into chunks.
+   * 
+   */
+  protected void expired() {
+    synchronized (map) {
+      if (map.containsKey(key)) {
+        if (UIMAFramework.getLogger().isLoggable(Level.FINEST)) {
+          UIMAFramework.getLogger(this.getClass()).logrb(Level.FINEST, this.getClass().getName(),
+                  "process", CPMUtils.CPM_LOG_RESOURCE_BUNDLE, "UIMA_CPM_timer_expired__FINEST",
+                  new Object[] { Thread.currentThread().getName(), key, String.valueOf(map.size()) });
+        }
         map.remove(key);
       }
     }
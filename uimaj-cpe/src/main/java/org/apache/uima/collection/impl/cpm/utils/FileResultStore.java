@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.collection.impl.cpm.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.apache.uima.collection.ResultStore;
+
+/**
+ * A {@link ResultStore} keeping each value in a file of a directory, so that the results are
+ * reused by later runs of the CPE. The files are spread over subdirectories named after the first
+ * two characters of the keys. A value is written to a temporary file which is then renamed, so
+ * that a reader never sees a partial value and several CPEs may share the directory.
+ * <p>
+ * The store is not bounded; the directory may be cleaned up while no CPE is using it.
+ */
+public class FileResultStore implements ResultStore {
+  private final File directory;
+
+  /**
+   * @param aDirectory -
+   *          directory holding the values, created if needed
+   */
+  public FileResultStore(File aDirectory) {
+    directory = aDirectory;
+  }
+
+  public byte[] get(String aKey) throws IOException {
+    File file = getFile(aKey);
+    InputStream in;
+    try {
+      in = new FileInputStream(file);
+    } catch (FileNotFoundException e) {
+      return null;
+    }
+    try {
+      byte[] value = new byte[(int) file.length()];
+      int n = 0;
+      while (n < value.length) {
+        int read = in.read(value, n, value.length - n);
+        if (read < 0) {
+          // truncated by another process, treat as missing
+          return null;
+        }
+        n += read;
+      }
+      return value;
+    } finally {
+      in.close();
+    }
+  }
+
+  public void put(String aKey, byte[] aValue) throws IOException {
+    File file = getFile(aKey);
+    File dir = file.getParentFile();
+    dir.mkdirs();
+    File tmp = File.createTempFile(aKey, ".tmp", dir);
+    try {
+      OutputStream out = new FileOutputStream(tmp);
+      try {
+        out.write(aValue);
+      } finally {
+        out.close();
+      }
+      Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+              StandardCopyOption.ATOMIC_MOVE);
+      tmp = null;
+    } finally {
+      if (tmp != null) {
+        tmp.delete();
+      }
+    }
+  }
+
+  public void close() {
+  }
+
+  /**
+   * Returns the directory holding the values.
+   * 
+   * @return - the directory
+   */
+  public File getDirectory() {
+    return directory;
+  }
+
+  private File getFile(String aKey) {
+    String prefix = (aKey.length() > 2) ? aKey.substring(0, 2) : "_";
+    return new File(new File(directory, prefix), aKey);
+  }
+}
@@ -0,0 +1,293 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.uima.collection.impl.cpm.utils;
+
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.util.Level;
+
+/**
+ * Runs many timeouts on a single thread. Time is divided into ticks, and each pending timeout is
+ * kept in the bucket of a wheel corresponding to the tick it expires in. Every tick the timer
+ * thread expires the due timeouts of one bucket, so scheduling, cancelling and expiring a timeout
+ * take constant time no matter how many timeouts are pending. Timeouts expire up to one tick late,
+ * never early.
+ * <p>
+ * Timeouts are linked into the wheel directly, so scheduling a {@link Timeout} does not allocate
+ * anything, and a Timeout object may be scheduled again once it expired or was cancelled.
+ * <p>
+ * The CPE shares one timer, returned by {@link #getInstance()}, whose thread is started when the
+ * first timeout is scheduled. The thread waits without ticking while no timeout is pending.
+ */
+public class HashedWheelTimer {
+  /**
+   * An action to run when a given delay is over. Subclasses implement {@link #expired()}, which
+   * is called on the timer thread and so should return quickly.
+   */
+  public abstract static class Timeout {
+    // Links in the wheel bucket
+    private Timeout next;
+
+    private Timeout prev;
+
+    // Link in the list of timeouts expired in the current tick
+    private Timeout nextExpired;
+
+    // Tick this timeout expires in
+    private long deadline;
+
+    // Bucket this timeout is linked into, -1 when not scheduled. Volatile for isPending, which
+    // does not lock the timer.
+    private volatile int bucket = -1;
+
+    /**
+     * Called by the timer thread when the timeout expires.
+     */
+    protected abstract void expired();
+
+    /**
+     * Returns true if this timeout is scheduled and has not expired or been cancelled yet.
+     * 
+     * @return - true if pending
+     */
+    public boolean isPending() {
+      return bucket >= 0;
+    }
+  }
+
+  private static final long DEFAULT_TICK = 100;
+
+  private static final int DEFAULT_WHEEL_SIZE = 512;
+
+  private static HashedWheelTimer instance = null;
+
+  private final String name;
+
+  private final long tickDuration;
+
+  private final Timeout[] wheel;
+
+  private final int mask;
+
+  private final long startTime;
+
+  // Last tick processed by the timer thread
+  private long tick = 0;
+
+  private int pendingCount = 0;
+
+  private Thread worker = null;
+
+  private volatile boolean stopped = false;
+
+  /**
+   * Returns the timer shared by the CPE, with a tick of 100ms.
+   * 
+   * @return - the shared timer
+   */
+  public static synchronized HashedWheelTimer getInstance() {
+    if (instance == null) {
+      instance = new HashedWheelTimer("[CPM Timer Thread]::", DEFAULT_TICK, DEFAULT_WHEEL_SIZE);
+    }
+    return instance;
+  }
+
+  /**
+   * Creates a timer. Its thread is started when the first timeout is scheduled.
+   * 
+   * @param aName -
+   *          name of the timer thread
+   * @param aTickMillis -
+   *          duration of a tick in ms, the precision of the timer
+   * @param aWheelSize -
+   *          number of buckets, rounded up to a power of 2. Timeouts longer than aTickMillis *
+   *          aWheelSize share buckets with shorter ones, and are checked on every turn of the wheel.
+   */
+  public HashedWheelTimer(String aName, long aTickMillis, int aWheelSize) {
+    if (aTickMillis <= 0 || aWheelSize <= 0) {
+      throw new IllegalArgumentException();
+    }
+    int size = 1;
+    while (size < aWheelSize) {
+      size <<= 1;
+    }
+    name = aName;
+    tickDuration = aTickMillis * 1000000L;
+    wheel = new Timeout[size];
+    mask = size - 1;
+    startTime = System.nanoTime();
+  }
+
+  /**
+   * Schedules a timeout to expire after a given delay. If the timeout is already pending, it is
+   * rescheduled.
+   * 
+   * @param aTimeout -
+   *          the timeout
+   * @param aDelayMillis -
+   *          delay in ms
+   */
+  public void schedule(Timeout aTimeout, long aDelayMillis) {
+    long deadline = (System.nanoTime() - startTime + Math.max(0, aDelayMillis) * 1000000L
+            + tickDuration - 1)
+            / tickDuration;
+    synchronized (this) {
+      if (stopped) {
+        throw new IllegalStateException(name);
+      }
+      if (aTimeout.bucket >= 0) {
+        unlink(aTimeout);
+      }
+      if (pendingCount == 0) {
+        // the timer thread may be waiting for a timeout, and skipped the ticks since it waits
+        tick = Math.max(tick, (System.nanoTime() - startTime) / tickDuration);
+        notifyAll();
+      }
+      aTimeout.deadline = Math.max(deadline, tick + 1);
+      int bucket = (int) (aTimeout.deadline & mask);
+      aTimeout.bucket = bucket;
+      aTimeout.prev = null;
+      aTimeout.next = wheel[bucket];
+      if (wheel[bucket] != null) {
+        wheel[bucket].prev = aTimeout;
+      }
+      wheel[bucket] = aTimeout;
+      pendingCount++;
+      if (worker == null) {
+        worker = new Thread(name) {
+          public void run() {
+            runTicks();
+          }
+        };
+        worker.setDaemon(true);
+        worker.start();
+      }
+    }
+  }
+
+  /**
+   * Cancels a pending timeout.
+   * 
+   * @param aTimeout -
+   *          the timeout
+   * 
+   * @return - true if the timeout was pending, false if it already expired or was not scheduled
+   */
+  public synchronized boolean cancel(Timeout aTimeout) {
+    if (aTimeout.bucket < 0) {
+      return false;
+    }
+    unlink(aTimeout);
+    return true;
+  }
+
+  /**
+   * Returns number of pending timeouts.
+   * 
+   * @return - number of timeouts
+   */
+  public synchronized int getPendingCount() {
+    return pendingCount;
+  }
+
+  /**
+   * Stops the timer thread. Pending timeouts do not expire anymore.
+   */
+  public void stop() {
+    Thread t;
+    synchronized (this) {
+      stopped = true;
+      t = worker;
+    }
+    if (t != null) {
+      t.interrupt();
+    }
+  }
+
+  private void unlink(Timeout aTimeout) {
+    if (aTimeout.prev != null) {
+      aTimeout.prev.next = aTimeout.next;
+    } else {
+      wheel[aTimeout.bucket] = aTimeout.next;
+    }
+    if (aTimeout.next != null) {
+      aTimeout.next.prev = aTimeout.prev;
+    }
+    aTimeout.next = null;
+    aTimeout.prev = null;
+    aTimeout.bucket = -1;
+    pendingCount--;
+  }
+
+  private void runTicks() {
+    while (!stopped) {
+      long nextTick;
+      synchronized (this) {
+        // no need to tick while the wheel is empty
+        while (pendingCount == 0 && !stopped) {
+          try {
+            wait();
+          } catch (InterruptedException e) {
+            // stopped
+          }
+        }
+        nextTick = tick + 1;
+      }
+      // Sleep until the next tick is over
+      long remaining = startTime + nextTick * tickDuration - System.nanoTime();
+      if (remaining > 0) {
+        try {
+          Thread.sleep((remaining + 999999L) / 1000000L);
+        } catch (InterruptedException e) {
+          // stopped
+        }
+        continue;
+      }
+      Timeout expired = null;
+      synchronized (this) {
+        if (tick + 1 != nextTick) {
+          // ticks skipped by schedule while the wheel was empty
+          continue;
+        }
+        tick = nextTick;
+        Timeout t = wheel[(int) (tick & mask)];
+        while (t != null) {
+          Timeout next = t.next;
+          if (t.deadline <= tick) {
+            unlink(t);
+            t.nextExpired = expired;
+            expired = t;
+          }
+          t = next;
+        }
+      }
+      while (expired != null && !stopped) {
+        Timeout next = expired.nextExpired;
+        expired.nextExpired = null;
+        try {
+          expired.expired();
+        } catch (Throwable e) {
+          UIMAFramework.getLogger(this.getClass()).log(Level.WARNING, e.getMessage(), e);
+        }
+        expired = next;
+      }
+    }
+  }
+}
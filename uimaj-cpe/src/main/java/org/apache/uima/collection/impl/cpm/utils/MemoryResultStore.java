@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.collection.impl.cpm.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.uima.collection.ResultStore;
+
+/**
+ * A {@link ResultStore} kept in memory for the run of the CPE, holding a maximum number of values.
+ * When it is full, the least recently used value is dropped.
+ */
+public class MemoryResultStore implements ResultStore {
+  /**
+   * Number of values kept by default
+   */
+  public static final int DEFAULT_SIZE = 10000;
+
+  private final Map<String, byte[]> values;
+
+  public MemoryResultStore() {
+    this(DEFAULT_SIZE);
+  }
+
+  /**
+   * @param aMaxSize -
+   *          maximum number of values kept, 0 for the default
+   */
+  public MemoryResultStore(int aMaxSize) {
+    final int maxSize = (aMaxSize > 0) ? aMaxSize : DEFAULT_SIZE;
+    values = new LinkedHashMap<String, byte[]>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      protected boolean removeEldestEntry(Map.Entry<String, byte[]> aEldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  public synchronized byte[] get(String aKey) {
+    return values.get(aKey);
+  }
+
+  public synchronized void put(String aKey, byte[] aValue) {
+    values.put(aKey, aValue);
+  }
+
+  public synchronized void close() {
+    values.clear();
+  }
+
+  /**
+   * Returns the number of values held.
+   * 
+   * @return - number of values
+   */
+  public synchronized int size() {
+    return values.size();
+  }
+}
@@ -53,6 +53,12 @@ public class CpeCasProcessorsImpl extends MetaDataObject_impl implements CpeCasP
 
   private int processingUnitThreadCount = 1;
 
+  private int minProcessingUnitThreadCount = 0;
+
+  private String resultCache = null;
+
+  private int resultCacheSize = 0;
+
   private int inputQueueSize;
 
   private int outputQueueSize;
@@ -115,6 +121,60 @@ public class CpeCasProcessorsImpl extends MetaDataObject_impl implements CpeCasP
     return processingUnitThreadCount;
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.apache.uima.collection.metadata.CpeCasProcessors#setMinConcurrentPUCount(int)
+   */
+  public void setMinConcurrentPUCount(int aMinConcurrentPUCount) throws CpeDescriptorException {
+    minProcessingUnitThreadCount = aMinConcurrentPUCount;
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.apache.uima.collection.metadata.CpeCasProcessors#getMinConcurrentPUCount()
+   */
+  public int getMinConcurrentPUCount() {
+    return minProcessingUnitThreadCount;
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.apache.uima.collection.metadata.CpeCasProcessors#setResultCache(java.lang.String)
+   */
+  public void setResultCache(String aResultCache) throws CpeDescriptorException {
+    resultCache = aResultCache;
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.apache.uima.collection.metadata.CpeCasProcessors#getResultCache()
+   */
+  public String getResultCache() {
+    return resultCache;
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.apache.uima.collection.metadata.CpeCasProcessors#setResultCacheSize(int)
+   */
+  public void setResultCacheSize(int aResultCacheSize) throws CpeDescriptorException {
+    resultCacheSize = aResultCacheSize;
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.apache.uima.collection.metadata.CpeCasProcessors#getResultCacheSize()
+   */
+  public int getResultCacheSize() {
+    return resultCacheSize;
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -299,6 +359,39 @@ public class CpeCasProcessorsImpl extends MetaDataObject_impl implements CpeCasP
                   Thread.currentThread().getName(), "casProcessors", "processingUnitThreadCount",
                   "casProcessors" });
     }
+    String minTc = aElement.getAttribute("minProcessingUnitThreadCount");
+    if (minTc != null && minTc.trim().length() > 0) {
+      try {
+        setMinConcurrentPUCount(Integer.parseInt(minTc.trim()));
+      } catch (Exception e) {
+        throw new InvalidXMLException(CPMUtils.CPM_LOG_RESOURCE_BUNDLE,
+                "UIMA_CPM_EXP_missing_attribute_from_xml_element__WARNING", new Object[] {
+                    Thread.currentThread().getName(), "casProcessors",
+                    "minProcessingUnitThreadCount", "casProcessors" });
+      }
+    }
+    String rc = aElement.getAttribute("resultCache");
+    if (rc != null && rc.trim().length() > 0) {
+      try {
+        setResultCache(rc.trim());
+      } catch (Exception e) {
+        throw new InvalidXMLException(CPMUtils.CPM_LOG_RESOURCE_BUNDLE,
+                "UIMA_CPM_EXP_missing_attribute_from_xml_element__WARNING", new Object[] {
+                    Thread.currentThread().getName(), "casProcessors", "resultCache",
+                    "casProcessors" });
+      }
+    }
+    String rcSize = aElement.getAttribute("resultCacheSize");
+    if (rcSize != null && rcSize.trim().length() > 0) {
+      try {
+        setResultCacheSize(Integer.parseInt(rcSize.trim()));
+      } catch (Exception e) {
+        throw new InvalidXMLException(CPMUtils.CPM_LOG_RESOURCE_BUNDLE,
+                "UIMA_CPM_EXP_missing_attribute_from_xml_element__WARNING", new Object[] {
+                    Thread.currentThread().getName(), "casProcessors", "resultCacheSize",
+                    "casProcessors" });
+      }
+    }
     // populate inputQueueSize and outputQueueSize ONLY if casPoolSize is not defined.
     // Both of these attributes have been deprecated and should not be used
     try {
@@ -400,6 +493,17 @@ public class CpeCasProcessorsImpl extends MetaDataObject_impl implements CpeCasP
     attrs.addAttribute("", "casPoolSize", "casPoolSize", "CDATA", String.valueOf(getCasPoolSize()));
     attrs.addAttribute("", "processingUnitThreadCount", "processingUnitThreadCount", "CDATA",
             String.valueOf(getConcurrentPUCount()));
+    if (getMinConcurrentPUCount() > 0) {
+      attrs.addAttribute("", "minProcessingUnitThreadCount", "minProcessingUnitThreadCount",
+              "CDATA", String.valueOf(getMinConcurrentPUCount()));
+    }
+    if (getResultCache() != null) {
+      attrs.addAttribute("", "resultCache", "resultCache", "CDATA", getResultCache());
+    }
+    if (getResultCacheSize() > 0) {
+      attrs.addAttribute("", "resultCacheSize", "resultCacheSize", "CDATA", String
+              .valueOf(getResultCacheSize()));
+    }
     // populate inputQueueSize and outputQueueSize ONLY if casPoolSize is not defined.
     // Both of these attributes have been deprecated and should not be used
     if (getCasPoolSize() == 0) {
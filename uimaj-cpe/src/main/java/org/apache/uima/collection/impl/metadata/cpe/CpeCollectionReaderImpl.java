@@ -19,6 +19,7 @@
 
 package org.apache.uima.collection.impl.metadata.cpe;
 
+import org.apache.uima.collection.impl.cpm.utils.CPMUtils;
 import org.apache.uima.collection.metadata.CasProcessorConfigurationParameterSettings;
 import org.apache.uima.collection.metadata.CpeCollectionReader;
 import org.apache.uima.collection.metadata.CpeCollectionReaderCasInitializer;
@@ -28,6 +29,11 @@ import org.apache.uima.collection.metadata.CpeDescriptorException;
 import org.apache.uima.resource.metadata.impl.MetaDataObject_impl;
 import org.apache.uima.resource.metadata.impl.PropertyXmlInfo;
 import org.apache.uima.resource.metadata.impl.XmlizationInfo;
+import org.apache.uima.util.InvalidXMLException;
+import org.apache.uima.util.XMLParser;
+import org.apache.uima.util.XMLParser.ParsingOptions;
+import org.w3c.dom.Element;
+import org.xml.sax.helpers.AttributesImpl;
 
 public class CpeCollectionReaderImpl extends MetaDataObject_impl implements CpeCollectionReader {
   private static final long serialVersionUID = -7663775553359776495L;
@@ -36,6 +42,8 @@ public class CpeCollectionReaderImpl extends MetaDataObject_impl implements CpeC
 
   private CpeCollectionReaderCasInitializer casInitializer;
 
+  private int readerThreads = 1;
+
   public CpeCollectionReaderImpl() {
   }
 
@@ -100,6 +108,58 @@ public class CpeCollectionReaderImpl extends MetaDataObject_impl implements CpeC
     collectionIterator.setConfigurationParameterSettings(aParams);
   }
 
+  /*
+   * (non-Javadoc)
+   * @see org.apache.uima.collection.metadata.CpeCollectionReader#setReaderThreads(int)
+   */
+  public void setReaderThreads(int aReaderThreads) {
+    readerThreads = aReaderThreads;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see org.apache.uima.collection.metadata.CpeCollectionReader#getReaderThreads()
+   */
+  public int getReaderThreads() {
+    return readerThreads;
+  }
+
+  /**
+   * Overridden to read the readerThreads attribute.
+   * 
+   * @see org.apache.uima.resource.metadata.impl.MetaDataObject_impl#buildFromXMLElement(org.w3c.dom.Element,
+   *      org.apache.uima.util.XMLParser, org.apache.uima.util.XMLParser.ParsingOptions)
+   */
+  public void buildFromXMLElement(Element aElement, XMLParser aParser, ParsingOptions aOptions)
+          throws InvalidXMLException {
+    String rt = aElement.getAttribute("readerThreads");
+    if (rt != null && rt.trim().length() > 0) {
+      try {
+        setReaderThreads(Integer.parseInt(rt.trim()));
+      } catch (NumberFormatException e) {
+        throw new InvalidXMLException(CPMUtils.CPM_LOG_RESOURCE_BUNDLE,
+                "UIMA_CPM_EXP_missing_attribute_from_xml_element__WARNING", new Object[] {
+                    Thread.currentThread().getName(), "collectionReader", "readerThreads",
+                    "collectionReader" });
+      }
+    }
+    super.buildFromXMLElement(aElement, aParser, aOptions);
+  }
+
+  /**
+   * Overridden to write the readerThreads attribute, only when more than one thread is configured.
+   * 
+   * @see org.apache.uima.resource.metadata.impl.MetaDataObject_impl#getXMLAttributes()
+   */
+  protected AttributesImpl getXMLAttributes() {
+    AttributesImpl attrs = super.getXMLAttributes();
+    if (getReaderThreads() > 1) {
+      attrs.addAttribute("", "readerThreads", "readerThreads", "CDATA", String
+              .valueOf(getReaderThreads()));
+    }
+    return attrs;
+  }
+
   protected XmlizationInfo getXmlizationInfo() {
     return XMLIZATION_INFO;
   }
@@ -80,6 +80,15 @@ public class CpeDescriptionImpl extends MetaDataObject_impl implements CpeDescri
           if (cps.getConcurrentPUCount() > 0) {
             getCpeCasProcessors().setConcurrentPUCount(cps.getConcurrentPUCount());
           }
+          if (cps.getMinConcurrentPUCount() > 0) {
+            getCpeCasProcessors().setMinConcurrentPUCount(cps.getMinConcurrentPUCount());
+          }
+          if (cps.getResultCache() != null) {
+            getCpeCasProcessors().setResultCache(cps.getResultCache());
+          }
+          if (cps.getResultCacheSize() > 0) {
+            getCpeCasProcessors().setResultCacheSize(cps.getResultCacheSize());
+          }
           if (cps.getCasPoolSize() > 0) {
             getCpeCasProcessors().setPoolSize(cps.getCasPoolSize());
           }
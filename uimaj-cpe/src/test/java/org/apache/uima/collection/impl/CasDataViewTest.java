@@ -0,0 +1,210 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.collection.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.FSIterator;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.cas_data.CasData;
+import org.apache.uima.cas_data.FeatureStructure;
+import org.apache.uima.cas_data.impl.CasDataImpl;
+import org.apache.uima.cas_data.impl.FeatureStructureImpl;
+import org.apache.uima.cas_data.impl.PrimitiveValueImpl;
+import org.apache.uima.cas_data.impl.ReferenceValueImpl;
+import org.apache.uima.collection.CollectionException;
+import org.apache.uima.resource.metadata.impl.TypeSystemDescription_impl;
+import org.apache.uima.util.CasCreationUtils;
+
+public class CasDataViewTest extends TestCase {
+
+  /**
+   * Counts the conversions
+   */
+  static class CountingConverter extends CasConverter {
+    int toCasDataCount = 0;
+
+    int toCasCount = 0;
+
+    public CasData casContainerToCasData(CAS aContainer) {
+      toCasDataCount++;
+      return super.casContainerToCasData(aContainer);
+    }
+
+    public void casDataToCasContainer(CasData aData, CAS aContainer, boolean aLenient)
+            throws CollectionException {
+      toCasCount++;
+      super.casDataToCasContainer(aData, aContainer, aLenient);
+    }
+  }
+
+  private CAS cas;
+
+  private CountingConverter converter;
+
+  protected void setUp() throws Exception {
+    cas = CasCreationUtils.createCas(new TypeSystemDescription_impl(), null, null);
+    cas.setDocumentText("Hello world");
+    cas.addFsToIndexes(cas.createAnnotation(cas.getAnnotationType(), 0, 5));
+    converter = new CountingConverter();
+  }
+
+  public void testMaterialization() throws Exception {
+    CasDataView view = new CasDataView(cas, converter);
+    assertSame(cas, view.getCas());
+    assertFalse(view.isMaterialized());
+    view.writeBack(true);
+    assertEquals(0, converter.toCasDataCount);
+    assertEquals(0, converter.toCasCount);
+
+    assertNotNull(findAnnotation(view, "0"));
+    assertTrue(view.isMaterialized());
+    view.materialize();
+    assertEquals(1, converter.toCasDataCount);
+  }
+
+  public void testUnchanged() throws Exception {
+    CasDataView view = new CasDataView(cas, converter);
+    view.materialize();
+    view.writeBack(true);
+    assertEquals(0, converter.toCasCount);
+    assertEquals("[Hello world, Hello]", getCoveredTexts());
+  }
+
+  public void testAddedFeatureStructure() throws Exception {
+    CasDataView view = new CasDataView(cas, converter);
+    FeatureStructure fs = new FeatureStructureImpl();
+    fs.setType(CAS.TYPE_NAME_ANNOTATION);
+    fs.setFeatureValue(CAS.FEATURE_BASE_NAME_BEGIN, new PrimitiveValueImpl(6));
+    fs.setFeatureValue(CAS.FEATURE_BASE_NAME_END, new PrimitiveValueImpl(11));
+    fs.setIndexed(new int[] { 1 });
+    view.addFeatureStructure(fs);
+    view.writeBack(true);
+    assertEquals(0, converter.toCasCount);
+    assertEquals("[Hello world, Hello, world]", getCoveredTexts());
+    // the added Feature Structure is now part of the CAS
+    assertNotNull(fs.getId());
+    view.writeBack(true);
+    assertEquals("[Hello world, Hello, world]", getCoveredTexts());
+
+    view.removeFeatureStructure(fs);
+    view.writeBack(true);
+    assertEquals(0, converter.toCasCount);
+    assertEquals("[Hello world, Hello]", getCoveredTexts());
+  }
+
+  public void testAddedAnnotationInSofa() throws Exception {
+    CasDataView view = new CasDataView(cas, converter);
+    FeatureStructure fs = new FeatureStructureImpl();
+    fs.setType(CAS.TYPE_NAME_ANNOTATION);
+    fs.setFeatureValue(CAS.FEATURE_BASE_NAME_SOFA, new ReferenceValueImpl(findSofaId(view)));
+    fs.setFeatureValue(CAS.FEATURE_BASE_NAME_BEGIN, new PrimitiveValueImpl(0));
+    fs.setFeatureValue(CAS.FEATURE_BASE_NAME_END, new PrimitiveValueImpl(11));
+    fs.setIndexed(new int[] { 1 });
+    view.addFeatureStructure(fs);
+    view.writeBack(true);
+    assertEquals(0, converter.toCasCount);
+    assertEquals("[Hello world, Hello world, Hello]", getCoveredTexts());
+  }
+
+  public void testRemovedFeatureStructure() throws Exception {
+    CasDataView view = new CasDataView(cas, converter);
+    view.removeFeatureStructure(findAnnotation(view, "0"));
+    view.writeBack(true);
+    assertEquals(0, converter.toCasCount);
+    assertEquals("[Hello world]", getCoveredTexts());
+  }
+
+  public void testModifiedFeatureStructure() throws Exception {
+    CasDataView view = new CasDataView(cas, converter);
+    findAnnotation(view, "0").setFeatureValue(CAS.FEATURE_BASE_NAME_BEGIN,
+            new PrimitiveValueImpl(1));
+    view.writeBack(true);
+    assertEquals(1, converter.toCasCount);
+    assertEquals("[Hello world, ello]", getCoveredTexts());
+
+    // the addresses changed, so any further change is converted as well
+    FeatureStructure fs = new FeatureStructureImpl();
+    fs.setType(CAS.TYPE_NAME_ANNOTATION);
+    fs.setFeatureValue(CAS.FEATURE_BASE_NAME_SOFA, new ReferenceValueImpl(findSofaId(view)));
+    fs.setFeatureValue(CAS.FEATURE_BASE_NAME_BEGIN, new PrimitiveValueImpl(6));
+    fs.setFeatureValue(CAS.FEATURE_BASE_NAME_END, new PrimitiveValueImpl(11));
+    fs.setIndexed(new int[] { 1 });
+    view.addFeatureStructure(fs);
+    view.writeBack(true);
+    assertEquals(2, converter.toCasCount);
+    assertEquals("[Hello world, ello, world]", getCoveredTexts());
+  }
+
+  public void testUnknownType() throws Exception {
+    CasDataView view = new CasDataView(cas, converter);
+    FeatureStructure fs = new FeatureStructureImpl();
+    fs.setType("test.Unknown");
+    fs.setIndexed(new int[] { 1 });
+    view.addFeatureStructure(fs);
+    // dropped by the lenient conversion
+    view.writeBack(true);
+    assertEquals(1, converter.toCasCount);
+    assertEquals("[Hello world, Hello]", getCoveredTexts());
+  }
+
+  public void testStaticWriteBack() throws Exception {
+    CasDataView view = new CasDataView(cas, converter);
+    assertTrue(CasDataView.writeBack(view, cas, true));
+    assertFalse(CasDataView.writeBack(view, null, true));
+    assertFalse(CasDataView.writeBack(new CasDataImpl(), cas, true));
+    CAS otherCas = CasCreationUtils.createCas(new TypeSystemDescription_impl(), null, null);
+    assertFalse(CasDataView.writeBack(view, otherCas, true));
+  }
+
+  private FeatureStructure findAnnotation(CasData aCasData, String aBegin) {
+    for (Iterator<FeatureStructure> it = aCasData.getFeatureStructures(); it.hasNext();) {
+      FeatureStructure fs = it.next();
+      if (CAS.TYPE_NAME_ANNOTATION.equals(fs.getType())
+              && aBegin.equals(fs.getFeatureValue(CAS.FEATURE_BASE_NAME_BEGIN).toString())) {
+        return fs;
+      }
+    }
+    return null;
+  }
+
+  private String findSofaId(CasData aCasData) {
+    for (Iterator<FeatureStructure> it = aCasData.getFeatureStructures(); it.hasNext();) {
+      FeatureStructure fs = it.next();
+      if (CAS.TYPE_NAME_SOFA.equals(fs.getType())) {
+        return fs.getId();
+      }
+    }
+    return null;
+  }
+
+  private String getCoveredTexts() {
+    List<String> texts = new ArrayList<String>();
+    for (FSIterator<AnnotationFS> it = cas.getAnnotationIndex().iterator(); it.hasNext();) {
+      texts.add(it.next().getCoveredText());
+    }
+    return texts.toString();
+  }
+}
@@ -0,0 +1,238 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.uima.collection.impl.cpm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.uima.collection.base_cpm.SynchPoint;
+import org.apache.uima.util.ProcessTrace;
+import org.apache.uima.util.ProcessTraceEvent;
+import org.apache.uima.util.impl.ProcessTraceEvent_impl;
+import org.apache.uima.util.impl.ProcessTrace_impl;
+
+public class CheckpointLogTest extends TestCase {
+
+  public static class TestSynchPoint implements SynchPoint {
+    private static final long serialVersionUID = 1L;
+
+    String position;
+
+    public TestSynchPoint() {
+    }
+
+    TestSynchPoint(String aPosition) {
+      position = aPosition;
+    }
+
+    public void set(Object aSynchPointData) {
+      position = (String) aSynchPointData;
+    }
+
+    public Object get() {
+      return position;
+    }
+
+    public String serializeToXML() {
+      return "<position>" + position + "</position>";
+    }
+
+    public void deserialize(InputStream aInputStream) throws Exception {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      int b;
+      while ((b = aInputStream.read()) != -1) {
+        bytes.write(b);
+      }
+      String xml = bytes.toString("UTF-8");
+      position = xml.substring("<position>".length(), xml.length() - "</position>".length());
+    }
+  }
+
+  private File file;
+
+  protected void setUp() throws Exception {
+    file = File.createTempFile("checkpoint", ".dat");
+    file.delete();
+  }
+
+  protected void tearDown() throws Exception {
+    file.delete();
+    new File(file.getPath() + ".prev").delete();
+    new File(file.getPath() + ".tmp").delete();
+  }
+
+  private static ProcessTrace trace(int aDuration, String aLastId) {
+    ProcessTrace trace = new ProcessTrace_impl();
+    trace.addEvent("CPM", "CPM PROCESSING TIME", "", aDuration, null);
+    trace.addEvent("Reader", "COLLECTION READER PROCESSING TIME", "", aDuration / 2, null);
+    trace.addEvent("Reader", "COLLECTION READER PROCESSING TIME", "", aDuration / 2, null);
+    trace.addEvent("Annotator", "Processor Last EntityId", aLastId, 0, null);
+    return trace;
+  }
+
+  private static ProcessTraceEvent event(ProcessTrace aTrace, String aComponent, String aType) {
+    List events = aTrace.getEventsByComponentName(aComponent, false);
+    for (int i = 0; i < events.size(); i++) {
+      ProcessTraceEvent event = (ProcessTraceEvent) events.get(i);
+      if (aType.equals(event.getType())) {
+        return event;
+      }
+    }
+    return null;
+  }
+
+  public void testAppendAndRead() throws Exception {
+    CheckpointLog log = new CheckpointLog(file.getPath());
+    assertNull(log.read());
+    log.append(trace(100, "doc1"), new TestSynchPoint("1"));
+    long size = log.size();
+    assertEquals(size, file.length());
+
+    // nothing changed, nothing is appended
+    log.append(trace(100, "doc1"), new TestSynchPoint("1"));
+    assertEquals(size, log.size());
+
+    // only the changed values are appended
+    log.append(trace(300, "doc1"), new TestSynchPoint("2"));
+    long delta = log.size() - size;
+    size = log.size();
+    log.append(trace(500, "doc1"), new TestSynchPoint("3"));
+    assertEquals(delta, log.size() - size);
+    log.close();
+
+    CheckpointData data = new CheckpointLog(file.getPath()).read();
+    ProcessTrace trace = data.getProcessTrace();
+    assertEquals(500, event(trace, "CPM", "CPM PROCESSING TIME").getDuration());
+    assertEquals(500, event(trace, "Reader", "COLLECTION READER PROCESSING TIME").getDuration());
+    assertEquals("doc1", event(trace, "Annotator", "Processor Last EntityId").getDescription());
+    assertEquals("3", data.getSynchPoint().get());
+  }
+
+  public void testTornWrite() throws Exception {
+    CheckpointLog log = new CheckpointLog(file.getPath());
+    log.append(trace(100, "doc1"), new TestSynchPoint("1"));
+    long size = log.size();
+    log.append(trace(200, "doc2"), new TestSynchPoint("2"));
+    log.close();
+
+    // the CPE died while appending the last record
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    raf.setLength(raf.length() - 3);
+    raf.close();
+    CheckpointData data = new CheckpointLog(file.getPath()).read();
+    assertEquals(200, event(data.getProcessTrace(), "CPM", "CPM PROCESSING TIME").getDuration());
+    assertEquals("1", data.getSynchPoint().get());
+
+    // a corrupt record is not applied either
+    raf = new RandomAccessFile(file, "rw");
+    raf.seek(size + 10);
+    raf.write(0xff);
+    raf.close();
+    data = new CheckpointLog(file.getPath()).read();
+    assertEquals(100, event(data.getProcessTrace(), "CPM", "CPM PROCESSING TIME").getDuration());
+  }
+
+  public void testCompaction() throws Exception {
+    CheckpointLog log = new CheckpointLog(file.getPath());
+    log.append(trace(0, "doc0"), new TestSynchPoint("0"));
+    long snapshotSize = log.size();
+    long maxSize = 0;
+    for (int i = 1; i <= 5000; i++) {
+      log.append(trace(i, "doc" + i), new TestSynchPoint(String.valueOf(i)));
+      maxSize = Math.max(maxSize, log.size());
+    }
+    log.close();
+    assertTrue(maxSize < 128 * 1024);
+    assertTrue(log.size() < maxSize);
+    assertTrue(new File(file.getPath() + ".prev").exists());
+    assertTrue(snapshotSize < 1024);
+
+    CheckpointData data = new CheckpointLog(file.getPath()).read();
+    assertEquals(5000, event(data.getProcessTrace(), "CPM", "CPM PROCESSING TIME").getDuration());
+    assertEquals("doc5000", event(data.getProcessTrace(), "Annotator", "Processor Last EntityId")
+            .getDescription());
+    assertEquals("5000", data.getSynchPoint().get());
+  }
+
+  public void testSubEvents() throws Exception {
+    ProcessTrace trace = new ProcessTrace_impl();
+    ProcessTraceEvent_impl aggregate = new ProcessTraceEvent_impl("Aggregate", "Analysis", "");
+    aggregate.setDuration(100);
+    ProcessTraceEvent_impl annotator = new ProcessTraceEvent_impl("Annotator", "Analysis", "");
+    annotator.setDuration(60);
+    aggregate.addSubEvent(annotator);
+    trace.addEvent(aggregate);
+    trace.addEvent("Annotator", "Analysis", "", 5, null);
+    CheckpointLog log = new CheckpointLog(file.getPath());
+    log.append(trace, null);
+    log.close();
+
+    // the sub-event stays under its parent, and is not added to the top level event
+    ProcessTrace restored = new CheckpointLog(file.getPath()).read().getProcessTrace();
+    assertEquals(2, restored.getEvents().size());
+    ProcessTraceEvent restoredAggregate = event(restored, "Aggregate", "Analysis");
+    assertEquals(100, restoredAggregate.getDuration());
+    assertEquals(1, restoredAggregate.getSubEvents().size());
+    assertEquals(60, ((ProcessTraceEvent) restoredAggregate.getSubEvents().get(0)).getDuration());
+    ProcessTraceEvent topAnnotator = (ProcessTraceEvent) restored.getEvents().get(1);
+    assertEquals("Annotator", topAnnotator.getComponentName());
+    assertEquals(5, topAnnotator.getDuration());
+  }
+
+  public void testAppendAfterClose() throws Exception {
+    CheckpointLog log = new CheckpointLog(file.getPath());
+    log.append(trace(100, "doc1"), new TestSynchPoint("1"));
+    long size = log.size();
+    log.close();
+    // a last checkpoint after the CPE stopped
+    log.append(trace(200, "doc2"), new TestSynchPoint("2"));
+    assertEquals(size, log.size());
+    assertEquals(size, file.length());
+    assertFalse(new File(file.getPath() + ".prev").exists());
+  }
+
+  public void testRestoreSerializedCheckpoint() throws Exception {
+    // checkpoint written by previous versions
+    ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(file));
+    out.writeObject(new CheckpointData(trace(100, "doc1")));
+    out.close();
+    assertFalse(CheckpointLog.isCheckpointLog(file));
+    Checkpoint checkpoint = new Checkpoint(null, file.getPath(), 1000);
+    CheckpointData data = (CheckpointData) checkpoint.restoreFromCheckpoint();
+    assertEquals(100, event(data.getProcessTrace(), "CPM", "CPM PROCESSING TIME").getDuration());
+
+    file.delete();
+    CheckpointLog log = new CheckpointLog(file.getPath());
+    log.append(trace(200, "doc2"), null);
+    log.close();
+    assertTrue(CheckpointLog.isCheckpointLog(file));
+    data = (CheckpointData) checkpoint.restoreFromCheckpoint();
+    assertEquals(200, event(data.getProcessTrace(), "CPM", "CPM PROCESSING TIME").getDuration());
+    assertNull(data.getSynchPoint());
+  }
+}
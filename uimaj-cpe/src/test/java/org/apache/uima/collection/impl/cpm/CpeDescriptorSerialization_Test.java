@@ -19,6 +19,7 @@
 
 package org.apache.uima.collection.impl.cpm;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
@@ -118,6 +119,66 @@ public class CpeDescriptorSerialization_Test extends TestCase {
     outputFile.delete();
   }
 
+  /**
+   * The readerThreads attribute of the collectionReader element is written only when more than one
+   * reader thread is configured, and is read back.
+   * 
+   * @throws Exception -
+   */
+  public void testReaderThreads() throws Exception {
+    File cpeDescFile = JUnitExtension.getFile("CpmTests/CpeAPITest/refConf.xml");
+    cpeDesc = UIMAFramework.getXMLParser().parseCpeDescription(new XMLInputSource(cpeDescFile));
+    CpeCollectionReader reader = cpeDesc.getAllCollectionCollectionReaders()[0];
+    assertEquals(1, reader.getReaderThreads());
+    ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+    cpeDesc.toXML(outStream);
+    assertEquals(-1, outStream.toString("UTF-8").indexOf("readerThreads"));
+
+    reader.setReaderThreads(4);
+    outStream = new ByteArrayOutputStream();
+    cpeDesc.toXML(outStream);
+    assertTrue(outStream.toString("UTF-8").indexOf("readerThreads=\"4\"") > 0);
+    CpeDescription readBack = UIMAFramework.getXMLParser().parseCpeDescription(
+            new XMLInputSource(new ByteArrayInputStream(outStream.toByteArray()), null));
+    assertEquals(4, readBack.getAllCollectionCollectionReaders()[0].getReaderThreads());
+  }
+
+  public void testMinProcessingUnitThreadCount() throws Exception {
+    File cpeDescFile = JUnitExtension.getFile("CpmTests/CpeAPITest/refConf.xml");
+    cpeDesc = UIMAFramework.getXMLParser().parseCpeDescription(new XMLInputSource(cpeDescFile));
+    assertEquals(0, cpeDesc.getCpeCasProcessors().getMinConcurrentPUCount());
+    ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+    cpeDesc.toXML(outStream);
+    assertEquals(-1, outStream.toString("UTF-8").indexOf("minProcessingUnitThreadCount"));
+
+    cpeDesc.getCpeCasProcessors().setMinConcurrentPUCount(2);
+    outStream = new ByteArrayOutputStream();
+    cpeDesc.toXML(outStream);
+    assertTrue(outStream.toString("UTF-8").indexOf("minProcessingUnitThreadCount=\"2\"") > 0);
+    CpeDescription readBack = UIMAFramework.getXMLParser().parseCpeDescription(
+            new XMLInputSource(new ByteArrayInputStream(outStream.toByteArray()), null));
+    assertEquals(2, readBack.getCpeCasProcessors().getMinConcurrentPUCount());
+  }
+
+  public void testResultCache() throws Exception {
+    File cpeDescFile = JUnitExtension.getFile("CpmTests/CpeAPITest/refConf.xml");
+    cpeDesc = UIMAFramework.getXMLParser().parseCpeDescription(new XMLInputSource(cpeDescFile));
+    assertNull(cpeDesc.getCpeCasProcessors().getResultCache());
+    ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+    cpeDesc.toXML(outStream);
+    assertEquals(-1, outStream.toString("UTF-8").indexOf("resultCache"));
+
+    cpeDesc.getCpeCasProcessors().setResultCache("memory");
+    cpeDesc.getCpeCasProcessors().setResultCacheSize(500);
+    outStream = new ByteArrayOutputStream();
+    cpeDesc.toXML(outStream);
+    assertTrue(outStream.toString("UTF-8").indexOf("resultCache=\"memory\"") > 0);
+    CpeDescription readBack = UIMAFramework.getXMLParser().parseCpeDescription(
+            new XMLInputSource(new ByteArrayInputStream(outStream.toByteArray()), null));
+    assertEquals("memory", readBack.getCpeCasProcessors().getResultCache());
+    assertEquals(500, readBack.getCpeCasProcessors().getResultCacheSize());
+  }
+
   /**
    * Create a remote CasProcesser via API and add him to an existing cpe configuration read from a
    * given descriptor from a file. Write the new descriptor back to a file and compare this with an
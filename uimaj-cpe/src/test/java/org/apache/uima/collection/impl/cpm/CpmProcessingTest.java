@@ -24,6 +24,7 @@ import junit.framework.TestCase;
 
 import org.apache.uima.UIMAFramework;
 import org.apache.uima.collection.CollectionProcessingEngine;
+import org.apache.uima.collection.impl.cpm.engine.ProcessingUnitScaler;
 import org.apache.uima.collection.impl.cpm.utils.DescriptorMakeUtil;
 import org.apache.uima.collection.impl.cpm.utils.FunctionErrorStore;
 import org.apache.uima.collection.impl.cpm.utils.TestStatusCallbackListener;
@@ -207,6 +208,69 @@ public class CpmProcessingTest extends TestCase {
     Assert.assertEquals("number of annoators", threadCount, FunctionErrorStore.getAnnotatorCount());
   }
 
+  /**
+   * Run with a number of processing pipelines adjusted between 1 and 4 while processing
+   * 
+   * @throws Exception -
+   */
+  public void testAdaptiveProcessingPipelines() throws Exception {
+    int documentCount = 500;
+    int threadCount = 4;
+
+    System.setProperty(ProcessingUnitScaler.INTERVAL_PROPERTY, "20");
+    try {
+      CollectionProcessingEngine cpe = setupCpm(documentCount, threadCount, 1, null);
+
+      TestStatusCallbackListener listener = new TestStatusCallbackListener();
+      cpe.addStatusCallbackListener(listener);
+      cpe.process();
+      while (!listener.isFinished()) {
+        Thread.sleep(5);
+      }
+
+      // every document is processed once, no matter how many pipelines were running
+      Assert.assertEquals("StatusCallbackListener", documentCount, listener
+              .getEntityProcessCompleteCount());
+      Assert.assertEquals("CasConsumer process Count", documentCount, FunctionErrorStore
+              .getCasConsumerProcessCount());
+      Assert.assertEquals("Annotator process count", documentCount, FunctionErrorStore
+              .getAnnotatorProcessCount());
+      Assert.assertEquals("Collection reader getNext count", documentCount, FunctionErrorStore
+              .getCollectionReaderGetNextCount());
+      Assert.assertEquals(1, cpe.getPerformanceReport().getEventsByType("PROCESSING_UNIT_COUNT",
+              false).size());
+    } finally {
+      System.clearProperty(ProcessingUnitScaler.INTERVAL_PROPERTY);
+    }
+  }
+
+  /**
+   * Run with a result cache. The test collection reader produces the same empty document over and
+   * over, so only the first one is analyzed.
+   * 
+   * @throws Exception -
+   */
+  public void testResultCache() throws Exception {
+    int documentCount = 50;
+    int threadCount = 1;
+
+    CollectionProcessingEngine cpe = setupCpm(documentCount, threadCount, 0, "memory");
+
+    TestStatusCallbackListener listener = new TestStatusCallbackListener();
+    cpe.addStatusCallbackListener(listener);
+    cpe.process();
+    while (!listener.isFinished()) {
+      Thread.sleep(5);
+    }
+
+    Assert.assertEquals("StatusCallbackListener", documentCount, listener
+            .getEntityProcessCompleteCount());
+    Assert.assertEquals("CasConsumer process Count", documentCount, FunctionErrorStore
+            .getCasConsumerProcessCount());
+    Assert.assertEquals("Annotator process count", 1, FunctionErrorStore
+            .getAnnotatorProcessCount());
+  }
+
   /**
    * setup the CPM with base functionality.
    * 
@@ -218,6 +282,25 @@ public class CpmProcessingTest extends TestCase {
    * @return CollectionProcessingEngine - initialized cpe
    */
   private CollectionProcessingEngine setupCpm(int documentCount, int threadCount) throws Exception {
+    return setupCpm(documentCount, threadCount, 0, null);
+  }
+
+  /**
+   * setup the CPM with base functionality.
+   * 
+   * @param documentCount
+   *          how many documents should be processed
+   * @param threadCount
+   *          how many threads are used by the cpm at most
+   * @param minThreadCount
+   *          how many threads are used by the cpm at least, 0 for a fixed number
+   * @param resultCache
+   *          store of the result cache, null for no result cache
+   * 
+   * @return CollectionProcessingEngine - initialized cpe
+   */
+  private CollectionProcessingEngine setupCpm(int documentCount, int threadCount,
+          int minThreadCount, String resultCache) throws Exception {
     CpeDescription cpeDesc = null;
     CollectionProcessingEngine cpe = null;
 
@@ -238,6 +321,8 @@ public class CpmProcessingTest extends TestCase {
       cpeDesc.setInputQueueSize(2);
       cpeDesc.setOutputQueueSize(2);
       cpeDesc.setProcessingUnitThreadCount(threadCount);
+      cpeDesc.getCpeCasProcessors().setMinConcurrentPUCount(minThreadCount);
+      cpeDesc.getCpeCasProcessors().setResultCache(resultCache);
 
       // add tae
       CpeIntegratedCasProcessor integratedProcessor = CpeDescriptorFactory
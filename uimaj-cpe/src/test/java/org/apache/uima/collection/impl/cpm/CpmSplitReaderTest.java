@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.uima.collection.impl.cpm;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+
+import junit.framework.TestCase;
+
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.collection.CollectionProcessingEngine;
+import org.apache.uima.collection.CollectionReaderDescription;
+import org.apache.uima.collection.impl.cpm.utils.DescriptorMakeUtil;
+import org.apache.uima.collection.impl.cpm.utils.FunctionErrorStore;
+import org.apache.uima.collection.impl.cpm.utils.SplitTestCollectionReader;
+import org.apache.uima.collection.impl.cpm.utils.TestStatusCallbackListener;
+import org.apache.uima.collection.impl.metadata.cpe.CpeDescriptorFactory;
+import org.apache.uima.collection.metadata.CpeCollectionReader;
+import org.apache.uima.collection.metadata.CpeDescription;
+import org.apache.uima.collection.metadata.CpeIntegratedCasProcessor;
+import org.apache.uima.test.junit_extension.JUnitExtension;
+import org.apache.uima.util.Progress;
+import org.apache.uima.util.XMLInputSource;
+
+/**
+ * Checks that a SplittableCollectionReader read by several reader threads delivers every document
+ * exactly once.
+ */
+public class CpmSplitReaderTest extends TestCase {
+  private static final String separator = System.getProperties().getProperty("file.separator");
+
+  protected void setUp() throws Exception {
+    // disable schema validation -- this test uses descriptors
+    // that don't validate, for some reason
+    UIMAFramework.getXMLParser().enableSchemaValidation(false);
+    SplitTestCollectionReader.reset();
+  }
+
+  protected void tearDown() throws Exception {
+    super.tearDown();
+    FunctionErrorStore.resetCount();
+  }
+
+  public void testParallelReading() throws Exception {
+    int documentCount = 100;
+    CollectionProcessingEngine cpe = setupCpm(documentCount, 4, -1);
+    TestStatusCallbackListener listener = new TestStatusCallbackListener();
+    cpe.addStatusCallbackListener(listener);
+    cpe.process();
+    while (!listener.isFinished()) {
+      Thread.sleep(5);
+    }
+
+    assertEquals("StatusCallbackListener", documentCount, listener
+            .getEntityProcessCompleteCount());
+    assertEquals("CasConsumer process Count", documentCount, FunctionErrorStore
+            .getCasConsumerProcessCount());
+    assertEquals("Collection reader getNext count", documentCount, FunctionErrorStore
+            .getCollectionReaderGetNextCount());
+    assertEquals(4, SplitTestCollectionReader.getSplitsRequested());
+    assertEquals(4, SplitTestCollectionReader.getSplitsClosed());
+    assertTrue(SplitTestCollectionReader.getReaderThreadCount() > 1);
+
+    // the progress of the collection is the sum of the progress of the splits
+    Progress[] progress = cpe.getProgress();
+    assertEquals(1, progress.length);
+    assertEquals(Progress.ENTITIES, progress[0].getUnit());
+    assertEquals(documentCount, progress[0].getCompleted());
+    assertEquals(documentCount, progress[0].getTotal());
+  }
+
+  public void testNumToProcess() throws Exception {
+    CollectionProcessingEngine cpe = setupCpm(100, 4, 30);
+    TestStatusCallbackListener listener = new TestStatusCallbackListener();
+    cpe.addStatusCallbackListener(listener);
+    cpe.process();
+    while (!listener.isFinished()) {
+      Thread.sleep(5);
+    }
+
+    assertEquals("StatusCallbackListener", 30, listener.getEntityProcessCompleteCount());
+    assertEquals("CasConsumer process Count", 30, FunctionErrorStore.getCasConsumerProcessCount());
+    assertEquals(4, SplitTestCollectionReader.getSplitsClosed());
+  }
+
+  public void testSingleReaderThread() throws Exception {
+    // without readerThreads the reader is used as an ordinary CollectionReader
+    int documentCount = 20;
+    CollectionProcessingEngine cpe = setupCpm(documentCount, 1, -1);
+    TestStatusCallbackListener listener = new TestStatusCallbackListener();
+    cpe.addStatusCallbackListener(listener);
+    cpe.process();
+    while (!listener.isFinished()) {
+      Thread.sleep(5);
+    }
+
+    assertEquals("StatusCallbackListener", documentCount, listener
+            .getEntityProcessCompleteCount());
+    assertEquals(0, SplitTestCollectionReader.getSplitsRequested());
+  }
+
+  private CollectionProcessingEngine setupCpm(int documentCount, int readerThreads,
+          long numToProcess) throws Exception {
+    String colReaderBase = JUnitExtension.getFile(
+            "CpmTests" + separator + "ErrorTestCollectionReader.xml").getAbsolutePath();
+    String taeBase = JUnitExtension.getFile("CpmTests" + separator + "ErrorTestAnnotator.xml")
+            .getAbsolutePath();
+    String casConsumerBase = JUnitExtension.getFile(
+            "CpmTests" + separator + "ErrorTestCasConsumer.xml").getAbsolutePath();
+
+    // the ErrorTest Collection Reader, implemented by the SplitTestCollectionReader
+    CollectionReaderDescription crd = UIMAFramework.getXMLParser()
+            .parseCollectionReaderDescription(new XMLInputSource(colReaderBase));
+    crd.setImplementationName(SplitTestCollectionReader.class.getName());
+    crd.getCollectionReaderMetaData().getConfigurationParameterSettings().setParameterValue(
+            "DocumentCount", Integer.valueOf(documentCount));
+    File colReaderDesc = new File(JUnitExtension.getFile("CpmTests" + separator + "CpeDesc"),
+            "TmpSplitCollectionReader.xml");
+    OutputStream out = new FileOutputStream(colReaderDesc);
+    try {
+      crd.toXML(out);
+    } finally {
+      out.close();
+    }
+
+    CpeDescription cpeDesc = CpeDescriptorFactory.produceDescriptor();
+    cpeDesc.setInputQueueSize(2);
+    cpeDesc.setOutputQueueSize(2);
+    cpeDesc.setProcessingUnitThreadCount(2);
+    cpeDesc.setNumToProcess(numToProcess);
+
+    CpeIntegratedCasProcessor integratedProcessor = CpeDescriptorFactory
+            .produceCasProcessor("ErrorTestAnnotator");
+    integratedProcessor.setDescriptor(DescriptorMakeUtil.makeAnalysisEngine(taeBase));
+    cpeDesc.addCasProcessor(integratedProcessor);
+
+    CpeIntegratedCasProcessor casConsumer = CpeDescriptorFactory
+            .produceCasProcessor("ErrorTest CasConsumer");
+    casConsumer.setDescriptor(DescriptorMakeUtil.makeCasConsumer(casConsumerBase));
+    cpeDesc.addCasProcessor(casConsumer);
+
+    cpeDesc.addCollectionReader(colReaderDesc.getAbsolutePath());
+    CpeCollectionReader reader = cpeDesc.getAllCollectionCollectionReaders()[0];
+    reader.setReaderThreads(readerThreads);
+
+    return UIMAFramework.produceCollectionProcessingEngine(cpeDesc, null, null);
+  }
+}
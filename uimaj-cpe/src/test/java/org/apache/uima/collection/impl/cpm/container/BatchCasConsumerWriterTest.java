@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.collection.impl.cpm.container;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import junit.framework.TestCase;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.collection.BatchCasConsumer_ImplBase;
+import org.apache.uima.resource.ResourceProcessException;
+import org.apache.uima.resource.metadata.impl.TypeSystemDescription_impl;
+import org.apache.uima.util.CasCreationUtils;
+
+public class BatchCasConsumerWriterTest extends TestCase {
+
+  /**
+   * Captures the document text and records the batches it writes
+   */
+  static class RecordingConsumer extends BatchCasConsumer_ImplBase {
+    final List<List<Object>> batches = new ArrayList<List<Object>>();
+
+    CountDownLatch gate = null;
+
+    boolean fail = false;
+
+    public Object captureCas(CAS aCAS) {
+      return aCAS.getDocumentText();
+    }
+
+    public void processBatch(List<Object> aBatch) throws ResourceProcessException {
+      if (gate != null) {
+        try {
+          gate.await();
+        } catch (InterruptedException e) {
+          throw new ResourceProcessException(e);
+        }
+      }
+      if (fail) {
+        fail = false;
+        throw new ResourceProcessException(new Exception("write failed"));
+      }
+      synchronized (batches) {
+        batches.add(aBatch);
+        batches.notifyAll();
+      }
+    }
+
+    String getBatches() {
+      synchronized (batches) {
+        return batches.toString();
+      }
+    }
+  }
+
+  private CAS cas;
+
+  private RecordingConsumer consumer;
+
+  protected void setUp() throws Exception {
+    cas = CasCreationUtils.createCas(new TypeSystemDescription_impl(), null, null);
+    consumer = new RecordingConsumer();
+  }
+
+  public void testBatchSize() throws Exception {
+    BatchCasConsumerWriter writer = new BatchCasConsumerWriter(consumer, "test", 3, 0, 0);
+    for (int i = 0; i < 7; i++) {
+      add(writer, String.valueOf(i));
+    }
+    assertEquals(1, writer.getBatchSize());
+    writer.close();
+    assertEquals("[[0, 1, 2], [3, 4, 5], [6]]", consumer.getBatches());
+  }
+
+  public void testBatchBytes() throws Exception {
+    // 20 bytes per CAS
+    BatchCasConsumerWriter writer = new BatchCasConsumerWriter(consumer, "test", 100, 40, 0);
+    for (int i = 0; i < 5; i++) {
+      add(writer, "012345678" + i);
+    }
+    writer.close();
+    assertEquals("[[0123456780, 0123456781], [0123456782, 0123456783], [0123456784]]",
+            consumer.getBatches());
+  }
+
+  public void testBatchTimeout() throws Exception {
+    BatchCasConsumerWriter writer = new BatchCasConsumerWriter(consumer, "test", 100, 0, 100);
+    add(writer, "a");
+    add(writer, "b");
+    synchronized (consumer.batches) {
+      long end = System.currentTimeMillis() + 10000;
+      while (consumer.batches.isEmpty() && System.currentTimeMillis() < end) {
+        consumer.batches.wait(100);
+      }
+    }
+    assertEquals("[[a, b]]", consumer.getBatches());
+    assertEquals(0, writer.getBatchSize());
+    writer.close();
+    assertEquals("[[a, b]]", consumer.getBatches());
+  }
+
+  public void testBackpressure() throws Exception {
+    consumer.gate = new CountDownLatch(1);
+    final BatchCasConsumerWriter writer = new BatchCasConsumerWriter(consumer, "test", 1, 0, 0);
+    final int[] added = new int[1];
+    final Exception[] error = new Exception[1];
+    Thread producer = new Thread() {
+      public void run() {
+        try {
+          CAS producerCas = CasCreationUtils.createCas(new TypeSystemDescription_impl(), null,
+                  null);
+          for (int i = 0; i < 4; i++) {
+            producerCas.reset();
+            producerCas.setDocumentText(String.valueOf(i));
+            writer.add(producerCas);
+            synchronized (added) {
+              added[0]++;
+            }
+          }
+        } catch (Exception e) {
+          error[0] = e;
+        }
+      }
+    };
+    producer.start();
+    // one batch being written and one waiting, the third one waits for the writer
+    long deadline = System.currentTimeMillis() + 10000;
+    while (!(producer.getState() == Thread.State.WAITING && getCount(added) == BatchCasConsumerWriter.MAX_PENDING_BATCHES)
+            && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(Thread.State.WAITING, producer.getState());
+    assertEquals(BatchCasConsumerWriter.MAX_PENDING_BATCHES, getCount(added));
+    consumer.gate.countDown();
+    producer.join(10000);
+    assertNull(error[0]);
+    writer.close();
+    assertEquals("[[0], [1], [2], [3]]", consumer.getBatches());
+  }
+
+  private static int getCount(int[] aCount) {
+    synchronized (aCount) {
+      return aCount[0];
+    }
+  }
+
+  public void testFailure() throws Exception {
+    consumer.fail = true;
+    BatchCasConsumerWriter writer = new BatchCasConsumerWriter(consumer, "test", 1, 0, 0);
+    add(writer, "a");
+    try {
+      writer.flush();
+      fail("the failed batch is not reported");
+    } catch (ResourceProcessException e) {
+      // the CAS has no CPM metadata, its document is named by its position
+      assertTrue(e.getMessage(), e.getMessage().indexOf("[CAS 1]: write failed") >= 0);
+    }
+    // reported once
+    add(writer, "b");
+    writer.close();
+    assertEquals("[[b]]", consumer.getBatches());
+  }
+
+  public void testFailureListener() throws Exception {
+    final List<String> failed = new ArrayList<String>();
+    BatchCasConsumerWriter.FailureListener listener = new BatchCasConsumerWriter.FailureListener() {
+      public void documentFailed(String aDocumentId, ResourceProcessException aException) {
+        synchronized (failed) {
+          assertTrue(aException.getMessage(),
+                  aException.getMessage().indexOf(aDocumentId + ": write failed") >= 0);
+          failed.add(aDocumentId);
+        }
+      }
+    };
+    BatchCasConsumerWriter writer = new BatchCasConsumerWriter(consumer, "test", 2, 0, 0, listener);
+    add(writer, "a");
+    consumer.fail = true;
+    add(writer, "b");
+    add(writer, "c");
+    add(writer, "d");
+    // the failure goes to the listener, not to the next CAS or the flush
+    writer.close();
+    assertEquals("[[c, d]]", consumer.getBatches());
+    assertEquals("[CAS 1, CAS 2]", failed.toString());
+  }
+
+  private void add(BatchCasConsumerWriter aWriter, String aText) throws Exception {
+    cas.reset();
+    cas.setDocumentText(aText);
+    aWriter.add(cas);
+  }
+}
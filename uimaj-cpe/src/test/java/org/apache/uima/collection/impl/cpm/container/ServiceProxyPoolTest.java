@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.collection.impl.cpm.container;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.apache.uima.collection.base_cpm.CasProcessor;
+import org.apache.uima.resource.ResourceConfigurationException;
+import org.apache.uima.resource.ResourceProcessException;
+import org.apache.uima.resource.metadata.ProcessingResourceMetaData;
+import org.apache.uima.util.ProcessTrace;
+
+public class ServiceProxyPoolTest extends TestCase {
+
+  /**
+   * A CasProcessor which is its own endpoint
+   */
+  static class TestProcessor implements CasProcessor {
+    final String name;
+
+    TestProcessor(String aName) {
+      name = aName;
+    }
+
+    public boolean isStateless() {
+      return true;
+    }
+
+    public boolean isReadOnly() {
+      return true;
+    }
+
+    public ProcessingResourceMetaData getProcessingResourceMetaData() {
+      return null;
+    }
+
+    public void batchProcessComplete(ProcessTrace aTrace) throws ResourceProcessException,
+            IOException {
+    }
+
+    public void collectionProcessComplete(ProcessTrace aTrace) throws ResourceProcessException,
+            IOException {
+    }
+
+    public String toString() {
+      return name;
+    }
+  }
+
+  private TestProcessor a = new TestProcessor("a");
+
+  private TestProcessor b = new TestProcessor("b");
+
+  private ServiceProxyPool newPool(LoadBalancer aLoadBalancer, int aFailureThreshold,
+          long aCooldown) {
+    ServiceProxyPool pool = new ServiceProxyPool();
+    pool.addCasProcessor(a);
+    pool.addCasProcessor(b);
+    pool.setLoadBalancer(aLoadBalancer, aFailureThreshold, aCooldown);
+    return pool;
+  }
+
+  public void testPoolOrder() throws Exception {
+    ServiceProxyPool pool = newPool(null, 0, 0);
+    assertNull(pool.getLoadBalancer());
+    assertSame(a, pool.checkOut());
+    assertSame(b, pool.checkOut());
+    assertNull(pool.checkOut());
+    pool.checkIn(b);
+    pool.checkIn(a);
+    assertSame(b, pool.checkOut());
+    // no stats without a load balancer
+    pool.markFailed(b);
+    assertTrue(pool.getEndpointStats().isEmpty());
+  }
+
+  public void testEwmaLatency() throws Exception {
+    ServiceProxyPool pool = newPool(new LoadBalancers.EwmaLatency(), 0, 0);
+    // a is slow
+    assertSame(a, pool.checkOut());
+    Thread.sleep(50);
+    pool.markSucceeded(a);
+    pool.checkIn(a);
+    assertSame(b, pool.checkOut());
+    pool.markSucceeded(b);
+    pool.checkIn(b);
+    for (int i = 0; i < 5; i++) {
+      CasProcessor cp = pool.checkOut();
+      assertSame(b, cp);
+      pool.markSucceeded(cp);
+      pool.checkIn(cp);
+    }
+    // a is used when b is busy
+    assertSame(b, pool.checkOut());
+    assertSame(a, pool.checkOut());
+    assertEquals(2, pool.getEndpointStats().size());
+  }
+
+  public void testLoadBalancers() throws Exception {
+    ServiceEndpointStats fast = new ServiceEndpointStats("fast");
+    fast.recordSuccess(10);
+    fast.outstanding = 3;
+    ServiceEndpointStats slow = new ServiceEndpointStats("slow");
+    slow.recordSuccess(100);
+    slow.outstanding = 1;
+    List<ServiceEndpointStats> candidates = new ArrayList<ServiceEndpointStats>();
+    candidates.add(slow);
+    candidates.add(fast);
+    assertEquals(0, new LoadBalancers.PoolOrder().select(candidates));
+    assertEquals(0, new LoadBalancers.LeastOutstanding().select(candidates));
+    // 40 ms expected for fast, 200 ms for slow
+    assertEquals(1, new LoadBalancers.EwmaLatency().select(candidates));
+    // with two candidates both are compared
+    LoadBalancer p2c = new LoadBalancers.PowerOfTwoChoices(new Random(1));
+    for (int i = 0; i < 10; i++) {
+      assertEquals(1, p2c.select(candidates));
+    }
+    // the latency average
+    slow.recordSuccess(200);
+    assertEquals(120.0, slow.getLatencyEwma(), 0.001);
+    assertEquals(2, slow.getCalls());
+
+    assertTrue(LoadBalancers.forName(null) instanceof LoadBalancers.PowerOfTwoChoices);
+    assertTrue(LoadBalancers.forName(LoadBalancers.LEAST_OUTSTANDING) instanceof LoadBalancers.LeastOutstanding);
+    assertTrue(LoadBalancers.forName(LoadBalancers.PoolOrder.class.getName()) instanceof LoadBalancers.PoolOrder);
+    try {
+      LoadBalancers.forName("no.such.Balancer");
+      fail();
+    } catch (ResourceConfigurationException e) {
+    }
+  }
+
+  public void testCircuitBreaker() throws Exception {
+    ServiceProxyPool pool = newPool(new LoadBalancers.PoolOrder(), 2, 200);
+    for (int i = 0; i < 2; i++) {
+      assertSame(a, pool.checkOut());
+      pool.markFailed(a);
+      pool.checkIn(a);
+      assertSame(b, pool.checkOut());
+      pool.markSucceeded(b);
+      pool.checkIn(b);
+    }
+    // a is not used while its circuit is open
+    assertSame(b, pool.checkOut());
+    assertNull(pool.checkOut());
+    assertNull(pool.checkOut(50));
+    pool.checkIn(b);
+    assertSame(b, pool.checkOut());
+
+    // then one call tests it, and fails
+    Thread.sleep(250);
+    assertSame(a, pool.checkOut());
+    pool.checkIn(b);
+    assertSame(b, pool.checkOut());
+    assertNull(pool.checkOut());
+    pool.markFailed(a);
+    pool.checkIn(a);
+    // the circuit is open for twice as long
+    Thread.sleep(250);
+    assertNull(pool.checkOut());
+    Thread.sleep(250);
+    assertSame(a, pool.checkOut());
+    pool.markSucceeded(a);
+    pool.checkIn(a);
+    // closed again
+    assertSame(a, pool.checkOut());
+    pool.checkIn(b);
+    pool.checkIn(a);
+  }
+
+  public void testAllCircuitsOpen() throws Exception {
+    ServiceProxyPool pool = newPool(new LoadBalancers.PoolOrder(), 1, 60000);
+    assertSame(a, pool.checkOut());
+    assertSame(b, pool.checkOut());
+    pool.markFailed(a);
+    pool.markFailed(b);
+    pool.checkIn(a);
+    pool.checkIn(b);
+    // the proxies are used anyway
+    assertSame(a, pool.checkOut());
+    pool.checkIn(a);
+
+    pool.markFailed(b); // not checked out
+    assertSame(b, pool.checkOut());
+    pool.markSucceeded(b);
+    pool.checkIn(b);
+    // b works, so a waits
+    assertSame(b, pool.checkOut());
+    assertNull(pool.checkOut());
+    pool.closeCircuits();
+    assertSame(a, pool.checkOut());
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.uima.collection.impl.cpm.engine;
+
+import junit.framework.TestCase;
+
+import org.apache.uima.collection.impl.cpm.engine.RingBufferWorkQueueTest.TestEngine;
+
+public class ProcessingUnitScalerTest extends TestCase {
+
+  private ProcessingUnitScaler newScaler(int aMin, int aMax) throws Exception {
+    return new ProcessingUnitScaler(new TestEngine(), null, null, aMin, aMax);
+  }
+
+  public void testAddWhenBacklogged() throws Exception {
+    ProcessingUnitScaler scaler = newScaler(1, 4);
+    assertEquals(1, scaler.evaluate(1, 0.9, 1.0, 0, 100));
+    // throughput went up enough, keep adding
+    assertEquals(1, scaler.evaluate(2, 0.9, 1.0, 0, 150));
+    assertEquals(1, scaler.evaluate(3, 0.9, 1.0, 0, 200));
+    // already at the maximum
+    assertEquals(0, scaler.evaluate(4, 1.0, 1.0, 0, 250));
+  }
+
+  public void testNoAddWhenConsumersAreBehind() throws Exception {
+    ProcessingUnitScaler scaler = newScaler(1, 4);
+    assertEquals(0, scaler.evaluate(2, 0.9, 1.0, 0.95, 100));
+    // nor when the pipelines are waiting on the work queue
+    assertEquals(0, scaler.evaluate(2, 0.6, 1.0, 0, 100));
+    assertEquals(0, scaler.evaluate(2, 0.9, 0.25, 0, 100));
+  }
+
+  public void testRevertWithoutGain() throws Exception {
+    ProcessingUnitScaler scaler = newScaler(1, 4);
+    assertEquals(1, scaler.evaluate(2, 0.9, 1.0, 0, 100));
+    // the added pipeline did not help
+    assertEquals(-1, scaler.evaluate(3, 0.95, 1.0, 0, 102));
+    // no pipeline is added again for a few intervals
+    for (int i = 0; i < 4; i++) {
+      assertEquals(0, scaler.evaluate(2, 0.9, 1.0, 0, 100));
+    }
+    assertEquals(1, scaler.evaluate(2, 0.9, 1.0, 0, 100));
+  }
+
+  public void testRetireWhenIdle() throws Exception {
+    ProcessingUnitScaler scaler = newScaler(2, 4);
+    assertEquals(-1, scaler.evaluate(4, 0.2, 0, 0, 100));
+    assertEquals(-1, scaler.evaluate(3, 0.3, 0.1, 0, 100));
+    // at the minimum
+    assertEquals(0, scaler.evaluate(2, 0.1, 0, 0, 100));
+  }
+}
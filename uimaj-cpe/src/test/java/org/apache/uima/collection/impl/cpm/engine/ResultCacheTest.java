@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.collection.impl.cpm.engine;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.FSIterator;
+import org.apache.uima.cas.FeatureStructure;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.collection.ResultStore;
+import org.apache.uima.collection.impl.cpm.utils.FileResultStore;
+import org.apache.uima.collection.impl.cpm.utils.MemoryResultStore;
+import org.apache.uima.resource.ResourceConfigurationException;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.resource.metadata.impl.TypeSystemDescription_impl;
+import org.apache.uima.util.CasCreationUtils;
+
+public class ResultCacheTest extends TestCase {
+
+  private static final String SOURCE_TYPE = "test.Source";
+
+  private TypeSystemDescription tsd;
+
+  private MemoryResultStore store;
+
+  protected void setUp() throws Exception {
+    tsd = new TypeSystemDescription_impl();
+    tsd.addType(SOURCE_TYPE, "", CAS.TYPE_NAME_TOP).addFeature("uri", "", CAS.TYPE_NAME_STRING);
+    store = new MemoryResultStore();
+  }
+
+  public void testRestore() throws Exception {
+    ResultCache cache = new ResultCache(store, "fingerprint");
+    CAS cas = read("test one", "file:/a");
+    ResultCache.Lookup lookup = cache.lookup(new CAS[] { cas });
+    assertFalse(lookup.isHit());
+    assertTrue(lookup.isCacheable());
+    analyze(cas);
+    cache.store(lookup);
+    assertEquals(1, store.size());
+
+    // Same document from another source
+    CAS other = read("test one", "file:/b");
+    lookup = cache.lookup(new CAS[] { other });
+    assertTrue(lookup.isHit());
+    assertEquals("[test one, one]", getCoveredTexts(other));
+    assertEquals("en", other.getDocumentLanguage());
+    assertEquals("file:/b", getSource(other));
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getMisses());
+
+    // Nothing is stored for a hit
+    cache.store(lookup);
+    assertEquals(1, store.size());
+  }
+
+  public void testMiss() throws Exception {
+    ResultCache cache = new ResultCache(store, "fingerprint");
+    CAS cas = read("test one", "file:/a");
+    ResultCache.Lookup lookup = cache.lookup(new CAS[] { cas });
+    analyze(cas);
+    cache.store(lookup);
+
+    assertFalse(cache.lookup(new CAS[] { read("test two", "file:/a") }).isHit());
+    // Other CasProcessors
+    assertFalse(new ResultCache(store, "other").lookup(new CAS[] { read("test one", "file:/a") })
+            .isHit());
+    // Other Feature Structures of the Collection Reader
+    CAS extra = read("test one", "file:/a");
+    extra.addFsToIndexes(extra.createFS(extra.getTypeSystem().getType(SOURCE_TYPE)));
+    assertFalse(cache.lookup(new CAS[] { extra }).isHit());
+    // A bundle is only restored when all its CASes are found
+    assertFalse(cache.lookup(new CAS[] { read("test one", "file:/a"), read("test two", "file:/a") })
+            .isHit());
+    assertTrue(cache.lookup(new CAS[] { read("test one", "file:/a") }).isHit());
+  }
+
+  public void testNotCacheable() throws Exception {
+    ResultCache cache = new ResultCache(store, "fingerprint");
+    // the data behind a URI may change
+    CAS cas = CasCreationUtils.createCas(tsd, null, null);
+    cas.setSofaDataURI("file:/a", "text/plain");
+    ResultCache.Lookup lookup = cache.lookup(new CAS[] { cas });
+    assertFalse(lookup.isHit());
+    assertFalse(lookup.isCacheable());
+    cache.store(lookup);
+    assertEquals(0, store.size());
+  }
+
+  public void testDamagedResult() throws Exception {
+    ResultStore damaging = new MemoryResultStore() {
+      public synchronized void put(String aKey, byte[] aValue) {
+        aValue[aValue.length - 1] ^= 1;
+        super.put(aKey, aValue);
+      }
+    };
+    ResultCache cache = new ResultCache(damaging, "fingerprint");
+    CAS cas = read("test one", "file:/a");
+    ResultCache.Lookup lookup = cache.lookup(new CAS[] { cas });
+    analyze(cas);
+    cache.store(lookup);
+
+    CAS other = read("test one", "file:/b");
+    lookup = cache.lookup(new CAS[] { other });
+    assertFalse(lookup.isHit());
+    assertTrue(lookup.isCacheable());
+    assertEquals("[test one]", getCoveredTexts(other));
+  }
+
+  public void testMemoryResultStore() throws Exception {
+    MemoryResultStore lru = new MemoryResultStore(2);
+    lru.put("a", new byte[] { 1 });
+    lru.put("b", new byte[] { 2 });
+    assertNotNull(lru.get("a"));
+    lru.put("c", new byte[] { 3 });
+    assertEquals(2, lru.size());
+    assertNull(lru.get("b"));
+    assertEquals(1, lru.get("a")[0]);
+    assertEquals(3, lru.get("c")[0]);
+  }
+
+  public void testFileResultStore() throws Exception {
+    File dir = Files.createTempDirectory("results").toFile();
+    try {
+      FileResultStore files = new FileResultStore(dir);
+      assertNull(files.get("ab01"));
+      files.put("ab01", new byte[] { 1, 2 });
+      files.put("ab01", new byte[] { 1, 2, 3 });
+      assertEquals(3, new FileResultStore(dir).get("ab01").length);
+
+      ResultCache cache = new ResultCache(files, "fingerprint");
+      CAS cas = read("test one", "file:/a");
+      ResultCache.Lookup lookup = cache.lookup(new CAS[] { cas });
+      analyze(cas);
+      cache.store(lookup);
+      CAS other = read("test one", "file:/b");
+      assertTrue(new ResultCache(new FileResultStore(dir), "fingerprint").lookup(
+              new CAS[] { other }).isHit());
+      assertEquals("[test one, one]", getCoveredTexts(other));
+    } finally {
+      delete(dir);
+    }
+  }
+
+  public void testCreateStore() throws Exception {
+    assertTrue(ResultCache.createStore("memory", 0) instanceof MemoryResultStore);
+    ResultStore files = ResultCache.createStore("file:results", 0);
+    assertEquals(new File("results"), ((FileResultStore) files).getDirectory());
+    assertTrue(ResultCache.createStore(MemoryResultStore.class.getName(), 0)
+            instanceof MemoryResultStore);
+    try {
+      ResultCache.createStore("test.NoSuchStore", 0);
+      fail();
+    } catch (ResourceConfigurationException e) {
+      // expected
+    }
+  }
+
+  /**
+   * Creates a CAS as a Collection Reader would.
+   */
+  private CAS read(String aText, String aSource) throws Exception {
+    CAS cas = CasCreationUtils.createCas(tsd, null, null);
+    cas.setDocumentText(aText);
+    Type type = cas.getTypeSystem().getType(SOURCE_TYPE);
+    FeatureStructure fs = cas.createFS(type);
+    fs.setStringValue(type.getFeatureByBaseName("uri"), aSource);
+    cas.addFsToIndexes(fs);
+    return cas;
+  }
+
+  private void analyze(CAS aCas) {
+    aCas.setDocumentLanguage("en");
+    aCas.addFsToIndexes(aCas.createAnnotation(aCas.getAnnotationType(), 5, 8));
+  }
+
+  private String getSource(CAS aCas) {
+    Type type = aCas.getTypeSystem().getType(SOURCE_TYPE);
+    FSIterator<FeatureStructure> it = aCas.getIndexRepository().getAllIndexedFS(type);
+    return it.next().getStringValue(type.getFeatureByBaseName("uri"));
+  }
+
+  private String getCoveredTexts(CAS aCas) {
+    List<String> texts = new ArrayList<String>();
+    for (FSIterator<AnnotationFS> it = aCas.getAnnotationIndex().iterator(); it.hasNext();) {
+      texts.add(it.next().getCoveredText());
+    }
+    return texts.toString();
+  }
+
+  private void delete(File aFile) {
+    File[] files = aFile.listFiles();
+    if (files != null) {
+      for (File f : files) {
+        delete(f);
+      }
+    }
+    aFile.delete();
+  }
+}
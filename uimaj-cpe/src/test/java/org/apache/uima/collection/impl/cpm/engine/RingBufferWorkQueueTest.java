@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.collection.impl.cpm.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+import org.apache.uima.collection.impl.cpm.container.CPEFactory;
+import org.apache.uima.collection.impl.metadata.cpe.CpeDescriptorFactory;
+import org.apache.uima.collection.metadata.CpeDescription;
+
+public class RingBufferWorkQueueTest extends TestCase {
+
+  /**
+   * A CPMEngine which is never started, just to tell the queues whether the CPE is running
+   */
+  static class TestEngine extends CPMEngine {
+    /**
+     * Counted down when a queue asks whether the CPE is running, which an enqueue does once it
+     * found the queue full
+     */
+    volatile CountDownLatch runningChecked;
+
+    TestEngine() throws Exception {
+      super(new CPMThreadGroup("RingBufferWorkQueueTest"), newFactory(), null, null);
+      isRunning = true;
+    }
+
+    public boolean isRunning() {
+      CountDownLatch latch = runningChecked;
+      if (latch != null) {
+        latch.countDown();
+      }
+      return super.isRunning();
+    }
+
+    void setRunning(boolean running) {
+      isRunning = running;
+    }
+
+    private static CPEFactory newFactory() throws Exception {
+      CpeDescription desc = CpeDescriptorFactory.produceDescriptor();
+      CpeDescriptorFactory.produceCpeConfiguration(desc).setDeployment("multi-threaded");
+      return new CPEFactory(desc, null);
+    }
+  }
+
+  public void testFifoAndCapacity() throws Exception {
+    for (RingBufferWorkQueue.WaitStrategy strategy : RingBufferWorkQueue.WaitStrategy.values()) {
+      TestEngine cpm = new TestEngine();
+      // a capacity which is not a power of 2
+      final RingBufferWorkQueue q = new RingBufferWorkQueue(3, "test", cpm, strategy);
+      assertEquals(strategy, q.getWaitStrategy());
+      assertEquals(3, q.getCapacity());
+      assertNull(q.dequeue());
+      assertNull(q.dequeue(10));
+      for (int round = 0; round < 5; round++) {
+        q.enqueue("a");
+        q.enqueue("b");
+        q.enqueue("c");
+        assertEquals(3, q.getCurrentSize());
+
+        // the 4th enqueue waits for a dequeue
+        final CountDownLatch enqueued = new CountDownLatch(1);
+        cpm.runningChecked = new CountDownLatch(1);
+        Thread producer = new Thread() {
+          public void run() {
+            q.enqueue("d");
+            enqueued.countDown();
+          }
+        };
+        producer.start();
+        assertTrue(cpm.runningChecked.await(5, TimeUnit.SECONDS));
+        cpm.runningChecked = null;
+        assertEquals(1, enqueued.getCount());
+        assertEquals(3, q.getCurrentSize());
+        assertEquals("a", q.dequeue());
+        producer.join(5000);
+        assertEquals(0, enqueued.getCount());
+
+        Object[] buffer = new Object[2];
+        assertEquals(2, q.drainTo(buffer));
+        assertEquals("b", buffer[0]);
+        assertEquals("c", buffer[1]);
+        assertEquals("d", q.dequeue(10));
+        assertEquals(0, q.getCurrentSize());
+        assertEquals(0, q.drainTo(buffer));
+      }
+    }
+  }
+
+  public void testEOFToken() throws Exception {
+    TestEngine cpm = new TestEngine();
+    RingBufferWorkQueue q = new RingBufferWorkQueue(2, "test", cpm);
+    Object[] eof = new Object[] { new EOFToken() };
+    q.enqueue("a");
+    q.enqueue("b");
+    // accepted although the queue is full, and kept after the entries
+    q.enqueue(eof);
+    assertEquals(3, q.getCurrentSize());
+    assertEquals("a", q.dequeue());
+    assertEquals("b", q.dequeue());
+    // an EOFToken at the head is not counted
+    assertEquals(0, q.getCurrentSize());
+    assertSame(eof, q.dequeue());
+
+    // when the CPE is not running, enqueue doesn't wait for room
+    q.enqueue("a");
+    q.enqueue("b");
+    cpm.setRunning(false);
+    q.enqueue("c");
+    Object[] buffer = new Object[5];
+    assertEquals(3, q.drainTo(buffer));
+    assertEquals("c", buffer[2]);
+    long start = System.currentTimeMillis();
+    assertNull(q.dequeue(0));
+    assertTrue(System.currentTimeMillis() - start < 5000);
+  }
+
+  public void testManyProducersAndConsumers() throws Exception {
+    for (RingBufferWorkQueue.WaitStrategy strategy : RingBufferWorkQueue.WaitStrategy.values()) {
+      final RingBufferWorkQueue q = new RingBufferWorkQueue(4, "test", new TestEngine(), strategy);
+      final int nbrProducers = 4;
+      final int nbrConsumers = 8;
+      final int perProducer = 20000;
+      final AtomicLong sum = new AtomicLong();
+      final AtomicLong count = new AtomicLong();
+      final AtomicReference<String> error = new AtomicReference<String>();
+      Thread[] threads = new Thread[nbrProducers + nbrConsumers];
+      for (int p = 0; p < nbrProducers; p++) {
+        final int producer = p;
+        threads[p] = new Thread() {
+          public void run() {
+            for (int i = 0; i < perProducer; i++) {
+              q.enqueue(new int[] { producer, i });
+            }
+          }
+        };
+      }
+      for (int c = 0; c < nbrConsumers; c++) {
+        threads[nbrProducers + c] = new Thread() {
+          public void run() {
+            int[] last = new int[nbrProducers];
+            Arrays.fill(last, -1);
+            while (true) {
+              Object o = q.dequeue(0);
+              if (o == null) {
+                continue;
+              }
+              if (o instanceof Object[]) { // EOFToken: put it back for the other consumers
+                q.enqueue(o);
+                return;
+              }
+              int[] entry = (int[]) o;
+              // the entries of one producer are dequeued in order
+              if (entry[1] <= last[entry[0]]) {
+                error.set("out of order: " + entry[1] + " after " + last[entry[0]]);
+              }
+              last[entry[0]] = entry[1];
+              sum.addAndGet(entry[1]);
+              count.incrementAndGet();
+            }
+          }
+        };
+      }
+      for (Thread t : threads) {
+        t.start();
+      }
+      for (int p = 0; p < nbrProducers; p++) {
+        threads[p].join();
+      }
+      q.enqueue(new Object[] { new EOFToken() });
+      for (Thread t : threads) {
+        t.join(30000);
+        assertFalse(strategy.toString(), t.isAlive());
+      }
+      assertNull(error.get());
+      assertEquals(nbrProducers * perProducer, count.get());
+      assertEquals(nbrProducers * ((long) perProducer * (perProducer - 1) / 2), sum.get());
+    }
+  }
+}
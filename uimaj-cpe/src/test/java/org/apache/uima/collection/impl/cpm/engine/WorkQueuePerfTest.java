@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.collection.impl.cpm.engine;
+
+import junit.framework.TestCase;
+
+import org.apache.uima.collection.impl.cpm.engine.RingBufferWorkQueueTest.TestEngine;
+
+/**
+ * Measures the throughput of the CPE work queues in the CPE arrangement: one producer (the
+ * ArtifactProducer) feeding a work queue, N processing threads moving the entries to an output
+ * queue, and one consumer (the Cas Consumer pipeline), for N from 8 to 64.
+ */
+public class WorkQueuePerfTest extends TestCase {
+  /**
+   * Set to false to run the performance test
+   */
+  final boolean SKIP = true;
+
+  final int NBR_ENTRIES = 20000;  // BoundedWorkQueue does a few hundred per second when the queues are full
+
+  final int QUEUE_SIZE = 16;
+
+  public void testPerf() throws Exception {
+    if (SKIP) return;
+    for (int round = 0; round < 2; round++) {
+      for (int nbrThreads = 8; nbrThreads <= 64; nbrThreads *= 2) {
+        run("BoundedWorkQueue", nbrThreads, null);
+        run("WorkStealingWorkQueue", nbrThreads, null);
+        for (RingBufferWorkQueue.WaitStrategy strategy : RingBufferWorkQueue.WaitStrategy.values()) {
+          run("RingBufferWorkQueue " + strategy, nbrThreads, strategy);
+        }
+      }
+    }
+  }
+
+  private void run(String name, int nbrThreads, RingBufferWorkQueue.WaitStrategy strategy) throws Exception {
+    TestEngine cpm = new TestEngine();
+    final BoundedWorkQueue workQueue = newQueue(name, "work", cpm, strategy);
+    final BoundedWorkQueue outputQueue = newQueue(name, "output", cpm, strategy);
+    final Object[] eof = new Object[] { new EOFToken() };
+    final Object entry = new Object[] { "cas" };
+
+    Thread[] processors = new Thread[nbrThreads];
+    for (int i = 0; i < nbrThreads; i++) {
+      processors[i] = new Thread() {
+        public void run() {
+          while (true) {
+            Object o = workQueue.dequeue(0);
+            if (o == eof) {
+              workQueue.enqueue(eof);
+              return;
+            }
+            if (o != null) {
+              outputQueue.enqueue(o);
+            }
+          }
+        }
+      };
+    }
+    long start = System.nanoTime();
+    for (Thread t : processors) {
+      t.start();
+    }
+    Thread producer = new Thread() {
+      public void run() {
+        for (int i = 0; i < NBR_ENTRIES; i++) {
+          workQueue.enqueue(entry);
+        }
+        workQueue.enqueue(eof);
+      }
+    };
+    producer.start();
+    int consumed = 0;
+    while (consumed < NBR_ENTRIES) {
+      if (outputQueue.dequeue(0) != null) {
+        consumed++;
+      }
+    }
+    long elapsed = System.nanoTime() - start;
+    producer.join();
+    for (Thread t : processors) {
+      t.join();
+    }
+    System.out.format("%-32s %2d threads: %,10.0f entries per second%n", name, nbrThreads,
+            NBR_ENTRIES * 1e9 / elapsed);
+  }
+
+  private BoundedWorkQueue newQueue(String name, String queueName, TestEngine cpm,
+          RingBufferWorkQueue.WaitStrategy strategy) {
+    if (strategy != null) {
+      return new RingBufferWorkQueue(QUEUE_SIZE, queueName, cpm, strategy);
+    }
+    if (name.equals("WorkStealingWorkQueue")) {
+      return new WorkStealingWorkQueue(QUEUE_SIZE, queueName, cpm);
+    }
+    return new BoundedWorkQueue(QUEUE_SIZE, queueName, cpm);
+  }
+}
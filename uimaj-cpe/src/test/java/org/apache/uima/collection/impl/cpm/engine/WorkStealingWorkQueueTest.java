@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.collection.impl.cpm.engine;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+import org.apache.uima.collection.impl.cpm.engine.RingBufferWorkQueueTest.TestEngine;
+
+public class WorkStealingWorkQueueTest extends TestCase {
+
+  public void testOwnDequeAndCapacity() throws Exception {
+    TestEngine cpm = new TestEngine();
+    final WorkStealingWorkQueue q = new WorkStealingWorkQueue(3, "test", cpm);
+    assertEquals(3, q.getCapacity());
+    assertNull(q.dequeue());
+    // gives this thread a deque
+    assertNull(q.dequeue(10));
+    for (int round = 0; round < 5; round++) {
+      q.enqueue("a");
+      q.enqueue("b");
+      q.enqueue("c");
+      assertEquals(3, q.getCurrentSize());
+
+      // the 4th enqueue waits for a dequeue
+      final CountDownLatch enqueued = new CountDownLatch(1);
+      Thread producer = new Thread() {
+        public void run() {
+          q.enqueue("d");
+          enqueued.countDown();
+        }
+      };
+      producer.start();
+      Thread.sleep(100);
+      assertEquals(1, enqueued.getCount());
+      assertEquals("a", q.dequeue());
+      producer.join(5000);
+      assertEquals(0, enqueued.getCount());
+
+      Object[] buffer = new Object[2];
+      assertEquals(2, q.drainTo(buffer));
+      assertEquals("b", buffer[0]);
+      assertEquals("c", buffer[1]);
+      assertEquals("d", q.dequeue(10));
+      assertEquals(0, q.getCurrentSize());
+      assertEquals(0, q.drainTo(buffer));
+    }
+    assertEquals(0, q.getStealCount());
+  }
+
+  public void testStealing() throws Exception {
+    final WorkStealingWorkQueue q = new WorkStealingWorkQueue(10, "test", new TestEngine());
+    final CountDownLatch registered = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(1);
+    // a consumer busy with a large document
+    Thread slow = new Thread() {
+      public void run() {
+        q.dequeue(1);
+        registered.countDown();
+        try {
+          done.await();
+        } catch (InterruptedException e) {
+        }
+      }
+    };
+    slow.start();
+    registered.await();
+    q.enqueue("a");
+    q.enqueue("b");
+    q.enqueue("c");
+    // the entries handed to the slow consumer are taken by the others, oldest first
+    assertEquals("a", q.dequeue());
+    assertEquals("b", q.dequeue(10));
+    assertEquals(2, q.getStealCount());
+    // this thread has a deque now, and is the one enqueued onto
+    q.enqueue("d");
+    assertEquals("d", q.dequeue());
+    assertEquals(2, q.getStealCount());
+    assertEquals("c", q.dequeue());
+    assertEquals(3, q.getStealCount());
+    done.countDown();
+    slow.join();
+    // the deque of an ended consumer is not enqueued onto
+    q.enqueue("e");
+    q.enqueue("f");
+    assertEquals("e", q.dequeue());
+    assertEquals("f", q.dequeue());
+    assertEquals(3, q.getStealCount());
+  }
+
+  public void testEOFToken() throws Exception {
+    TestEngine cpm = new TestEngine();
+    final WorkStealingWorkQueue q = new WorkStealingWorkQueue(2, "test", cpm);
+    final CountDownLatch registered = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(1);
+    Thread other = new Thread() {
+      public void run() {
+        q.dequeue(1);
+        registered.countDown();
+        try {
+          done.await();
+        } catch (InterruptedException e) {
+        }
+      }
+    };
+    other.start();
+    registered.await();
+    Object[] eof = new Object[] { new EOFToken() };
+    q.enqueue("a");
+    q.enqueue("b");
+    // accepted although the queue is full, and dequeued after the entries
+    q.enqueue(eof);
+    assertEquals(2, q.getCurrentSize());
+    assertEquals("a", q.dequeue());
+    assertEquals("b", q.dequeue());
+    assertEquals(0, q.getCurrentSize());
+    assertSame(eof, q.dequeue());
+    done.countDown();
+    other.join();
+
+    // when the CPE is not running, enqueue doesn't wait for room
+    q.enqueue("a");
+    q.enqueue("b");
+    cpm.setRunning(false);
+    q.enqueue("c");
+    Object[] buffer = new Object[5];
+    assertEquals(3, q.drainTo(buffer));
+    long start = System.currentTimeMillis();
+    assertNull(q.dequeue(0));
+    assertTrue(System.currentTimeMillis() - start < 5000);
+  }
+
+  public void testManyProducersAndConsumers() throws Exception {
+    final WorkStealingWorkQueue q = new WorkStealingWorkQueue(4, "test", new TestEngine());
+    final int nbrProducers = 4;
+    final int nbrConsumers = 8;
+    final int perProducer = 20000;
+    final AtomicLong sum = new AtomicLong();
+    final AtomicLong count = new AtomicLong();
+    final AtomicReference<String> error = new AtomicReference<String>();
+    Thread[] threads = new Thread[nbrProducers + nbrConsumers];
+    for (int p = 0; p < nbrProducers; p++) {
+      final int producer = p;
+      threads[p] = new Thread() {
+        public void run() {
+          for (int i = 0; i < perProducer; i++) {
+            q.enqueue(new int[] { producer, i });
+          }
+        }
+      };
+    }
+    for (int c = 0; c < nbrConsumers; c++) {
+      final int consumer = c;
+      threads[nbrProducers + c] = new Thread() {
+        public void run() {
+          int n = 0;
+          while (true) {
+            Object o = q.dequeue(0);
+            if (o == null) {
+              continue;
+            }
+            if (o instanceof Object[]) { // EOFToken: put it back for the other consumers
+              q.enqueue(o);
+              return;
+            }
+            if (!(o instanceof int[])) {
+              error.set("unexpected entry " + o);
+            }
+            sum.addAndGet(((int[]) o)[1]);
+            count.incrementAndGet();
+            // some consumers are slow
+            if (consumer == 0 && ++n % 100 == 0) {
+              try {
+                Thread.sleep(1);
+              } catch (InterruptedException e) {
+              }
+            }
+          }
+        }
+      };
+    }
+    for (Thread t : threads) {
+      t.start();
+    }
+    for (int p = 0; p < nbrProducers; p++) {
+      threads[p].join();
+    }
+    q.enqueue(new Object[] { new EOFToken() });
+    for (Thread t : threads) {
+      t.join(30000);
+      assertFalse(t.isAlive());
+    }
+    assertNull(error.get());
+    assertEquals(nbrProducers * perProducer, count.get());
+    assertEquals(nbrProducers * ((long) perProducer * (perProducer - 1) / 2), sum.get());
+    assertEquals(0, q.getCurrentSize());
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.uima.collection.impl.cpm.utils;
+
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class HashedWheelTimerTest extends TestCase {
+
+  static class TestTimeout extends HashedWheelTimer.Timeout {
+    final CountDownLatch latch;
+
+    final long scheduled = System.nanoTime();
+
+    long delay;
+
+    volatile long expiredAfter = -1;
+
+    final AtomicInteger count = new AtomicInteger();
+
+    TestTimeout(CountDownLatch aLatch, long aDelay) {
+      latch = aLatch;
+      delay = aDelay;
+    }
+
+    protected void expired() {
+      expiredAfter = (System.nanoTime() - scheduled) / 1000000L;
+      count.incrementAndGet();
+      latch.countDown();
+    }
+  }
+
+  public void testManyTimeouts() throws Exception {
+    // a small wheel, so that the longer timeouts need several turns
+    HashedWheelTimer timer = new HashedWheelTimer("test", 5, 16);
+    try {
+      int n = 2000;
+      CountDownLatch latch = new CountDownLatch(n);
+      TestTimeout[] timeouts = new TestTimeout[n];
+      for (int i = 0; i < n; i++) {
+        timeouts[i] = new TestTimeout(latch, i % 300);
+        timer.schedule(timeouts[i], timeouts[i].delay);
+      }
+      assertTrue(latch.await(10, TimeUnit.SECONDS));
+      assertEquals(0, timer.getPendingCount());
+      for (int i = 0; i < n; i++) {
+        assertFalse(timeouts[i].isPending());
+        assertEquals(1, timeouts[i].count.get());
+        // never early
+        assertTrue(timeouts[i].expiredAfter >= timeouts[i].delay);
+      }
+    } finally {
+      timer.stop();
+    }
+  }
+
+  public void testCancelAndReschedule() throws Exception {
+    HashedWheelTimer timer = new HashedWheelTimer("test", 5, 64);
+    try {
+      CountDownLatch latch = new CountDownLatch(1);
+      TestTimeout cancelled = new TestTimeout(latch, 50);
+      timer.schedule(cancelled, 50);
+      assertTrue(cancelled.isPending());
+      assertEquals(1, timer.getPendingCount());
+      assertTrue(timer.cancel(cancelled));
+      assertFalse(timer.cancel(cancelled));
+      assertEquals(0, timer.getPendingCount());
+
+      // rescheduling a pending timeout replaces its deadline
+      TestTimeout rescheduled = new TestTimeout(latch, 10000);
+      timer.schedule(rescheduled, 10000);
+      timer.schedule(rescheduled, 20);
+      assertEquals(1, timer.getPendingCount());
+      assertTrue(latch.await(5, TimeUnit.SECONDS));
+      Thread.sleep(100);
+      assertEquals(0, cancelled.count.get());
+      assertEquals(1, rescheduled.count.get());
+
+      // an expired timeout may be scheduled again
+      timer.schedule(rescheduled, 0);
+      Thread.sleep(200);
+      assertEquals(2, rescheduled.count.get());
+    } finally {
+      timer.stop();
+    }
+  }
+
+  public void testIdle() throws Exception {
+    HashedWheelTimer timer = new HashedWheelTimer("idle test", 5, 64);
+    try {
+      CountDownLatch latch = new CountDownLatch(1);
+      TestTimeout first = new TestTimeout(latch, 10);
+      timer.schedule(first, 10);
+      assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+      // with no timeout pending, the timer thread waits instead of ticking
+      Thread worker = null;
+      for (Thread t : Thread.getAllStackTraces().keySet()) {
+        if ("idle test".equals(t.getName())) {
+          worker = t;
+        }
+      }
+      assertNotNull(worker);
+      long deadline = System.currentTimeMillis() + 10000;
+      while (worker.getState() != Thread.State.WAITING
+              && System.currentTimeMillis() < deadline) {
+        Thread.sleep(5);
+      }
+      assertEquals(Thread.State.WAITING, worker.getState());
+
+      // a timeout scheduled after a while still expires on time, never early
+      Thread.sleep(100);
+      latch = new CountDownLatch(1);
+      TestTimeout second = new TestTimeout(latch, 50);
+      timer.schedule(second, 50);
+      assertTrue(latch.await(5, TimeUnit.SECONDS));
+      assertTrue(second.expiredAfter >= 50);
+      assertTrue(second.expiredAfter < 1000);
+      assertEquals(1, first.count.get());
+    } finally {
+      timer.stop();
+    }
+  }
+
+  public void testExpirationTimer() throws Exception {
+    HashMap map = new HashMap();
+    map.put("doc1", "doc1");
+    new ExpirationTimer(10, map, "doc1", null).start();
+    long start = System.currentTimeMillis();
+    while (System.currentTimeMillis() - start < 5000) {
+      synchronized (map) {
+        if (map.isEmpty()) {
+          break;
+        }
+      }
+      Thread.sleep(10);
+    }
+    assertTrue(map.isEmpty());
+  }
+}
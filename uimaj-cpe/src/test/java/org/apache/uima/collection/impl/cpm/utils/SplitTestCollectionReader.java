@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.uima.collection.impl.cpm.utils;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.collection.CollectionException;
+import org.apache.uima.collection.CollectionReaderSplit;
+import org.apache.uima.collection.CollectionReader_ImplBase;
+import org.apache.uima.collection.SplittableCollectionReader;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.util.Progress;
+import org.apache.uima.util.ProgressImpl;
+
+/**
+ * A collection reader which emulates a given number of documents, divided into splits of
+ * consecutive document numbers.
+ */
+public class SplitTestCollectionReader extends CollectionReader_ImplBase implements
+        SplittableCollectionReader {
+
+  private static final String DOCUMENT_COUNT = "DocumentCount";
+
+  private static int splitsRequested;
+
+  private static int splitsClosed;
+
+  private static Set readerThreads = Collections.synchronizedSet(new HashSet());
+
+  private int documentCount = 0;
+
+  private int documentsCounted = 0;
+
+  public static synchronized void reset() {
+    splitsRequested = 0;
+    splitsClosed = 0;
+    readerThreads.clear();
+  }
+
+  public static synchronized int getSplitsRequested() {
+    return splitsRequested;
+  }
+
+  public static synchronized int getSplitsClosed() {
+    return splitsClosed;
+  }
+
+  /**
+   * @return the number of different threads which have read from the splits
+   */
+  public static int getReaderThreadCount() {
+    return readerThreads.size();
+  }
+
+  private static synchronized void splitClosed() {
+    splitsClosed++;
+  }
+
+  public void initialize() throws ResourceInitializationException {
+    documentCount = (((Integer) getConfigParameterValue(DOCUMENT_COUNT)).intValue());
+    documentsCounted = 0;
+  }
+
+  public boolean hasNext() {
+    return documentCount > documentsCounted;
+  }
+
+  public void getNext(CAS aCAS) throws IOException, CollectionException {
+    aCAS.setDocumentText("document " + documentsCounted++);
+    FunctionErrorStore.increaseCollectionReaderGetNextCount();
+  }
+
+  public CollectionReaderSplit[] getSplits(int aMaxSplits) {
+    synchronized (SplitTestCollectionReader.class) {
+      splitsRequested = aMaxSplits;
+    }
+    int remaining = documentCount - documentsCounted;
+    int nbrSplits = Math.max(1, Math.min(aMaxSplits, remaining));
+    CollectionReaderSplit[] splits = new CollectionReaderSplit[nbrSplits];
+    int start = documentsCounted;
+    for (int i = 0; i < nbrSplits; i++) {
+      int end = start + remaining / nbrSplits + (i < remaining % nbrSplits ? 1 : 0);
+      splits[i] = new Split(start, end);
+      start = end;
+    }
+    return splits;
+  }
+
+  public void close() throws IOException {
+  }
+
+  public Progress[] getProgress() {
+    return new Progress[] { new ProgressImpl(documentsCounted, documentCount, Progress.ENTITIES) };
+  }
+
+  private static class Split implements CollectionReaderSplit {
+    private final int start;
+
+    private final int end;
+
+    private int next;
+
+    Split(int aStart, int aEnd) {
+      start = aStart;
+      end = aEnd;
+      next = aStart;
+    }
+
+    public boolean hasNext() {
+      return next < end;
+    }
+
+    public void getNext(CAS aCAS) throws IOException, CollectionException {
+      readerThreads.add(Thread.currentThread().getName());
+      aCAS.setDocumentText("document " + next++);
+      FunctionErrorStore.increaseCollectionReaderGetNextCount();
+    }
+
+    public Progress[] getProgress() {
+      return new Progress[] { new ProgressImpl(next - start, end - start, Progress.ENTITIES) };
+    }
+
+    public void close() {
+      splitClosed();
+    }
+  }
+}
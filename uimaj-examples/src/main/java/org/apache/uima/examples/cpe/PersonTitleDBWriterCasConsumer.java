@@ -26,11 +26,13 @@ import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.CASException;
 import org.apache.uima.cas.FSIterator;
-import org.apache.uima.collection.CasConsumer_ImplBase;
+import org.apache.uima.collection.BatchCasConsumer_ImplBase;
 import org.apache.uima.examples.SourceDocumentInformation;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
@@ -60,15 +62,18 @@ import example.PersonTitle;
  * The processing is set up to handle multiple CASes. The end is indicated by using the
  * CollectionProcessComplete call.
  * 
- * Batching of updates to the database is done. The batch size is set to 50. The larger size takes
- * more Java heap space, but perhaps runs more efficiently.
+ * Batching of updates to the database is done. The rows of each CAS are captured on the processing
+ * thread, and the CPE writes them in batches on a writer thread of its own, with one JDBC batch
+ * update per batch. The batch size is set with the <code>consumerBatchSize</code> parameter in the
+ * &lt;deploymentParameters&gt; of the CAS consumer in the cpe descriptor (50 is a good value). The
+ * larger size takes more Java heap space, but perhaps runs more efficiently.
  * 
  * The Table is populated with a slightly denormalized form of the data: the URI of the document is
  * included with every record.
  * 
  * 
  */
-public class PersonTitleDBWriterCasConsumer extends CasConsumer_ImplBase {
+public class PersonTitleDBWriterCasConsumer extends BatchCasConsumer_ImplBase {
   /**
    * Name of configuration parameter that must be set to the path of a directory into which the
    * Derby Database will be written.
@@ -79,9 +84,30 @@ public class PersonTitleDBWriterCasConsumer extends CasConsumer_ImplBase {
 
   public static final int MAX_TITLE_LENGTH = 20;
 
+  /**
+   * Suggested value of the <code>consumerBatchSize</code> deployment parameter of this consumer.
+   */
   public static final int DB_LOAD_BATCH_SIZE = 50;
 
-  private int batchCounter = DB_LOAD_BATCH_SIZE;
+  /**
+   * A row of the PersonTitle table
+   */
+  private static class PersonTitleRow {
+    final String uri;
+
+    final String spannedText;
+
+    final int beginOffset;
+
+    final int endOffset;
+
+    PersonTitleRow(String aUri, String aSpannedText, int aBeginOffset, int aEndOffset) {
+      uri = aUri;
+      spannedText = aSpannedText;
+      beginOffset = aBeginOffset;
+      endOffset = aEndOffset;
+    }
+  }
 
   private File mOutputDir;
 
@@ -111,21 +137,22 @@ public class PersonTitleDBWriterCasConsumer extends CasConsumer_ImplBase {
   }
 
   /**
-   * Processes the CasContainer which was populated by the TextAnalysisEngines. <br>
+   * Captures the data of a CasContainer which was populated by the TextAnalysisEngines. <br>
    * In this case, the CAS is assumed to contain annotations of type PersonTitle, created with the
-   * PersonTitleAnnotator. These Annotations are stored in a database table called PersonTitle.
+   * PersonTitleAnnotator. One row is captured for each of these Annotations; the rows are stored
+   * in the database by {@link #processBatch(List)}.
    * 
    * @param aCAS
    *          CasContainer which has been populated by the TAEs
    * 
+   * @return the rows captured from the CAS, as a PersonTitleRow[]
+   * 
    * @throws ResourceProcessException
    *           if there is an error in processing the Resource
    * 
-   * @see org.apache.uima.collection.base_cpm.CasObjectProcessor#processCas(org.apache.uima.cas.CAS)
+   * @see org.apache.uima.collection.BatchCasConsumer#captureCas(org.apache.uima.cas.CAS)
    */
-  public void processCas(CAS aCAS) throws ResourceProcessException {
-    System.out.println("Time: " + (System.currentTimeMillis() - startTime)
-            + " DB Writer: ProcessCas called");
+  public Object captureCas(CAS aCAS) throws ResourceProcessException {
     JCas jcas;
     try {
       jcas = aCAS.getJCas();
@@ -133,130 +160,59 @@ public class PersonTitleDBWriterCasConsumer extends CasConsumer_ImplBase {
       throw new ResourceProcessException(e);
     }
 
+    // get the singleton instance of the SourceDocumentInformation
+    SourceDocumentInformation sdi = (SourceDocumentInformation) 
+            jcas.getAnnotationIndex(SourceDocumentInformation.type).iterator().next();
+
+    System.out.println("Time: " + (System.currentTimeMillis() - startTime)
+            + " DB Writer: Capturing doc: '" + sdi.getUri() + "'");
+
+    String uri = truncate(sdi.getUri(), MAX_URI_LENGTH);
+    List<PersonTitleRow> rows = new ArrayList<PersonTitleRow>();
+    for (FSIterator iter = jcas.getAnnotationIndex(PersonTitle.type).iterator(); 
+         iter.hasNext();) {
+      PersonTitle pt = (PersonTitle) iter.next();
+      rows.add(new PersonTitleRow(uri, truncate(pt.getCoveredText(), MAX_TITLE_LENGTH), pt
+              .getBegin(), pt.getEnd()));
+    }
+    return rows.toArray(new PersonTitleRow[rows.size()]);
+  }
+
+  /**
+   * Stores the rows captured from a batch of CASes in the PersonTitle table, with one JDBC batch
+   * update and one commit. This is called on a writer thread of the CPE, so the analysis goes on
+   * while the database is updated.
+   * 
+   * @param aBatch
+   *          the arrays of rows returned by {@link #captureCas(CAS)}
+   * 
+   * @throws ResourceProcessException
+   *           if there is an error in processing the Resource
+   * 
+   * @see org.apache.uima.collection.BatchCasConsumer#processBatch(java.util.List)
+   */
+  public void processBatch(List<Object> aBatch) throws ResourceProcessException {
+    System.out.println("Time: " + (System.currentTimeMillis() - startTime)
+            + " DB Writer: Batch writing updates for " + aBatch.size() + " documents");
     try {
       if (firstCall) {
         firstCall = false;
-        System.out.println("Time: " + (System.currentTimeMillis() - startTime)
-                + " DB Writer: First Time Initiailization: ");
-        // NOTE TO USERS: a better design will be to do the loading of the
-        // driver in the initialize() method, where it can
-        // throw a ResourceInitialization Exception if it can't
-        // load (and perhaps even connect to) the database
-
-        // load the driver
-        // Depends on "derby.system.property" set in initialize
-        // Different databases have different classes they load
-        // This is the one for derby - for the "Embedded" database
-        // (derby also has a network accessed database driver)
-        if (firstEverCall) {
-          firstEverCall = false;
-          System.out
-                  .println("Time: "
-                          + (System.currentTimeMillis() - startTime)
-                          + " DB Writer: Doing first process call ever (even during re-runs) initialization");
-          try {
-            // note: newInstance() call is needed to reinitialize properly after
-            // derby has been shutdown
-            Class.forName("org.apache.derby.jdbc.EmbeddedDriver").newInstance();
-            System.out.println("Time: " + (System.currentTimeMillis() - startTime)
-                    + " DB Writer:    Loaded derby DB driver OK");
-          } catch (ClassNotFoundException e) {
-            System.err.println("No driver found for derby - check class path.");
-          } catch (InstantiationException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-          } catch (IllegalAccessException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-          }
-        }
-        // create and connect to "ExamplePersonTitleDB" -
-        // in derby, this is a directory name under the "System"
-        // directory set with the above parameter
-        // the System directory is passed to the JVM as a property
-        // (see the derby documentation). Or - you can specify a
-        // complete path, using //forward slashes on windows, such as
-        // "jdbc:derby:c:/a/b/myDB".
-
-        // NOTE TO USERS: In a real application you would probably
-        // not delete the database and re-create it - this takes a long
-        // time. If you want to get rid of the particular table you're
-        // about to create if it already exists, use
-        // the SQL "Drop" command
-
-        // if database exists, delete it
-        File db = new File(mOutputDir.toString() + "/ExamplePersonTitleDB");
-        if (db.exists()) {
-          System.out.println("Time: " + (System.currentTimeMillis() - startTime)
-                  + " DB Writer: First Time Initiailization: Deleting Database");
-          deleteDir(db);
-          System.out.println("Time: " + (System.currentTimeMillis() - startTime)
-                  + " DB Writer: First Time Initiailization: Database deleted");
-
-        }
-
-        con = DriverManager.getConnection("jdbc:derby:ExamplePersonTitleDB;create=true");
-        System.out
-                .println("Time: "
-                        + (System.currentTimeMillis() - startTime)
-                        + " DB Writer: First Time Initiailization: Created the ExamplePersonTitleDB and connected to it.");
-
-        // Databases typically use user-names and passwords; these can
-        // be passed as //properties to the getConnection method.
-
-        // drop the table in case it's already present
-        // This isn't needed because we're starting from an empty database,
-        // but leave here for tutorial reasons
-        Statement sqlStmt = con.createStatement();
-        try {
-          sqlStmt.execute("drop table PersonTitle");
-        } catch (SQLException e) {
-        }
-        sqlStmt.execute("create table PersonTitle(" + "uri varchar(" + MAX_URI_LENGTH
-                + "), spannedText varchar(" + MAX_TITLE_LENGTH
-                + "), beginOffset int, endOffset int)");
-        System.out.println("Time: " + (System.currentTimeMillis() - startTime)
-                + " DB Writer: First Time Initiailization: Created the PersonTitle table.");
-
-        sqlStmt.close(); // free resources associated with this
-        // statement
-
-        // Entering data: use a Statement, or a PreparedStatement
-        stmt = con.prepareStatement("insert into PersonTitle values (?, ?, ?, ?)");
-        // Writing out all instances of type uima.tcas.Annotation
-        // Assume the variable "jcas" holds a reference to a JCas
-        con.setAutoCommit(false); // need this for batch updating
+        createDatabase();
       }
 
-      // get the singleton instance of the SourceDocumentInformation
-      SourceDocumentInformation sdi = (SourceDocumentInformation) 
-              jcas.getAnnotationIndex(SourceDocumentInformation.type).iterator().next();
-
-      System.out.println("Time: " + (System.currentTimeMillis() - startTime)
-              + " DB Writer: Processing doc: '" + sdi.getUri() + "'");
-
-      stmt.setString(1, truncate(sdi.getUri(), MAX_URI_LENGTH));
-      for (FSIterator iter = jcas.getAnnotationIndex(PersonTitle.type).iterator(); 
-           iter.hasNext();) {
-        PersonTitle pt = (PersonTitle) iter.next();
-        stmt.setString(2, truncate(pt.getCoveredText(), MAX_TITLE_LENGTH));
-        stmt.setInt(3, pt.getBegin());
-        stmt.setInt(4, pt.getEnd());
-        stmt.addBatch();
-        batchCounter--;
-        if (batchCounter <= 0) {
-          System.out.println("Time: " + (System.currentTimeMillis() - startTime)
-                  + " DB Writer: Batch writing updates - process call");
-          stmt.executeBatch();
-          // NOTE TO USERS: Although we "commit" here, you may want
-          // to delay committing until batchProcessComplete - or some
-          // other logical point - to keep the DB in a more consistent
-          // state (not partially updated).
-
-          con.commit();
-          batchCounter = DB_LOAD_BATCH_SIZE;
+      for (Object rows : aBatch) {
+        for (PersonTitleRow row : (PersonTitleRow[]) rows) {
+          stmt.setString(1, row.uri);
+          stmt.setString(2, row.spannedText);
+          stmt.setInt(3, row.beginOffset);
+          stmt.setInt(4, row.endOffset);
+          stmt.addBatch();
         }
       }
+      stmt.executeBatch();
+      // NOTE TO USERS: the batch is committed as a whole, so the DB
+      // only holds complete documents.
+      con.commit();
     } catch (SQLException e) {
       try {
         // NOTE TO USERS: depending on your error recover logic, you'll
@@ -277,19 +233,106 @@ public class PersonTitleDBWriterCasConsumer extends CasConsumer_ImplBase {
     }
   }
 
+  private void createDatabase() throws SQLException {
+    System.out.println("Time: " + (System.currentTimeMillis() - startTime)
+            + " DB Writer: First Time Initiailization: ");
+    // NOTE TO USERS: a better design will be to do the loading of the
+    // driver in the initialize() method, where it can
+    // throw a ResourceInitialization Exception if it can't
+    // load (and perhaps even connect to) the database
+
+    // load the driver
+    // Depends on "derby.system.property" set in initialize
+    // Different databases have different classes they load
+    // This is the one for derby - for the "Embedded" database
+    // (derby also has a network accessed database driver)
+    if (firstEverCall) {
+      firstEverCall = false;
+      System.out
+              .println("Time: "
+                      + (System.currentTimeMillis() - startTime)
+                      + " DB Writer: Doing first process call ever (even during re-runs) initialization");
+      try {
+        // note: newInstance() call is needed to reinitialize properly after
+        // derby has been shutdown
+        Class.forName("org.apache.derby.jdbc.EmbeddedDriver").newInstance();
+        System.out.println("Time: " + (System.currentTimeMillis() - startTime)
+                + " DB Writer:    Loaded derby DB driver OK");
+      } catch (ClassNotFoundException e) {
+        System.err.println("No driver found for derby - check class path.");
+      } catch (InstantiationException e) {
+        // TODO Auto-generated catch block
+        e.printStackTrace();
+      } catch (IllegalAccessException e) {
+        // TODO Auto-generated catch block
+        e.printStackTrace();
+      }
+    }
+    // create and connect to "ExamplePersonTitleDB" -
+    // in derby, this is a directory name under the "System"
+    // directory set with the above parameter
+    // the System directory is passed to the JVM as a property
+    // (see the derby documentation). Or - you can specify a
+    // complete path, using //forward slashes on windows, such as
+    // "jdbc:derby:c:/a/b/myDB".
+
+    // NOTE TO USERS: In a real application you would probably
+    // not delete the database and re-create it - this takes a long
+    // time. If you want to get rid of the particular table you're
+    // about to create if it already exists, use
+    // the SQL "Drop" command
+
+    // if database exists, delete it
+    File db = new File(mOutputDir.toString() + "/ExamplePersonTitleDB");
+    if (db.exists()) {
+      System.out.println("Time: " + (System.currentTimeMillis() - startTime)
+              + " DB Writer: First Time Initiailization: Deleting Database");
+      deleteDir(db);
+      System.out.println("Time: " + (System.currentTimeMillis() - startTime)
+              + " DB Writer: First Time Initiailization: Database deleted");
+
+    }
+
+    con = DriverManager.getConnection("jdbc:derby:ExamplePersonTitleDB;create=true");
+    System.out
+            .println("Time: "
+                    + (System.currentTimeMillis() - startTime)
+                    + " DB Writer: First Time Initiailization: Created the ExamplePersonTitleDB and connected to it.");
+
+    // Databases typically use user-names and passwords; these can
+    // be passed as //properties to the getConnection method.
+
+    // drop the table in case it's already present
+    // This isn't needed because we're starting from an empty database,
+    // but leave here for tutorial reasons
+    Statement sqlStmt = con.createStatement();
+    try {
+      sqlStmt.execute("drop table PersonTitle");
+    } catch (SQLException e) {
+    }
+    sqlStmt.execute("create table PersonTitle(" + "uri varchar(" + MAX_URI_LENGTH
+            + "), spannedText varchar(" + MAX_TITLE_LENGTH
+            + "), beginOffset int, endOffset int)");
+    System.out.println("Time: " + (System.currentTimeMillis() - startTime)
+            + " DB Writer: First Time Initiailization: Created the PersonTitle table.");
+
+    sqlStmt.close(); // free resources associated with this
+    // statement
+
+    // Entering data: use a Statement, or a PreparedStatement
+    stmt = con.prepareStatement("insert into PersonTitle values (?, ?, ?, ?)");
+    con.setAutoCommit(false); // need this for batch updating
+  }
+
   public void collectionProcessComplete(ProcessTrace arg0) throws ResourceProcessException,
           IOException {
+    // All the batches have been written at this point
+    if (firstCall) {
+      return;
+    }
     firstCall = true;
 
     try {
-      if (batchCounter < DB_LOAD_BATCH_SIZE) {
-        System.out.println("Time: " + (System.currentTimeMillis() - startTime)
-                + " DB Writer: Batch writing updates - processComplete call");
-        stmt.executeBatch();
-        con.commit();
-        batchCounter = DB_LOAD_BATCH_SIZE;
-      }
-
       stmt.close();
       con.close();
       System.out.println("Time: " + (System.currentTimeMillis() - startTime)